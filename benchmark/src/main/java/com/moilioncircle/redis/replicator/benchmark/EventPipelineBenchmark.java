@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.benchmark;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.EventQueueStrategy;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicates a synthetic rdb file through the event queues and handler workers to a listener.
+ * one op is the whole file, from open until the listener received the post full sync event.
+ *
+ * @since 2.0.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventPipelineBenchmark {
+
+    private static final int KEYS = 100000;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    @Param({"ARRAY_BLOCKING_QUEUE", "RING_BUFFER_YIELD", "RING_BUFFER_BLOCKING"})
+    public EventQueueStrategy strategy;
+
+    private byte[] rdb;
+
+    @Setup
+    public void setup() {
+        rdb = RdbGenerator.generate(RdbGenerator.Encoding.STRING, KEYS, 1, 16);
+    }
+
+    @Benchmark
+    public void replicate(Counters counters, final Blackhole blackhole) throws Exception {
+        Configuration configuration = Configuration.defaultSetting()
+                .setEventHandlerWorkers(workers).setEventQueueStrategy(strategy);
+        Replicator replicator = new RedisReplicator(new ByteArrayInputStream(rdb), configuration);
+        final CountDownLatch latch = new CountDownLatch(1);
+        replicator.addRdbListener(new RdbListener() {
+            @Override
+            public void preFullSync(Replicator replicator) {
+            }
+
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                blackhole.consume(kv);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        latch.await();
+        replicator.close();
+        counters.bytes += rdb.length;
+        counters.events += KEYS;
+    }
+}
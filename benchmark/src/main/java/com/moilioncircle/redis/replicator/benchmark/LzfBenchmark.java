@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.benchmark;
+
+import com.moilioncircle.redis.replicator.util.Lzf;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decompresses a LZF string. {@code ratio} is the size of the repeated pattern,
+ * small patterns give long back references, random data gives literal runs only.
+ *
+ * @since 2.0.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LzfBenchmark {
+
+    @Param({"64", "4096", "1048576"})
+    public int length;
+
+    @Param({"16", "random"})
+    public String ratio;
+
+    private byte[] compressed;
+
+    @Setup
+    public void setup() {
+        byte[] raw = new byte[length];
+        Random random = new Random(1);
+        int period = ratio.equals("random") ? length : Integer.parseInt(ratio);
+        for (int i = 0; i < length; i++) raw[i] = i < period ? (byte) random.nextInt() : raw[i - period];
+        compressed = Lzfs.compress(raw);
+    }
+
+    @Benchmark
+    public byte[] decode(Counters counters) {
+        counters.bytes += length;
+        return Lzf.decode(compressed, length);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * A minimal greedy LZF compressor producing the format decoded by
+ * {@link com.moilioncircle.redis.replicator.util.Lzf}.
+ *
+ * @since 2.0.0
+ */
+final class Lzfs {
+
+    private static final int HASH_BITS = 14;
+    private static final int MAX_LITERAL = 32;
+    private static final int MAX_OFF = 1 << 13;
+    private static final int MAX_REF = 264;
+
+    private Lzfs() {
+    }
+
+    static byte[] compress(byte[] in) {
+        byte[] out = new byte[in.length + in.length / MAX_LITERAL + 16];
+        int[] table = new int[1 << HASH_BITS];
+        Arrays.fill(table, -1);
+        int ip = 0, op = 0, lit = 0;
+        //reserved control byte of the current literal run
+        int litPos = op++;
+        while (ip < in.length) {
+            int ref = -1;
+            if (ip < in.length - 2) {
+                int h = hash(in, ip);
+                ref = table[h];
+                table[h] = ip;
+            }
+            int off = ip - ref - 1;
+            if (ref >= 0 && off < MAX_OFF && in[ref] == in[ip] && in[ref + 1] == in[ip + 1] && in[ref + 2] == in[ip + 2]) {
+                int max = Math.min(MAX_REF, in.length - ip);
+                int len = 3;
+                while (len < max && in[ref + len] == in[ip + len]) len++;
+                //close the literal run, or drop its unused control byte
+                if (lit > 0) out[litPos] = (byte) (lit - 1);
+                else op--;
+                int l = len - 2;
+                if (l < 7) {
+                    out[op++] = (byte) ((l << 5) + (off >> 8));
+                } else {
+                    out[op++] = (byte) ((7 << 5) + (off >> 8));
+                    out[op++] = (byte) (l - 7);
+                }
+                out[op++] = (byte) off;
+                ip += len;
+                lit = 0;
+                litPos = op++;
+            } else {
+                out[op++] = in[ip++];
+                if (++lit == MAX_LITERAL) {
+                    out[litPos] = (byte) (lit - 1);
+                    lit = 0;
+                    litPos = op++;
+                }
+            }
+        }
+        if (lit > 0) out[litPos] = (byte) (lit - 1);
+        else op--;
+        return Arrays.copyOf(out, op);
+    }
+
+    private static int hash(byte[] in, int ip) {
+        int v = (in[ip] & 0xff) << 16 | (in[ip + 1] & 0xff) << 8 | (in[ip + 2] & 0xff);
+        return (v * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.benchmark;
+
+import com.moilioncircle.redis.replicator.AbstractReplicator;
+import com.moilioncircle.redis.replicator.Configuration;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Consumes parsed events in the calling thread, so that only parsing is measured.
+ *
+ * @since 2.0.0
+ */
+public class NoopReplicator extends AbstractReplicator {
+
+    private final Blackhole blackhole;
+    private long events;
+
+    public NoopReplicator(Configuration configuration, Blackhole blackhole) {
+        this.configuration = configuration;
+        this.blackhole = blackhole;
+        buildInCommandParserRegister();
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    @Override
+    public void submitEvent(Object object) {
+        events++;
+        blackhole.consume(object);
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
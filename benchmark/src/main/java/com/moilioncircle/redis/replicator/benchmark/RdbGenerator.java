@@ -0,0 +1,353 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static com.moilioncircle.redis.replicator.Constants.*;
+
+/**
+ * Generates synthetic rdb version 7 files, one encoding per file.
+ *
+ * @since 2.0.0
+ */
+public class RdbGenerator {
+
+    public enum Encoding {
+        STRING, STRING_INT, STRING_LZF, LIST, SET, ZSET, HASH,
+        HASH_ZIPMAP, LIST_ZIPLIST, SET_INTSET, ZSET_ZIPLIST, HASH_ZIPLIST, LIST_QUICKLIST
+    }
+
+    private static final int QUICKLIST_FILL = 128;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final Random random = new Random(1);
+
+    /**
+     * @param encoding  value encoding of every key
+     * @param keys      number of keys
+     * @param elements  number of elements of aggregate values
+     * @param valueSize bytes of every string value or element
+     * @return rdb file content
+     */
+    public static byte[] generate(Encoding encoding, int keys, int elements, int valueSize) {
+        RdbGenerator generator = new RdbGenerator();
+        generator.header(keys);
+        for (int i = 0; i < keys; i++) {
+            generator.record(encoding, "key:" + i, elements, valueSize);
+        }
+        return generator.footer();
+    }
+
+    private void header(int keys) {
+        //no aux fields, the parser logs every one of them
+        write("REDIS0007".getBytes());
+        out.write(REDIS_RDB_OPCODE_SELECTDB);
+        len(0);
+        out.write(REDIS_RDB_OPCODE_RESIZEDB);
+        len(keys);
+        len(0);
+    }
+
+    private byte[] footer() {
+        out.write(REDIS_RDB_OPCODE_EOF);
+        //checksum is not verified by the parser
+        write(new byte[8]);
+        return out.toByteArray();
+    }
+
+    private void record(Encoding encoding, String key, int elements, int valueSize) {
+        switch (encoding) {
+            case STRING:
+                out.write(REDIS_RDB_TYPE_STRING);
+                string(key.getBytes());
+                string(bytes(valueSize));
+                break;
+            case STRING_INT:
+                out.write(REDIS_RDB_TYPE_STRING);
+                string(key.getBytes());
+                integer(random.nextInt());
+                break;
+            case STRING_LZF:
+                out.write(REDIS_RDB_TYPE_STRING);
+                string(key.getBytes());
+                lzf(bytes(valueSize));
+                break;
+            case LIST:
+            case SET:
+                out.write(encoding == Encoding.LIST ? REDIS_RDB_TYPE_LIST : REDIS_RDB_TYPE_SET);
+                string(key.getBytes());
+                len(elements);
+                for (int i = 0; i < elements; i++) string(element(i, valueSize));
+                break;
+            case ZSET:
+                out.write(REDIS_RDB_TYPE_ZSET);
+                string(key.getBytes());
+                len(elements);
+                for (int i = 0; i < elements; i++) {
+                    string(element(i, valueSize));
+                    byte[] score = String.valueOf(i * 1.5).getBytes();
+                    out.write(score.length);
+                    write(score);
+                }
+                break;
+            case HASH:
+                out.write(REDIS_RDB_TYPE_HASH);
+                string(key.getBytes());
+                len(elements);
+                for (int i = 0; i < elements; i++) {
+                    string(("field:" + i).getBytes());
+                    string(bytes(valueSize));
+                }
+                break;
+            case HASH_ZIPMAP:
+                out.write(REDIS_RDB_TYPE_HASH_ZIPMAP);
+                string(key.getBytes());
+                string(zipmap(elements, valueSize));
+                break;
+            case LIST_ZIPLIST:
+                out.write(REDIS_RDB_TYPE_LIST_ZIPLIST);
+                string(key.getBytes());
+                string(ziplist(elements, valueSize, false, false));
+                break;
+            case SET_INTSET:
+                out.write(REDIS_RDB_TYPE_SET_INTSET);
+                string(key.getBytes());
+                string(intset(elements));
+                break;
+            case ZSET_ZIPLIST:
+                out.write(REDIS_RDB_TYPE_ZSET_ZIPLIST);
+                string(key.getBytes());
+                string(ziplist(elements, valueSize, false, true));
+                break;
+            case HASH_ZIPLIST:
+                out.write(REDIS_RDB_TYPE_HASH_ZIPLIST);
+                string(key.getBytes());
+                string(ziplist(elements, valueSize, true, false));
+                break;
+            case LIST_QUICKLIST:
+                out.write(REDIS_RDB_TYPE_LIST_QUICKLIST);
+                string(key.getBytes());
+                int nodes = (elements + QUICKLIST_FILL - 1) / QUICKLIST_FILL;
+                len(nodes);
+                for (int i = 0; i < nodes; i++) {
+                    int size = Math.min(QUICKLIST_FILL, elements - i * QUICKLIST_FILL);
+                    string(ziplist(size, valueSize, false, false));
+                }
+                break;
+            default:
+                throw new AssertionError("Un-except encoding:" + encoding);
+        }
+    }
+
+    /*
+     * every third element is an integer so that both ziplist entry kinds are decoded
+     */
+    private byte[] element(int i, int valueSize) {
+        return i % 3 == 0 ? String.valueOf(i).getBytes() : bytes(valueSize);
+    }
+
+    private byte[] bytes(int size) {
+        byte[] bytes = new byte[size];
+        //printable and compressible: a short random pattern repeated
+        int period = Math.max(1, Math.min(size, 16));
+        for (int i = 0; i < period; i++) bytes[i] = (byte) ('a' + random.nextInt(26));
+        for (int i = period; i < size; i++) bytes[i] = bytes[i - period];
+        return bytes;
+    }
+
+    /*
+     * |<zmlen> |   <len>     |"foo"    |    <len>   | <free> |   "bar" |<zmend> |
+     */
+    private byte[] zipmap(int elements, int valueSize) {
+        ByteArrayOutputStream zm = new ByteArrayOutputStream();
+        zm.write(Math.min(elements, 254));
+        for (int i = 0; i < elements; i++) {
+            byte[] field = ("field:" + i).getBytes();
+            byte[] value = bytes(valueSize);
+            zmlen(zm, field.length);
+            zm.write(field, 0, field.length);
+            zmlen(zm, value.length);
+            zm.write(0);
+            zm.write(value, 0, value.length);
+        }
+        zm.write(255);
+        return zm.toByteArray();
+    }
+
+    private static void zmlen(ByteArrayOutputStream zm, int len) {
+        if (len < 254) {
+            zm.write(len);
+        } else {
+            zm.write(254);
+            bigEndian(zm, len, 4);
+        }
+    }
+
+    /*
+     * |<encoding>| <length-of-contents>|              <contents>                           |
+     */
+    private byte[] intset(int elements) {
+        ByteArrayOutputStream is = new ByteArrayOutputStream();
+        littleEndian(is, 4, 4);
+        littleEndian(is, elements, 4);
+        for (int i = 0; i < elements; i++) littleEndian(is, i * 7, 4);
+        return is.toByteArray();
+    }
+
+    /*
+     * |<zlbytes>| <zltail>| <zllen>| <entry> ...<entry> | <zlend>|
+     */
+    private byte[] ziplist(int elements, int valueSize, boolean hash, boolean zset) {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        int count = hash || zset ? elements * 2 : elements;
+        int prevlen = 0;
+        for (int i = 0; i < elements; i++) {
+            if (hash) {
+                prevlen = entry(entries, prevlen, ("field:" + i).getBytes());
+                prevlen = entry(entries, prevlen, bytes(valueSize));
+            } else if (zset) {
+                prevlen = entry(entries, prevlen, element(i, valueSize));
+                prevlen = entry(entries, prevlen, String.valueOf(i).getBytes());
+            } else {
+                prevlen = entry(entries, prevlen, element(i, valueSize));
+            }
+        }
+        //offset of the last entry
+        int tail = 10 + entries.size() - prevlen;
+        ByteArrayOutputStream zl = new ByteArrayOutputStream();
+        littleEndian(zl, 10 + entries.size() + 1, 4);
+        littleEndian(zl, tail, 4);
+        littleEndian(zl, Math.min(count, 65535), 2);
+        byte[] body = entries.toByteArray();
+        zl.write(body, 0, body.length);
+        zl.write(255);
+        return zl.toByteArray();
+    }
+
+    /**
+     * writes a ziplist entry, integers are written with the smallest int encoding
+     *
+     * @return length of the written entry
+     */
+    private static int entry(ByteArrayOutputStream zl, int prevlen, byte[] value) {
+        int start = zl.size();
+        if (prevlen < 254) {
+            zl.write(prevlen);
+        } else {
+            zl.write(254);
+            littleEndian(zl, prevlen, 4);
+        }
+        Long integer = toLong(value);
+        if (integer != null) {
+            long v = integer;
+            if (v >= 0 && v <= 12) {
+                zl.write((int) (0xf1 + v));
+            } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+                zl.write(ZIP_INT_8B);
+                littleEndian(zl, v, 1);
+            } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+                zl.write(ZIP_INT_16B);
+                littleEndian(zl, v, 2);
+            } else if (v >= -(1 << 23) && v < (1 << 23)) {
+                zl.write(ZIP_INT_24B);
+                littleEndian(zl, v, 3);
+            } else if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+                zl.write(ZIP_INT_32B);
+                littleEndian(zl, v, 4);
+            } else {
+                zl.write(ZIP_INT_64B);
+                littleEndian(zl, v, 8);
+            }
+        } else if (value.length < 1 << 6) {
+            zl.write(value.length);
+            zl.write(value, 0, value.length);
+        } else if (value.length < 1 << 14) {
+            zl.write(0x40 | value.length >> 8);
+            zl.write(value.length & 0xff);
+            zl.write(value, 0, value.length);
+        } else {
+            zl.write(0x80);
+            bigEndian(zl, value.length, 4);
+            zl.write(value, 0, value.length);
+        }
+        return zl.size() - start;
+    }
+
+    private static Long toLong(byte[] value) {
+        if (value.length == 0 || value.length > 18) return null;
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] < '0' || value[i] > '9') {
+                if (i != 0 || value[i] != '-' || value.length == 1) return null;
+            }
+        }
+        //leading zeros are stored as strings by redis
+        if (value.length > 1 && value[0] == '0') return null;
+        return Long.parseLong(new String(value));
+    }
+
+    private void len(int len) {
+        if (len < 1 << 6) {
+            out.write(len);
+        } else if (len < 1 << 14) {
+            out.write(0x40 | len >> 8);
+            out.write(len & 0xff);
+        } else {
+            out.write(0x80);
+            bigEndian(out, len, 4);
+        }
+    }
+
+    private void string(byte[] bytes) {
+        len(bytes.length);
+        write(bytes);
+    }
+
+    private void integer(int value) {
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            out.write(0xc0 | REDIS_RDB_ENC_INT8);
+            littleEndian(out, value, 1);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            out.write(0xc0 | REDIS_RDB_ENC_INT16);
+            littleEndian(out, value, 2);
+        } else {
+            out.write(0xc0 | REDIS_RDB_ENC_INT32);
+            littleEndian(out, value, 4);
+        }
+    }
+
+    private void lzf(byte[] bytes) {
+        byte[] compressed = Lzfs.compress(bytes);
+        out.write(0xc0 | REDIS_RDB_ENC_LZF);
+        len(compressed.length);
+        len(bytes.length);
+        write(compressed);
+    }
+
+    private void write(byte[] bytes) {
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void littleEndian(ByteArrayOutputStream out, long value, int bytes) {
+        for (int i = 0; i < bytes; i++) out.write((int) (value >>> (8 * i)) & 0xff);
+    }
+
+    private static void bigEndian(ByteArrayOutputStream out, long value, int bytes) {
+        for (int i = bytes - 1; i >= 0; i--) out.write((int) (value >>> (8 * i)) & 0xff);
+    }
+}
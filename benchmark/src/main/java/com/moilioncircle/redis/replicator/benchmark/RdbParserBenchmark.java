@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.benchmark;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.RdbParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a synthetic rdb file of a single encoding. one op is one whole file.
+ * {@code small} is many keys with small values, {@code huge} is a few keys with big values.
+ *
+ * @since 2.0.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdbParserBenchmark {
+
+    @Param({"STRING", "STRING_INT", "STRING_LZF", "LIST", "SET", "ZSET", "HASH",
+            "HASH_ZIPMAP", "LIST_ZIPLIST", "SET_INTSET", "ZSET_ZIPLIST", "HASH_ZIPLIST", "LIST_QUICKLIST"})
+    public RdbGenerator.Encoding encoding;
+
+    @Param({"small", "huge"})
+    public String size;
+
+    private byte[] rdb;
+    private Configuration configuration;
+
+    @Setup
+    public void setup() {
+        boolean string = encoding == RdbGenerator.Encoding.STRING || encoding == RdbGenerator.Encoding.STRING_LZF;
+        if (size.equals("small")) {
+            rdb = RdbGenerator.generate(encoding, 10000, 8, 16);
+        } else if (string) {
+            rdb = RdbGenerator.generate(encoding, 4, 1, 1 << 20);
+        } else {
+            rdb = RdbGenerator.generate(encoding, 4, 20000, 64);
+        }
+        configuration = Configuration.defaultSetting();
+    }
+
+    @Benchmark
+    public void parse(Counters counters, Blackhole blackhole) throws IOException {
+        NoopReplicator replicator = new NoopReplicator(configuration, blackhole);
+        RedisInputStream in = new RedisInputStream(new ByteArrayInputStream(rdb));
+        new RdbParser(in, replicator).parse();
+        counters.bytes += rdb.length;
+        counters.events += replicator.getEvents();
+    }
+}
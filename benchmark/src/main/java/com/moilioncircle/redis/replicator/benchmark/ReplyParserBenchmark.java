@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.benchmark;
+
+import com.moilioncircle.redis.replicator.cmd.BulkReplyHandler;
+import com.moilioncircle.redis.replicator.cmd.CommandName;
+import com.moilioncircle.redis.replicator.cmd.RawCommandFilter;
+import com.moilioncircle.redis.replicator.cmd.ReplyParser;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a synthetic replication stream. one op is the whole stream of {@link #COMMANDS} commands.
+ *
+ * @since 2.0.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplyParserBenchmark {
+
+    private static final int COMMANDS = 10000;
+    private static final BulkReplyHandler BYTES_HANDLER = new BulkReplyHandler.BytesBulkReplyHandler();
+
+    @Param({"16", "1024"})
+    public int valueSize;
+
+    private byte[] stream;
+
+    //accepts one key out of ten
+    private final RawCommandFilter filter = new RawCommandFilter() {
+        @Override
+        public boolean accept(CommandName name, int db, byte[] key) {
+            return key != null && key.length > 0 && key[key.length - 1] == '0';
+        }
+    };
+
+    @Setup
+    public void setup() {
+        stream = RespGenerator.generate(COMMANDS, 1000, valueSize);
+    }
+
+    @Benchmark
+    public void parse(Counters counters, Blackhole blackhole) throws IOException {
+        ReplyParser parser = new ReplyParser(new RedisInputStream(new ByteArrayInputStream(stream)));
+        for (int i = 0; i < COMMANDS; i++) blackhole.consume(parser.parse(BYTES_HANDLER));
+        counters.bytes += stream.length;
+        counters.events += COMMANDS;
+    }
+
+    @Benchmark
+    public void parseFiltered(Counters counters, Blackhole blackhole) throws IOException {
+        ReplyParser parser = new ReplyParser(new RedisInputStream(new ByteArrayInputStream(stream)));
+        for (int i = 0; i < COMMANDS; i++) blackhole.consume(parser.parseCommand(null, 0, filter));
+        counters.bytes += stream.length;
+        counters.events += COMMANDS;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Generates a synthetic replication stream of RESP arrays, a mix of the commands redis propagates most.
+ *
+ * @since 2.0.0
+ */
+public class RespGenerator {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final Random random = new Random(1);
+
+    /**
+     * @param commands  number of commands
+     * @param keys      number of distinct keys
+     * @param valueSize bytes of every value argument
+     * @return RESP bytes
+     */
+    public static byte[] generate(int commands, int keys, int valueSize) {
+        RespGenerator generator = new RespGenerator();
+        generator.command("SELECT", "0");
+        for (int i = 1; i < commands; i++) {
+            String key = "key:" + generator.random.nextInt(keys);
+            switch (i % 8) {
+                case 0:
+                    generator.command("SELECT", String.valueOf(generator.random.nextInt(16)));
+                    break;
+                case 1:
+                    generator.command("HSET", key, "field:" + i, generator.value(valueSize));
+                    break;
+                case 2:
+                    generator.command("LPUSH", key, generator.value(valueSize), generator.value(valueSize));
+                    break;
+                case 3:
+                    generator.command("ZADD", key, String.valueOf(i), generator.value(valueSize));
+                    break;
+                case 4:
+                    generator.command("SADD", key, generator.value(valueSize));
+                    break;
+                case 5:
+                    generator.command("INCRBY", key, String.valueOf(i));
+                    break;
+                case 6:
+                    generator.command("PEXPIRE", key, "60000");
+                    break;
+                default:
+                    generator.command("SET", key, generator.value(valueSize));
+                    break;
+            }
+        }
+        return generator.out.toByteArray();
+    }
+
+    private String value(int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) chars[i] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+    private void command(String... args) {
+        write("*" + args.length + "\r\n");
+        for (String arg : args) {
+            write("$" + arg.length() + "\r\n");
+            write(arg);
+            write("\r\n");
+        }
+    }
+
+    private void write(String s) {
+        byte[] bytes = s.getBytes();
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -19,12 +19,16 @@ package com.moilioncircle.redis.replicator;
 import com.moilioncircle.redis.replicator.cmd.*;
 import com.moilioncircle.redis.replicator.cmd.impl.*;
 import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.BatchRdbListener;
 import com.moilioncircle.redis.replicator.rdb.RdbFilter;
+import com.moilioncircle.redis.replicator.rdb.RdbKeyFilter;
 import com.moilioncircle.redis.replicator.rdb.RdbListener;
 import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -32,21 +36,37 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * Created by leon on 8/13/16.
  */
 public abstract class AbstractReplicator implements Replicator {
+    //the first argument of these commands is not a key, or not the only key they write. raw filters are not asked
+    protected static final Set<CommandName> UNKEYED_COMMANDS = new HashSet<>(Arrays.asList(
+            CommandName.name("PING"), CommandName.name("FLUSHALL"), CommandName.name("FLUSHDB"), CommandName.name("SWAPDB"),
+            CommandName.name("MULTI"), CommandName.name("EXEC"), CommandName.name("EVAL"), CommandName.name("EVALSHA"),
+            CommandName.name("SCRIPT"), CommandName.name("PUBLISH"), CommandName.name("BITOP"), CommandName.name("PFMERGE"),
+            CommandName.name("SDIFFSTORE"), CommandName.name("SINTERSTORE"), CommandName.name("SUNIONSTORE"),
+            CommandName.name("ZINTERSTORE"), CommandName.name("ZUNIONSTORE")));
+
     protected RedisInputStream inputStream;
-    protected BlockingQueue<Object> eventQueue;
     protected Configuration configuration;
     protected final ConcurrentHashMap<CommandName, CommandParser<? extends Command>> commands = new ConcurrentHashMap<>();
     protected final List<CommandFilter> filters = new CopyOnWriteArrayList<>();
+    protected final List<RawCommandFilter> rawFilters = new CopyOnWriteArrayList<>();
     protected final List<CommandListener> listeners = new CopyOnWriteArrayList<>();
     protected final List<RdbFilter> rdbFilters = new CopyOnWriteArrayList<>();
+    protected final List<RdbKeyFilter> rdbKeyFilters = new CopyOnWriteArrayList<>();
     protected final List<RdbListener> rdbListeners = new CopyOnWriteArrayList<>();
+    protected final List<BatchCommandListener> batchListeners = new CopyOnWriteArrayList<>();
+    protected final List<BatchRdbListener> batchRdbListeners = new CopyOnWriteArrayList<>();
     protected final List<CloseListener> closeListeners = new CopyOnWriteArrayList<>();
-    protected final EventHandlerWorker worker = new EventHandlerWorker(this);
+    protected EventPipeline pipeline;
+    protected final ReplicatorMetrics metrics = new ReplicatorMetrics(this);
+    protected final Checkpointer checkpointer = new Checkpointer(this);
 
     @Override
     public void doCommandHandler(Command command) {
+        boolean timed = listenerLatencyMetrics();
         for (CommandListener listener : listeners) {
+            long start = timed ? System.nanoTime() : 0L;
             listener.handle(this, command);
+            if (timed) metrics.listenerLatency(listener, System.nanoTime() - start);
         }
     }
 
@@ -58,10 +78,32 @@ public abstract class AbstractReplicator implements Replicator {
         return true;
     }
 
+    @Override
+    public boolean doRawCommandFilter(CommandName name, int db, byte[] key) {
+        if (UNKEYED_COMMANDS.contains(name)) return true;
+        for (RawCommandFilter filter : rawFilters) {
+            if (!filter.accept(name, db, key)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void doBatchCommandHandler(List<Command> commands) {
+        boolean timed = listenerLatencyMetrics();
+        for (BatchCommandListener listener : batchListeners) {
+            long start = timed ? System.nanoTime() : 0L;
+            listener.handle(this, commands);
+            if (timed) metrics.listenerLatency(listener, System.nanoTime() - start);
+        }
+    }
+
     @Override
     public void doRdbHandler(KeyValuePair<?> kv) {
+        boolean timed = listenerLatencyMetrics();
         for (RdbListener listener : rdbListeners) {
+            long start = timed ? System.nanoTime() : 0L;
             listener.handle(this, kv);
+            if (timed) metrics.listenerLatency(listener, System.nanoTime() - start);
         }
     }
 
@@ -73,11 +115,32 @@ public abstract class AbstractReplicator implements Replicator {
         return true;
     }
 
+    @Override
+    public boolean doRdbKeyFilter(KeyValuePair<?> kv) {
+        for (RdbKeyFilter filter : rdbKeyFilters) {
+            if (!filter.accept(kv)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void doBatchRdbHandler(List<KeyValuePair<?>> kvs) {
+        boolean timed = listenerLatencyMetrics();
+        for (BatchRdbListener listener : batchRdbListeners) {
+            long start = timed ? System.nanoTime() : 0L;
+            listener.handle(this, kvs);
+            if (timed) metrics.listenerLatency(listener, System.nanoTime() - start);
+        }
+    }
+
     @Override
     public void doPreFullSync() {
         for (RdbListener listener : rdbListeners) {
             listener.preFullSync(this);
         }
+        for (BatchRdbListener listener : batchRdbListeners) {
+            listener.preFullSync(this);
+        }
     }
 
     @Override
@@ -85,6 +148,10 @@ public abstract class AbstractReplicator implements Replicator {
         for (RdbListener listener : rdbListeners) {
             listener.postFullSync(this, checksum);
         }
+        for (BatchRdbListener listener : batchRdbListeners) {
+            listener.postFullSync(this, checksum);
+        }
+        checkpointer.fullSynced();
     }
 
     @Override
@@ -92,6 +159,8 @@ public abstract class AbstractReplicator implements Replicator {
         for (CloseListener listener : closeListeners) {
             listener.handle(this);
         }
+        checkpointer.close();
+        metrics.close();
     }
 
     @Override
@@ -114,6 +183,16 @@ public abstract class AbstractReplicator implements Replicator {
         filters.remove(filter);
     }
 
+    @Override
+    public void addRawCommandFilter(RawCommandFilter filter) {
+        rawFilters.add(filter);
+    }
+
+    @Override
+    public void removeRawCommandFilter(RawCommandFilter filter) {
+        rawFilters.remove(filter);
+    }
+
     @Override
     public void addCommandListener(CommandListener listener) {
         listeners.add(listener);
@@ -124,6 +203,16 @@ public abstract class AbstractReplicator implements Replicator {
         listeners.remove(listener);
     }
 
+    @Override
+    public void addBatchCommandListener(BatchCommandListener listener) {
+        batchListeners.add(listener);
+    }
+
+    @Override
+    public void removeBatchCommandListener(BatchCommandListener listener) {
+        batchListeners.remove(listener);
+    }
+
     @Override
     public void addRdbFilter(RdbFilter filter) {
         rdbFilters.add(filter);
@@ -134,6 +223,16 @@ public abstract class AbstractReplicator implements Replicator {
         rdbFilters.remove(filter);
     }
 
+    @Override
+    public void addRdbKeyFilter(RdbKeyFilter filter) {
+        rdbKeyFilters.add(filter);
+    }
+
+    @Override
+    public void removeRdbKeyFilter(RdbKeyFilter filter) {
+        rdbKeyFilters.remove(filter);
+    }
+
     @Override
     public void addRdbListener(RdbListener listener) {
         rdbListeners.add(listener);
@@ -144,6 +243,16 @@ public abstract class AbstractReplicator implements Replicator {
         rdbListeners.remove(listener);
     }
 
+    @Override
+    public void addBatchRdbListener(BatchRdbListener listener) {
+        batchRdbListeners.add(listener);
+    }
+
+    @Override
+    public void removeBatchRdbListener(BatchRdbListener listener) {
+        batchRdbListeners.remove(listener);
+    }
+
     @Override
     public void addCloseListener(CloseListener listener) {
         closeListeners.add(listener);
@@ -156,7 +265,53 @@ public abstract class AbstractReplicator implements Replicator {
 
     @Override
     public void submitEvent(Object object) throws InterruptedException {
-        eventQueue.put(object);
+        metrics.submitted(object);
+        checkpointer.submitted(object);
+        pipeline.submit(object);
+    }
+
+    /**
+     * non blocking {@link #submitEvent(Object)} for replicators driven by a selector loop
+     *
+     * @param object event
+     * @return false if the event queue is full
+     */
+    protected boolean offerEvent(Object object) {
+        if (!pipeline.offer(object)) return false;
+        metrics.submitted(object);
+        checkpointer.submitted(object);
+        return true;
+    }
+
+    @Override
+    public void commit() {
+        if (configuration == null || !configuration.isManualCommit()) return;
+        Thread thread = Thread.currentThread();
+        if (!(thread instanceof EventHandlerWorker) || ((EventHandlerWorker) thread).replicator() != this) {
+            throw new IllegalStateException("commit outside of an event handler thread of this replicator");
+        }
+        ((EventHandlerWorker) thread).commit();
+    }
+
+    /**
+     * @return offset sent by REPLCONF ACK, the committed offset with {@link Configuration#isManualCommit()},
+     * otherwise the offset read so far
+     */
+    protected long ackOffset() {
+        return configuration.isManualCommit() ? pipeline.committedOffset() : configuration.getOffset();
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public ReplicatorMetrics getMetrics() {
+        return metrics;
+    }
+
+    private boolean listenerLatencyMetrics() {
+        return configuration != null && configuration.isListenerLatencyMetrics();
     }
 
     @Override
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.checkpoint.Checkpoint;
+import com.moilioncircle.redis.replicator.checkpoint.CheckpointStore;
+import com.moilioncircle.redis.replicator.event.PreFullSyncEvent;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the processed offset of a replicator to its {@link Configuration#getCheckpointStore()}.
+ * <p>
+ * Only offsets of events whose listeners returned or committed are saved, see {@link ReplicatorMetrics#getCommittedOffset()}.
+ * The offset is reset to -1 when a full sync starts and no checkpoint is saved until the
+ * {@link com.moilioncircle.redis.replicator.event.PostFullSyncEvent} is handled, so that a restart during
+ * a full sync does a full sync again and a saved offset always belongs to the saved master run id.
+ * <p>
+ * All replicators save from one shared daemon thread.
+ *
+ * @since 2.0.0
+ */
+/*package*/ class Checkpointer {
+    private static final Log logger = LogFactory.getLog(Checkpointer.class);
+
+    private static ScheduledExecutorService scheduler;
+
+    private final AbstractReplicator replicator;
+    private ScheduledFuture<?> future;
+    private Checkpoint last;
+    private boolean syncing;
+
+    /*package*/ Checkpointer(AbstractReplicator replicator) {
+        this.replicator = replicator;
+    }
+
+    private CheckpointStore store() {
+        Configuration configuration = replicator.configuration;
+        return configuration == null ? null : configuration.getCheckpointStore();
+    }
+
+    /**
+     * loads the checkpoint into the configuration so that the next PSYNC continues from it
+     */
+    public synchronized void open() {
+        CheckpointStore store = store();
+        if (store == null || future != null) return;
+        try {
+            Checkpoint checkpoint = store.load();
+            if (checkpoint != null) {
+                logger.info("load " + checkpoint);
+                replicator.configuration.setMasterRunId(checkpoint.getRunId());
+                replicator.configuration.setOffset(checkpoint.getOffset());
+                last = checkpoint;
+            }
+        } catch (IOException e) {
+            logger.error("load checkpoint failed, full sync. " + store, e);
+        }
+        long period = replicator.configuration.getCheckpointPeriod();
+        future = scheduler().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                save();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * called on the parser thread for every submitted event
+     *
+     * @param event event
+     */
+    public void submitted(Object event) {
+        if (!(event instanceof PreFullSyncEvent) || store() == null) return;
+        synchronized (this) {
+            syncing = true;
+        }
+        scheduler().execute(new Runnable() {
+            @Override
+            public void run() {
+                write(new Checkpoint("?", -1L));
+            }
+        });
+    }
+
+    /**
+     * called after the listeners handled the post full sync event
+     */
+    public synchronized void fullSynced() {
+        syncing = false;
+    }
+
+    public synchronized void save() {
+        if (syncing || store() == null) return;
+        //offset first, run id is set before the offset of a new master
+        long offset = replicator.metrics.getCommittedOffset();
+        write(new Checkpoint(replicator.configuration.getMasterRunId(), offset));
+    }
+
+    private synchronized void write(Checkpoint checkpoint) {
+        CheckpointStore store = store();
+        if (store == null || checkpoint.equals(last)) return;
+        try {
+            store.save(checkpoint);
+            last = checkpoint;
+        } catch (IOException e) {
+            logger.error("save " + checkpoint + " failed. " + store, e);
+        } catch (RuntimeException e) {
+            logger.error("save " + checkpoint + " failed. " + store, e);
+        }
+    }
+
+    /**
+     * stops the periodic save and saves the last processed offset
+     */
+    public synchronized void close() {
+        if (future == null) return;
+        future.cancel(false);
+        future = null;
+        save();
+    }
+
+    private static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "checkpoint");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+}
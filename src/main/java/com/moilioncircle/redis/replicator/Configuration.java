@@ -16,6 +16,11 @@
 
 package com.moilioncircle.redis.replicator;
 
+import com.moilioncircle.redis.replicator.checkpoint.CheckpointStore;
+import com.moilioncircle.redis.replicator.record.StreamRecorder;
+
+import java.io.File;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -70,6 +75,21 @@ public class Configuration {
      */
     private int bufferSize = 1024 * 1024;
 
+    /**
+     * read local rdb files through a memory mapped FileChannel instead of a FileInputStream
+     */
+    private boolean mappedFile = false;
+
+    /**
+     * when greater than 1, local rdb files are scanned first and then decoded by this many threads
+     */
+    private int rdbParallelism = 1;
+
+    /**
+     * keep file order of KeyValuePairs when rdbParallelism is greater than 1
+     */
+    private boolean rdbParallelOrdered = true;
+
     /**
      * auth password
      */
@@ -80,11 +100,62 @@ public class Configuration {
      */
     private boolean discardRdbEvent = false;
 
+    /**
+     * when greater than 0, list/set/zset/hash/quicklist values with more elements are emitted as
+     * BEGIN, CHUNK..., END KeyValuePairs holding at most rdbChunkSize elements each
+     */
+    private int rdbChunkSize = 0;
+
+    /**
+     * ziplist, intset and zipmap values are read only views decoding the compact encoding when accessed
+     */
+    private boolean lazyEncodedValue = false;
+
+    /**
+     * LZF compressed string values are decompressed on first access instead of by the parser
+     */
+    private boolean lazyLzfValue = false;
+
+    /**
+     * with lazyLzfValue, decompresses string values as soon as they are read so that the parser only reads frames
+     */
+    private Executor lzfExecutor = null;
+
     /**
      * blocking queue size
      */
     private int eventQueueSize = 1000;
 
+    /**
+     * queue implementation between parser and event handler workers
+     */
+    private EventQueueStrategy eventQueueStrategy = EventQueueStrategy.ARRAY_BLOCKING_QUEUE;
+
+    /**
+     * max events an event handler worker drains from its queue at once
+     */
+    private int eventBatchSize = 256;
+
+    /**
+     * max events in one BatchRdbListener/BatchCommandListener call
+     */
+    private int batchListenerSize = 512;
+
+    /**
+     * max milliseconds an event waits in a batch before the batch is handed to batch listeners
+     */
+    private int batchListenerLatency = 100;
+
+    /**
+     * event handler worker threads. events are partitioned by key hash so that per-key order is kept
+     */
+    private int eventHandlerWorkers = 1;
+
+    /**
+     * record per listener handling latency histograms, costs two System.nanoTime() calls per listener call
+     */
+    private boolean listenerLatencyMetrics = false;
+
     /**
      * trace event log
      */
@@ -95,16 +166,98 @@ public class Configuration {
      */
     private int heartBeatPeriod = 1000;
 
+    /**
+     * when not null, socket replicators share the selector threads of this pool instead of
+     * a blocking socket and a heart beat thread each
+     */
+    private SelectorPool selectorPool = null;
+
+    /**
+     * when not null, a socket replicator spools the replication stream to segment files in this directory
+     * so that it keeps reading from the master while listeners are slow
+     */
+    private File spoolDirectory = null;
+
+    /**
+     * spool segment file size
+     */
+    private long spoolSegmentSize = 64 * 1024 * 1024;
+
+    /**
+     * spooled bytes not parsed yet, above this the socket is not read any more
+     */
+    private long spoolMaxSize = 1024 * 1024 * 1024;
+
+    /**
+     * when not null, socket replicators record the replication stream of every connection, see RedisReplicator(ReplayInputStream, Configuration)
+     */
+    private StreamRecorder streamRecorder = null;
+
+    /**
+     * when true an event counts as processed only once a listener called {@link Replicator#commit()}.
+     * heart beats report the committed offset and reconnects resume from it
+     */
+    private boolean manualCommit = false;
+
+    /**
+     * when not null, master run id and committed offset are saved to and resumed from this store
+     */
+    private CheckpointStore checkpointStore = null;
+
+    /**
+     * milliseconds between two checkpoint saves
+     */
+    private int checkpointPeriod = 1000;
+
     /**
      * psync master run id
      */
-    private String masterRunId = "?";
+    private volatile String masterRunId = "?";
 
     /**
      * psync offset
      */
     private final AtomicLong offset = new AtomicLong(-1);
 
+    /**
+     * @return a copy of the settings. psync master run id, offset, checkpoint store and stream recorder belong to one master and are not copied
+     */
+    public Configuration copy() {
+        Configuration copy = new Configuration();
+        copy.connectionTimeout = connectionTimeout;
+        copy.readTimeout = readTimeout;
+        copy.receiveBufferSize = receiveBufferSize;
+        copy.sendBufferSize = sendBufferSize;
+        copy.retries = retries;
+        copy.retryTimeInterval = retryTimeInterval;
+        copy.bufferSize = bufferSize;
+        copy.mappedFile = mappedFile;
+        copy.rdbParallelism = rdbParallelism;
+        copy.rdbParallelOrdered = rdbParallelOrdered;
+        copy.authPassword = authPassword;
+        copy.discardRdbEvent = discardRdbEvent;
+        copy.rdbChunkSize = rdbChunkSize;
+        copy.lazyEncodedValue = lazyEncodedValue;
+        copy.lazyLzfValue = lazyLzfValue;
+        copy.lzfExecutor = lzfExecutor;
+        copy.eventQueueSize = eventQueueSize;
+        copy.eventQueueStrategy = eventQueueStrategy;
+        copy.eventBatchSize = eventBatchSize;
+        copy.batchListenerSize = batchListenerSize;
+        copy.batchListenerLatency = batchListenerLatency;
+        copy.eventHandlerWorkers = eventHandlerWorkers;
+        copy.listenerLatencyMetrics = listenerLatencyMetrics;
+        copy.verbose = verbose;
+        copy.heartBeatPeriod = heartBeatPeriod;
+        copy.selectorPool = selectorPool;
+        copy.checkpointPeriod = checkpointPeriod;
+        copy.manualCommit = manualCommit;
+        copy.spoolDirectory = spoolDirectory;
+        copy.spoolSegmentSize = spoolSegmentSize;
+        copy.spoolMaxSize = spoolMaxSize;
+        return copy;
+    }
+
     public int getConnectionTimeout() {
         return connectionTimeout;
     }
@@ -168,6 +321,33 @@ public class Configuration {
         return this;
     }
 
+    public boolean isMappedFile() {
+        return mappedFile;
+    }
+
+    public Configuration setMappedFile(boolean mappedFile) {
+        this.mappedFile = mappedFile;
+        return this;
+    }
+
+    public int getRdbParallelism() {
+        return rdbParallelism;
+    }
+
+    public Configuration setRdbParallelism(int rdbParallelism) {
+        this.rdbParallelism = rdbParallelism;
+        return this;
+    }
+
+    public boolean isRdbParallelOrdered() {
+        return rdbParallelOrdered;
+    }
+
+    public Configuration setRdbParallelOrdered(boolean rdbParallelOrdered) {
+        this.rdbParallelOrdered = rdbParallelOrdered;
+        return this;
+    }
+
     public boolean isDiscardRdbEvent() {
         return discardRdbEvent;
     }
@@ -200,6 +380,42 @@ public class Configuration {
         return this;
     }
 
+    public int getRdbChunkSize() {
+        return rdbChunkSize;
+    }
+
+    public Configuration setRdbChunkSize(int rdbChunkSize) {
+        this.rdbChunkSize = rdbChunkSize;
+        return this;
+    }
+
+    public boolean isLazyEncodedValue() {
+        return lazyEncodedValue;
+    }
+
+    public Configuration setLazyEncodedValue(boolean lazyEncodedValue) {
+        this.lazyEncodedValue = lazyEncodedValue;
+        return this;
+    }
+
+    public boolean isLazyLzfValue() {
+        return lazyLzfValue;
+    }
+
+    public Configuration setLazyLzfValue(boolean lazyLzfValue) {
+        this.lazyLzfValue = lazyLzfValue;
+        return this;
+    }
+
+    public Executor getLzfExecutor() {
+        return lzfExecutor;
+    }
+
+    public Configuration setLzfExecutor(Executor lzfExecutor) {
+        this.lzfExecutor = lzfExecutor;
+        return this;
+    }
+
     public int getEventQueueSize() {
         return eventQueueSize;
     }
@@ -209,6 +425,60 @@ public class Configuration {
         return this;
     }
 
+    public EventQueueStrategy getEventQueueStrategy() {
+        return eventQueueStrategy;
+    }
+
+    public Configuration setEventQueueStrategy(EventQueueStrategy eventQueueStrategy) {
+        this.eventQueueStrategy = eventQueueStrategy;
+        return this;
+    }
+
+    public int getEventBatchSize() {
+        return eventBatchSize;
+    }
+
+    public Configuration setEventBatchSize(int eventBatchSize) {
+        this.eventBatchSize = eventBatchSize;
+        return this;
+    }
+
+    public int getBatchListenerSize() {
+        return batchListenerSize;
+    }
+
+    public Configuration setBatchListenerSize(int batchListenerSize) {
+        this.batchListenerSize = batchListenerSize;
+        return this;
+    }
+
+    public int getBatchListenerLatency() {
+        return batchListenerLatency;
+    }
+
+    public Configuration setBatchListenerLatency(int batchListenerLatency) {
+        this.batchListenerLatency = batchListenerLatency;
+        return this;
+    }
+
+    public int getEventHandlerWorkers() {
+        return eventHandlerWorkers;
+    }
+
+    public Configuration setEventHandlerWorkers(int eventHandlerWorkers) {
+        this.eventHandlerWorkers = eventHandlerWorkers;
+        return this;
+    }
+
+    public boolean isListenerLatencyMetrics() {
+        return listenerLatencyMetrics;
+    }
+
+    public Configuration setListenerLatencyMetrics(boolean listenerLatencyMetrics) {
+        this.listenerLatencyMetrics = listenerLatencyMetrics;
+        return this;
+    }
+
     public boolean isVerbose() {
         return verbose;
     }
@@ -227,6 +497,78 @@ public class Configuration {
         return this;
     }
 
+    public SelectorPool getSelectorPool() {
+        return selectorPool;
+    }
+
+    public Configuration setSelectorPool(SelectorPool selectorPool) {
+        this.selectorPool = selectorPool;
+        return this;
+    }
+
+    public File getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public Configuration setSpoolDirectory(File spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+        return this;
+    }
+
+    public long getSpoolSegmentSize() {
+        return spoolSegmentSize;
+    }
+
+    public Configuration setSpoolSegmentSize(long spoolSegmentSize) {
+        this.spoolSegmentSize = spoolSegmentSize;
+        return this;
+    }
+
+    public long getSpoolMaxSize() {
+        return spoolMaxSize;
+    }
+
+    public Configuration setSpoolMaxSize(long spoolMaxSize) {
+        this.spoolMaxSize = spoolMaxSize;
+        return this;
+    }
+
+    public StreamRecorder getStreamRecorder() {
+        return streamRecorder;
+    }
+
+    public Configuration setStreamRecorder(StreamRecorder streamRecorder) {
+        this.streamRecorder = streamRecorder;
+        return this;
+    }
+
+    public boolean isManualCommit() {
+        return manualCommit;
+    }
+
+    public Configuration setManualCommit(boolean manualCommit) {
+        this.manualCommit = manualCommit;
+        return this;
+    }
+
+    public CheckpointStore getCheckpointStore() {
+        return checkpointStore;
+    }
+
+    public Configuration setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+        return this;
+    }
+
+    public int getCheckpointPeriod() {
+        return checkpointPeriod;
+    }
+
+    public Configuration setCheckpointPeriod(int checkpointPeriod) {
+        this.checkpointPeriod = checkpointPeriod;
+        return this;
+    }
+
     public int getRetryTimeInterval() {
         return retryTimeInterval;
     }
@@ -246,11 +588,32 @@ public class Configuration {
                 ", retries=" + retries +
                 ", retryTimeInterval=" + retryTimeInterval +
                 ", bufferSize=" + bufferSize +
+                ", mappedFile=" + mappedFile +
+                ", rdbParallelism=" + rdbParallelism +
+                ", rdbParallelOrdered=" + rdbParallelOrdered +
                 ", authPassword='" + authPassword + '\'' +
                 ", discardRdbEvent=" + discardRdbEvent +
+                ", rdbChunkSize=" + rdbChunkSize +
+                ", lazyEncodedValue=" + lazyEncodedValue +
+                ", lazyLzfValue=" + lazyLzfValue +
+                ", lzfExecutor=" + lzfExecutor +
                 ", eventQueueSize=" + eventQueueSize +
+                ", eventQueueStrategy=" + eventQueueStrategy +
+                ", eventBatchSize=" + eventBatchSize +
+                ", batchListenerSize=" + batchListenerSize +
+                ", batchListenerLatency=" + batchListenerLatency +
+                ", eventHandlerWorkers=" + eventHandlerWorkers +
+                ", listenerLatencyMetrics=" + listenerLatencyMetrics +
                 ", verbose=" + verbose +
                 ", heartBeatPeriod=" + heartBeatPeriod +
+                ", selectorPool=" + selectorPool +
+                ", spoolDirectory=" + spoolDirectory +
+                ", spoolSegmentSize=" + spoolSegmentSize +
+                ", spoolMaxSize=" + spoolMaxSize +
+                ", streamRecorder=" + streamRecorder +
+                ", manualCommit=" + manualCommit +
+                ", checkpointStore=" + checkpointStore +
+                ", checkpointPeriod=" + checkpointPeriod +
                 ", masterRunId='" + masterRunId + '\'' +
                 ", offset=" + offset +
                 '}';
@@ -24,48 +24,267 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by leon on 8/25/16.
  */
 /*package*/ class EventHandlerWorker extends Thread implements Closeable {
-    private static final Log logger = LogFactory.getLog(EventHandlerWorker.class);
+    static final Log logger = LogFactory.getLog(EventHandlerWorker.class);
 
     private final AbstractReplicator replicator;
+    private final BlockingQueue<Object> queue;
+    private final int batchSize;
+    private final List<Object> batch;
     private final AtomicBoolean isClosed = new AtomicBoolean(false);
+    //events taken from the queue and handled, barriers included
+    private final AtomicLong handled = new AtomicLong(0);
 
-    public EventHandlerWorker(AbstractReplicator replicator) {
+    /*
+     * Configuration#isManualCommit() state. taken is the number of events handed to listeners,
+     * the event being dispatched included. committed is the number of committed events and
+     * uncommitted the offset before the first handled but uncommitted event, read from the
+     * ring of offsets before each event of the queue.
+     */
+    static final long NONE = Long.MIN_VALUE;
+    private final boolean manualCommit;
+    private final long[] befores;
+    private final int mask;
+    private long taken;
+    private EventPipeline.Barrier barrier;
+    //a barrier was broken by an interrupted worker, this worker stops without handling it
+    private boolean broken;
+    private final AtomicLong committed = new AtomicLong(0);
+    private volatile long uncommitted = NONE;
+
+    /*
+     * buffers of BatchRdbListener and BatchCommandListener
+     */
+    private final int batchListenerSize;
+    private final long batchListenerLatency;
+    private List<KeyValuePair<?>> kvs = new ArrayList<>();
+    private List<Command> commands = new ArrayList<>();
+    private long deadline;
+
+    public EventHandlerWorker(AbstractReplicator replicator, BlockingQueue<Object> queue, Configuration configuration, String name, long[] befores) {
         this.replicator = replicator;
+        this.queue = queue;
+        this.manualCommit = configuration.isManualCommit();
+        this.befores = befores;
+        this.mask = befores.length - 1;
+        this.batchSize = Math.max(1, configuration.getEventBatchSize());
+        this.batch = new ArrayList<>(this.batchSize);
+        this.batchListenerSize = Math.max(1, configuration.getBatchListenerSize());
+        this.batchListenerLatency = Math.max(0, configuration.getBatchListenerLatency());
         setDaemon(true);
-        setName("event-handler-worker");
+        setName(name);
     }
 
     @Override
     public void run() {
-        while (!isClosed.get() || replicator.eventQueue.size() > 0) {
+        while (!broken && (!isClosed.get() || queue.size() > 0)) {
             try {
-                Object object = replicator.eventQueue.take();
-                if (object instanceof KeyValuePair<?>) {
-                    KeyValuePair<?> kv = (KeyValuePair<?>) object;
-                    if (!replicator.doRdbFilter(kv)) continue;
-                    replicator.doRdbHandler(kv);
-                } else if (object instanceof Command) {
-                    Command command = (Command) object;
-                    if (!replicator.doCommandFilter(command)) continue;
-                    replicator.doCommandHandler(command);
-                } else if (object instanceof PreFullSyncEvent) {
-                    replicator.doPreFullSync();
-                } else if (object instanceof PostFullSyncEvent) {
-                    replicator.doPostFullSync(((PostFullSyncEvent) object).getChecksum());
+                // block for the first event, then take whatever else is already queued
+                Object object;
+                if (kvs.isEmpty() && commands.isEmpty()) {
+                    object = queue.take();
                 } else {
-                    throw new AssertionError(object);
+                    object = queue.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                }
+                if (object != null) {
+                    batch.add(object);
+                    queue.drainTo(batch, batchSize - 1);
                 }
             } catch (InterruptedException e) {
                 close();
+            }
+            try {
+                for (Object object : batch) {
+                    try {
+                        if (object instanceof EventPipeline.Barrier) {
+                            // everything before the barrier must reach the batch listeners first
+                            flush();
+                            take();
+                            barrier = (EventPipeline.Barrier) object;
+                            barrier.await();
+                            if (barrier.isCommitted() || barrier.getEvent() instanceof PreFullSyncEvent) commit(taken);
+                            else if (!barrier.isDelivered()) skipped();
+                        } else {
+                            take();
+                            boolean delivered = dispatch(object);
+                            if (object instanceof PreFullSyncEvent) commit(taken);
+                            else if (!delivered) skipped();
+                        }
+                    } catch (InterruptedException e) {
+                        close();
+                        //interrupted in the barrier, it is broken for every worker
+                        if (barrier != null) broken = true;
+                    } catch (BrokenBarrierException e) {
+                        close();
+                        broken = true;
+                    } catch (Throwable e) {
+                        exceptionHandler(e);
+                    } finally {
+                        barrier = null;
+                    }
+                    if (broken) {
+                        //the barrier event is not handled, processed and committed offsets stay before it
+                        logger.error("event barrier broken, " + getName() + " stopped");
+                        break;
+                    }
+                    handled.lazySet(handled.get() + 1);
+                }
+                if (System.currentTimeMillis() >= deadline) flush();
             } catch (Throwable e) {
                 exceptionHandler(e);
+            } finally {
+                batch.clear();
+            }
+        }
+        try {
+            flush();
+        } catch (Throwable e) {
+            exceptionHandler(e);
+        }
+    }
+
+    /**
+     * @return true if command listeners received the event
+     */
+    private boolean dispatch(Object object) {
+        if (object instanceof KeyValuePair<?>) {
+            KeyValuePair<?> kv = (KeyValuePair<?>) object;
+            if (!replicator.doRdbFilter(kv)) return false;
+            replicator.doRdbHandler(kv);
+            if (replicator.batchRdbListeners.isEmpty()) return false;
+            buffered();
+            kvs.add(kv);
+            if (kvs.size() >= batchListenerSize) flushKeyValuePairs();
+            return false;
+        } else if (object instanceof Command) {
+            Command command = (Command) object;
+            if (!replicator.doCommandFilter(command)) return false;
+            replicator.doCommandHandler(command);
+            if (replicator.batchListeners.isEmpty()) return !replicator.listeners.isEmpty();
+            buffered();
+            commands.add(command);
+            if (commands.size() >= batchListenerSize) flushCommands();
+            return true;
+        } else {
+            flush();
+            return handle(replicator, object);
+        }
+    }
+
+    /**
+     * commits every event handed to listeners by this worker, the event being dispatched included.
+     * in a barrier event, commits the barrier event of every worker.
+     */
+    public void commit() {
+        if (!manualCommit) return;
+        if (barrier != null) barrier.commit();
+        else commit(taken);
+    }
+
+    private void take() {
+        taken = handled.get() + 1;
+        if (manualCommit && committed.get() == taken - 1) uncommitted = befores[(int) ((taken - 1) & mask)];
+    }
+
+    /**
+     * rdb events, filtered commands and commands without listeners are committed
+     * as soon as every event before them is. a full sync supersedes every event before it,
+     * the pre full sync event commits them.
+     */
+    private void skipped() {
+        if (manualCommit && committed.get() == taken - 1) commit(taken);
+    }
+
+    private void commit(long seq) {
+        if (!manualCommit) return;
+        uncommitted = NONE;
+        committed.lazySet(seq);
+    }
+
+    public long committed() {
+        return committed.get();
+    }
+
+    /**
+     * @return offset before the first handled but uncommitted event, {@link #NONE} if every handled event is committed
+     */
+    public long uncommitted() {
+        return uncommitted;
+    }
+
+    /*package*/ AbstractReplicator replicator() {
+        return replicator;
+    }
+
+    private void buffered() {
+        if (kvs.isEmpty() && commands.isEmpty()) deadline = System.currentTimeMillis() + batchListenerLatency;
+    }
+
+    private void flush() {
+        try {
+            flushKeyValuePairs();
+        } finally {
+            flushCommands();
+        }
+    }
+
+    private void flushKeyValuePairs() {
+        if (kvs.isEmpty()) return;
+        List<KeyValuePair<?>> kvs = this.kvs;
+        this.kvs = new ArrayList<>();
+        replicator.doBatchRdbHandler(kvs);
+    }
+
+    private void flushCommands() {
+        if (commands.isEmpty()) return;
+        List<Command> commands = this.commands;
+        this.commands = new ArrayList<>();
+        replicator.doBatchCommandHandler(commands);
+    }
+
+    /**
+     * handles one event right away, batch listeners get a single element batch.
+     * used for barrier events, after every worker flushed its batches.
+     *
+     * @return true if command listeners received the event
+     */
+    static boolean handle(AbstractReplicator replicator, Object object) {
+        if (object instanceof KeyValuePair<?>) {
+            KeyValuePair<?> kv = (KeyValuePair<?>) object;
+            if (!replicator.doRdbFilter(kv)) return false;
+            replicator.doRdbHandler(kv);
+            if (!replicator.batchRdbListeners.isEmpty()) {
+                replicator.doBatchRdbHandler(new ArrayList<KeyValuePair<?>>(Collections.singletonList(kv)));
+            }
+            return false;
+        } else if (object instanceof Command) {
+            Command command = (Command) object;
+            if (!replicator.doCommandFilter(command)) return false;
+            replicator.doCommandHandler(command);
+            if (!replicator.batchListeners.isEmpty()) {
+                replicator.doBatchCommandHandler(new ArrayList<>(Collections.singletonList(command)));
             }
+            return !replicator.listeners.isEmpty() || !replicator.batchListeners.isEmpty();
+        } else if (object instanceof PreFullSyncEvent) {
+            replicator.doPreFullSync();
+            return false;
+        } else if (object instanceof PostFullSyncEvent) {
+            replicator.doPostFullSync(((PostFullSyncEvent) object).getChecksum());
+            return false;
+        } else {
+            throw new AssertionError(object);
         }
     }
 
@@ -78,6 +297,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
         return isClosed.get();
     }
 
+    public long handled() {
+        return handled.get();
+    }
+
     protected void exceptionHandler(Throwable e) {
         logger.error("error", e);
     }
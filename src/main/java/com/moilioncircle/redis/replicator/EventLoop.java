@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One selector thread of a {@link SelectorPool}.
+ * <p>
+ * Channel handlers, tasks and timeouts all run on the loop thread, so the state of a handler
+ * needs no synchronization as long as it is only touched through {@link #execute(Runnable)}.
+ *
+ * @since 2.0.0
+ */
+/*package*/ class EventLoop implements Runnable, Closeable {
+
+    private static final Log logger = LogFactory.getLog(EventLoop.class);
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    //loop thread only
+    private final PriorityQueue<Timeout> timeouts = new PriorityQueue<>();
+    private final Set<Handler> handlers = new LinkedHashSet<>();
+    private long sequence = 0;
+    private volatile boolean closed = false;
+
+    public EventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public Selector selector() {
+        return selector;
+    }
+
+    public boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * runs the task on the loop thread
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop()) selector.wakeup();
+    }
+
+    /**
+     * runs the task on the loop thread after delay milliseconds
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        final Timeout timeout = new Timeout(task, System.nanoTime() + delay * 1000000L);
+        if (inLoop()) {
+            timeout.sequence = sequence++;
+            timeouts.add(timeout);
+        } else {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    timeout.sequence = sequence++;
+                    timeouts.add(timeout);
+                }
+            });
+        }
+        return timeout;
+    }
+
+    /**
+     * the handler is told when the loop is closed. must be called on the loop thread
+     */
+    public void register(Handler handler) {
+        handlers.add(handler);
+    }
+
+    public void deregister(Handler handler) {
+        handlers.remove(handler);
+    }
+
+    @Override
+    public void run() {
+        while (!closed) {
+            try {
+                long delay = runTimeouts();
+                if (!tasks.isEmpty()) {
+                    selector.selectNow();
+                } else {
+                    selector.select(delay);
+                }
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    try {
+                        ((Handler) key.attachment()).ready(key);
+                    } catch (Throwable e) {
+                        logger.error("error", e);
+                    }
+                }
+                runTasks();
+            } catch (Throwable e) {
+                logger.error("error", e);
+            }
+        }
+        runTasks();
+        for (Handler handler : new ArrayList<>(handlers)) {
+            try {
+                handler.loopClosed();
+            } catch (Throwable e) {
+                logger.error("error", e);
+            }
+        }
+        handlers.clear();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            //NOP
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("error", e);
+            }
+        }
+    }
+
+    /**
+     * @return milliseconds until the next timeout, 0 if there is none
+     */
+    private long runTimeouts() {
+        while (!timeouts.isEmpty()) {
+            Timeout timeout = timeouts.peek();
+            long remaining = timeout.deadline - System.nanoTime();
+            if (timeout.cancelled) {
+                timeouts.poll();
+            } else if (remaining > 0) {
+                return Math.max(1, remaining / 1000000L);
+            } else {
+                timeouts.poll();
+                try {
+                    timeout.task.run();
+                } catch (Throwable e) {
+                    logger.error("error", e);
+                }
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    public void join() throws InterruptedException {
+        if (!inLoop()) thread.join();
+    }
+
+    public interface Handler {
+        /**
+         * @param key selected key of the handler's channel
+         */
+        void ready(SelectionKey key);
+
+        /**
+         * called on the loop thread when the loop is closed
+         */
+        void loopClosed();
+    }
+
+    public static class Timeout implements Comparable<Timeout> {
+        private final Runnable task;
+        private final long deadline;
+        private long sequence;
+        private volatile boolean cancelled = false;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(Timeout that) {
+            if (this.deadline != that.deadline) return this.deadline < that.deadline ? -1 : 1;
+            return this.sequence < that.sequence ? -1 : (this.sequence == that.sequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.event.PreFullSyncEvent;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Event queues and their {@link EventHandlerWorker}s.
+ * <p>
+ * With one worker every event goes to a single queue. With N workers, KeyValuePairs and
+ * {@link KeyedCommand}s are partitioned by key hash so events of the same key keep their order.
+ * Any other event (PreFullSyncEvent, PostFullSyncEvent, multi-key commands...) is a barrier:
+ * it is put into every queue and handled once, after all workers drained the events before it.
+ * <p>
+ * For {@link ReplicatorMetrics#getProcessedOffset()} the replication offset at submit time is kept in a
+ * ring per queue, indexed by the submit sequence. a worker publishes how many events it has handled,
+ * the processed offset is the offset of the last handled event of the slowest busy worker.
+ * With {@link Configuration#isManualCommit()} a second ring keeps the offset before each event. the committed
+ * offset is the offset before the first uncommitted event of all workers. events submitted before a
+ * PreFullSyncEvent belong to the previous master, while one of them is uncommitted the committed offset is -1.
+ *
+ * @since 2.0.0
+ */
+/*package*/ class EventPipeline implements Closeable {
+
+    private final AbstractReplicator replicator;
+    private final BlockingQueue<Object>[] queues;
+    private final EventHandlerWorker[] workers;
+    private final Configuration configuration;
+    private final ReplicatorMetrics metrics;
+
+    /*
+     * offsets[i][seq & mask] is the offset after the seq-th event submitted to queue i.
+     * a ring holds more than the events a queue and its worker batch can hold, so entries
+     * of unhandled events are never overwritten
+     */
+    private final long[][] offsets;
+    private final long[][] befores;
+    private final AtomicLongArray fences;
+    private long lastOffset;
+    private final AtomicLongArray submitted;
+    private final int mask;
+    private volatile long initialOffset;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public EventPipeline(AbstractReplicator replicator, Configuration configuration) {
+        this.replicator = replicator;
+        this.configuration = configuration;
+        this.metrics = replicator.getMetrics();
+        int n = Math.max(1, configuration.getEventHandlerWorkers());
+        this.queues = new BlockingQueue[n];
+        this.workers = new EventHandlerWorker[n];
+        for (int i = 0; i < n; i++) {
+            queues[i] = configuration.getEventQueueStrategy().newQueue(configuration.getEventQueueSize());
+        }
+        int inflight = queues[0].remainingCapacity() + Math.max(1, configuration.getEventBatchSize()) + 2;
+        int size = Integer.highestOneBit(Math.max(2, inflight) - 1) << 1;
+        this.offsets = new long[n][size];
+        this.befores = new long[n][size];
+        this.fences = new AtomicLongArray(n);
+        this.submitted = new AtomicLongArray(n);
+        this.mask = size - 1;
+        for (int i = 0; i < n; i++) {
+            String name = n == 1 ? "event-handler-worker" : "event-handler-worker-" + i;
+            workers[i] = new EventHandlerWorker(replicator, queues[i], configuration, name, befores[i]);
+        }
+        this.initialOffset = configuration.getOffset();
+    }
+
+    /**
+     * starts the workers, the offset of the configuration is the offset before the first event
+     */
+    public void start() {
+        this.initialOffset = configuration.getOffset();
+        this.lastOffset = initialOffset;
+        for (EventHandlerWorker worker : workers) worker.start();
+    }
+
+    public void submit(Object event) throws InterruptedException {
+        int i = route(event);
+        if (i >= 0) {
+            put(i, event);
+            return;
+        }
+        Barrier barrier = new Barrier(replicator, event, queues.length);
+        for (i = 0; i < queues.length; i++) put(i, barrier);
+    }
+
+    /**
+     * non blocking {@link #submit(Object)}, must be called by the only submitting thread
+     *
+     * @param event event
+     * @return false if the event queue is full
+     */
+    public boolean offer(Object event) {
+        int i = route(event);
+        if (i >= 0) return offer(i, event);
+        //a single submitter, so remaining capacity can only grow until the barrier is put
+        for (BlockingQueue<Object> queue : queues) {
+            if (queue.remainingCapacity() == 0) return false;
+        }
+        Barrier barrier = new Barrier(replicator, event, queues.length);
+        for (i = 0; i < queues.length; i++) {
+            if (!offer(i, barrier)) throw new AssertionError("queue " + i + " is full");
+        }
+        return true;
+    }
+
+    /**
+     * @return queue of the event, -1 for a barrier
+     */
+    private int route(Object event) {
+        if (queues.length == 1) return 0;
+        int hash;
+        if (event instanceof KeyValuePair<?> && ((KeyValuePair<?>) event).getKey() != null) {
+            hash = ((KeyValuePair<?>) event).getKey().hashCode();
+        } else if (event instanceof KeyedCommand && ((KeyedCommand) event).getRawKey() != null) {
+            hash = Arrays.hashCode(((KeyedCommand) event).getRawKey());
+        } else {
+            return -1;
+        }
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % queues.length;
+    }
+
+    private void put(int i, Object event) throws InterruptedException {
+        if (offer(i, event)) return;
+        long start = System.nanoTime();
+        queues[i].put(event);
+        metrics.submitBlocked(System.nanoTime() - start);
+        submitted(i, event);
+    }
+
+    private boolean offer(int i, Object event) {
+        long seq = submitted.get(i);
+        long offset = configuration.getOffset();
+        offsets[i][(int) (seq & mask)] = offset;
+        //lower than the last offset after a reset, the event is sent again and its first copy is before it
+        befores[i][(int) (seq & mask)] = fence(event) ? -1L : Math.min(lastOffset, offset);
+        if (!queues[i].offer(event)) return false;
+        submitted(i, event);
+        return true;
+    }
+
+    private void submitted(int i, Object event) {
+        long seq = submitted.get(i);
+        if (fence(event)) fences.set(i, seq);
+        submitted.lazySet(i, seq + 1);
+        //a barrier is submitted to every queue with the same offsets
+        if (i == queues.length - 1 || !(event instanceof Barrier)) lastOffset = offsets[i][(int) (seq & mask)];
+    }
+
+    private static boolean fence(Object event) {
+        if (event instanceof Barrier) event = ((Barrier) event).getEvent();
+        return event instanceof PreFullSyncEvent;
+    }
+
+    /**
+     * @return offset up to which every submitted event has been handled
+     */
+    public long processedOffset() {
+        long processed = configuration.getOffset();
+        for (int i = 0; i < queues.length; i++) {
+            long handled = workers[i].handled();
+            if (handled >= submitted.get(i)) continue;
+            long offset = handled == 0 ? initialOffset : offsets[i][(int) ((handled - 1) & mask)];
+            processed = Math.min(processed, offset);
+        }
+        return processed;
+    }
+
+    /**
+     * @return offset up to which every submitted event has been committed, the processed offset
+     * without {@link Configuration#isManualCommit()}
+     */
+    public long committedOffset() {
+        if (!configuration.isManualCommit()) return processedOffset();
+        long committed = configuration.getOffset();
+        for (int i = 0; i < queues.length; i++) {
+            long seq = workers[i].committed();
+            if (seq >= submitted.get(i)) continue;
+            long offset;
+            if (seq < fences.get(i)) offset = -1L;
+            else if ((offset = workers[i].uncommitted()) == EventHandlerWorker.NONE) offset = befores[i][(int) (seq & mask)];
+            committed = Math.min(committed, offset);
+        }
+        return committed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (BlockingQueue<Object> queue : queues) size += queue.size();
+        return size;
+    }
+
+    public boolean isClosed() {
+        for (EventHandlerWorker worker : workers) {
+            if (!worker.isClosed()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        for (EventHandlerWorker worker : workers) worker.close();
+    }
+
+    /**
+     * every worker awaits the barrier, the last one to arrive handles the event.
+     * when a waiting worker is interrupted the barrier breaks, the event is not handled
+     * and every worker stops at it.
+     */
+    /*package*/ static class Barrier {
+        private final Object event;
+        private final CyclicBarrier barrier;
+        private volatile boolean delivered;
+        private volatile boolean committed;
+
+        private Barrier(final AbstractReplicator replicator, final Object event, int parties) {
+            this.event = event;
+            this.barrier = new CyclicBarrier(parties, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        delivered = EventHandlerWorker.handle(replicator, event);
+                    } catch (Throwable e) {
+                        //failed, not skipped
+                        delivered = true;
+                        EventHandlerWorker.logger.error("error", e);
+                    }
+                }
+            });
+        }
+
+        public void await() throws Exception {
+            barrier.await();
+        }
+
+        public Object getEvent() {
+            return event;
+        }
+
+        public void commit() {
+            committed = true;
+        }
+
+        public boolean isCommitted() {
+            return committed;
+        }
+
+        public boolean isDelivered() {
+            return delivered;
+        }
+    }
+}
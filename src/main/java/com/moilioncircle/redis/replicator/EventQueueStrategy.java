@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.util.RingBufferQueue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Queue between the parser thread and the event handler workers.
+ *
+ * @since 2.0.0
+ */
+public enum EventQueueStrategy {
+    /**
+     * java.util.concurrent.ArrayBlockingQueue
+     */
+    ARRAY_BLOCKING_QUEUE {
+        @Override
+        public <E> BlockingQueue<E> newQueue(int capacity) {
+            return new ArrayBlockingQueue<>(capacity);
+        }
+    },
+    /**
+     * lock free ring buffer, consumer spins while idle
+     */
+    RING_BUFFER_BUSY_SPIN {
+        @Override
+        public <E> BlockingQueue<E> newQueue(int capacity) {
+            return new RingBufferQueue<>(capacity, RingBufferQueue.WaitStrategy.BUSY_SPIN);
+        }
+    },
+    /**
+     * lock free ring buffer, consumer yields while idle
+     */
+    RING_BUFFER_YIELD {
+        @Override
+        public <E> BlockingQueue<E> newQueue(int capacity) {
+            return new RingBufferQueue<>(capacity, RingBufferQueue.WaitStrategy.YIELD);
+        }
+    },
+    /**
+     * lock free ring buffer, consumer parks while idle
+     */
+    RING_BUFFER_BLOCKING {
+        @Override
+        public <E> BlockingQueue<E> newQueue(int capacity) {
+            return new RingBufferQueue<>(capacity, RingBufferQueue.WaitStrategy.BLOCKING);
+        }
+    };
+
+    /**
+     * @param capacity queue capacity, ring buffers round it up to a power of two
+     * @param <E>      element type
+     * @return a queue with a single producer and a single consumer
+     */
+    public abstract <E> BlockingQueue<E> newQueue(int capacity);
+}
@@ -16,31 +16,50 @@
 
 package com.moilioncircle.redis.replicator;
 
+import com.moilioncircle.redis.replicator.io.MappedRedisInputStream;
 import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.ParallelRdbParser;
 import com.moilioncircle.redis.replicator.rdb.RdbParser;
 
 import java.io.*;
-import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * Created by leon on 8/13/16.
  */
 /*package*/ class RedisFileReplicator extends AbstractReplicator {
 
+    private final File file;
+
     public RedisFileReplicator(File file, Configuration configuration) throws FileNotFoundException {
         //bug fix http://git.oschina.net/leonchen83/redis-replicator/issues/2
-        this(new FileInputStream(file), configuration);
+        //parallel parsing opens its own mappings of the file
+        this(file, configuration.getRdbParallelism() > 1 ? null : newInputStream(file, configuration), configuration);
     }
 
     public RedisFileReplicator(InputStream in, Configuration configuration) {
+        this(null, new RedisInputStream(in, configuration.getBufferSize()), configuration);
+    }
+
+    private RedisFileReplicator(File file, RedisInputStream in, Configuration configuration) {
+        this.file = file;
         this.configuration = configuration;
-        this.inputStream = new RedisInputStream(in, this.configuration.getBufferSize());
-        this.eventQueue = new ArrayBlockingQueue<>(this.configuration.getEventQueueSize());
+        this.inputStream = in;
+        this.pipeline = new EventPipeline(this, this.configuration);
+    }
+
+    private static RedisInputStream newInputStream(File file, Configuration configuration) throws FileNotFoundException {
+        if (configuration.isMappedFile()) return new MappedRedisInputStream(file);
+        return new RedisInputStream(new FileInputStream(file), configuration.getBufferSize());
     }
 
     @Override
     public void open() throws IOException {
-        worker.start();
+        pipeline.start();
+        if (inputStream == null) {
+            ParallelRdbParser parser = new ParallelRdbParser(file, this, configuration.getRdbParallelism(), configuration.isRdbParallelOrdered());
+            parser.parse();
+            return;
+        }
         RdbParser parser = new RdbParser(inputStream, this);
         parser.parse();
     }
@@ -48,7 +67,7 @@ import java.util.concurrent.ArrayBlockingQueue;
     @Override
     public void close() throws IOException {
         if (inputStream != null) inputStream.close();
-        if (worker != null && !worker.isClosed()) worker.close();
+        if (pipeline != null && !pipeline.isClosed()) pipeline.close();
         doCloseListener();
     }
 }
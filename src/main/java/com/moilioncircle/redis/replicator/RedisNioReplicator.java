@@ -0,0 +1,650 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.*;
+import com.moilioncircle.redis.replicator.rdb.IncrementalRdbParser;
+import com.moilioncircle.redis.replicator.util.Strings;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.moilioncircle.redis.replicator.Constants.DOLLAR;
+import static com.moilioncircle.redis.replicator.Constants.STAR;
+
+/**
+ * Replicator of a redis master over a non blocking channel, driven by a loop of a {@link SelectorPool}.
+ * <p>
+ * Same protocol as {@link RedisSocketReplicator}: AUTH, REPLCONF, PSYNC, then the rdb and the command stream.
+ * Every step is a state of this handler that advances when the loop finds bytes to read. Replies and commands
+ * are decoded by {@link RespDecoder}, the rdb by {@link IncrementalRdbParser}. Heart beats, timeouts and
+ * reconnects are timeouts of the loop.
+ * <p>
+ * Events are offered to the event queue. When it is full the channel stops reading until the pending events
+ * are accepted, so a slow listener never blocks the loop shared with other replicators.
+ *
+ * @since 2.0.0
+ */
+/*package*/ class RedisNioReplicator extends AbstractReplicator implements EventLoop.Handler {
+
+    private static final Log logger = LogFactory.getLog(RedisNioReplicator.class);
+    private static final CommandName SELECT = CommandName.name("SELECT");
+    //milliseconds between two attempts to submit pending events
+    private static final long PENDING_RETRY = 1;
+
+    private final String host;
+    private final int port;
+    private final EventLoop loop;
+    private final AtomicBoolean opened = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    //below are used by the loop thread only
+    private final ByteBuffer in;
+    private final Deque<ByteBuffer> out = new ArrayDeque<>();
+    //events not accepted by the event queue yet
+    private final Deque<Object> pending = new ArrayDeque<>();
+    private final StringBuilder header = new StringBuilder();
+    private SocketChannel channel;
+    private SelectionKey key;
+    private State state;
+    private RespDecoder decoder;
+    private IncrementalRdbParser rdb;
+    private long rdbLength;
+    //mark of a diskless rdb transfer, null if the rdb has a length
+    private byte[] rdbMark;
+    //FULLRESYNC reply, applied when the rdb is parsed
+    private String fullResync;
+    private boolean psync;
+    private int retries = 0;
+    private long lastRead;
+    private EventLoop.Timeout heartBeat;
+    private EventLoop.Timeout timeout;
+    private EventLoop.Timeout retry;
+    private EventLoop.Timeout resume;
+    //db selected by the last SELECT command of the replication stream, -1 before the first SELECT after a PSYNC
+    private int db = -1;
+
+    private final RawCommandFilter rawFilter = new RawCommandFilter() {
+        @Override
+        public boolean accept(CommandName name, int db, byte[] key) {
+            if (SELECT.equals(name)) {
+                if (key != null) RedisNioReplicator.this.db = Strings.toInt(key);
+                return commands.containsKey(name);
+            }
+            //if command do not register. ignore before its arguments are read
+            return commands.containsKey(name) && doRawCommandFilter(name, db, key);
+        }
+    };
+
+    private final OffsetHandler offsetHandler = new OffsetHandler() {
+        @Override
+        public void handle(long len) {
+            configuration.addOffset(len);
+            metrics.markCommandBytes(len);
+        }
+    };
+
+    public RedisNioReplicator(String host, int port, Configuration configuration) {
+        this.host = host;
+        this.port = port;
+        this.configuration = configuration;
+        this.pipeline = new EventPipeline(this, configuration);
+        this.loop = configuration.getSelectorPool().next();
+        this.in = ByteBuffer.allocate(configuration.getBufferSize());
+        buildInCommandParserRegister();
+    }
+
+    /**
+     * schedules the connection on the loop and returns
+     *
+     * @throws IOException never
+     */
+    @Override
+    public void open() throws IOException {
+        if (!opened.compareAndSet(false, true)) return;
+        checkpointer.open();
+        pipeline.start();
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                loop.register(RedisNioReplicator.this);
+                connect();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (loop.inLoop()) {
+            shutdown();
+            return;
+        }
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        });
+    }
+
+    @Override
+    public void ready(SelectionKey key) {
+        try {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                connected();
+            }
+            if (key.isValid() && key.isWritable()) flush();
+            if (key.isValid() && key.isReadable()) read();
+        } catch (Throwable e) {
+            error(e);
+        }
+    }
+
+    @Override
+    public void loopClosed() {
+        shutdown();
+    }
+
+    private void connect() {
+        retry = null;
+        if (closed.get()) return;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            Socket socket = channel.socket();
+            socket.setReuseAddress(true);
+            socket.setKeepAlive(true);
+            socket.setTcpNoDelay(true);
+            socket.setSoLinger(true, 0);
+            if (configuration.getReceiveBufferSize() > 0) {
+                socket.setReceiveBufferSize(configuration.getReceiveBufferSize());
+            }
+            if (configuration.getSendBufferSize() > 0) {
+                socket.setSendBufferSize(configuration.getSendBufferSize());
+            }
+            state = State.CONNECT;
+            decoder = new RespDecoder();
+            header.setLength(0);
+            in.clear();
+            out.clear();
+            if (channel.connect(new InetSocketAddress(host, port))) {
+                key = channel.register(loop.selector(), 0, this);
+                connected();
+            } else {
+                key = channel.register(loop.selector(), SelectionKey.OP_CONNECT, this);
+                if (configuration.getConnectionTimeout() > 0) {
+                    timeout = loop.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (state == State.CONNECT) error(new SocketTimeoutException("connect timed out"));
+                        }
+                    }, configuration.getConnectionTimeout());
+                }
+            }
+        } catch (Throwable e) {
+            error(e);
+        }
+    }
+
+    private void connected() throws IOException {
+        if (timeout != null) timeout.cancel();
+        lastRead = System.currentTimeMillis();
+        if (configuration.getReadTimeout() > 0) idle(configuration.getReadTimeout());
+        if (configuration.getAuthPassword() != null) {
+            logger.info("AUTH " + configuration.getAuthPassword());
+            state = State.AUTH;
+            send("AUTH".getBytes(), configuration.getAuthPassword().getBytes());
+        } else {
+            sendSlavePort();
+        }
+    }
+
+    /**
+     * read timeout. reading paused by a full event queue is not idle
+     */
+    private void idle(long delay) {
+        timeout = loop.schedule(new Runnable() {
+            @Override
+            public void run() {
+                long now = System.currentTimeMillis();
+                if (!pending.isEmpty()) lastRead = now;
+                long remaining = lastRead + configuration.getReadTimeout() - now;
+                if (remaining > 0) {
+                    idle(remaining);
+                } else {
+                    error(new SocketTimeoutException("Read timed out"));
+                }
+            }
+        }, delay);
+    }
+
+    private void read() throws IOException {
+        if (!in.hasRemaining()) return;
+        int len = channel.read(in);
+        if (len == -1) throw new EOFException("end of stream.");
+        lastRead = System.currentTimeMillis();
+        process();
+    }
+
+    /**
+     * decodes the received bytes as long as the event queue accepts events
+     */
+    private void process() throws IOException {
+        in.flip();
+        try {
+            while (drain() && step()) {
+                //until more bytes are needed
+            }
+        } finally {
+            in.compact();
+        }
+        interest();
+    }
+
+    /**
+     * @return true if all pending events are accepted by the event queue
+     */
+    private boolean drain() {
+        while (!pending.isEmpty()) {
+            if (!offerEvent(pending.peek())) return false;
+            pending.poll();
+        }
+        return true;
+    }
+
+    private void submit(Object event) {
+        if (!pending.isEmpty() || !offerEvent(event)) pending.add(event);
+    }
+
+    /**
+     * @return false when more bytes are needed
+     */
+    private boolean step() throws IOException {
+        if (state == null) return false;
+        switch (state) {
+            case AUTH:
+            case PORT:
+            case IP:
+            case CAPA:
+            case PSYNC:
+                Object reply = decoder.decode(in, null, -1, null);
+                if (reply == null) return false;
+                handshake(String.valueOf(reply));
+                return true;
+            case RDB_HEADER:
+                return rdbHeader();
+            case RDB:
+                return rdb();
+            case COMMAND:
+                Object obj = decoder.decode(in, offsetHandler, db, rawFilter);
+                if (obj == null) return false;
+                //dropped by raw command filter
+                if (obj == RespDecoder.DROPPED) return true;
+                if (obj instanceof Object[]) {
+                    command((Object[]) obj);
+                } else {
+                    if (logger.isInfoEnabled()) logger.info("Redis reply:" + obj);
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void handshake(String reply) throws IOException {
+        logger.info(reply);
+        switch (state) {
+            case AUTH:
+                if (!reply.equals("OK")) throw new AssertionError("[AUTH " + configuration.getAuthPassword() + "] failed." + reply);
+                sendSlavePort();
+                break;
+            case PORT:
+                if (!reply.equals("OK")) logger.warn("[REPLCONF listening-port " + channel.socket().getLocalPort() + "] failed." + reply);
+                sendSlaveIp();
+                break;
+            case IP:
+                //redis 3.2+
+                if (!reply.equals("OK")) logger.warn("[REPLCONF ip-address " + channel.socket().getLocalAddress().getHostAddress() + "] failed." + reply);
+                sendSlaveCapa();
+                break;
+            case CAPA:
+                if (!reply.equals("OK")) logger.warn("[REPLCONF capa eof] failed." + reply);
+                //reset retries
+                retries = 0;
+                //resume from the last committed event, events after it are sent again
+                if (configuration.isManualCommit()) configuration.setOffset(pipeline.committedOffset());
+                //the master sends a SELECT before the first command of a new connection, the db is unknown until then
+                db = -1;
+                logger.info("PSYNC " + configuration.getMasterRunId() + " " + String.valueOf(configuration.getOffset()));
+                state = State.PSYNC;
+                send("PSYNC".getBytes(), configuration.getMasterRunId().getBytes(), String.valueOf(configuration.getOffset()).getBytes());
+                break;
+            case PSYNC:
+                psync = true;
+                fullResync = null;
+                if (reply.startsWith("FULLRESYNC")) {
+                    fullResync = reply;
+                    //events of the dump file have no offset of the old master
+                    configuration.setOffset(-1L);
+                    state = State.RDB_HEADER;
+                } else if (reply.equals("CONTINUE")) {
+                    startCommand();
+                } else {
+                    //server don't support psync
+                    logger.info("SYNC");
+                    psync = false;
+                    state = State.RDB_HEADER;
+                    send("SYNC".getBytes());
+                }
+                break;
+            default:
+                throw new AssertionError("Un-except state:" + state);
+        }
+    }
+
+    private void sendSlavePort() throws IOException {
+        //REPLCONF listening-prot ${port}
+        int port = channel.socket().getLocalPort();
+        logger.info("REPLCONF listening-port " + port);
+        state = State.PORT;
+        send("REPLCONF".getBytes(), "listening-port".getBytes(), String.valueOf(port).getBytes());
+    }
+
+    private void sendSlaveIp() throws IOException {
+        //REPLCONF ip-address ${address}
+        String address = channel.socket().getLocalAddress().getHostAddress();
+        logger.info("REPLCONF ip-address " + address);
+        state = State.IP;
+        send("REPLCONF".getBytes(), "ip-address".getBytes(), address.getBytes());
+    }
+
+    private void sendSlaveCapa() throws IOException {
+        //REPLCONF capa eof
+        logger.info("REPLCONF capa eof");
+        state = State.CAPA;
+        send("REPLCONF".getBytes(), "capa".getBytes(), "eof".getBytes());
+    }
+
+    /**
+     * $len\r\n or $EOF:&lt;40 bytes mark&gt;\r\n of the rdb, after the newlines sent as PING while the master is saving
+     */
+    private boolean rdbHeader() {
+        while (in.hasRemaining()) {
+            char c = (char) in.get();
+            if (c == '\r') continue;
+            if (c != '\n') {
+                header.append(c);
+                continue;
+            }
+            if (header.length() == 0) continue;
+            String reply = header.toString();
+            header.setLength(0);
+            if (reply.charAt(0) != DOLLAR) throw new AssertionError("SYNC failed." + reply);
+            if (reply.startsWith("$EOF:")) {
+                rdbMark = reply.substring(5).getBytes(Constants.CHARSET);
+                if (rdbMark.length != EofBulkReplyHandler.MARK_LENGTH) throw new AssertionError("SYNC failed." + reply);
+                rdbLength = -1;
+                logger.info("RDB dump file size: unknown, diskless transfer");
+            } else {
+                rdbMark = null;
+                rdbLength = Long.parseLong(reply.substring(1));
+                logger.info("RDB dump file size:" + rdbLength);
+            }
+            if (configuration.isDiscardRdbEvent()) {
+                logger.info("Discard " + (rdbMark == null ? rdbLength + " bytes" : "rdb"));
+                rdb = null;
+            } else {
+                rdb = new IncrementalRdbParser(this);
+            }
+            state = State.RDB;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean rdb() throws IOException {
+        if (rdbMark != null) return rdbUntilMark();
+        int len = (int) Math.min(in.remaining(), rdbLength);
+        if (len == 0 && rdbLength > 0) return false;
+        ByteBuffer bytes = in.duplicate();
+        bytes.limit(in.position() + len);
+        in.position(in.position() + len);
+        rdbLength -= len;
+        if (rdb != null) {
+            for (Object event : rdb.feed(bytes, rdbLength == 0)) submit(event);
+        }
+        if (rdbLength > 0) return false;
+        rdbDone();
+        return true;
+    }
+
+    /**
+     * the diskless rdb ends where the mark is found. the last bytes may be the beginning of the mark,
+     * they are kept in the buffer until more bytes arrive.
+     */
+    private boolean rdbUntilMark() throws IOException {
+        int n = rdbMark.length;
+        int end = indexOf(in, rdbMark);
+        boolean last = end >= 0;
+        int len = last ? end - in.position() : Math.max(0, in.remaining() - (n - 1));
+        if (len == 0 && !last) return false;
+        ByteBuffer bytes = in.duplicate();
+        bytes.limit(in.position() + len);
+        in.position(in.position() + len + (last ? n : 0));
+        if (rdb != null) {
+            for (Object event : rdb.feed(bytes, last)) submit(event);
+        }
+        if (!last) return false;
+        rdbMark = null;
+        rdbDone();
+        return true;
+    }
+
+    /**
+     * @return absolute index of the first occurrence of mark in the remaining bytes, -1 if absent
+     */
+    private static int indexOf(ByteBuffer buffer, byte[] mark) {
+        int limit = buffer.limit() - mark.length;
+        for (int i = buffer.position(); i <= limit; i++) {
+            int j = 0;
+            while (j < mark.length && buffer.get(i + j) == mark[j]) j++;
+            if (j == mark.length) return i;
+        }
+        return -1;
+    }
+
+    private void rdbDone() {
+        rdb = null;
+        if (fullResync != null) {
+            //after parsed dump file,cache master run id and offset so that next psync.
+            String[] ary = fullResync.split(" ");
+            configuration.setMasterRunId(ary[1]);
+            configuration.setOffset(Long.parseLong(ary[2]));
+            fullResync = null;
+        }
+        startCommand();
+    }
+
+    private void startCommand() {
+        state = State.COMMAND;
+        if (!psync) return;
+        //heart beat send REPLCONF ACK ${slave offset}
+        heartBeat(configuration.getHeartBeatPeriod());
+        logger.info("heart beat started.");
+    }
+
+    private void heartBeat(final long period) {
+        heartBeat = loop.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (state != State.COMMAND) return;
+                try {
+                    send("REPLCONF".getBytes(), "ACK".getBytes(), String.valueOf(ackOffset()).getBytes());
+                    heartBeat(period);
+                } catch (Throwable e) {
+                    error(e);
+                }
+            }
+        }, period);
+    }
+
+    private void command(Object[] command) {
+        if (configuration.isVerbose() && logger.isDebugEnabled())
+            logger.debug(Arrays.deepToString(RedisSocketReplicator.decode(command, 0, command.length)));
+
+        CommandName cmdName = CommandName.name(new String((byte[]) command[0], Constants.CHARSET));
+
+        //if command do not register. ignore
+        CommandParser<? extends Command> operations = commands.get(cmdName);
+        if (operations == null) return;
+
+        //raw parsers take bytes as is, others take decoded strings
+        Object[] params;
+        if (operations instanceof RawCommandParser) {
+            params = new Object[command.length - 1];
+            System.arraycopy(command, 1, params, 0, params.length);
+        } else {
+            params = RedisSocketReplicator.decode(command, 1, command.length);
+        }
+
+        //submit event
+        submit(operations.parse(cmdName, params));
+    }
+
+    private void send(byte[] command, final byte[]... args) throws IOException {
+        int len = 16 + command.length;
+        for (byte[] arg : args) len += 16 + arg.length;
+        ByteBuffer buffer = ByteBuffer.allocate(len);
+        buffer.put(STAR).put(String.valueOf(args.length + 1).getBytes()).put((byte) '\r').put((byte) '\n');
+        buffer.put(DOLLAR).put(String.valueOf(command.length).getBytes()).put((byte) '\r').put((byte) '\n');
+        buffer.put(command).put((byte) '\r').put((byte) '\n');
+        for (final byte[] arg : args) {
+            buffer.put(DOLLAR).put(String.valueOf(arg.length).getBytes()).put((byte) '\r').put((byte) '\n');
+            buffer.put(arg).put((byte) '\r').put((byte) '\n');
+        }
+        buffer.flip();
+        out.add(buffer);
+        flush();
+    }
+
+    private void flush() throws IOException {
+        while (!out.isEmpty()) {
+            ByteBuffer buffer = out.peek();
+            channel.write(buffer);
+            if (buffer.hasRemaining()) break;
+            out.poll();
+        }
+        interest();
+    }
+
+    /**
+     * reads while no event is pending, writes while bytes are pending
+     */
+    private void interest() {
+        if (key == null || !key.isValid() || state == State.CONNECT) return;
+        int ops = 0;
+        if (pending.isEmpty()) {
+            ops |= SelectionKey.OP_READ;
+        } else if (resume == null) {
+            resume = loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    resume = null;
+                    try {
+                        process();
+                    } catch (Throwable e) {
+                        error(e);
+                    }
+                }
+            }, PENDING_RETRY);
+        }
+        if (!out.isEmpty()) ops |= SelectionKey.OP_WRITE;
+        key.interestOps(ops);
+    }
+
+    /**
+     * socket errors are retried, protocol errors close the replicator
+     */
+    private void error(Throwable e) {
+        if (closed.get()) return;
+        if (!(e instanceof IOException)) {
+            logger.error("error", e);
+            shutdown();
+            return;
+        }
+        logger.error("socket error", e);
+        disconnect();
+        if (configuration.getRetries() > 0 && ++retries >= configuration.getRetries()) {
+            shutdown();
+            return;
+        }
+        //retry psync in next loop.
+        logger.info("reconnect to redis-server. retry times:" + retries);
+        retry = loop.schedule(new Runnable() {
+            @Override
+            public void run() {
+                connect();
+            }
+        }, configuration.getRetryTimeInterval());
+    }
+
+    private void disconnect() {
+        if (heartBeat != null) {
+            heartBeat.cancel();
+            heartBeat = null;
+            logger.info("heart beat canceled.");
+        }
+        if (timeout != null) timeout.cancel();
+        if (retry != null) retry.cancel();
+        if (resume != null) resume.cancel();
+        timeout = retry = resume = null;
+        state = null;
+        if (key != null) key.cancel();
+        key = null;
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            //NOP
+        }
+        channel = null;
+        logger.info("channel closed");
+    }
+
+    private void shutdown() {
+        if (!closed.compareAndSet(false, true)) return;
+        disconnect();
+        pending.clear();
+        loop.deregister(this);
+        if (pipeline != null && !pipeline.isClosed()) pipeline.close();
+        doCloseListener();
+    }
+
+    private enum State {CONNECT, AUTH, PORT, IP, CAPA, PSYNC, RDB_HEADER, RDB, COMMAND}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.ReplyParser;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.record.ReplayInputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Replays a recording of {@link com.moilioncircle.redis.replicator.record.StreamRecorder} through the
+ * parsers of {@link RedisSocketReplicator}, session by session, as if the master sent it again.
+ *
+ * @since 2.0.0
+ */
+/*package*/ class RedisReplayReplicator extends RedisSocketReplicator {
+
+    private static final Log logger = LogFactory.getLog(RedisReplayReplicator.class);
+
+    private final ReplayInputStream replay;
+
+    public RedisReplayReplicator(ReplayInputStream replay, Configuration configuration) {
+        super(null, 0, configuration);
+        this.replay = replay;
+    }
+
+    /**
+     * returns at the end of the recording
+     *
+     * @throws IOException when the recording can not be read
+     */
+    @Override
+    public void open() throws IOException {
+        pipeline.start();
+        connected.set(true);
+        try {
+            String session;
+            while (connected.get() && (session = replay.nextSession()) != null) {
+                logger.info("replay " + session);
+                inputStream = new RedisInputStream(replay, configuration.getBufferSize());
+                replyParser = new ReplyParser(inputStream);
+                try {
+                    trySync((String) reply());
+                    parseCommands();
+                } catch (EOFException e) {
+                    //end of the session, the connection was closed here
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * nothing is sent to a recording
+     */
+    @Override
+    public void send(byte[] command, byte[]... args) {
+    }
+
+    @Override
+    public void close() {
+        connected.set(false);
+        try {
+            replay.close();
+        } catch (IOException e) {
+            //NOP
+        }
+        if (pipeline != null && !pipeline.isClosed()) pipeline.close();
+        doCloseListener();
+    }
+}
@@ -17,14 +17,18 @@
 package com.moilioncircle.redis.replicator;
 
 import com.moilioncircle.redis.replicator.cmd.*;
+import com.moilioncircle.redis.replicator.rdb.BatchRdbListener;
 import com.moilioncircle.redis.replicator.rdb.RdbFilter;
+import com.moilioncircle.redis.replicator.rdb.RdbKeyFilter;
 import com.moilioncircle.redis.replicator.rdb.RdbListener;
 import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import com.moilioncircle.redis.replicator.record.ReplayInputStream;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Created by leon on 8/13/16.
@@ -40,8 +44,22 @@ public class RedisReplicator implements Replicator {
         replicator = new RedisFileReplicator(in, configuration);
     }
 
+    /**
+     * replays a recording of {@link Configuration#getStreamRecorder()}, open() returns at its end
+     *
+     * @param in            recording
+     * @param configuration configuration
+     */
+    public RedisReplicator(ReplayInputStream in, Configuration configuration) {
+        replicator = new RedisReplayReplicator(in, configuration);
+    }
+
     public RedisReplicator(String host, int port, Configuration configuration) {
-        replicator = new RedisSocketReplicator(host, port, configuration);
+        if (configuration.getSelectorPool() != null) {
+            replicator = new RedisNioReplicator(host, port, configuration);
+        } else {
+            replicator = new RedisSocketReplicator(host, port, configuration);
+        }
     }
 
     @Override
@@ -54,6 +72,16 @@ public class RedisReplicator implements Replicator {
         replicator.removeRdbFilter(filter);
     }
 
+    @Override
+    public void addRdbKeyFilter(RdbKeyFilter filter) {
+        replicator.addRdbKeyFilter(filter);
+    }
+
+    @Override
+    public void removeRdbKeyFilter(RdbKeyFilter filter) {
+        replicator.removeRdbKeyFilter(filter);
+    }
+
     @Override
     public void addRdbListener(RdbListener listener) {
         replicator.addRdbListener(listener);
@@ -64,6 +92,16 @@ public class RedisReplicator implements Replicator {
         replicator.removeRdbListener(listener);
     }
 
+    @Override
+    public void addBatchRdbListener(BatchRdbListener listener) {
+        replicator.addBatchRdbListener(listener);
+    }
+
+    @Override
+    public void removeBatchRdbListener(BatchRdbListener listener) {
+        replicator.removeBatchRdbListener(listener);
+    }
+
     @Override
     public void buildInCommandParserRegister() {
         replicator.buildInCommandParserRegister();
@@ -89,6 +127,16 @@ public class RedisReplicator implements Replicator {
         replicator.removeCommandFilter(filter);
     }
 
+    @Override
+    public void addRawCommandFilter(RawCommandFilter filter) {
+        replicator.addRawCommandFilter(filter);
+    }
+
+    @Override
+    public void removeRawCommandFilter(RawCommandFilter filter) {
+        replicator.removeRawCommandFilter(filter);
+    }
+
     @Override
     public void addCommandListener(CommandListener listener) {
         replicator.addCommandListener(listener);
@@ -99,6 +147,16 @@ public class RedisReplicator implements Replicator {
         replicator.removeCommandListener(listener);
     }
 
+    @Override
+    public void addBatchCommandListener(BatchCommandListener listener) {
+        replicator.addBatchCommandListener(listener);
+    }
+
+    @Override
+    public void removeBatchCommandListener(BatchCommandListener listener) {
+        replicator.removeBatchCommandListener(listener);
+    }
+
     @Override
     public void addCloseListener(CloseListener listener) {
         replicator.addCloseListener(listener);
@@ -119,6 +177,16 @@ public class RedisReplicator implements Replicator {
         return replicator.doCommandFilter(command);
     }
 
+    @Override
+    public boolean doRawCommandFilter(CommandName name, int db, byte[] key) {
+        return replicator.doRawCommandFilter(name, db, key);
+    }
+
+    @Override
+    public void doBatchCommandHandler(List<Command> commands) {
+        replicator.doBatchCommandHandler(commands);
+    }
+
     @Override
     public void doRdbHandler(KeyValuePair<?> kv) {
         replicator.doRdbHandler(kv);
@@ -129,6 +197,16 @@ public class RedisReplicator implements Replicator {
         return replicator.doRdbFilter(kv);
     }
 
+    @Override
+    public boolean doRdbKeyFilter(KeyValuePair<?> kv) {
+        return replicator.doRdbKeyFilter(kv);
+    }
+
+    @Override
+    public void doBatchRdbHandler(List<KeyValuePair<?>> kvs) {
+        replicator.doBatchRdbHandler(kvs);
+    }
+
     @Override
     public void doPreFullSync() {
         replicator.doPreFullSync();
@@ -149,6 +227,16 @@ public class RedisReplicator implements Replicator {
         replicator.submitEvent(object);
     }
 
+    @Override
+    public ReplicatorMetrics getMetrics() {
+        return replicator.getMetrics();
+    }
+
+    @Override
+    public void commit() {
+        replicator.commit();
+    }
+
     @Override
     public boolean verbose() {
         return replicator.verbose();
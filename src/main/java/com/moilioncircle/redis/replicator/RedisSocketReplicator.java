@@ -19,12 +19,16 @@ package com.moilioncircle.redis.replicator;
 import com.moilioncircle.redis.replicator.cmd.*;
 import com.moilioncircle.redis.replicator.io.RedisInputStream;
 import com.moilioncircle.redis.replicator.io.RedisOutputStream;
+import com.moilioncircle.redis.replicator.io.SpoolInputStream;
 import com.moilioncircle.redis.replicator.rdb.RdbParser;
+import com.moilioncircle.redis.replicator.record.RecordingInputStream;
+import com.moilioncircle.redis.replicator.util.Strings;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
@@ -32,7 +36,6 @@ import java.net.SocketTimeoutException;
 import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.moilioncircle.redis.replicator.Constants.DOLLAR;
@@ -44,21 +47,37 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
 /*package*/ class RedisSocketReplicator extends AbstractReplicator {
 
     private static final Log logger = LogFactory.getLog(RedisSocketReplicator.class);
+    private static final CommandName SELECT = CommandName.name("SELECT");
 
     private final String host;
     private final int port;
     private RedisOutputStream outputStream;
     private Socket socket;
-    private ReplyParser replyParser;
+    private RecordingInputStream recording;
+    /*package*/ ReplyParser replyParser;
     private Timer heartBeat;
+    //db selected by the last SELECT command of the replication stream, -1 before the first SELECT after a PSYNC
+    private int db = -1;
+
+    private final RawCommandFilter rawFilter = new RawCommandFilter() {
+        @Override
+        public boolean accept(CommandName name, int db, byte[] key) {
+            if (SELECT.equals(name)) {
+                if (key != null) RedisSocketReplicator.this.db = Strings.toInt(key);
+                return commands.containsKey(name);
+            }
+            //if command do not register. ignore before its arguments are read
+            return commands.containsKey(name) && doRawCommandFilter(name, db, key);
+        }
+    };
 
-    private final AtomicBoolean connected = new AtomicBoolean(false);
+    /*package*/ final AtomicBoolean connected = new AtomicBoolean(false);
 
     public RedisSocketReplicator(String host, int port, Configuration configuration) {
         this.host = host;
         this.port = port;
         this.configuration = configuration;
-        this.eventQueue = new ArrayBlockingQueue<>(configuration.getEventQueueSize());
+        this.pipeline = new EventPipeline(this, configuration);
         buildInCommandParserRegister();
     }
 
@@ -69,7 +88,8 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
      */
     @Override
     public void open() throws IOException {
-        worker.start();
+        checkpointer.open();
+        pipeline.start();
         for (int i = 0; i < configuration.getRetries() || configuration.getRetries() <= 0; i++) {
             try {
                 connect();
@@ -85,7 +105,12 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
                 //reset retries
                 i = 0;
 
+                //resume from the last committed event, events after it are sent again
+                if (configuration.isManualCommit()) configuration.setOffset(pipeline.committedOffset());
+                //the master sends a SELECT before the first command of a new connection, the db is unknown until then
+                db = -1;
                 logger.info("PSYNC " + configuration.getMasterRunId() + " " + String.valueOf(configuration.getOffset()));
+                if (recording != null) recording.session("PSYNC " + configuration.getMasterRunId() + " " + configuration.getOffset());
                 send("PSYNC".getBytes(), configuration.getMasterRunId().getBytes(), String.valueOf(configuration.getOffset()).getBytes());
                 final String reply = (String) reply();
 
@@ -98,7 +123,7 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
                         @Override
                         public void run() {
                             try {
-                                send("REPLCONF".getBytes(), "ACK".getBytes(), String.valueOf(configuration.getOffset()).getBytes());
+                                send("REPLCONF".getBytes(), "ACK".getBytes(), String.valueOf(ackOffset()).getBytes());
                             } catch (IOException e) {
                                 //NOP
                             }
@@ -107,36 +132,7 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
                     logger.info("heart beat started.");
                 }
                 //sync command
-                while (connected.get()) {
-                    Object obj = replyParser.parse(new OffsetHandler() {
-                        @Override
-                        public void handle(long len) {
-                            configuration.addOffset(len);
-                        }
-                    });
-                    //command
-                    if (obj instanceof Object[]) {
-                        if (configuration.isVerbose() && logger.isDebugEnabled())
-                            logger.debug(Arrays.deepToString((Object[]) obj));
-
-                        Object[] command = (Object[]) obj;
-                        CommandName cmdName = CommandName.name((String) command[0]);
-                        Object[] params = new Object[command.length - 1];
-                        System.arraycopy(command, 1, params, 0, params.length);
-
-                        //if command do not register. ignore
-                        if (commands.get(cmdName) == null) continue;
-
-                        //do command replyParser
-                        CommandParser<? extends Command> operations = commands.get(cmdName);
-                        Command parsedCommand = operations.parse(cmdName, params);
-
-                        //submit event
-                        this.submitEvent(parsedCommand);
-                    } else {
-                        if (logger.isInfoEnabled()) logger.info("Redis reply:" + obj);
-                    }
-                }
+                parseCommands();
                 //connected = false
                 break;
             } catch (SocketException | SocketTimeoutException | InterruptedException | EOFException e) {
@@ -162,13 +158,69 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
             }
         }
         //
-        if (worker != null && !worker.isClosed()) worker.close();
+        if (pipeline != null && !pipeline.isClosed()) pipeline.close();
         doCloseListener();
     }
 
-    private SyncMode trySync(final String reply) throws IOException {
+    /**
+     * parses and submits commands until disconnected
+     */
+    /*package*/ void parseCommands() throws IOException, InterruptedException {
+        while (connected.get()) {
+            Object obj = replyParser.parseCommand(new OffsetHandler() {
+                @Override
+                public void handle(long len) {
+                    configuration.addOffset(len);
+                    metrics.markCommandBytes(len);
+                }
+            }, db, rawFilter);
+            //dropped by raw command filter
+            if (obj == null) continue;
+            //command
+            if (obj instanceof Object[]) {
+                Object[] command = (Object[]) obj;
+                if (configuration.isVerbose() && logger.isDebugEnabled())
+                    logger.debug(Arrays.deepToString(decode(command, 0, command.length)));
+
+                CommandName cmdName = CommandName.name(new String((byte[]) command[0], Constants.CHARSET));
+
+                //if command do not register. ignore
+                CommandParser<? extends Command> operations = commands.get(cmdName);
+                if (operations == null) continue;
+
+                //raw parsers take bytes as is, others take decoded strings
+                Object[] params;
+                if (operations instanceof RawCommandParser) {
+                    params = new Object[command.length - 1];
+                    System.arraycopy(command, 1, params, 0, params.length);
+                } else {
+                    params = decode(command, 1, command.length);
+                }
+
+                //do command replyParser
+                Command parsedCommand = operations.parse(cmdName, params);
+
+                //submit event
+                this.submitEvent(parsedCommand);
+            } else {
+                if (logger.isInfoEnabled()) logger.info("Redis reply:" + obj);
+            }
+        }
+    }
+
+    /*package*/ static Object[] decode(Object[] command, int from, int to) {
+        Object[] params = new Object[to - from];
+        for (int i = from; i < to; i++) {
+            params[i - from] = command[i] == null ? null : new String((byte[]) command[i], Constants.CHARSET);
+        }
+        return params;
+    }
+
+    /*package*/ SyncMode trySync(final String reply) throws IOException {
         logger.info(reply);
         if (reply.startsWith("FULLRESYNC")) {
+            //events of the dump file have no offset of the old master
+            configuration.setOffset(-1L);
             //sync rdb dump file
             parseDump(this);
             //after parsed dump file,cache master run id and offset so that next psync.
@@ -190,7 +242,7 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
 
     private void parseDump(final AbstractReplicator replicator) throws IOException {
         //sync dump
-        String reply = (String) replyParser.parse(new BulkReplyHandler() {
+        String reply = (String) replyParser.parse(new EofBulkReplyHandler() {
             @Override
             public String handle(long len, RedisInputStream in) throws IOException {
                 logger.info("RDB dump file size:" + len);
@@ -203,12 +255,46 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
                 }
                 return "OK";
             }
+
+            @Override
+            public String handle(byte[] mark, RedisInputStream in) throws IOException {
+                logger.info("RDB dump file size: unknown, diskless transfer");
+                if (configuration.isDiscardRdbEvent()) {
+                    logger.info("Discard " + skipEofMark(mark, in) + " bytes");
+                    return "OK";
+                }
+                //the rdb ends with its EOF opcode and checksum, the mark must follow immediately
+                RdbParser parser = new RdbParser(in, replicator);
+                parser.parse();
+                if (Arrays.equals(mark, in.readBytes(mark.length))) return "OK";
+                throw new AssertionError("Expect EOF mark " + new String(mark, Constants.CHARSET) + " after rdb");
+            }
         });
         //sync command
         if (reply.equals("OK")) return;
         throw new AssertionError("SYNC failed." + reply);
     }
 
+    /**
+     * skips the diskless rdb by looking for the mark in the last bytes read
+     *
+     * @return skipped bytes, excluding the mark
+     */
+    private static long skipEofMark(byte[] mark, RedisInputStream in) throws IOException {
+        int n = mark.length;
+        //ring of the last n bytes read
+        byte[] last = new byte[n];
+        long read = 0;
+        while (true) {
+            byte b = (byte) in.read();
+            last[(int) (read++ % n)] = b;
+            if (read < n || b != mark[n - 1]) continue;
+            int i = 0;
+            while (i < n && last[(int) ((read + i) % n)] == mark[i]) i++;
+            if (i == n) return read - n;
+        }
+    }
+
     private void auth(String password) throws IOException {
         if (password != null) {
             logger.info("AUTH " + password);
@@ -301,7 +387,16 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
         }
         socket.connect(new InetSocketAddress(host, port), configuration.getConnectionTimeout());
         outputStream = new RedisOutputStream(socket.getOutputStream());
-        inputStream = new RedisInputStream(socket.getInputStream(), configuration.getBufferSize());
+        InputStream in = socket.getInputStream();
+        recording = null;
+        if (configuration.getStreamRecorder() != null) {
+            in = recording = new RecordingInputStream(in, configuration.getStreamRecorder());
+        }
+        if (configuration.getSpoolDirectory() != null) {
+            //the spool drains the socket, bytes not parsed before a reconnect are sent again by psync
+            in = new SpoolInputStream(in, configuration.getSpoolDirectory(), configuration.getSpoolSegmentSize(), configuration.getSpoolMaxSize());
+        }
+        inputStream = new RedisInputStream(in, configuration.getBufferSize());
         replyParser = new ReplyParser(inputStream);
     }
 
@@ -331,5 +426,5 @@ import static com.moilioncircle.redis.replicator.Constants.STAR;
         logger.info("channel closed");
     }
 
-    private enum SyncMode {SYNC, PSYNC}
+    /*package*/ enum SyncMode {SYNC, PSYNC}
 }
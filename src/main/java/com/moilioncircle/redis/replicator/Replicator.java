@@ -17,12 +17,15 @@
 package com.moilioncircle.redis.replicator;
 
 import com.moilioncircle.redis.replicator.cmd.*;
+import com.moilioncircle.redis.replicator.rdb.BatchRdbListener;
 import com.moilioncircle.redis.replicator.rdb.RdbFilter;
+import com.moilioncircle.redis.replicator.rdb.RdbKeyFilter;
 import com.moilioncircle.redis.replicator.rdb.RdbListener;
 import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Created by leon on 8/13/16.
@@ -33,10 +36,18 @@ public interface Replicator extends Closeable {
 
     void removeRdbFilter(RdbFilter filter);
 
+    void addRdbKeyFilter(RdbKeyFilter filter);
+
+    void removeRdbKeyFilter(RdbKeyFilter filter);
+
     void addRdbListener(RdbListener listener);
 
     void removeRdbListener(RdbListener listener);
 
+    void addBatchRdbListener(BatchRdbListener listener);
+
+    void removeBatchRdbListener(BatchRdbListener listener);
+
     void buildInCommandParserRegister();
 
     <T extends Command> void addCommandParser(CommandName command, CommandParser<T> parser);
@@ -47,10 +58,18 @@ public interface Replicator extends Closeable {
 
     void removeCommandFilter(CommandFilter filter);
 
+    void addRawCommandFilter(RawCommandFilter filter);
+
+    void removeRawCommandFilter(RawCommandFilter filter);
+
     void addCommandListener(CommandListener listener);
 
     void removeCommandListener(CommandListener listener);
 
+    void addBatchCommandListener(BatchCommandListener listener);
+
+    void removeBatchCommandListener(BatchCommandListener listener);
+
     void addCloseListener(CloseListener listener);
 
     void removeCloseListener(CloseListener listener);
@@ -59,10 +78,18 @@ public interface Replicator extends Closeable {
 
     boolean doCommandFilter(Command command);
 
+    boolean doRawCommandFilter(CommandName name, int db, byte[] key);
+
+    void doBatchCommandHandler(List<Command> commands);
+
     void doRdbHandler(KeyValuePair<?> kv);
 
     boolean doRdbFilter(KeyValuePair<?> kv);
 
+    boolean doRdbKeyFilter(KeyValuePair<?> kv);
+
+    void doBatchRdbHandler(List<KeyValuePair<?>> kvs);
+
     void doPreFullSync();
 
     void doPostFullSync(long checksum);
@@ -73,5 +100,14 @@ public interface Replicator extends Closeable {
 
     boolean verbose();
 
+    ReplicatorMetrics getMetrics();
+
+    /**
+     * with {@link Configuration#isManualCommit()}, called by a listener on its event handler thread
+     * to commit every event handed to listeners of that thread so far, the current one included.
+     * a no-op otherwise
+     */
+    void commit();
+
     void open() throws IOException;
 }
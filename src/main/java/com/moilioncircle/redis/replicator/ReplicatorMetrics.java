@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.event.PostFullSyncEvent;
+import com.moilioncircle.redis.replicator.event.PreFullSyncEvent;
+import com.moilioncircle.redis.replicator.metrics.Histogram;
+import com.moilioncircle.redis.replicator.metrics.Meter;
+import com.moilioncircle.redis.replicator.metrics.MetricsExporter;
+import com.moilioncircle.redis.replicator.metrics.ReplicatorMetricsMXBean;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of one replicator:
+ * <ul>
+ * <li>received offset ({@link Configuration#getOffset()}) vs. processed offset, the offset up to which
+ * every command has been handled by the listeners, and the committed offset of {@link Configuration#isManualCommit()}</li>
+ * <li>events and bytes of the rdb and command phases, with their rates per second</li>
+ * <li>event queue depth and the time the parser was blocked on a full queue</li>
+ * <li>full sync count and the duration of the last full sync parsing</li>
+ * <li>per listener handling latency in nanoseconds, if {@link Configuration#setListenerLatencyMetrics(boolean)}</li>
+ * </ul>
+ *
+ * @see com.moilioncircle.redis.replicator.metrics.JmxMetricsExporter
+ * @since 2.0.0
+ */
+public class ReplicatorMetrics implements ReplicatorMetricsMXBean {
+    private static final Log logger = LogFactory.getLog(ReplicatorMetrics.class);
+
+    private final AbstractReplicator replicator;
+    private final Meter rdbEvents = new Meter();
+    private final Meter rdbBytes = new Meter();
+    private final Meter commandEvents = new Meter();
+    private final Meter commandBytes = new Meter();
+    private final AtomicLong submitBlocked = new AtomicLong(0);
+    private final AtomicLong fullSyncs = new AtomicLong(0);
+    private volatile long fullSyncStart;
+    private volatile long lastFullSync = -1;
+    private final ConcurrentHashMap<Object, Histogram> listenerLatencies = new ConcurrentHashMap<>();
+    private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+    ReplicatorMetrics(AbstractReplicator replicator) {
+        this.replicator = replicator;
+    }
+
+    public void addExporter(MetricsExporter exporter) throws IOException {
+        exporter.open(this);
+        exporters.add(exporter);
+    }
+
+    public void removeExporter(MetricsExporter exporter) throws IOException {
+        if (exporters.remove(exporter)) exporter.close();
+    }
+
+    /*
+     * called by the parser thread only
+     */
+    void submitted(Object event) {
+        if (event instanceof KeyValuePair<?>) {
+            rdbEvents.mark();
+        } else if (event instanceof Command) {
+            commandEvents.mark();
+        } else if (event instanceof PreFullSyncEvent) {
+            fullSyncStart = System.nanoTime();
+        } else if (event instanceof PostFullSyncEvent) {
+            lastFullSync = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fullSyncStart);
+            fullSyncs.incrementAndGet();
+        }
+    }
+
+    void submitBlocked(long nanos) {
+        submitBlocked.addAndGet(nanos);
+    }
+
+    public void markRdbBytes(long bytes) {
+        rdbBytes.mark(bytes);
+    }
+
+    public void markCommandBytes(long bytes) {
+        commandBytes.mark(bytes);
+    }
+
+    void listenerLatency(Object listener, long nanos) {
+        Histogram histogram = listenerLatencies.get(listener);
+        if (histogram == null) {
+            Histogram prev = listenerLatencies.putIfAbsent(listener, histogram = new Histogram());
+            if (prev != null) histogram = prev;
+        }
+        histogram.record(nanos);
+    }
+
+    void close() {
+        for (MetricsExporter exporter : exporters) {
+            try {
+                exporter.close();
+            } catch (IOException e) {
+                logger.error("error", e);
+            }
+        }
+        exporters.clear();
+    }
+
+    /**
+     * @param listener a registered listener
+     * @return its handling latency in nanoseconds, null if never recorded
+     */
+    public Histogram getListenerLatency(Object listener) {
+        return listenerLatencies.get(listener);
+    }
+
+    @Override
+    public long getReceivedOffset() {
+        Configuration configuration = replicator.configuration;
+        return configuration == null ? -1 : configuration.getOffset();
+    }
+
+    @Override
+    public long getProcessedOffset() {
+        EventPipeline pipeline = replicator.pipeline;
+        return pipeline == null ? getReceivedOffset() : pipeline.processedOffset();
+    }
+
+    @Override
+    public long getCommittedOffset() {
+        EventPipeline pipeline = replicator.pipeline;
+        return pipeline == null ? getReceivedOffset() : pipeline.committedOffset();
+    }
+
+    @Override
+    public long getOffsetLag() {
+        return Math.max(0, getReceivedOffset() - getProcessedOffset());
+    }
+
+    @Override
+    public long getRdbEvents() {
+        return rdbEvents.getCount();
+    }
+
+    @Override
+    public double getRdbEventsPerSecond() {
+        return rdbEvents.getRate();
+    }
+
+    @Override
+    public long getRdbBytes() {
+        return rdbBytes.getCount();
+    }
+
+    @Override
+    public double getRdbBytesPerSecond() {
+        return rdbBytes.getRate();
+    }
+
+    @Override
+    public long getCommandEvents() {
+        return commandEvents.getCount();
+    }
+
+    @Override
+    public double getCommandEventsPerSecond() {
+        return commandEvents.getRate();
+    }
+
+    @Override
+    public long getCommandBytes() {
+        return commandBytes.getCount();
+    }
+
+    @Override
+    public double getCommandBytesPerSecond() {
+        return commandBytes.getRate();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        EventPipeline pipeline = replicator.pipeline;
+        return pipeline == null ? 0 : pipeline.size();
+    }
+
+    @Override
+    public long getSubmitBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(submitBlocked.get());
+    }
+
+    @Override
+    public long getFullSyncs() {
+        return fullSyncs.get();
+    }
+
+    @Override
+    public long getLastFullSyncMillis() {
+        return lastFullSync;
+    }
+
+    @Override
+    public Map<String, String> getListenerLatencies() {
+        Map<String, String> map = new TreeMap<>();
+        for (Map.Entry<Object, Histogram> entry : listenerLatencies.entrySet()) {
+            Object listener = entry.getKey();
+            map.put(listener.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(listener)), entry.getValue().toString());
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicatorMetrics{" +
+                "receivedOffset=" + getReceivedOffset() +
+                ", processedOffset=" + getProcessedOffset() +
+                ", committedOffset=" + getCommittedOffset() +
+                ", rdbEvents=" + rdbEvents +
+                ", rdbBytes=" + rdbBytes +
+                ", commandEvents=" + commandEvents +
+                ", commandBytes=" + commandBytes +
+                ", queueDepth=" + getQueueDepth() +
+                ", submitBlockedMillis=" + getSubmitBlockedMillis() +
+                ", fullSyncs=" + getFullSyncs() +
+                ", lastFullSyncMillis=" + getLastFullSyncMillis() +
+                ", listenerLatencies=" + getListenerLatencies() +
+                '}';
+    }
+}
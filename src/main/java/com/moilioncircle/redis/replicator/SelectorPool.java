@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selector threads shared by many replicators.
+ * <p>
+ * When a pool is set by {@link Configuration#setSelectorPool(SelectorPool)}, a replicator of a redis master
+ * does not own a blocking socket and a heart beat timer thread. Its non blocking channel is registered to
+ * one loop of the pool (round robin) that reads, decodes and submits events, and sends heart beats.
+ * {@link Replicator#open()} returns once the connection is scheduled, use a {@link CloseListener}
+ * to know when the replicator stopped.
+ *
+ * <pre>
+ *     SelectorPool pool = new SelectorPool(2);
+ *     for (String shard : shards) {
+ *         Replicator replicator = new RedisReplicator(host(shard), port(shard), Configuration.defaultSetting().setSelectorPool(pool));
+ *         replicator.addCommandListener(listener);
+ *         replicator.open();
+ *     }
+ * </pre>
+ *
+ * @since 2.0.0
+ */
+public class SelectorPool implements Closeable {
+
+    private final EventLoop[] loops;
+    private final AtomicInteger next = new AtomicInteger(0);
+
+    public SelectorPool(int size) throws IOException {
+        this.loops = new EventLoop[Math.max(1, size)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(loops.length == 1 ? "redis-replicator-selector" : "redis-replicator-selector-" + i);
+        }
+        for (EventLoop loop : loops) loop.start();
+    }
+
+    /*package*/ EventLoop next() {
+        return loops[(next.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+    }
+
+    public int size() {
+        return loops.length;
+    }
+
+    /**
+     * closes the selector threads, replicators still registered are closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (EventLoop loop : loops) loop.close();
+        try {
+            for (EventLoop loop : loops) loop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
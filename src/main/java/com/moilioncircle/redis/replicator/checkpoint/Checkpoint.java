@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.checkpoint;
+
+/**
+ * Master run id and replication offset that a restarted replicator resumes from with PSYNC.
+ *
+ * @since 2.0.0
+ */
+public final class Checkpoint {
+    private final String runId;
+    private final long offset;
+
+    public Checkpoint(String runId, long offset) {
+        if (runId == null) throw new NullPointerException("runId");
+        this.runId = runId;
+        this.offset = offset;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Checkpoint)) return false;
+        Checkpoint that = (Checkpoint) o;
+        return offset == that.offset && runId.equals(that.runId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * runId.hashCode() + (int) (offset ^ (offset >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{" +
+                "runId='" + runId + '\'' +
+                ", offset=" + offset +
+                '}';
+    }
+}
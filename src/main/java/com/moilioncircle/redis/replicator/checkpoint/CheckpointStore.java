@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.checkpoint;
+
+import java.io.IOException;
+
+/**
+ * Durable storage of the last acknowledged {@link Checkpoint} of one master.
+ * <p>
+ * {@link #load()} is called when the replicator opens, {@link #save(Checkpoint)} from a single checkpoint thread.
+ *
+ * @since 2.0.0
+ */
+public interface CheckpointStore {
+
+    /**
+     * @return the last saved checkpoint, null if none was saved
+     * @throws IOException when the store can not be read
+     */
+    Checkpoint load() throws IOException;
+
+    /**
+     * must not return before the checkpoint is durable
+     *
+     * @param checkpoint checkpoint
+     * @throws IOException when the checkpoint can not be written
+     */
+    void save(Checkpoint checkpoint) throws IOException;
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.checkpoint;
+
+import com.moilioncircle.redis.replicator.Constants;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps the checkpoint in a one line text file "runId offset".
+ * <p>
+ * A save writes and fsyncs a temporary file next to the checkpoint, then renames it over the checkpoint
+ * so that a crash leaves either the old or the new checkpoint, never a torn one.
+ *
+ * @since 2.0.0
+ */
+public class FileCheckpointStore implements CheckpointStore {
+    private final File file;
+    private final File temp;
+
+    public FileCheckpointStore(File file) {
+        this.file = file.getAbsoluteFile();
+        this.temp = new File(this.file.getPath() + ".tmp");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public Checkpoint load() throws IOException {
+        if (!file.exists()) return null;
+        String line = new String(Files.readAllBytes(file.toPath()), Constants.CHARSET).trim();
+        String[] ary = line.split(" ");
+        if (ary.length != 2) throw new IOException("corrupted checkpoint " + file + ":" + line);
+        try {
+            return new Checkpoint(ary[0], Long.parseLong(ary[1]));
+        } catch (NumberFormatException e) {
+            throw new IOException("corrupted checkpoint " + file + ":" + line);
+        }
+    }
+
+    @Override
+    public void save(Checkpoint checkpoint) throws IOException {
+        byte[] bytes = (checkpoint.getRunId() + " " + checkpoint.getOffset() + "\n").getBytes(Constants.CHARSET);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+            out.getChannel().force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        //make the rename durable, not supported on every platform
+        try (FileChannel dir = FileChannel.open(file.getParentFile().toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            //NOP
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileCheckpointStore{" +
+                "file=" + file +
+                '}';
+    }
+}
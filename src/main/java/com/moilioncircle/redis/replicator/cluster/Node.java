@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.cluster;
+
+import java.util.BitSet;
+
+/**
+ * A master of a sharded deployment, optionally with the hash slots it serves.
+ *
+ * @since 2.0.0
+ */
+public class Node {
+
+    private final String host;
+    private final int port;
+    private final BitSet slots = new BitSet(Slots.SLOTS);
+
+    public Node(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * @param from first slot
+     * @param to   last slot, inclusive
+     * @return this
+     */
+    public Node addSlots(int from, int to) {
+        if (from < 0 || to >= Slots.SLOTS || from > to) throw new IllegalArgumentException("slots " + from + "-" + to);
+        slots.set(from, to + 1);
+        return this;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return true if no slot map is given or the slot is served by this node
+     */
+    public boolean owns(int slot) {
+        return slots.isEmpty() || slots.get(slot);
+    }
+
+    public boolean owns(byte[] key) {
+        return slots.isEmpty() || slots.get(Slots.slot(key));
+    }
+
+    public boolean owns(String key) {
+        return slots.isEmpty() || slots.get(Slots.slot(key));
+    }
+
+    public int slotCount() {
+        return slots.cardinality();
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.cluster;
+
+import com.moilioncircle.redis.replicator.CloseListener;
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.cmd.BatchCommandListener;
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.rdb.BatchRdbListener;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replicator of one {@link Node}. Its listeners receive this replicator, so a listener shared by the
+ * replicators of several nodes can tell where an event comes from:
+ * <pre>
+ *     public void handle(Replicator replicator, KeyValuePair&lt;?&gt; kv) {
+ *         Node node = ((NodeReplicator) replicator).getNode();
+ *         int slot = Slots.slot(kv.getKey());
+ *     }
+ * </pre>
+ *
+ * @since 2.0.0
+ */
+public class NodeReplicator extends RedisReplicator {
+
+    private final Node node;
+    private final Configuration configuration;
+    //listener -> wrapper passing this replicator
+    private final ConcurrentHashMap<Object, Object> wrappers = new ConcurrentHashMap<>();
+
+    public NodeReplicator(Node node, Configuration configuration) {
+        super(node.getHost(), node.getPort(), configuration);
+        this.node = node;
+        this.configuration = configuration;
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public void addRdbListener(final RdbListener listener) {
+        RdbListener wrapper = new RdbListener() {
+            @Override
+            public void preFullSync(Replicator replicator) {
+                listener.preFullSync(NodeReplicator.this);
+            }
+
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                listener.handle(NodeReplicator.this, kv);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                listener.postFullSync(NodeReplicator.this, checksum);
+            }
+        };
+        wrappers.put(listener, wrapper);
+        super.addRdbListener(wrapper);
+    }
+
+    @Override
+    public void removeRdbListener(RdbListener listener) {
+        Object wrapper = wrappers.remove(listener);
+        if (wrapper != null) super.removeRdbListener((RdbListener) wrapper);
+    }
+
+    @Override
+    public void addBatchRdbListener(final BatchRdbListener listener) {
+        BatchRdbListener wrapper = new BatchRdbListener() {
+            @Override
+            public void preFullSync(Replicator replicator) {
+                listener.preFullSync(NodeReplicator.this);
+            }
+
+            @Override
+            public void handle(Replicator replicator, List<KeyValuePair<?>> kvs) {
+                listener.handle(NodeReplicator.this, kvs);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                listener.postFullSync(NodeReplicator.this, checksum);
+            }
+        };
+        wrappers.put(listener, wrapper);
+        super.addBatchRdbListener(wrapper);
+    }
+
+    @Override
+    public void removeBatchRdbListener(BatchRdbListener listener) {
+        Object wrapper = wrappers.remove(listener);
+        if (wrapper != null) super.removeBatchRdbListener((BatchRdbListener) wrapper);
+    }
+
+    @Override
+    public void addCommandListener(final CommandListener listener) {
+        CommandListener wrapper = new CommandListener() {
+            @Override
+            public void handle(Replicator replicator, Command command) {
+                listener.handle(NodeReplicator.this, command);
+            }
+        };
+        wrappers.put(listener, wrapper);
+        super.addCommandListener(wrapper);
+    }
+
+    @Override
+    public void removeCommandListener(CommandListener listener) {
+        Object wrapper = wrappers.remove(listener);
+        if (wrapper != null) super.removeCommandListener((CommandListener) wrapper);
+    }
+
+    @Override
+    public void addBatchCommandListener(final BatchCommandListener listener) {
+        BatchCommandListener wrapper = new BatchCommandListener() {
+            @Override
+            public void handle(Replicator replicator, List<Command> commands) {
+                listener.handle(NodeReplicator.this, commands);
+            }
+        };
+        wrappers.put(listener, wrapper);
+        super.addBatchCommandListener(wrapper);
+    }
+
+    @Override
+    public void removeBatchCommandListener(BatchCommandListener listener) {
+        Object wrapper = wrappers.remove(listener);
+        if (wrapper != null) super.removeBatchCommandListener((BatchCommandListener) wrapper);
+    }
+
+    @Override
+    public void addCloseListener(final CloseListener listener) {
+        CloseListener wrapper = new CloseListener() {
+            @Override
+            public void handle(Replicator replicator) {
+                listener.handle(NodeReplicator.this);
+            }
+        };
+        wrappers.put(listener, wrapper);
+        super.addCloseListener(wrapper);
+    }
+
+    @Override
+    public void removeCloseListener(CloseListener listener) {
+        Object wrapper = wrappers.remove(listener);
+        if (wrapper != null) super.removeCloseListener((CloseListener) wrapper);
+    }
+
+    @Override
+    public String toString() {
+        return "NodeReplicator{" + node + '}';
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.cluster;
+
+import com.moilioncircle.redis.replicator.CloseListener;
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.cmd.*;
+import com.moilioncircle.redis.replicator.rdb.BatchRdbListener;
+import com.moilioncircle.redis.replicator.rdb.RdbFilter;
+import com.moilioncircle.redis.replicator.rdb.RdbKeyFilter;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replicates a sharded deployment (e.g. the masters of a Redis Cluster) with a {@link NodeReplicator} per master.
+ * <p>
+ * Listeners, filters and command parsers are registered once and shared by the replicators of every node.
+ * Every replicator has its own connection and event handler workers, so throughput grows with the number
+ * of nodes and shared listeners are called concurrently by several nodes. A listener gets the
+ * {@link NodeReplicator} an event comes from, see {@link NodeReplicator#getNode()} and {@link Slots#slot(String)}.
+ * <p>
+ * A replicator that stops on its own (retries exhausted, protocol error) is replaced by a new one after
+ * {@code retryTimeInterval} ms. The new one keeps the psync master run id and offset of the node,
+ * so the master may continue with a partial resync. {@link #awaitTermination(long, TimeUnit)} waits until
+ * {@link #close()} stopped every node.
+ *
+ * @since 2.0.0
+ */
+public class RedisClusterReplicator implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(RedisClusterReplicator.class);
+
+    private final Configuration configuration;
+    private final List<Shard> shards = new ArrayList<>();
+
+    private final List<RdbFilter> rdbFilters = new CopyOnWriteArrayList<>();
+    private final List<RdbKeyFilter> rdbKeyFilters = new CopyOnWriteArrayList<>();
+    private final List<RdbListener> rdbListeners = new CopyOnWriteArrayList<>();
+    private final List<BatchRdbListener> batchRdbListeners = new CopyOnWriteArrayList<>();
+    private final List<CommandFilter> filters = new CopyOnWriteArrayList<>();
+    private final List<RawCommandFilter> rawFilters = new CopyOnWriteArrayList<>();
+    private final List<CommandListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<BatchCommandListener> batchListeners = new CopyOnWriteArrayList<>();
+    private final Map<CommandName, CommandParser<? extends Command>> commands = new ConcurrentHashMap<>();
+    private final Set<CommandName> removedCommands = Collections.newSetFromMap(new ConcurrentHashMap<CommandName, Boolean>());
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger running = new AtomicInteger(0);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * @param nodes         masters, with their slots if known
+     * @param configuration settings shared by the nodes, each node gets a {@link Configuration#copy()}
+     */
+    public RedisClusterReplicator(List<Node> nodes, Configuration configuration) {
+        this.configuration = configuration;
+        for (Node node : nodes) {
+            Shard shard = new Shard(node, configuration.copy());
+            shard.replicator = new NodeReplicator(node, shard.configuration);
+            shards.add(shard);
+        }
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "node-replicator-" + count.getAndIncrement());
+            }
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "node-replicator-restart");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * opens the replicator of every node and returns
+     *
+     * @throws IOException never
+     */
+    public void open() throws IOException {
+        for (Shard shard : shards) start(shard, shard.replicator);
+    }
+
+    /**
+     * closes the replicator of every node, synchronized with a restart so a new replicator
+     * is either closed here or never started
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) return;
+        for (NodeReplicator replicator : getReplicators()) {
+            try {
+                replicator.close();
+            } catch (IOException e) {
+                logger.error("error", e);
+            }
+        }
+        if (running.get() == 0) stop();
+    }
+
+    /**
+     * @return true if every node stopped after {@link #close()} within the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return stopped.await(timeout, unit);
+    }
+
+    public List<Node> getNodes() {
+        List<Node> nodes = new ArrayList<>();
+        for (Shard shard : shards) nodes.add(shard.node);
+        return nodes;
+    }
+
+    /**
+     * @return current replicator of every node, a restarted node has a new replicator
+     */
+    public List<NodeReplicator> getReplicators() {
+        List<NodeReplicator> replicators = new ArrayList<>();
+        for (Shard shard : shards) replicators.add(shard.replicator);
+        return replicators;
+    }
+
+    /**
+     * @return current replicator of the node serving the slot of the key, null if no node claims it
+     */
+    public NodeReplicator getReplicator(String key) {
+        int slot = Slots.slot(key);
+        for (Shard shard : shards) {
+            if (shard.node.slotCount() > 0 && shard.node.owns(slot)) return shard.replicator;
+        }
+        return null;
+    }
+
+    private void start(final Shard shard, final NodeReplicator replicator) {
+        final AtomicBoolean once = new AtomicBoolean(false);
+        running.incrementAndGet();
+        replicator.addCloseListener(new CloseListener() {
+            @Override
+            public void handle(Replicator r) {
+                if (once.compareAndSet(false, true)) stopped(shard);
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    //returns when the replicator stopped, or right away with a selector pool
+                    replicator.open();
+                } catch (Throwable e) {
+                    logger.error("replicator of " + shard.node + " failed", e);
+                    if (once.compareAndSet(false, true)) stopped(shard);
+                }
+            }
+        });
+    }
+
+    private void stopped(final Shard shard) {
+        int running = this.running.decrementAndGet();
+        if (closed.get()) {
+            if (running == 0) stop();
+            return;
+        }
+        logger.info("restart replicator of " + shard.node + " in " + configuration.getRetryTimeInterval() + "ms");
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                restart(shard);
+            }
+        }, configuration.getRetryTimeInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void restart(Shard shard) {
+        if (closed.get()) return;
+        NodeReplicator replicator = new NodeReplicator(shard.node, shard.configuration);
+        for (CommandName command : removedCommands) replicator.removeCommandParser(command, null);
+        for (Map.Entry<CommandName, CommandParser<? extends Command>> entry : commands.entrySet()) {
+            replicator.addCommandParser(entry.getKey(), entry.getValue());
+        }
+        for (RdbFilter filter : rdbFilters) replicator.addRdbFilter(filter);
+        for (RdbKeyFilter filter : rdbKeyFilters) replicator.addRdbKeyFilter(filter);
+        for (RdbListener listener : rdbListeners) replicator.addRdbListener(listener);
+        for (BatchRdbListener listener : batchRdbListeners) replicator.addBatchRdbListener(listener);
+        for (CommandFilter filter : filters) replicator.addCommandFilter(filter);
+        for (RawCommandFilter filter : rawFilters) replicator.addRawCommandFilter(filter);
+        for (CommandListener listener : listeners) replicator.addCommandListener(listener);
+        for (BatchCommandListener listener : batchListeners) replicator.addBatchCommandListener(listener);
+        shard.replicator = replicator;
+        start(shard, replicator);
+    }
+
+    private synchronized void stop() {
+        if (stopped.getCount() == 0) return;
+        executor.shutdown();
+        scheduler.shutdownNow();
+        stopped.countDown();
+    }
+
+    public synchronized void addRdbFilter(RdbFilter filter) {
+        rdbFilters.add(filter);
+        for (Shard shard : shards) shard.replicator.addRdbFilter(filter);
+    }
+
+    public synchronized void removeRdbFilter(RdbFilter filter) {
+        rdbFilters.remove(filter);
+        for (Shard shard : shards) shard.replicator.removeRdbFilter(filter);
+    }
+
+    public synchronized void addRdbKeyFilter(RdbKeyFilter filter) {
+        rdbKeyFilters.add(filter);
+        for (Shard shard : shards) shard.replicator.addRdbKeyFilter(filter);
+    }
+
+    public synchronized void removeRdbKeyFilter(RdbKeyFilter filter) {
+        rdbKeyFilters.remove(filter);
+        for (Shard shard : shards) shard.replicator.removeRdbKeyFilter(filter);
+    }
+
+    public synchronized void addRdbListener(RdbListener listener) {
+        rdbListeners.add(listener);
+        for (Shard shard : shards) shard.replicator.addRdbListener(listener);
+    }
+
+    public synchronized void removeRdbListener(RdbListener listener) {
+        rdbListeners.remove(listener);
+        for (Shard shard : shards) shard.replicator.removeRdbListener(listener);
+    }
+
+    public synchronized void addBatchRdbListener(BatchRdbListener listener) {
+        batchRdbListeners.add(listener);
+        for (Shard shard : shards) shard.replicator.addBatchRdbListener(listener);
+    }
+
+    public synchronized void removeBatchRdbListener(BatchRdbListener listener) {
+        batchRdbListeners.remove(listener);
+        for (Shard shard : shards) shard.replicator.removeBatchRdbListener(listener);
+    }
+
+    public synchronized <T extends Command> void addCommandParser(CommandName command, CommandParser<T> parser) {
+        removedCommands.remove(command);
+        commands.put(command, parser);
+        for (Shard shard : shards) shard.replicator.addCommandParser(command, parser);
+    }
+
+    public synchronized <T extends Command> void removeCommandParser(CommandName command, CommandParser<T> parser) {
+        commands.remove(command);
+        removedCommands.add(command);
+        for (Shard shard : shards) shard.replicator.removeCommandParser(command, parser);
+    }
+
+    public synchronized void addCommandFilter(CommandFilter filter) {
+        filters.add(filter);
+        for (Shard shard : shards) shard.replicator.addCommandFilter(filter);
+    }
+
+    public synchronized void removeCommandFilter(CommandFilter filter) {
+        filters.remove(filter);
+        for (Shard shard : shards) shard.replicator.removeCommandFilter(filter);
+    }
+
+    public synchronized void addRawCommandFilter(RawCommandFilter filter) {
+        rawFilters.add(filter);
+        for (Shard shard : shards) shard.replicator.addRawCommandFilter(filter);
+    }
+
+    public synchronized void removeRawCommandFilter(RawCommandFilter filter) {
+        rawFilters.remove(filter);
+        for (Shard shard : shards) shard.replicator.removeRawCommandFilter(filter);
+    }
+
+    public synchronized void addCommandListener(CommandListener listener) {
+        listeners.add(listener);
+        for (Shard shard : shards) shard.replicator.addCommandListener(listener);
+    }
+
+    public synchronized void removeCommandListener(CommandListener listener) {
+        listeners.remove(listener);
+        for (Shard shard : shards) shard.replicator.removeCommandListener(listener);
+    }
+
+    public synchronized void addBatchCommandListener(BatchCommandListener listener) {
+        batchListeners.add(listener);
+        for (Shard shard : shards) shard.replicator.addBatchCommandListener(listener);
+    }
+
+    public synchronized void removeBatchCommandListener(BatchCommandListener listener) {
+        batchListeners.remove(listener);
+        for (Shard shard : shards) shard.replicator.removeBatchCommandListener(listener);
+    }
+
+    private static class Shard {
+        private final Node node;
+        //kept across restarts for psync
+        private final Configuration configuration;
+        private volatile NodeReplicator replicator;
+
+        private Shard(Node node, Configuration configuration) {
+            this.node = node;
+            this.configuration = configuration;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.cluster;
+
+import com.moilioncircle.redis.replicator.Constants;
+
+/**
+ * Redis Cluster hash slots.
+ * <p>
+ * slot = CRC16(key) mod 16384, only the part between the first '{' and the next '}' is hashed
+ * when it is not empty, so that keys with the same hash tag are in the same slot.
+ *
+ * @since 2.0.0
+ */
+public class Slots {
+
+    public static final int SLOTS = 16384;
+
+    //CRC16 XMODEM, polynomial 0x1021
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            TABLE[i] = crc & 0xffff;
+        }
+    }
+
+    private Slots() {
+    }
+
+    public static int slot(String key) {
+        return slot(key.getBytes(Constants.CHARSET));
+    }
+
+    public static int slot(byte[] key) {
+        int from = 0;
+        int to = key.length;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != '{') continue;
+            for (int j = i + 1; j < key.length; j++) {
+                if (key[j] != '}') continue;
+                if (j > i + 1) {
+                    from = i + 1;
+                    to = j;
+                }
+                break;
+            }
+            break;
+        }
+        return crc16(key, from, to) & (SLOTS - 1);
+    }
+
+    public static int crc16(byte[] bytes, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ bytes[i]) & 0xff]) & 0xffff;
+        }
+        return crc;
+    }
+}
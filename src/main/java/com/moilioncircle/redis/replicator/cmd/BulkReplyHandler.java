@@ -25,7 +25,13 @@ import java.io.IOException;
  * Created by leon on 8/13/16.
  */
 public interface BulkReplyHandler {
-    String handle(long len, RedisInputStream in) throws IOException;
+    /**
+     * @param len bulk string length
+     * @param in  input stream positioned at the first byte of the bulk string
+     * @return String, byte[] or any handler specific object
+     * @throws IOException when read timeout
+     */
+    Object handle(long len, RedisInputStream in) throws IOException;
 
     class SimpleBulkReplyHandler implements BulkReplyHandler {
         @Override
@@ -38,4 +44,20 @@ public interface BulkReplyHandler {
             return reply;
         }
     }
+
+    /**
+     * read bulk string as raw bytes without charset decoding.
+     */
+    class BytesBulkReplyHandler implements BulkReplyHandler {
+        private static final byte[] EMPTY = new byte[0];
+
+        @Override
+        public byte[] handle(long len, RedisInputStream in) throws IOException {
+            byte[] reply = len == 0 ? EMPTY : in.readBytes((int) len);
+            int c;
+            if ((c = in.read()) != '\r') throw new AssertionError("Expect '\\r' but :" + (char) c);
+            if ((c = in.read()) != '\n') throw new AssertionError("Expect '\\n' but :" + (char) c);
+            return reply;
+        }
+    }
 }
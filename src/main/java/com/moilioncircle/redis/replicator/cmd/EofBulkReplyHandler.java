@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.cmd;
+
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+
+import java.io.IOException;
+
+/**
+ * Handles the diskless rdb transfer of redis 2.8.18+: {@code $EOF:<40 bytes mark>\r\n} followed by the rdb and
+ * the same mark, without length and without trailing CRLF.
+ *
+ * @since 2.0.0
+ */
+public interface EofBulkReplyHandler extends BulkReplyHandler {
+    /**
+     * the stream ends when the last bytes read are the mark, a handler must consume the mark.
+     */
+    int MARK_LENGTH = 40;
+
+    /**
+     * @param mark 40 bytes end of stream mark
+     * @param in   input stream positioned at the first byte of the payload
+     * @return String, byte[] or any handler specific object
+     * @throws IOException when read timeout
+     */
+    Object handle(byte[] mark, RedisInputStream in) throws IOException;
+}
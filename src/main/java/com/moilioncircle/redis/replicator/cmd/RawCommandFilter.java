@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.cmd;
+
+/**
+ * A filter evaluated on the raw RESP array of a replicated command, after its name and first
+ * argument are read and before the rest of the array is read or any {@link CommandParser} runs.
+ * Rejected commands are skipped by length, their bytes still count toward the replication offset.
+ * <p>
+ * Commands whose first argument is not their key, e.g. EVAL, BITOP or ZUNIONSTORE, are never passed to the filter.
+ *
+ * @see CommandFilter
+ * @since 2.0.0
+ */
+public interface RawCommandFilter {
+    /**
+     * @param name command name
+     * @param db   db selected by the last SELECT command, -1 if unknown. it is unknown after every (re)connect until the master sends a SELECT
+     * @param key  first argument of the command, the key. null if the command has no argument
+     * @return false to drop the command
+     */
+    boolean accept(CommandName name, int db, byte[] key);
+}
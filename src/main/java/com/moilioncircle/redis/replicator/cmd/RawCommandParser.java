@@ -0,0 +1,30 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.cmd;
+
+/**
+ * Marker of a {@link CommandParser} that accepts raw params.
+ * <p>
+ * When the registered parser is a RawCommandParser, every element of {@code params} is the
+ * {@code byte[]} read straight off the RESP array, no charset decoding is done before {@link #parse}.
+ * The parser decides when (and if) a param becomes a String.
+ * Other parsers still receive String params.
+ *
+ * @since 2.0.0
+ */
+public interface RawCommandParser<T extends Command> extends CommandParser<T> {
+}
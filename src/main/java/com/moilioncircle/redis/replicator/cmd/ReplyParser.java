@@ -27,6 +27,9 @@ import static com.moilioncircle.redis.replicator.Constants.*;
  * Created by leon on 8/13/16.
  */
 public class ReplyParser {
+    private static final BulkReplyHandler STRING_HANDLER = new BulkReplyHandler.SimpleBulkReplyHandler();
+    private static final BulkReplyHandler BYTES_HANDLER = new BulkReplyHandler.BytesBulkReplyHandler();
+
     private final RedisInputStream in;
 
     public ReplyParser(RedisInputStream in) {
@@ -34,11 +37,11 @@ public class ReplyParser {
     }
 
     public Object parse() throws IOException {
-        return parse(new BulkReplyHandler.SimpleBulkReplyHandler(), null);
+        return parse(STRING_HANDLER, null);
     }
 
     public Object parse(OffsetHandler offsetHandler) throws IOException {
-        return parse(new BulkReplyHandler.SimpleBulkReplyHandler(), offsetHandler);
+        return parse(STRING_HANDLER, offsetHandler);
     }
 
     public Object parse(BulkReplyHandler handler, OffsetHandler offsetHandler) throws IOException {
@@ -50,27 +53,96 @@ public class ReplyParser {
     }
 
     /**
-     * @param handler bulk string handler
-     * @return return Object[] or String or Long
+     * parses a replicated command. bulk strings are read as byte[].
+     * if the reply is a RESP array, the filter is asked with its first two elements (command name and key)
+     * before the rest of the array is read. a rejected array is skipped by length without allocation.
+     *
+     * @param offsetHandler receives the length of the reply, skipped or not
+     * @param db            db passed to the filter
+     * @param filter        raw command filter
+     * @return Object[] of byte[] for accepted commands, null for rejected commands, or a non array reply
      * @throws IOException when read timeout
      */
-    public Object parse(BulkReplyHandler handler) throws IOException {
+    public Object parseCommand(OffsetHandler offsetHandler, int db, RawCommandFilter filter) throws IOException {
+        in.mark();
+        Object rs = parseCommand(db, filter);
+        long len = in.unmark();
+        if (offsetHandler != null) offsetHandler.handle(len);
+        return rs;
+    }
+
+    private Object parseCommand(int db, RawCommandFilter filter) throws IOException {
+        int c = in.read();
+        //skip newlines sent as PING
+        while (c == '\n') c = in.read();
+        if (c != STAR) return parse(c, BYTES_HANDLER);
+        long len = readNumber();
+        if (len <= 0) return len == -1 ? null : new Object[0];
+        Object[] ary = new Object[(int) len];
+        ary[0] = parse(BYTES_HANDLER);
+        if (len > 1) ary[1] = parse(BYTES_HANDLER);
+        if (ary[0] instanceof byte[]) {
+            CommandName name = CommandName.name(new String((byte[]) ary[0], CHARSET));
+            byte[] key = len > 1 && ary[1] instanceof byte[] ? (byte[]) ary[1] : null;
+            if (!filter.accept(name, db, key)) {
+                for (int i = 2; i < len; i++) skip();
+                return null;
+            }
+        }
+        for (int i = 2; i < len; i++) ary[i] = parse(BYTES_HANDLER);
+        return ary;
+    }
+
+    /**
+     * skips one reply by its length prefixes
+     *
+     * @throws IOException when read timeout
+     */
+    private void skip() throws IOException {
         int c = in.read();
+        switch (c) {
+            case DOLLAR:
+                long len = readNumber();
+                //content and CRLF
+                if (len != -1) in.skip(len + 2);
+                return;
+            case COLON:
+                readNumber();
+                return;
+            case STAR:
+                len = readNumber();
+                for (long i = 0; i < len; i++) skip();
+                return;
+            case PLUS:
+            case MINUS:
+                while (in.read() != '\n') {
+                    //simple strings can not contain CRLF
+                }
+                return;
+            default:
+                throw new AssertionError("Expect [$,:,*,+,-] but: " + (char) c);
+        }
+    }
+
+    /**
+     * @param handler bulk string handler. also applied to every bulk string element of RESP arrays
+     * @return return Object[] or String or Long. bulk strings are whatever the handler returns(e.g. byte[])
+     * @throws IOException when read timeout
+     */
+    public Object parse(BulkReplyHandler handler) throws IOException {
+        return parse(in.read(), handler);
+    }
+
+    private Object parse(int c, BulkReplyHandler handler) throws IOException {
         switch (c) {
             case DOLLAR:
                 //RESP Bulk Strings
-                ByteBuilder builder = ByteBuilder.allocate(128);
-                while (true) {
-                    while ((c = in.read()) != '\r') {
-                        builder.put((byte) c);
-                    }
-                    if ((c = in.read()) == '\n') {
-                        break;
-                    } else {
-                        builder.put((byte) c);
-                    }
+                c = in.read();
+                if (c == 'E' && handler instanceof EofBulkReplyHandler) {
+                    //$EOF:<40 bytes mark>\r\n. diskless rdb transfer
+                    return ((EofBulkReplyHandler) handler).handle(readEofMark(), in);
                 }
-                long len = Long.parseLong(builder.toString());
+                long len = readNumber(c);
                 // $-1\r\n. this is called null string.
                 // see http://redis.io/topics/protocol
                 if (len == -1) return null;
@@ -78,43 +150,21 @@ public class ReplyParser {
                 throw new AssertionError("callback is null");
             case COLON:
                 // RESP Integers
-                builder = ByteBuilder.allocate(128);
-                while (true) {
-                    while ((c = in.read()) != '\r') {
-                        builder.put((byte) c);
-                    }
-                    if ((c = in.read()) == '\n') {
-                        break;
-                    } else {
-                        builder.put((byte) c);
-                    }
-                }
                 //as integer
-                return Long.parseLong(builder.toString());
+                return readNumber();
             case STAR:
                 // RESP Arrays
-                builder = ByteBuilder.allocate(128);
-                while (true) {
-                    while ((c = in.read()) != '\r') {
-                        builder.put((byte) c);
-                    }
-                    if ((c = in.read()) == '\n') {
-                        break;
-                    } else {
-                        builder.put((byte) c);
-                    }
-                }
-                len = Long.parseLong(builder.toString());
+                len = readNumber();
                 if (len == -1) return null;
                 Object[] ary = new Object[(int) len];
                 for (int i = 0; i < len; i++) {
-                    Object obj = parse(new BulkReplyHandler.SimpleBulkReplyHandler());
+                    Object obj = parse(handler);
                     ary[i] = obj;
                 }
                 return ary;
             case PLUS:
                 // RESP Simple Strings
-                builder = ByteBuilder.allocate(128);
+                ByteBuilder builder = ByteBuilder.allocate(128);
                 while (true) {
                     while ((c = in.read()) != '\r') {
                         builder.put((byte) c);
@@ -149,4 +199,47 @@ public class ReplyParser {
 
         }
     }
+
+    /**
+     * read a signed decimal terminated by CRLF without building intermediate String
+     *
+     * @return number
+     * @throws IOException when read timeout
+     */
+    private long readNumber() throws IOException {
+        return readNumber(in.read());
+    }
+
+    private long readNumber(int c) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        if (c == '-') {
+            negative = true;
+            c = in.read();
+        }
+        while (c != '\r') {
+            if (c < '0' || c > '9') throw new AssertionError("Expect digit but: " + (char) c);
+            value = value * 10 + (c - '0');
+            c = in.read();
+        }
+        if ((c = in.read()) != '\n') throw new AssertionError("Expect '\\n' but :" + (char) c);
+        return negative ? -value : value;
+    }
+
+    /**
+     * read OF:&lt;40 bytes mark&gt;\r\n after $E
+     *
+     * @return mark
+     * @throws IOException when read timeout
+     */
+    private byte[] readEofMark() throws IOException {
+        int c;
+        for (int i = 1; i < 4; i++) {
+            if ((c = in.read()) != "EOF:".charAt(i)) throw new AssertionError("Expect $EOF: but :" + (char) c);
+        }
+        byte[] mark = in.readBytes(EofBulkReplyHandler.MARK_LENGTH);
+        if ((c = in.read()) != '\r') throw new AssertionError("Expect '\\r' but :" + (char) c);
+        if ((c = in.read()) != '\n') throw new AssertionError("Expect '\\n' but :" + (char) c);
+        return mark;
+    }
 }
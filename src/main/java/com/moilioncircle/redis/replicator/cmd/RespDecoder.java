@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.cmd;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import static com.moilioncircle.redis.replicator.Constants.*;
+
+/**
+ * Incremental RESP decoder over {@link ByteBuffer}s, the non blocking counterpart of {@link ReplyParser}.
+ * <p>
+ * {@link #decode} consumes the given bytes and keeps a partial reply between calls, so a reply may
+ * arrive in any number of pieces. Bulk strings are decoded as byte[], simple strings and errors as String,
+ * integers as Long and arrays as Object[]. RESP null replies carry nothing for a replicator and are dropped.
+ *
+ * @since 2.0.0
+ */
+public class RespDecoder {
+
+    /**
+     * returned for a command rejected by the {@link RawCommandFilter}
+     */
+    public static final Object DROPPED = new Object();
+
+    private static final int TYPE = 0;
+    private static final int LINE = 1;
+    private static final int NUMBER = 2;
+    private static final int BULK = 3;
+    private static final int SKIP = 4;
+
+    private int state = TYPE;
+    private int type;
+
+    //'$' '*' ':' lines
+    private long number;
+    private boolean negative;
+
+    //'+' '-' lines
+    private byte[] line = new byte[128];
+    private int lineLen;
+
+    //bulk string content, then bytes to skip before the value is complete
+    private byte[] bulk;
+    private int bulkLen;
+    private long skip;
+    private Object value;
+
+    //arrays being decoded, innermost first
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    //bytes of the current top level reply consumed by previous calls
+    private long len;
+
+    /**
+     * decodes a reply, see {@link ReplyParser#parseCommand(OffsetHandler, int, RawCommandFilter)}
+     *
+     * @param in            bytes received, consumed up to the end of the first complete reply
+     * @param offsetHandler receives the length of every complete reply, dropped or not. may be null
+     * @param db            db passed to the filter
+     * @param filter        raw command filter asked with the first two elements of a top level array. may be null
+     * @return the reply, {@link #DROPPED} for a rejected command, or null when more bytes are needed
+     */
+    public Object decode(ByteBuffer in, OffsetHandler offsetHandler, int db, RawCommandFilter filter) {
+        int start = in.position();
+        while (in.hasRemaining()) {
+            Object value;
+            switch (state) {
+                case TYPE:
+                    type = in.get();
+                    //skip newlines sent as PING
+                    if (type == '\n' && frames.isEmpty()) continue;
+                    switch (type) {
+                        case PLUS:
+                        case MINUS:
+                            lineLen = 0;
+                            state = LINE;
+                            continue;
+                        case DOLLAR:
+                        case STAR:
+                        case COLON:
+                            number = 0;
+                            negative = false;
+                            state = NUMBER;
+                            continue;
+                        default:
+                            throw new AssertionError("Expect [$,:,*,+,-] but: " + (char) type);
+                    }
+                case LINE:
+                    if (!readLine(in)) continue;
+                    state = TYPE;
+                    value = new String(line, 0, lineLen, CHARSET);
+                    break;
+                case NUMBER:
+                    if (!readNumber(in)) continue;
+                    state = TYPE;
+                    if (type == COLON) {
+                        value = number;
+                    } else if (number == -1) {
+                        value = null;
+                    } else if (type == DOLLAR) {
+                        if (skipping()) {
+                            //content and CRLF
+                            this.skip = number + 2;
+                            this.value = null;
+                            state = SKIP;
+                        } else {
+                            bulk = new byte[(int) number];
+                            bulkLen = 0;
+                            state = BULK;
+                        }
+                        continue;
+                    } else if (number == 0) {
+                        value = new Object[0];
+                    } else {
+                        frames.push(new Frame((int) number, skipping()));
+                        continue;
+                    }
+                    break;
+                case BULK:
+                    int n = Math.min(in.remaining(), bulk.length - bulkLen);
+                    in.get(bulk, bulkLen, n);
+                    bulkLen += n;
+                    if (bulkLen < bulk.length) continue;
+                    //CRLF
+                    this.skip = 2;
+                    this.value = bulk;
+                    bulk = null;
+                    state = SKIP;
+                    continue;
+                case SKIP:
+                    n = (int) Math.min(in.remaining(), skip);
+                    in.position(in.position() + n);
+                    skip -= n;
+                    if (skip > 0) continue;
+                    state = TYPE;
+                    value = this.value;
+                    this.value = null;
+                    break;
+                default:
+                    throw new AssertionError("Un-except state:" + state);
+            }
+            value = complete(value, db, filter);
+            if (frames.isEmpty()) {
+                long len = this.len + in.position() - start;
+                this.len = 0;
+                start = in.position();
+                if (offsetHandler != null) offsetHandler.handle(len);
+                if (value != null) return value;
+            }
+        }
+        len += in.position() - start;
+        return null;
+    }
+
+    /**
+     * adds a value to the enclosing arrays, asks the filter once the name and key of a command are known
+     *
+     * @return the top level reply when it is complete
+     */
+    private Object complete(Object value, int db, RawCommandFilter filter) {
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            if (frame.ary != null) frame.ary[frame.index] = value;
+            frame.index++;
+            if (filter != null && frame.ary != null && frames.size() == 1 && frame.index == Math.min(2, frame.len) && frame.ary[0] instanceof byte[]) {
+                CommandName name = CommandName.name(new String((byte[]) frame.ary[0], CHARSET));
+                byte[] key = frame.len > 1 && frame.ary[1] instanceof byte[] ? (byte[]) frame.ary[1] : null;
+                //elements left are skipped by length
+                if (!filter.accept(name, db, key)) frame.ary = null;
+            }
+            if (frame.index < frame.len) return null;
+            frames.pop();
+            value = frame.ary == null ? DROPPED : frame.ary;
+        }
+        return value;
+    }
+
+    private boolean skipping() {
+        return !frames.isEmpty() && frames.peek().ary == null;
+    }
+
+    private boolean readLine(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte c = in.get();
+            //simple strings can not contain CRLF
+            if (c == '\n' && lineLen > 0 && line[lineLen - 1] == '\r') {
+                lineLen--;
+                return true;
+            }
+            if (lineLen == line.length) line = Arrays.copyOf(line, lineLen << 1);
+            line[lineLen++] = c;
+        }
+        return false;
+    }
+
+    private boolean readNumber(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            int c = in.get();
+            if (c == '\n') {
+                if (negative) number = -number;
+                return true;
+            }
+            if (c == '\r') continue;
+            if (c == '-' && number == 0 && !negative) {
+                negative = true;
+                continue;
+            }
+            if (c < '0' || c > '9') throw new AssertionError("Expect digit but: " + (char) c);
+            number = number * 10 + (c - '0');
+        }
+        return false;
+    }
+
+    private static class Frame {
+        private final int len;
+        //null when the array is skipped
+        private Object[] ary;
+        private int index;
+
+        private Frame(int len, boolean skip) {
+            this.len = len;
+            this.ary = skip ? null : new Object[len];
+        }
+    }
+}
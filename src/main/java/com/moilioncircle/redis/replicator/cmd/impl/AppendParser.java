@@ -16,33 +16,42 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/13/16.
  */
-public class AppendParser implements CommandParser<AppendParser.AppendCommand> {
+public class AppendParser implements RawCommandParser<AppendParser.AppendCommand> {
 
     @Override
     public AppendCommand parse(CommandName cmdName, Object[] params) {
-        return new AppendCommand((String) params[0], (String) params[1]);
+        return new AppendCommand(Strings.toBytes(params[0]), Strings.toBytes(params[1]));
     }
 
-    public static class AppendCommand implements Command {
-        private final String key;
-        private final String value;
+    public static class AppendCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public AppendCommand(String key, String value) {
+        public AppendCommand(byte[] key, byte[] value) {
             this.key = key;
             this.value = value;
         }
@@ -50,8 +59,8 @@ public class AppendParser implements CommandParser<AppendParser.AppendCommand> {
         @Override
         public String toString() {
             return "AppendCommand{" +
-                    "key='" + key + '\'' +
-                    ", value='" + value + '\'' +
+                    "key='" + getKey() + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
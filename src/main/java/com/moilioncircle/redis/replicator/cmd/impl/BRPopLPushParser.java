@@ -18,31 +18,40 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/19/16.
  */
-public class BRPopLPushParser implements CommandParser<BRPopLPushParser.BRPopLPushCommand> {
+public class BRPopLPushParser implements RawCommandParser<BRPopLPushParser.BRPopLPushCommand> {
     @Override
     public BRPopLPushCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String source = (String) params[idx++];
-        String destination = (String) params[idx++];
-        int timeout = Integer.parseInt((String) params[idx++]);
+        byte[] source = Strings.toBytes(params[idx++]);
+        byte[] destination = Strings.toBytes(params[idx++]);
+        int timeout = Strings.toInt(params[idx++]);
         return new BRPopLPushCommand(source, destination, timeout);
     }
 
     public static class BRPopLPushCommand implements Command {
-        private final String source;
-        private final String destination;
+        private final byte[] source;
+        private final byte[] destination;
         private final int timeout;
 
         public String getSource() {
+            return Strings.toString(source);
+        }
+
+        public byte[] getRawSource() {
             return source;
         }
 
         public String getDestination() {
+            return Strings.toString(destination);
+        }
+
+        public byte[] getRawDestination() {
             return destination;
         }
 
@@ -50,7 +59,7 @@ public class BRPopLPushParser implements CommandParser<BRPopLPushParser.BRPopLPu
             return timeout;
         }
 
-        public BRPopLPushCommand(String source, String destination, int timeout) {
+        public BRPopLPushCommand(byte[] source, byte[] destination, int timeout) {
             this.source = source;
             this.destination = destination;
             this.timeout = timeout;
@@ -59,8 +68,8 @@ public class BRPopLPushParser implements CommandParser<BRPopLPushParser.BRPopLPu
         @Override
         public String toString() {
             return "BRPopLPushCommand{" +
-                    "source='" + source + '\'' +
-                    ", destination='" + destination + '\'' +
+                    "source='" + getSource() + '\'' +
+                    ", destination='" + getDestination() + '\'' +
                     ", timeout=" + timeout +
                     '}';
         }
@@ -16,9 +16,10 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,21 +27,21 @@ import java.util.List;
 /**
  * Created by leon on 8/27/16.
  */
-public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldCommand> {
+public class BitFieldParser implements RawCommandParser<BitFieldParser.BitFieldCommand> {
 
     @Override
     public BitFieldCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
         List<Statement> list = new ArrayList<>();
         if (idx < params.length) {
-            String token;
+            Object token;
             do {
                 idx = parseStatement(idx, params, list);
                 if (idx >= params.length) break;
-                token = (String) params[idx];
+                token = params[idx];
             }
-            while (token != null && (token.equalsIgnoreCase("GET") || token.equalsIgnoreCase("SET") || token.equalsIgnoreCase("INCRBY")));
+            while (token != null && (Strings.equalsIgnoreCase(token, "GET") || Strings.equalsIgnoreCase(token, "SET") || Strings.equalsIgnoreCase(token, "INCRBY")));
         }
         List<OverFlow> overFlowList = null;
         if (idx < params.length) {
@@ -50,7 +51,7 @@ public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldComm
                 idx = parseOverFlow(idx, params, overFlow);
                 overFlowList.add(overFlow);
                 if (idx >= params.length) break;
-            } while (((String) params[idx]).equalsIgnoreCase("OVERFLOW"));
+            } while (Strings.equalsIgnoreCase(params[idx], "OVERFLOW"));
         }
 
         return new BitFieldCommand(key, list, overFlowList);
@@ -58,27 +59,27 @@ public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldComm
 
     private int parseOverFlow(int i, Object[] params, OverFlow overFlow) {
         int idx = i;
-        accept((String) params[idx++], "OVERFLOW");
+        accept(params[idx++], "OVERFLOW");
         OverFlowType overFlowType = null;
-        String keyWord = (String) params[idx++];
-        if (keyWord.equalsIgnoreCase("WRAP")) {
+        Object keyWord = params[idx++];
+        if (Strings.equalsIgnoreCase(keyWord, "WRAP")) {
             overFlowType = OverFlowType.WRAP;
-        } else if (keyWord.equalsIgnoreCase("SAT")) {
+        } else if (Strings.equalsIgnoreCase(keyWord, "SAT")) {
             overFlowType = OverFlowType.SAT;
-        } else if (keyWord.equalsIgnoreCase("FAIL")) {
+        } else if (Strings.equalsIgnoreCase(keyWord, "FAIL")) {
             overFlowType = OverFlowType.FAIL;
         } else {
-            throw new AssertionError("parse [BITFIELD] command error." + keyWord);
+            throw new AssertionError("parse [BITFIELD] command error." + Strings.toString(keyWord));
         }
         List<Statement> list = new ArrayList<>();
         if (idx < params.length) {
-            String token;
+            Object token;
             do {
                 idx = parseStatement(idx, params, list);
                 if (idx >= params.length) break;
-                token = (String) params[idx];
+                token = params[idx];
             }
-            while (token != null && (token.equalsIgnoreCase("GET") || token.equalsIgnoreCase("SET") || token.equalsIgnoreCase("INCRBY")));
+            while (token != null && (Strings.equalsIgnoreCase(token, "GET") || Strings.equalsIgnoreCase(token, "SET") || Strings.equalsIgnoreCase(token, "INCRBY")));
         }
         overFlow.setOverFlowType(overFlowType);
         overFlow.setStatements(list);
@@ -87,17 +88,17 @@ public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldComm
 
     private int parseStatement(int i, Object[] params, List<Statement> list) {
         int idx = i;
-        String keyWord = (String) params[idx++];
+        Object keyWord = params[idx++];
         Statement statement = null;
-        if (keyWord.equalsIgnoreCase("GET")) {
+        if (Strings.equalsIgnoreCase(keyWord, "GET")) {
             GetTypeOffset getTypeOffset = new GetTypeOffset();
             idx = parseGet(idx - 1, params, getTypeOffset);
             statement = getTypeOffset;
-        } else if (keyWord.equalsIgnoreCase("SET")) {
+        } else if (Strings.equalsIgnoreCase(keyWord, "SET")) {
             SetTypeOffsetValue setTypeOffsetValue = new SetTypeOffsetValue();
             idx = parseSet(idx - 1, params, setTypeOffsetValue);
             statement = setTypeOffsetValue;
-        } else if (keyWord.equalsIgnoreCase("INCRBY")) {
+        } else if (Strings.equalsIgnoreCase(keyWord, "INCRBY")) {
             IncrByTypeOffsetIncrement incrByTypeOffsetIncrement = new IncrByTypeOffsetIncrement();
             idx = parseIncrBy(idx - 1, params, incrByTypeOffsetIncrement);
             statement = incrByTypeOffsetIncrement;
@@ -110,10 +111,10 @@ public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldComm
 
     private int parseIncrBy(int i, Object[] params, IncrByTypeOffsetIncrement incrByTypeOffsetIncrement) {
         int idx = i;
-        accept((String) params[idx++], "INCRBY");
-        String type = (String) params[idx++];
-        String offset = (String) params[idx++];
-        int increment = Integer.parseInt((String) params[idx++]);
+        accept(params[idx++], "INCRBY");
+        String type = Strings.toString(params[idx++]);
+        String offset = Strings.toString(params[idx++]);
+        int increment = Strings.toInt(params[idx++]);
         incrByTypeOffsetIncrement.setType(type);
         incrByTypeOffsetIncrement.setOffset(offset);
         incrByTypeOffsetIncrement.setIncrement(increment);
@@ -122,10 +123,10 @@ public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldComm
 
     private int parseSet(int i, Object[] params, SetTypeOffsetValue setTypeOffsetValue) {
         int idx = i;
-        accept((String) params[idx++], "SET");
-        String type = (String) params[idx++];
-        String offset = (String) params[idx++];
-        int value = Integer.parseInt((String) params[idx++]);
+        accept(params[idx++], "SET");
+        String type = Strings.toString(params[idx++]);
+        String offset = Strings.toString(params[idx++]);
+        int value = Strings.toInt(params[idx++]);
         setTypeOffsetValue.setType(type);
         setTypeOffsetValue.setOffset(offset);
         setTypeOffsetValue.setValue(value);
@@ -134,25 +135,29 @@ public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldComm
 
     private int parseGet(int i, Object[] params, GetTypeOffset getTypeOffset) {
         int idx = i;
-        accept((String) params[idx++], "GET");
-        String type = (String) params[idx++];
-        String offset = (String) params[idx++];
+        accept(params[idx++], "GET");
+        String type = Strings.toString(params[idx++]);
+        String offset = Strings.toString(params[idx++]);
         getTypeOffset.setType(type);
         getTypeOffset.setOffset(offset);
         return idx;
     }
 
-    private void accept(String actual, String expect) {
-        if (actual.equalsIgnoreCase(expect)) return;
-        throw new AssertionError("Expect " + expect + " but actual " + actual);
+    private void accept(Object actual, String expect) {
+        if (Strings.equalsIgnoreCase(actual, expect)) return;
+        throw new AssertionError("Expect " + expect + " but actual " + Strings.toString(actual));
     }
 
-    public static class BitFieldCommand implements Command {
-        private final String key;
+    public static class BitFieldCommand implements KeyedCommand {
+        private final byte[] key;
         private final List<Statement> statements;
         private final List<OverFlow> overFlows;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -164,7 +169,7 @@ public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldComm
             return overFlows;
         }
 
-        public BitFieldCommand(String key,
+        public BitFieldCommand(byte[] key,
                                List<Statement> statements,
                                List<OverFlow> overFlows) {
             this.key = key;
@@ -175,7 +180,7 @@ public class BitFieldParser implements CommandParser<BitFieldParser.BitFieldComm
         @Override
         public String toString() {
             return "BitFieldCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", statements=" + statements +
                     ", overFlows=" + overFlows +
                     '}';
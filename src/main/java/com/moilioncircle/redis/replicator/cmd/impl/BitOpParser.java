@@ -18,7 +18,8 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -26,38 +27,45 @@ import java.util.Arrays;
 /**
  * Created by leon on 8/14/16.
  */
-public class BitOpParser implements CommandParser<BitOpParser.BitOpCommand> {
+public class BitOpParser implements RawCommandParser<BitOpParser.BitOpCommand> {
     @Override
     public BitOpCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String strOp = (String) params[idx++];
-        Op op = Op.valueOf(strOp.toUpperCase());
-        String destKey = (String) params[idx++];
-        String[] keys = new String[params.length - 2];
+        Op op = Op.valueOf(Strings.toString(params[idx++]).toUpperCase());
+        byte[] destKey = Strings.toBytes(params[idx++]);
+        byte[][] keys = new byte[params.length - 2][];
         for (int i = idx, j = 0; i < params.length; i++, j++) {
-            keys[j] = (String) params[idx];
+            keys[j] = Strings.toBytes(params[i]);
         }
         return new BitOpCommand(op, destKey, keys);
     }
 
     public static class BitOpCommand implements Command {
         private final Op op;
-        private final String destkey;
-        private final String keys[];
+        private final byte[] destkey;
+        private final byte[][] keys;
 
         public Op getOp() {
             return op;
         }
 
         public String getDestkey() {
+            return Strings.toString(destkey);
+        }
+
+        public byte[] getRawDestkey() {
             return destkey;
         }
 
         public String[] getKeys() {
+            return Strings.toStrings(keys);
+        }
+
+        public byte[][] getRawKeys() {
             return keys;
         }
 
-        public BitOpCommand(Op op, String destkey, String[] keys) {
+        public BitOpCommand(Op op, byte[] destkey, byte[][] keys) {
             this.op = op;
             this.destkey = destkey;
             this.keys = keys;
@@ -67,8 +75,8 @@ public class BitOpParser implements CommandParser<BitOpParser.BitOpCommand> {
         public String toString() {
             return "BitOpCommand{" +
                     "op=" + op +
-                    ", destkey='" + destkey + '\'' +
-                    ", keys=" + Arrays.toString(keys) +
+                    ", destkey='" + getDestkey() + '\'' +
+                    ", keys=" + Arrays.toString(getKeys()) +
                     '}';
         }
 
@@ -18,38 +18,43 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.Arrays;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class DelParser implements CommandParser<DelParser.DelCommand> {
+public class DelParser implements RawCommandParser<DelParser.DelCommand> {
     @Override
     public DelCommand parse(CommandName cmdName, Object[] params) {
-        String[] keys = new String[params.length];
+        byte[][] keys = new byte[params.length][];
         for (int i = 0; i < params.length; i++) {
-            keys[i] = (String) params[i];
+            keys[i] = Strings.toBytes(params[i]);
         }
         return new DelCommand(keys);
     }
 
     public static class DelCommand implements Command {
-        private final String[] keys;
+        private final byte[][] keys;
 
         public String[] getKeys() {
+            return Strings.toStrings(keys);
+        }
+
+        public byte[][] getRawKeys() {
             return keys;
         }
 
-        public DelCommand(String... keys) {
+        public DelCommand(byte[]... keys) {
             this.keys = keys;
         }
 
         @Override
         public String toString() {
             return "DelCommand{" +
-                    "keys=" + Arrays.toString(keys) +
+                    "keys=" + Arrays.toString(getKeys()) +
                     '}';
         }
 
@@ -18,41 +18,42 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class EvalParser implements CommandParser<EvalParser.EvalCommand> {
+public class EvalParser implements RawCommandParser<EvalParser.EvalCommand> {
     @Override
     public EvalCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String script = (String) params[idx++];
-        int numkeys = Integer.parseInt((String) params[idx++]);
-        String[] keys = new String[numkeys];
+        byte[] script = Strings.toBytes(params[idx++]);
+        int numkeys = Strings.toInt(params[idx++]);
+        byte[][] keys = new byte[numkeys][];
         for (int i = 0; i < numkeys; i++) {
-            keys[i] = (String) params[idx++];
+            keys[i] = Strings.toBytes(params[idx++]);
         }
-        List<String> list = new ArrayList<>();
-        while (idx < params.length) {
-            list.add((String) params[idx++]);
+        byte[][] args = new byte[params.length - idx][];
+        for (int i = 0; idx < params.length; i++) {
+            args[i] = Strings.toBytes(params[idx++]);
         }
-        String[] args = new String[list.size()];
-        list.toArray(args);
         return new EvalCommand(script, numkeys, keys, args);
     }
 
     public static class EvalCommand implements Command {
-        private final String script;
+        private final byte[] script;
         private final int numkeys;
-        private final String[] keys;
-        private final String[] args;
+        private final byte[][] keys;
+        private final byte[][] args;
 
         public String getScript() {
+            return Strings.toString(script);
+        }
+
+        public byte[] getRawScript() {
             return script;
         }
 
@@ -61,14 +62,22 @@ public class EvalParser implements CommandParser<EvalParser.EvalCommand> {
         }
 
         public String[] getKeys() {
+            return Strings.toStrings(keys);
+        }
+
+        public byte[][] getRawKeys() {
             return keys;
         }
 
         public String[] getArgs() {
+            return Strings.toStrings(args);
+        }
+
+        public byte[][] getRawArgs() {
             return args;
         }
 
-        public EvalCommand(String script, int numkeys, String[] keys, String[] args) {
+        public EvalCommand(byte[] script, int numkeys, byte[][] keys, byte[][] args) {
             this.script = script;
             this.numkeys = numkeys;
             this.keys = keys;
@@ -78,10 +87,10 @@ public class EvalParser implements CommandParser<EvalParser.EvalCommand> {
         @Override
         public String toString() {
             return "EvalCommand{" +
-                    "script='" + script + '\'' +
+                    "script='" + getScript() + '\'' +
                     ", numkeys=" + numkeys +
-                    ", keys=" + Arrays.toString(keys) +
-                    ", args=" + Arrays.toString(args) +
+                    ", keys=" + Arrays.toString(getKeys()) +
+                    ", args=" + Arrays.toString(getArgs()) +
                     '}';
         }
 
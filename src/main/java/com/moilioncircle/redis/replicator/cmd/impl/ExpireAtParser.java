@@ -16,27 +16,32 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class ExpireAtParser implements CommandParser<ExpireAtParser.ExpireAtCommand> {
+public class ExpireAtParser implements RawCommandParser<ExpireAtParser.ExpireAtCommand> {
     @Override
     public ExpireAtCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        long ex = Long.parseLong((String) params[idx++]);
+        byte[] key = Strings.toBytes(params[idx++]);
+        long ex = Strings.toLong(params[idx++]);
         return new ExpireAtCommand(key, ex);
     }
 
-    public static class ExpireAtCommand implements Command {
-        private final String key;
+    public static class ExpireAtCommand implements KeyedCommand {
+        private final byte[] key;
         private final long ex;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -44,7 +49,7 @@ public class ExpireAtParser implements CommandParser<ExpireAtParser.ExpireAtComm
             return ex;
         }
 
-        public ExpireAtCommand(String key, long ex) {
+        public ExpireAtCommand(byte[] key, long ex) {
             this.key = key;
             this.ex = ex;
         }
@@ -52,7 +57,7 @@ public class ExpireAtParser implements CommandParser<ExpireAtParser.ExpireAtComm
         @Override
         public String toString() {
             return "ExpireAtCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", ex=" + ex +
                     '}';
         }
@@ -16,27 +16,32 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class ExpireParser implements CommandParser<ExpireParser.ExpireCommand> {
+public class ExpireParser implements RawCommandParser<ExpireParser.ExpireCommand> {
     @Override
     public ExpireCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        int ex = Integer.parseInt((String) params[idx++]);
+        byte[] key = Strings.toBytes(params[idx++]);
+        int ex = Strings.toInt(params[idx++]);
         return new ExpireCommand(key, ex);
     }
 
-    public static class ExpireCommand implements Command {
-        private final String key;
+    public static class ExpireCommand implements KeyedCommand {
+        private final byte[] key;
         private final int ex;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -44,7 +49,7 @@ public class ExpireParser implements CommandParser<ExpireParser.ExpireCommand> {
             return ex;
         }
 
-        public ExpireCommand(String key, int ex) {
+        public ExpireCommand(byte[] key, int ex) {
             this.key = key;
             this.ex = ex;
         }
@@ -52,7 +57,7 @@ public class ExpireParser implements CommandParser<ExpireParser.ExpireCommand> {
         @Override
         public String toString() {
             return "ExpireCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", ex=" + ex +
                     '}';
         }
@@ -18,12 +18,12 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
 
 /**
  * Created by leon on 8/13/16.
  */
-public class FlushDBParser implements CommandParser<FlushDBParser.FlushDBCommand> {
+public class FlushDBParser implements RawCommandParser<FlushDBParser.FlushDBCommand> {
     @Override
     public FlushDBCommand parse(CommandName cmdName, Object[] params) {
         return new FlushDBCommand();
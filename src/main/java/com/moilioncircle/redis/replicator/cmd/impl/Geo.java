@@ -1,16 +1,22 @@
 package com.moilioncircle.redis.replicator.cmd.impl;
 
+import com.moilioncircle.redis.replicator.util.Strings;
+
 import java.io.Serializable;
 
 /**
  * Created by leon on 8/20/16.
  */
 public class Geo implements Serializable {
-    private final String member;
+    private final byte[] member;
     private final double longitude;
     private final double latitude;
 
     public String getMember() {
+        return Strings.toString(member);
+    }
+
+    public byte[] getRawMember() {
         return member;
     }
 
@@ -23,6 +29,10 @@ public class Geo implements Serializable {
     }
 
     public Geo(String member, double longitude, double latitude) {
+        this(Strings.toBytes(member), longitude, latitude);
+    }
+
+    public Geo(byte[] member, double longitude, double latitude) {
         this.member = member;
         this.longitude = longitude;
         this.latitude = latitude;
@@ -31,7 +41,7 @@ public class Geo implements Serializable {
     @Override
     public String toString() {
         return "Geo{" +
-                "member='" + member + '\'' +
+                "member='" + getMember() + '\'' +
                 ", longitude=" + longitude +
                 ", latitude=" + latitude +
                 '}';
@@ -16,9 +16,10 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -27,16 +28,16 @@ import java.util.List;
 /**
  * Created by leon on 8/20/16.
  */
-public class GeoAddParser implements CommandParser<GeoAddParser.GeoAddCommand> {
+public class GeoAddParser implements RawCommandParser<GeoAddParser.GeoAddCommand> {
     @Override
     public GeoAddCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
         List<Geo> list = new ArrayList<>();
         while (idx < params.length) {
-            double longitude = Double.parseDouble((String) params[idx++]);
-            double latitude = Double.parseDouble((String) params[idx++]);
-            String member = (String) params[idx++];
+            double longitude = Strings.toDouble(params[idx++]);
+            double latitude = Strings.toDouble(params[idx++]);
+            byte[] member = Strings.toBytes(params[idx++]);
             list.add(new Geo(member, longitude, latitude));
         }
         Geo[] geos = new Geo[list.size()];
@@ -44,11 +45,15 @@ public class GeoAddParser implements CommandParser<GeoAddParser.GeoAddCommand> {
         return new GeoAddCommand(key, geos);
     }
 
-    public static class GeoAddCommand implements Command {
-        private final String key;
+    public static class GeoAddCommand implements KeyedCommand {
+        private final byte[] key;
         private final Geo[] geos;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -56,7 +61,7 @@ public class GeoAddParser implements CommandParser<GeoAddParser.GeoAddCommand> {
             return geos;
         }
 
-        public GeoAddCommand(String key, Geo[] geos) {
+        public GeoAddCommand(byte[] key, Geo[] geos) {
             this.key = key;
             this.geos = geos;
         }
@@ -64,7 +69,7 @@ public class GeoAddParser implements CommandParser<GeoAddParser.GeoAddCommand> {
         @Override
         public String toString() {
             return "GeoAddCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", geos=" + Arrays.toString(geos) +
                     '}';
         }
@@ -16,40 +16,49 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.Arrays;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class HDelParser implements CommandParser<HDelParser.HDelCommand> {
+public class HDelParser implements RawCommandParser<HDelParser.HDelCommand> {
     @Override
     public HDelCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String[] fields = new String[params.length - 1];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[][] fields = new byte[params.length - 1][];
         for (int i = idx, j = 0; i < params.length; i++, j++) {
-            fields[j] = (String) params[idx];
+            fields[j] = Strings.toBytes(params[i]);
         }
         return new HDelCommand(key, fields);
     }
 
-    public static class HDelCommand implements Command {
-        private final String key;
-        private final String fields[];
+    public static class HDelCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[][] fields;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String[] getFields() {
+            return Strings.toStrings(fields);
+        }
+
+        public byte[][] getRawFields() {
             return fields;
         }
 
-        public HDelCommand(String key, String... fields) {
+        public HDelCommand(byte[] key, byte[]... fields) {
             this.key = key;
             this.fields = fields;
         }
@@ -57,8 +66,8 @@ public class HDelParser implements CommandParser<HDelParser.HDelCommand> {
         @Override
         public String toString() {
             return "HDelCommand{" +
-                    "key='" + key + '\'' +
-                    ", fields=" + Arrays.toString(fields) +
+                    "key='" + getKey() + '\'' +
+                    ", fields=" + Arrays.toString(getFields()) +
                     '}';
         }
 
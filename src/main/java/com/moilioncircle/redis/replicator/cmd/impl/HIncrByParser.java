@@ -16,34 +16,43 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class HIncrByParser implements CommandParser<HIncrByParser.HIncrByCommand> {
+public class HIncrByParser implements RawCommandParser<HIncrByParser.HIncrByCommand> {
 
     @Override
     public HIncrByCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String field = (String) params[idx++];
-        int increment = Integer.parseInt((String) params[idx++]);
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[] field = Strings.toBytes(params[idx++]);
+        int increment = Strings.toInt(params[idx++]);
         return new HIncrByCommand(key, field, increment);
     }
 
-    public static class HIncrByCommand implements Command {
-        private final String key;
-        private final String field;
+    public static class HIncrByCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[] field;
         private final int increment;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getField() {
+            return Strings.toString(field);
+        }
+
+        public byte[] getRawField() {
             return field;
         }
 
@@ -51,7 +60,7 @@ public class HIncrByParser implements CommandParser<HIncrByParser.HIncrByCommand
             return increment;
         }
 
-        public HIncrByCommand(String key, String field, int increment) {
+        public HIncrByCommand(byte[] key, byte[] field, int increment) {
             this.key = key;
             this.field = field;
             this.increment = increment;
@@ -60,8 +69,8 @@ public class HIncrByParser implements CommandParser<HIncrByParser.HIncrByCommand
         @Override
         public String toString() {
             return "HIncrByCommand{" +
-                    "key='" + key + '\'' +
-                    ", field='" + field + '\'' +
+                    "key='" + getKey() + '\'' +
+                    ", field='" + getField() + '\'' +
                     ", increment='" + increment + '\'' +
                     '}';
         }
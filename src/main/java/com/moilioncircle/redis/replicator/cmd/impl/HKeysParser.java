@@ -16,35 +16,40 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/13/16.
  */
-public class HKeysParser implements CommandParser<HKeysParser.HKeysCommand> {
+public class HKeysParser implements RawCommandParser<HKeysParser.HKeysCommand> {
     @Override
     public HKeysCommand parse(CommandName cmdName, Object[] params) {
-        String key = (String) params[0];
+        byte[] key = Strings.toBytes(params[0]);
         return new HKeysCommand(key);
     }
 
-    public static class HKeysCommand implements Command {
-        private final String key;
+    public static class HKeysCommand implements KeyedCommand {
+        private final byte[] key;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
-        public HKeysCommand(String key) {
+        public HKeysCommand(byte[] key) {
             this.key = key;
         }
 
         @Override
         public String toString() {
             return "HKeysCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     '}';
         }
 
@@ -16,9 +16,10 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -26,34 +27,47 @@ import java.util.Map;
 /**
  * Created by leon on 8/14/16.
  */
-public class HMSetParser implements CommandParser<HMSetParser.HMSetCommand> {
+public class HMSetParser implements RawCommandParser<HMSetParser.HMSetCommand> {
 
     @Override
     public HMSetCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        Map<String, String> fields = new LinkedHashMap<>();
-        while (idx < params.length) {
-            String field = (String) params[idx++];
-            String value = idx == params.length ? null : (String) params[idx++];
-            fields.put(field, value);
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[][] fields = new byte[(params.length - idx + 1) & ~1][];
+        for (int i = 0; idx < params.length; i++) {
+            fields[i] = Strings.toBytes(params[idx++]);
         }
         return new HMSetCommand(key, fields);
     }
 
-    public static class HMSetCommand implements Command {
-        private final String key;
-        private final Map<String, String> fields;
+    public static class HMSetCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[][] fields;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public Map<String, String> getFields() {
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int i = 0; i < fields.length; i += 2) {
+                map.put(Strings.toString(fields[i]), Strings.toString(fields[i + 1]));
+            }
+            return map;
+        }
+
+        /**
+         * @return field value pairs in command order, a field at every even index followed by its value
+         */
+        public byte[][] getRawFields() {
             return fields;
         }
 
-        public HMSetCommand(String key, Map<String, String> fields) {
+        public HMSetCommand(byte[] key, byte[][] fields) {
             this.key = key;
             this.fields = fields;
         }
@@ -61,8 +75,8 @@ public class HMSetParser implements CommandParser<HMSetParser.HMSetCommand> {
         @Override
         public String toString() {
             return "HMSetCommand{" +
-                    "key='" + key + '\'' +
-                    ", fields=" + fields +
+                    "key='" + getKey() + '\'' +
+                    ", fields=" + getFields() +
                     '}';
         }
 
@@ -16,42 +16,55 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class HSetNxParser implements CommandParser<HSetNxParser.HSetNxCommand> {
+public class HSetNxParser implements RawCommandParser<HSetNxParser.HSetNxCommand> {
 
     @Override
     public HSetNxCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String field = (String) params[idx++];
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[] field = Strings.toBytes(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new HSetNxCommand(key, field, value);
     }
 
-    public static class HSetNxCommand implements Command {
-        private final String key;
-        private final String field;
-        private final String value;
+    public static class HSetNxCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[] field;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getField() {
+            return Strings.toString(field);
+        }
+
+        public byte[] getRawField() {
             return field;
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public HSetNxCommand(String key, String field, String value) {
+        public HSetNxCommand(byte[] key, byte[] field, byte[] value) {
             this.key = key;
             this.field = field;
             this.value = value;
@@ -60,9 +73,9 @@ public class HSetNxParser implements CommandParser<HSetNxParser.HSetNxCommand> {
         @Override
         public String toString() {
             return "HSetNxCommand{" +
-                    "key='" + key + '\'' +
-                    ", field='" + field + '\'' +
-                    ", value='" + value + '\'' +
+                    "key='" + getKey() + '\'' +
+                    ", field='" + getField() + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
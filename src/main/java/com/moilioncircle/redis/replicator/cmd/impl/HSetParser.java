@@ -16,42 +16,55 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class HSetParser implements CommandParser<HSetParser.HSetCommand> {
+public class HSetParser implements RawCommandParser<HSetParser.HSetCommand> {
 
     @Override
     public HSetCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String field = (String) params[idx++];
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[] field = Strings.toBytes(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new HSetCommand(key, field, value);
     }
 
-    public static class HSetCommand implements Command {
-        private final String key;
-        private final String field;
-        private final String value;
+    public static class HSetCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[] field;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getField() {
+            return Strings.toString(field);
+        }
+
+        public byte[] getRawField() {
             return field;
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public HSetCommand(String key, String field, String value) {
+        public HSetCommand(byte[] key, byte[] field, byte[] value) {
             this.key = key;
             this.field = field;
             this.value = value;
@@ -60,9 +73,9 @@ public class HSetParser implements CommandParser<HSetParser.HSetCommand> {
         @Override
         public String toString() {
             return "HSetCommand{" +
-                    "key='" + key + '\'' +
-                    ", field='" + field + '\'' +
-                    ", value='" + value + '\'' +
+                    "key='" + getKey() + '\'' +
+                    ", field='" + getField() + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
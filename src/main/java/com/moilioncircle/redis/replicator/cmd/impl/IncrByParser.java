@@ -16,27 +16,32 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class IncrByParser implements CommandParser<IncrByParser.IncrByCommand> {
+public class IncrByParser implements RawCommandParser<IncrByParser.IncrByCommand> {
     @Override
     public IncrByCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        int ex = Integer.parseInt((String) params[idx++]);
+        byte[] key = Strings.toBytes(params[idx++]);
+        int ex = Strings.toInt(params[idx++]);
         return new IncrByCommand(key, ex);
     }
 
-    public static class IncrByCommand implements Command {
-        private final String key;
+    public static class IncrByCommand implements KeyedCommand {
+        private final byte[] key;
         private final int value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -44,7 +49,7 @@ public class IncrByParser implements CommandParser<IncrByParser.IncrByCommand> {
             return value;
         }
 
-        public IncrByCommand(String key, int value) {
+        public IncrByCommand(byte[] key, int value) {
             this.key = key;
             this.value = value;
         }
@@ -52,7 +57,7 @@ public class IncrByParser implements CommandParser<IncrByParser.IncrByCommand> {
         @Override
         public String toString() {
             return "IncrByCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", value=" + value +
                     '}';
         }
@@ -16,37 +16,42 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/19/16.
  */
-public class LInsertParser implements CommandParser<LInsertParser.LInsertCommand> {
+public class LInsertParser implements RawCommandParser<LInsertParser.LInsertCommand> {
     @Override
     public LInsertCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
         LInsertType lInsertType = null;
-        String key = (String) params[idx++];
-        String keyWord = (String) params[idx++];
-        if (keyWord.equalsIgnoreCase("BEFORE")) {
+        byte[] key = Strings.toBytes(params[idx++]);
+        Object keyWord = params[idx++];
+        if (Strings.equalsIgnoreCase(keyWord, "BEFORE")) {
             lInsertType = LInsertType.BEFORE;
-        } else if (keyWord.equalsIgnoreCase("AFTER")) {
+        } else if (Strings.equalsIgnoreCase(keyWord, "AFTER")) {
             lInsertType = LInsertType.AFTER;
         }
-        String pivot = (String) params[idx++];
-        String value = (String) params[idx++];
+        byte[] pivot = Strings.toBytes(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new LInsertCommand(key, lInsertType, pivot, value);
     }
 
-    public static class LInsertCommand implements Command {
-        private final String key;
+    public static class LInsertCommand implements KeyedCommand {
+        private final byte[] key;
         private final LInsertType lInsertType;
-        private final String pivot;
-        private final String value;
+        private final byte[] pivot;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -55,14 +60,22 @@ public class LInsertParser implements CommandParser<LInsertParser.LInsertCommand
         }
 
         public String getPivot() {
+            return Strings.toString(pivot);
+        }
+
+        public byte[] getRawPivot() {
             return pivot;
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public LInsertCommand(String key, LInsertType lInsertType, String pivot, String value) {
+        public LInsertCommand(byte[] key, LInsertType lInsertType, byte[] pivot, byte[] value) {
             this.key = key;
             this.pivot = pivot;
             this.value = value;
@@ -72,10 +85,10 @@ public class LInsertParser implements CommandParser<LInsertParser.LInsertCommand
         @Override
         public String toString() {
             return "LInsertCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", lInsertType=" + lInsertType +
-                    ", pivot='" + pivot + '\'' +
-                    ", value='" + value + '\'' +
+                    ", pivot='" + getPivot() + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
@@ -16,42 +16,51 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.Arrays;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class LPushParser implements CommandParser<LPushParser.LPushCommand> {
+public class LPushParser implements RawCommandParser<LPushParser.LPushCommand> {
 
 
     @Override
     public LPushCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0, newIdx = 0;
-        String key = (String) params[idx++];
-        String[] values = new String[params.length - 1];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[][] values = new byte[params.length - 1][];
         while (idx < params.length) {
-            values[newIdx++] = (String) params[idx++];
+            values[newIdx++] = Strings.toBytes(params[idx++]);
         }
         return new LPushCommand(key, values);
     }
 
-    public static class LPushCommand implements Command {
-        private final String key;
-        private final String[] values;
+    public static class LPushCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[][] values;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String[] getValues() {
+            return Strings.toStrings(values);
+        }
+
+        public byte[][] getRawValues() {
             return values;
         }
 
-        public LPushCommand(String key, String... values) {
+        public LPushCommand(byte[] key, byte[]... values) {
             this.key = key;
             this.values = values;
         }
@@ -59,8 +68,8 @@ public class LPushParser implements CommandParser<LPushParser.LPushCommand> {
         @Override
         public String toString() {
             return "LPushCommand{" +
-                    "key='" + key + '\'' +
-                    ", values=" + Arrays.toString(values) +
+                    "key='" + getKey() + '\'' +
+                    ", values=" + Arrays.toString(getValues()) +
                     '}';
         }
 
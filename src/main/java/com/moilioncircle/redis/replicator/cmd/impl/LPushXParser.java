@@ -16,36 +16,45 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class LPushXParser implements CommandParser<LPushXParser.LPushXCommand> {
+public class LPushXParser implements RawCommandParser<LPushXParser.LPushXCommand> {
 
     @Override
     public LPushXCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new LPushXCommand(key, value);
     }
 
-    public static class LPushXCommand implements Command {
-        private final String key;
-        private final String value;
+    public static class LPushXCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public LPushXCommand(String key, String value) {
+        public LPushXCommand(byte[] key, byte[] value) {
             this.key = key;
             this.value = value;
         }
@@ -53,8 +62,8 @@ public class LPushXParser implements CommandParser<LPushXParser.LPushXCommand> {
         @Override
         public String toString() {
             return "LPushXCommand{" +
-                    "key='" + key + '\'' +
-                    ", value='" + value + '\'' +
+                    "key='" + getKey() + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
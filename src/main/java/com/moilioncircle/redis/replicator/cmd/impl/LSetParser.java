@@ -16,30 +16,35 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 
 /**
  * Created by leon on 8/14/16.
  */
-public class LSetParser implements CommandParser<LSetParser.LSetCommand> {
+public class LSetParser implements RawCommandParser<LSetParser.LSetCommand> {
     @Override
     public LSetCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        int index = Integer.parseInt((String) params[idx++]);
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        int index = Strings.toInt(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new LSetCommand(key, index, value);
     }
 
-    public static class LSetCommand implements Command {
-        private final String key;
+    public static class LSetCommand implements KeyedCommand {
+        private final byte[] key;
         private final int index;
-        private final String value;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -48,10 +53,14 @@ public class LSetParser implements CommandParser<LSetParser.LSetCommand> {
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public LSetCommand(String key, int index, String value) {
+        public LSetCommand(byte[] key, int index, byte[] value) {
             this.key = key;
             this.index = index;
             this.value = value;
@@ -60,9 +69,9 @@ public class LSetParser implements CommandParser<LSetParser.LSetCommand> {
         @Override
         public String toString() {
             return "LSetCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", index=" + index +
-                    ", value='" + value + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
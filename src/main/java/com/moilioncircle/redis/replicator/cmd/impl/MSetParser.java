@@ -18,7 +18,8 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -26,35 +27,45 @@ import java.util.Map;
 /**
  * Created by leon on 8/14/16.
  */
-public class MSetParser implements CommandParser<MSetParser.MSetCommand> {
+public class MSetParser implements RawCommandParser<MSetParser.MSetCommand> {
     @Override
     public MSetCommand parse(CommandName cmdName, Object[] params) {
         if (params == null) return new MSetCommand(null);
         int idx = 0;
-        Map<String, String> kv = new LinkedHashMap<>();
-        while (idx < params.length) {
-            String key = (String) params[idx++];
-            String value = idx == params.length ? null : (String) params[idx++];
-            kv.put(key, value);
+        byte[][] kv = new byte[(params.length + 1) & ~1][];
+        for (int i = 0; idx < params.length; i++) {
+            kv[i] = Strings.toBytes(params[idx++]);
         }
         return new MSetCommand(kv);
     }
 
     public static class MSetCommand implements Command {
-        private final Map<String, String> kv;
+        private final byte[][] kv;
 
         public Map<String, String> getKv() {
+            if (kv == null) return null;
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int i = 0; i < kv.length; i += 2) {
+                map.put(Strings.toString(kv[i]), Strings.toString(kv[i + 1]));
+            }
+            return map;
+        }
+
+        /**
+         * @return key value pairs in command order, a key at every even index followed by its value
+         */
+        public byte[][] getRawKv() {
             return kv;
         }
 
-        public MSetCommand(Map<String, String> kv) {
+        public MSetCommand(byte[][] kv) {
             this.kv = kv;
         }
 
         @Override
         public String toString() {
             return "MSetCommand{" +
-                    "kv=" + kv +
+                    "kv=" + getKv() +
                     '}';
         }
 
@@ -16,27 +16,32 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class MoveParser implements CommandParser<MoveParser.MoveCommand> {
+public class MoveParser implements RawCommandParser<MoveParser.MoveCommand> {
     @Override
     public MoveCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        int db = Integer.parseInt((String) params[idx++]);
+        byte[] key = Strings.toBytes(params[idx++]);
+        int db = Strings.toInt(params[idx++]);
         return new MoveCommand(key, db);
     }
 
-    public static class MoveCommand implements Command {
-        private final String key;
+    public static class MoveCommand implements KeyedCommand {
+        private final byte[] key;
         private final int db;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -44,7 +49,7 @@ public class MoveParser implements CommandParser<MoveParser.MoveCommand> {
             return db;
         }
 
-        public MoveCommand(String key, int db) {
+        public MoveCommand(byte[] key, int db) {
             this.key = key;
             this.db = db;
         }
@@ -52,7 +57,7 @@ public class MoveParser implements CommandParser<MoveParser.MoveCommand> {
         @Override
         public String toString() {
             return "MoveCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", db=" + db +
                     '}';
         }
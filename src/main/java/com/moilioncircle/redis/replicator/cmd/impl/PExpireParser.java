@@ -16,27 +16,32 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class PExpireParser implements CommandParser<PExpireParser.PExpireCommand> {
+public class PExpireParser implements RawCommandParser<PExpireParser.PExpireCommand> {
     @Override
     public PExpireCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        long ex = Long.parseLong((String) params[idx++]);
+        byte[] key = Strings.toBytes(params[idx++]);
+        long ex = Strings.toLong(params[idx++]);
         return new PExpireCommand(key, ex);
     }
 
-    public static class PExpireCommand implements Command {
-        private final String key;
+    public static class PExpireCommand implements KeyedCommand {
+        private final byte[] key;
         private final long ex;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -44,7 +49,7 @@ public class PExpireParser implements CommandParser<PExpireParser.PExpireCommand
             return ex;
         }
 
-        public PExpireCommand(String key, long ex) {
+        public PExpireCommand(byte[] key, long ex) {
             this.key = key;
             this.ex = ex;
         }
@@ -52,7 +57,7 @@ public class PExpireParser implements CommandParser<PExpireParser.PExpireCommand
         @Override
         public String toString() {
             return "PExpireCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", ex=" + ex +
                     '}';
         }
@@ -16,40 +16,49 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.Arrays;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class PFAddParser implements CommandParser<PFAddParser.PFAddCommand> {
+public class PFAddParser implements RawCommandParser<PFAddParser.PFAddCommand> {
     @Override
     public PFAddCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String[] elements = new String[params.length - 1];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[][] elements = new byte[params.length - 1][];
         for (int i = idx, j = 0; i < params.length; i++, j++) {
-            elements[j] = (String) params[idx];
+            elements[j] = Strings.toBytes(params[i]);
         }
         return new PFAddCommand(key, elements);
     }
 
-    public static class PFAddCommand implements Command {
-        private final String key;
-        private final String elements[];
+    public static class PFAddCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[][] elements;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String[] getElements() {
+            return Strings.toStrings(elements);
+        }
+
+        public byte[][] getRawElements() {
             return elements;
         }
 
-        public PFAddCommand(String key, String... elements) {
+        public PFAddCommand(byte[] key, byte[]... elements) {
             this.key = key;
             this.elements = elements;
         }
@@ -57,8 +66,8 @@ public class PFAddParser implements CommandParser<PFAddParser.PFAddCommand> {
         @Override
         public String toString() {
             return "PFAddCommand{" +
-                    "key='" + key + '\'' +
-                    ", element=" + Arrays.toString(elements) +
+                    "key='" + getKey() + '\'' +
+                    ", element=" + Arrays.toString(getElements()) +
                     '}';
         }
 
@@ -18,38 +18,47 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.Arrays;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class PFMergeParser implements CommandParser<PFMergeParser.PFMergeCommand> {
+public class PFMergeParser implements RawCommandParser<PFMergeParser.PFMergeCommand> {
     @Override
     public PFMergeCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String destkey = (String) params[idx++];
-        String[] sourcekeys = new String[params.length - 1];
+        byte[] destkey = Strings.toBytes(params[idx++]);
+        byte[][] sourcekeys = new byte[params.length - 1][];
         for (int i = idx, j = 0; i < params.length; i++, j++) {
-            sourcekeys[j] = (String) params[idx];
+            sourcekeys[j] = Strings.toBytes(params[i]);
         }
         return new PFMergeCommand(destkey, sourcekeys);
     }
 
     public static class PFMergeCommand implements Command {
-        private final String destkey;
-        private final String sourcekeys[];
+        private final byte[] destkey;
+        private final byte[][] sourcekeys;
 
         public String getDestkey() {
+            return Strings.toString(destkey);
+        }
+
+        public byte[] getRawDestkey() {
             return destkey;
         }
 
         public String[] getSourcekeys() {
+            return Strings.toStrings(sourcekeys);
+        }
+
+        public byte[][] getRawSourcekeys() {
             return sourcekeys;
         }
 
-        public PFMergeCommand(String destkey, String... sourcekeys) {
+        public PFMergeCommand(byte[] destkey, byte[]... sourcekeys) {
             this.destkey = destkey;
             this.sourcekeys = sourcekeys;
         }
@@ -57,8 +66,8 @@ public class PFMergeParser implements CommandParser<PFMergeParser.PFMergeCommand
         @Override
         public String toString() {
             return "PFMergeCommand{" +
-                    "destkey='" + destkey + '\'' +
-                    ", sourcekey=" + Arrays.toString(sourcekeys) +
+                    "destkey='" + getDestkey() + '\'' +
+                    ", sourcekey=" + Arrays.toString(getSourcekeys()) +
                     '}';
         }
 
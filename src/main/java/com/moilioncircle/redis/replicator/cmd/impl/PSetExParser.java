@@ -16,29 +16,34 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class PSetExParser implements CommandParser<PSetExParser.PSetExCommand> {
+public class PSetExParser implements RawCommandParser<PSetExParser.PSetExCommand> {
     @Override
     public PSetExCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        long ex = Long.parseLong((String) params[idx++]);
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        long ex = Strings.toLong(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new PSetExCommand(key, ex, value);
     }
 
-    public static class PSetExCommand implements Command {
-        private final String key;
+    public static class PSetExCommand implements KeyedCommand {
+        private final byte[] key;
         private final long ex;
-        private final String value;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -47,10 +52,14 @@ public class PSetExParser implements CommandParser<PSetExParser.PSetExCommand> {
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public PSetExCommand(String key, long ex, String value) {
+        public PSetExCommand(byte[] key, long ex, byte[] value) {
             this.key = key;
             this.value = value;
             this.ex = ex;
@@ -59,9 +68,9 @@ public class PSetExParser implements CommandParser<PSetExParser.PSetExCommand> {
         @Override
         public String toString() {
             return "PSetExCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", ex=" + ex +
-                    ", value='" + value + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
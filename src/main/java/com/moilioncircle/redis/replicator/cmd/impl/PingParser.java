@@ -18,33 +18,38 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/13/16.
  */
-public class PingParser implements CommandParser<PingParser.PingCommand> {
+public class PingParser implements RawCommandParser<PingParser.PingCommand> {
     @Override
     public PingCommand parse(CommandName cmdName, Object[] params) {
-        String message = params.length == 0 ? null : (String) params[0];
+        byte[] message = params.length == 0 ? null : Strings.toBytes(params[0]);
         return new PingCommand(message);
     }
 
     public static class PingCommand implements Command {
-        private final String message;
+        private final byte[] message;
 
         public String getMessage() {
+            return Strings.toString(message);
+        }
+
+        public byte[] getRawMessage() {
             return message;
         }
 
-        public PingCommand(String message) {
+        public PingCommand(byte[] message) {
             this.message = message;
         }
 
         @Override
         public String toString() {
             return "PingCommand{" +
-                    "message='" + message + '\'' +
+                    "message='" + getMessage() + '\'' +
                     '}';
         }
 
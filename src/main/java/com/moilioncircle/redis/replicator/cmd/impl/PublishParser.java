@@ -18,33 +18,42 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/20/16.
  */
-public class PublishParser implements CommandParser<PublishParser.PublishCommand> {
+public class PublishParser implements RawCommandParser<PublishParser.PublishCommand> {
     @Override
     public PublishCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String channel = (String) params[idx++];
-        String message = (String) params[idx++];
+        byte[] channel = Strings.toBytes(params[idx++]);
+        byte[] message = Strings.toBytes(params[idx++]);
         return new PublishCommand(channel, message);
     }
 
     public static class PublishCommand implements Command {
-        private final String channel;
-        private final String message;
+        private final byte[] channel;
+        private final byte[] message;
 
         public String getChannel() {
+            return Strings.toString(channel);
+        }
+
+        public byte[] getRawChannel() {
             return channel;
         }
 
         public String getMessage() {
+            return Strings.toString(message);
+        }
+
+        public byte[] getRawMessage() {
             return message;
         }
 
-        public PublishCommand(String channel, String message) {
+        public PublishCommand(byte[] channel, byte[] message) {
             this.channel = channel;
             this.message = message;
         }
@@ -52,8 +61,8 @@ public class PublishParser implements CommandParser<PublishParser.PublishCommand
         @Override
         public String toString() {
             return "PublishCommand{" +
-                    "channel='" + channel + '\'' +
-                    ", message='" + message + '\'' +
+                    "channel='" + getChannel() + '\'' +
+                    ", message='" + getMessage() + '\'' +
                     '}';
         }
 
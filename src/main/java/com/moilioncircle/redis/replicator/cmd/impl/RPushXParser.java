@@ -16,36 +16,45 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class RPushXParser implements CommandParser<RPushXParser.RPushXCommand> {
+public class RPushXParser implements RawCommandParser<RPushXParser.RPushXCommand> {
 
     @Override
     public RPushXCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new RPushXCommand(key, value);
     }
 
-    public static class RPushXCommand implements Command {
-        private final String key;
-        private final String value;
+    public static class RPushXCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public RPushXCommand(String key, String value) {
+        public RPushXCommand(byte[] key, byte[] value) {
             this.key = key;
             this.value = value;
         }
@@ -53,8 +62,8 @@ public class RPushXParser implements CommandParser<RPushXParser.RPushXCommand> {
         @Override
         public String toString() {
             return "RPushXCommand{" +
-                    "key='" + key + '\'' +
-                    ", value='" + value + '\'' +
+                    "key='" + getKey() + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
@@ -18,33 +18,42 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class RenameParser implements CommandParser<RenameParser.RenameCommand> {
+public class RenameParser implements RawCommandParser<RenameParser.RenameCommand> {
     @Override
     public RenameCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String newKey = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[] newKey = Strings.toBytes(params[idx++]);
         return new RenameCommand(key, newKey);
     }
 
     public static class RenameCommand implements Command {
-        private final String key;
-        private final String newKey;
+        private final byte[] key;
+        private final byte[] newKey;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getNewKey() {
+            return Strings.toString(newKey);
+        }
+
+        public byte[] getRawNewKey() {
             return newKey;
         }
 
-        public RenameCommand(String key, String newKey) {
+        public RenameCommand(byte[] key, byte[] newKey) {
             this.key = key;
             this.newKey = newKey;
         }
@@ -52,8 +61,8 @@ public class RenameParser implements CommandParser<RenameParser.RenameCommand> {
         @Override
         public String toString() {
             return "RenameCommand{" +
-                    "key='" + key + '\'' +
-                    ", newKey=" + newKey +
+                    "key='" + getKey() + '\'' +
+                    ", newKey=" + getNewKey() +
                     '}';
         }
 
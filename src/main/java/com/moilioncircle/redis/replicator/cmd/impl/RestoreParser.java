@@ -16,34 +16,39 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class RestoreParser implements CommandParser<RestoreParser.RestoreCommand> {
+public class RestoreParser implements RawCommandParser<RestoreParser.RestoreCommand> {
     @Override
     public RestoreCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
         Boolean isReplace = null;
-        String key = (String) params[idx++];
-        int ttl = Integer.parseInt((String) params[idx++]);
-        String serializedValue = (String) params[idx++];
-        if (idx < params.length && ((String) params[idx++]).equalsIgnoreCase("REPLACE")) {
+        byte[] key = Strings.toBytes(params[idx++]);
+        int ttl = Strings.toInt(params[idx++]);
+        byte[] serializedValue = Strings.toBytes(params[idx++]);
+        if (idx < params.length && Strings.equalsIgnoreCase(params[idx++], "REPLACE")) {
             isReplace = true;
         }
         return new RestoreCommand(key, ttl, serializedValue, isReplace);
     }
 
-    public static class RestoreCommand implements Command {
-        private final String key;
+    public static class RestoreCommand implements KeyedCommand {
+        private final byte[] key;
         private final int ttl;
-        private final String serializedValue;
+        private final byte[] serializedValue;
         private final Boolean isReplace;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -52,6 +57,10 @@ public class RestoreParser implements CommandParser<RestoreParser.RestoreCommand
         }
 
         public String getSerializedValue() {
+            return Strings.toString(serializedValue);
+        }
+
+        public byte[] getRawSerializedValue() {
             return serializedValue;
         }
 
@@ -59,7 +68,7 @@ public class RestoreParser implements CommandParser<RestoreParser.RestoreCommand
             return isReplace;
         }
 
-        public RestoreCommand(String key, int ttl, String serializedValue, Boolean isReplace) {
+        public RestoreCommand(byte[] key, int ttl, byte[] serializedValue, Boolean isReplace) {
             this.key = key;
             this.ttl = ttl;
             this.serializedValue = serializedValue;
@@ -69,9 +78,9 @@ public class RestoreParser implements CommandParser<RestoreParser.RestoreCommand
         @Override
         public String toString() {
             return "RestoreCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", ttl=" + ttl +
-                    ", serializedValue='" + serializedValue + '\'' +
+                    ", serializedValue='" + getSerializedValue() + '\'' +
                     ", isReplace=" + isReplace +
                     '}';
         }
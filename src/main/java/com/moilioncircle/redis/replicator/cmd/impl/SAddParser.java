@@ -16,42 +16,51 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.Arrays;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class SAddParser implements CommandParser<SAddParser.SAddCommand> {
+public class SAddParser implements RawCommandParser<SAddParser.SAddCommand> {
 
 
     @Override
     public SAddCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0, newIdx = 0;
-        String key = (String) params[idx++];
-        String[] members = new String[params.length - 1];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[][] members = new byte[params.length - 1][];
         while (idx < params.length) {
-            members[newIdx++] = (String) params[idx++];
+            members[newIdx++] = Strings.toBytes(params[idx++]);
         }
         return new SAddCommand(key, members);
     }
 
-    public static class SAddCommand implements Command {
-        private final String key;
-        private final String[] members;
+    public static class SAddCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[][] members;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String[] getMembers() {
+            return Strings.toStrings(members);
+        }
+
+        public byte[][] getRawMembers() {
             return members;
         }
 
-        public SAddCommand(String key, String... members) {
+        public SAddCommand(byte[] key, byte[]... members) {
             this.key = key;
             this.members = members;
         }
@@ -59,8 +68,8 @@ public class SAddParser implements CommandParser<SAddParser.SAddCommand> {
         @Override
         public String toString() {
             return "SAddCommand{" +
-                    "key='" + key + '\'' +
-                    ", members=" + Arrays.toString(members) +
+                    "key='" + getKey() + '\'' +
+                    ", members=" + Arrays.toString(getMembers()) +
                     '}';
         }
 
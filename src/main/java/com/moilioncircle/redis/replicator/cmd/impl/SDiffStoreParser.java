@@ -18,38 +18,47 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.Arrays;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class SDiffStoreParser implements CommandParser<SDiffStoreParser.SDiffStoreCommand> {
+public class SDiffStoreParser implements RawCommandParser<SDiffStoreParser.SDiffStoreCommand> {
     @Override
     public SDiffStoreCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String destination = (String) params[idx++];
-        String[] keys = new String[params.length - 1];
+        byte[] destination = Strings.toBytes(params[idx++]);
+        byte[][] keys = new byte[params.length - 1][];
         for (int i = idx, j = 0; i < params.length; i++, j++) {
-            keys[j] = (String) params[idx];
+            keys[j] = Strings.toBytes(params[i]);
         }
         return new SDiffStoreCommand(destination, keys);
     }
 
     public static class SDiffStoreCommand implements Command {
-        private final String destination;
-        private final String keys[];
+        private final byte[] destination;
+        private final byte[][] keys;
 
         public String getDestination() {
+            return Strings.toString(destination);
+        }
+
+        public byte[] getRawDestination() {
             return destination;
         }
 
         public String[] getKeys() {
+            return Strings.toStrings(keys);
+        }
+
+        public byte[][] getRawKeys() {
             return keys;
         }
 
-        public SDiffStoreCommand(String destination, String... keys) {
+        public SDiffStoreCommand(byte[] destination, byte[]... keys) {
             this.destination = destination;
             this.keys = keys;
         }
@@ -57,8 +66,8 @@ public class SDiffStoreParser implements CommandParser<SDiffStoreParser.SDiffSto
         @Override
         public String toString() {
             return "SDiffStoreCommand{" +
-                    "destination='" + destination + '\'' +
-                    ", key=" + Arrays.toString(keys) +
+                    "destination='" + getDestination() + '\'' +
+                    ", key=" + Arrays.toString(getKeys()) +
                     '}';
         }
 
@@ -18,40 +18,53 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class SMoveParser implements CommandParser<SMoveParser.SMoveCommand> {
+public class SMoveParser implements RawCommandParser<SMoveParser.SMoveCommand> {
 
     @Override
     public SMoveCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String source = (String) params[idx++];
-        String destination = (String) params[idx++];
-        String member = (String) params[idx++];
+        byte[] source = Strings.toBytes(params[idx++]);
+        byte[] destination = Strings.toBytes(params[idx++]);
+        byte[] member = Strings.toBytes(params[idx++]);
         return new SMoveCommand(source, destination, member);
     }
 
     public static class SMoveCommand implements Command {
-        private final String source;
-        private final String destination;
-        private final String member;
+        private final byte[] source;
+        private final byte[] destination;
+        private final byte[] member;
 
         public String getSource() {
+            return Strings.toString(source);
+        }
+
+        public byte[] getRawSource() {
             return source;
         }
 
         public String getDestination() {
+            return Strings.toString(destination);
+        }
+
+        public byte[] getRawDestination() {
             return destination;
         }
 
         public String getMember() {
+            return Strings.toString(member);
+        }
+
+        public byte[] getRawMember() {
             return member;
         }
 
-        public SMoveCommand(String source, String destination, String member) {
+        public SMoveCommand(byte[] source, byte[] destination, byte[] member) {
             this.source = source;
             this.destination = destination;
             this.member = member;
@@ -60,9 +73,9 @@ public class SMoveParser implements CommandParser<SMoveParser.SMoveCommand> {
         @Override
         public String toString() {
             return "SMoveCommand{" +
-                    "source='" + source + '\'' +
-                    ", destination='" + destination + '\'' +
-                    ", member='" + member + '\'' +
+                    "source='" + getSource() + '\'' +
+                    ", destination='" + getDestination() + '\'' +
+                    ", member='" + getMember() + '\'' +
                     '}';
         }
 
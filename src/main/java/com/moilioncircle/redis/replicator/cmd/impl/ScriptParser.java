@@ -18,23 +18,24 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class ScriptParser implements CommandParser<ScriptParser.ScriptCommand> {
+public class ScriptParser implements RawCommandParser<ScriptParser.ScriptCommand> {
     @Override
     public ScriptCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String keyWord = (String) params[idx++];
-        if (keyWord.equalsIgnoreCase("LOAD")) {
-            String script = (String) params[idx++];
+        Object keyWord = params[idx++];
+        if (Strings.equalsIgnoreCase(keyWord, "LOAD")) {
+            byte[] script = Strings.toBytes(params[idx++]);
             return new ScriptLoadCommand(script);
-        } else if (keyWord.equalsIgnoreCase("FLUSH")) {
+        } else if (Strings.equalsIgnoreCase(keyWord, "FLUSH")) {
             return new ScriptFlushCommand();
         }
-        throw new AssertionError("SCRIPT " + keyWord);
+        throw new AssertionError("SCRIPT " + Strings.toString(keyWord));
     }
 
 
@@ -42,20 +43,24 @@ public class ScriptParser implements CommandParser<ScriptParser.ScriptCommand> {
     }
 
     public static class ScriptLoadCommand extends ScriptCommand {
-        private final String script;
+        private final byte[] script;
 
         public String getScript() {
+            return Strings.toString(script);
+        }
+
+        public byte[] getRawScript() {
             return script;
         }
 
-        public ScriptLoadCommand(String script) {
+        public ScriptLoadCommand(byte[] script) {
             this.script = script;
         }
 
         @Override
         public String toString() {
             return "ScriptLoadCommand{" +
-                    "script='" + script + '\'' +
+                    "script='" + getScript() + '\'' +
                     '}';
         }
 
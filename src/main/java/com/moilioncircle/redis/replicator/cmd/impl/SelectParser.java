@@ -18,15 +18,16 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/13/16.
  */
-public class SelectParser implements CommandParser<SelectParser.SelectCommand> {
+public class SelectParser implements RawCommandParser<SelectParser.SelectCommand> {
     @Override
     public SelectCommand parse(CommandName cmdName, Object[] params) {
-        int index = Integer.parseInt((String) params[0]);
+        int index = Strings.toInt(params[0]);
         return new SelectCommand(index);
     }
 
@@ -16,29 +16,34 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class SetBitParser implements CommandParser<SetBitParser.SetBitCommand> {
+public class SetBitParser implements RawCommandParser<SetBitParser.SetBitCommand> {
     @Override
     public SetBitCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        int offset = Integer.parseInt((String) params[idx++]);
-        int value = Integer.parseInt((String) params[idx++]);
+        byte[] key = Strings.toBytes(params[idx++]);
+        int offset = Strings.toInt(params[idx++]);
+        int value = Strings.toInt(params[idx++]);
         return new SetBitCommand(key, offset, value);
     }
 
-    public static class SetBitCommand implements Command {
-        private final String key;
+    public static class SetBitCommand implements KeyedCommand {
+        private final byte[] key;
         private final int offset;
         private final int value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -50,7 +55,7 @@ public class SetBitParser implements CommandParser<SetBitParser.SetBitCommand> {
             return value;
         }
 
-        public SetBitCommand(String key, int offset, int value) {
+        public SetBitCommand(byte[] key, int offset, int value) {
             this.key = key;
             this.offset = offset;
             this.value = value;
@@ -59,7 +64,7 @@ public class SetBitParser implements CommandParser<SetBitParser.SetBitCommand> {
         @Override
         public String toString() {
             return "SetBitCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", offset=" + offset +
                     ", value=" + value +
                     '}';
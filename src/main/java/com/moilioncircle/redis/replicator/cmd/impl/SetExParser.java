@@ -16,29 +16,34 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class SetExParser implements CommandParser<SetExParser.SetExCommand> {
+public class SetExParser implements RawCommandParser<SetExParser.SetExCommand> {
     @Override
     public SetExCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        int ex = Integer.parseInt((String) params[idx++]);
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        int ex = Strings.toInt(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new SetExCommand(key, ex, value);
     }
 
-    public static class SetExCommand implements Command {
-        private final String key;
+    public static class SetExCommand implements KeyedCommand {
+        private final byte[] key;
         private final int ex;
-        private final String value;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -47,10 +52,14 @@ public class SetExParser implements CommandParser<SetExParser.SetExCommand> {
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public SetExCommand(String key, int ex, String value) {
+        public SetExCommand(byte[] key, int ex, byte[] value) {
             this.key = key;
             this.value = value;
             this.ex = ex;
@@ -59,9 +68,9 @@ public class SetExParser implements CommandParser<SetExParser.SetExCommand> {
         @Override
         public String toString() {
             return "SetExCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", ex=" + ex +
-                    ", value='" + value + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
@@ -16,35 +16,44 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class SetNxParser implements CommandParser<SetNxParser.SetNxCommand> {
+public class SetNxParser implements RawCommandParser<SetNxParser.SetNxCommand> {
     @Override
     public SetNxCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new SetNxCommand(key, value);
     }
 
-    public static class SetNxCommand implements Command {
-        private final String key;
-        private final String value;
+    public static class SetNxCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public SetNxCommand(String key, String value) {
+        public SetNxCommand(byte[] key, byte[] value) {
             this.key = key;
             this.value = value;
         }
@@ -52,8 +61,8 @@ public class SetNxParser implements CommandParser<SetNxParser.SetNxCommand> {
         @Override
         public String toString() {
             return "SetNxCommand{" +
-                    "key='" + key + '\'' +
-                    ", value='" + value + '\'' +
+                    "key='" + getKey() + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
@@ -16,54 +16,63 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/13/16.
  */
-public class SetParser implements CommandParser<SetParser.SetCommand> {
+public class SetParser implements RawCommandParser<SetParser.SetCommand> {
 
     @Override
     public SetCommand parse(CommandName cmdName, Object[] params) {
-        String key = (String) params[0];
-        String value = (String) params[1];
+        byte[] key = Strings.toBytes(params[0]);
+        byte[] value = Strings.toBytes(params[1]);
         int idx = 2;
         ExistType existType = ExistType.NONE;
         Integer ex = null;
         Long px = null;
         while (idx < params.length) {
-            String param = (String) params[idx++];
-            if (param.equalsIgnoreCase("NX")) {
+            Object param = params[idx++];
+            if (Strings.equalsIgnoreCase(param, "NX")) {
                 existType = ExistType.NX;
                 break;
-            } else if (param.equalsIgnoreCase("XX")) {
+            } else if (Strings.equalsIgnoreCase(param, "XX")) {
                 existType = ExistType.XX;
                 break;
-            } else if (param.equalsIgnoreCase("EX")) {
-                ex = Integer.valueOf((String) params[idx++]);
+            } else if (Strings.equalsIgnoreCase(param, "EX")) {
+                ex = Strings.toInt(params[idx++]);
                 break;
-            } else if (param.equalsIgnoreCase("PX")) {
-                px = Long.valueOf((String) params[idx++]);
+            } else if (Strings.equalsIgnoreCase(param, "PX")) {
+                px = Strings.toLong(params[idx++]);
                 break;
             }
         }
         return new SetCommand(key, value, ex, px, existType);
     }
 
-    public static class SetCommand implements Command {
-        private final String key;
-        private final String value;
+    public static class SetCommand implements KeyedCommand {
+        private final byte[] key;
+        private final byte[] value;
         private final Integer ex;
         private final Long px;
         private final ExistType existType;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
@@ -79,7 +88,7 @@ public class SetParser implements CommandParser<SetParser.SetCommand> {
             return existType;
         }
 
-        public SetCommand(String key, String value, Integer ex, Long px, ExistType existType) {
+        public SetCommand(byte[] key, byte[] value, Integer ex, Long px, ExistType existType) {
             this.key = key;
             this.value = value;
             this.ex = ex;
@@ -90,8 +99,8 @@ public class SetParser implements CommandParser<SetParser.SetCommand> {
         @Override
         public String toString() {
             return "SetCommand{" +
-                    "name='" + key + '\'' +
-                    ", value='" + value + '\'' +
+                    "name='" + getKey() + '\'' +
+                    ", value='" + getValue() + '\'' +
                     ", ex=" + ex +
                     ", px=" + px +
                     ", existType=" + existType +
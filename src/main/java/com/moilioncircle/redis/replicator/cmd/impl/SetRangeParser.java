@@ -16,30 +16,35 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 
 /**
  * Created by leon on 8/14/16.
  */
-public class SetRangeParser implements CommandParser<SetRangeParser.SetRangeCommand> {
+public class SetRangeParser implements RawCommandParser<SetRangeParser.SetRangeCommand> {
     @Override
     public SetRangeCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        int index = Integer.parseInt((String) params[idx++]);
-        String value = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        int index = Strings.toInt(params[idx++]);
+        byte[] value = Strings.toBytes(params[idx++]);
         return new SetRangeCommand(key, index, value);
     }
 
-    public static class SetRangeCommand implements Command {
-        private final String key;
+    public static class SetRangeCommand implements KeyedCommand {
+        private final byte[] key;
         private final int index;
-        private final String value;
+        private final byte[] value;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -48,10 +53,14 @@ public class SetRangeParser implements CommandParser<SetRangeParser.SetRangeComm
         }
 
         public String getValue() {
+            return Strings.toString(value);
+        }
+
+        public byte[] getRawValue() {
             return value;
         }
 
-        public SetRangeCommand(String key, int index, String value) {
+        public SetRangeCommand(byte[] key, int index, byte[] value) {
             this.key = key;
             this.index = index;
             this.value = value;
@@ -60,9 +69,9 @@ public class SetRangeParser implements CommandParser<SetRangeParser.SetRangeComm
         @Override
         public String toString() {
             return "SetRangeCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", index=" + index +
-                    ", value='" + value + '\'' +
+                    ", value='" + getValue() + '\'' +
                     '}';
         }
 
@@ -16,58 +16,65 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
 import com.moilioncircle.redis.replicator.rdb.datatype.ZSetEntry;
+import com.moilioncircle.redis.replicator.util.Strings;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * Created by leon on 8/19/16.
  */
-public class ZAddParser implements CommandParser<ZAddParser.ZAddCommand> {
+public class ZAddParser implements RawCommandParser<ZAddParser.ZAddCommand> {
 
     @Override
     public ZAddCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
         Boolean isCh = null, isIncr = null;
         ExistType existType = ExistType.NONE;
-        List<ZSetEntry> list = new ArrayList<>();
-        String key = (String) params[idx++];
+        int len = 0;
+        double[] scores = new double[(params.length - 1) / 2];
+        byte[][] members = new byte[scores.length][];
+        byte[] key = Strings.toBytes(params[idx++]);
         while (idx < params.length) {
-            String param = (String) params[idx];
-            if (param.equalsIgnoreCase("NX")) {
+            Object param = params[idx];
+            if (Strings.equalsIgnoreCase(param, "NX")) {
                 existType = ExistType.NX;
-            } else if (param.equalsIgnoreCase("XX")) {
+            } else if (Strings.equalsIgnoreCase(param, "XX")) {
                 existType = ExistType.XX;
-            } else if (param.equalsIgnoreCase("CH")) {
+            } else if (Strings.equalsIgnoreCase(param, "CH")) {
                 isCh = true;
-            } else if (param.equalsIgnoreCase("INCR")) {
+            } else if (Strings.equalsIgnoreCase(param, "INCR")) {
                 isIncr = true;
             } else {
-                double score = Double.parseDouble(param);
+                scores[len] = Strings.toDouble(param);
                 idx++;
-                String member = (String) params[idx];
-                list.add(new ZSetEntry(member, score));
+                members[len++] = Strings.toBytes(params[idx]);
             }
             idx++;
         }
-        ZSetEntry[] zSetEntries = new ZSetEntry[list.size()];
-        list.toArray(zSetEntries);
-        return new ZAddCommand(key, existType, isCh, isIncr, zSetEntries);
+        if (len < scores.length) {
+            scores = Arrays.copyOf(scores, len);
+            members = Arrays.copyOf(members, len);
+        }
+        return new ZAddCommand(key, existType, isCh, isIncr, scores, members);
     }
 
-    public static class ZAddCommand implements Command {
-        private final String key;
+    public static class ZAddCommand implements KeyedCommand {
+        private final byte[] key;
         private final ExistType existType;
         private final Boolean isCh;
         private final Boolean isIncr;
-        private final ZSetEntry[] zSetEntries;
+        private final double[] scores;
+        private final byte[][] members;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -84,25 +91,38 @@ public class ZAddParser implements CommandParser<ZAddParser.ZAddCommand> {
         }
 
         public ZSetEntry[] getZSetEntries() {
+            ZSetEntry[] zSetEntries = new ZSetEntry[members.length];
+            for (int i = 0; i < members.length; i++) {
+                zSetEntries[i] = new ZSetEntry(Strings.toString(members[i]), scores[i]);
+            }
             return zSetEntries;
         }
 
-        public ZAddCommand(String key, ExistType existType, Boolean isCh, Boolean isIncr, ZSetEntry[] zSetEntries) {
+        public double[] getScores() {
+            return scores;
+        }
+
+        public byte[][] getRawMembers() {
+            return members;
+        }
+
+        public ZAddCommand(byte[] key, ExistType existType, Boolean isCh, Boolean isIncr, double[] scores, byte[][] members) {
             this.key = key;
             this.existType = existType;
             this.isCh = isCh;
             this.isIncr = isIncr;
-            this.zSetEntries = zSetEntries;
+            this.scores = scores;
+            this.members = members;
         }
 
         @Override
         public String toString() {
             return "ZAddCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", existType=" + existType +
                     ", isCh=" + isCh +
                     ", isIncr=" + isIncr +
-                    ", zSetEntries=" + Arrays.toString(zSetEntries) +
+                    ", zSetEntries=" + Arrays.toString(getZSetEntries()) +
                     '}';
         }
 
@@ -16,30 +16,35 @@
 
 package com.moilioncircle.redis.replicator.cmd.impl;
 
-import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.KeyedCommand;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 /**
  * Created by leon on 8/14/16.
  */
-public class ZIncrByParser implements CommandParser<ZIncrByParser.ZIncrByCommand> {
+public class ZIncrByParser implements RawCommandParser<ZIncrByParser.ZIncrByCommand> {
 
     @Override
     public ZIncrByCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
-        String key = (String) params[idx++];
-        int increment = Integer.parseInt((String) params[idx++]);
-        String member = (String) params[idx++];
+        byte[] key = Strings.toBytes(params[idx++]);
+        int increment = Strings.toInt(params[idx++]);
+        byte[] member = Strings.toBytes(params[idx++]);
         return new ZIncrByCommand(key, increment, member);
     }
 
-    public static class ZIncrByCommand implements Command {
-        private final String key;
+    public static class ZIncrByCommand implements KeyedCommand {
+        private final byte[] key;
         private final int increment;
-        private final String member;
+        private final byte[] member;
 
         public String getKey() {
+            return Strings.toString(key);
+        }
+
+        public byte[] getRawKey() {
             return key;
         }
 
@@ -48,10 +53,14 @@ public class ZIncrByParser implements CommandParser<ZIncrByParser.ZIncrByCommand
         }
 
         public String getMember() {
+            return Strings.toString(member);
+        }
+
+        public byte[] getRawMember() {
             return member;
         }
 
-        public ZIncrByCommand(String key, int increment, String member) {
+        public ZIncrByCommand(byte[] key, int increment, byte[] member) {
             this.key = key;
             this.increment = increment;
             this.member = member;
@@ -60,9 +69,9 @@ public class ZIncrByParser implements CommandParser<ZIncrByParser.ZIncrByCommand
         @Override
         public String toString() {
             return "ZIncrByCommand{" +
-                    "key='" + key + '\'' +
+                    "key='" + getKey() + '\'' +
                     ", increment='" + increment + '\'' +
-                    ", member='" + member + '\'' +
+                    ", member='" + getMember() + '\'' +
                     '}';
         }
 
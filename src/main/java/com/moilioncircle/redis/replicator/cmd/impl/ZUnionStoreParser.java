@@ -18,41 +18,42 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 
 import com.moilioncircle.redis.replicator.cmd.Command;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
-import com.moilioncircle.redis.replicator.cmd.CommandParser;
+import com.moilioncircle.redis.replicator.cmd.RawCommandParser;
+import com.moilioncircle.redis.replicator.util.Strings;
 
 import java.util.Arrays;
 
 /**
  * Created by leon on 8/19/16.
  */
-public class ZUnionStoreParser implements CommandParser<ZUnionStoreParser.ZUnionStoreCommand> {
+public class ZUnionStoreParser implements RawCommandParser<ZUnionStoreParser.ZUnionStoreCommand> {
     @Override
     public ZUnionStoreCommand parse(CommandName cmdName, Object[] params) {
         int idx = 0;
         AggregateType aggregateType = null;
-        String destination = (String) params[idx++];
-        int numkeys = Integer.parseInt((String) params[idx++]);
-        String[] keys = new String[numkeys];
+        byte[] destination = Strings.toBytes(params[idx++]);
+        int numkeys = Strings.toInt(params[idx++]);
+        byte[][] keys = new byte[numkeys][];
         for (int i = 0; i < numkeys; i++) {
-            keys[i] = (String) params[idx++];
+            keys[i] = Strings.toBytes(params[idx++]);
         }
         double[] weights = null;
         while (idx < params.length) {
-            String param = (String) params[idx];
-            if (param.equalsIgnoreCase("WEIGHTS")) {
+            Object param = params[idx];
+            if (Strings.equalsIgnoreCase(param, "WEIGHTS")) {
                 idx++;
                 weights = new double[numkeys];
                 for (int i = 0; i < numkeys; i++) {
-                    weights[i] = Double.parseDouble((String) params[idx++]);
+                    weights[i] = Strings.toDouble(params[idx++]);
                 }
-            } else if (param.equalsIgnoreCase("AGGREGATE")) {
+            } else if (Strings.equalsIgnoreCase(param, "AGGREGATE")) {
                 idx++;
-                String next = (String) params[idx++];
-                if (next.equalsIgnoreCase("SUM")) {
+                Object next = params[idx++];
+                if (Strings.equalsIgnoreCase(next, "SUM")) {
                     aggregateType = AggregateType.SUM;
-                } else if (next.equalsIgnoreCase("MIN")) {
+                } else if (Strings.equalsIgnoreCase(next, "MIN")) {
                     aggregateType = AggregateType.MIN;
-                } else if (next.equalsIgnoreCase("MAX")) {
+                } else if (Strings.equalsIgnoreCase(next, "MAX")) {
                     aggregateType = AggregateType.MAX;
                 }
             }
@@ -61,13 +62,17 @@ public class ZUnionStoreParser implements CommandParser<ZUnionStoreParser.ZUnion
     }
 
     public static class ZUnionStoreCommand implements Command {
-        private final String destination;
+        private final byte[] destination;
         private final int numkeys;
-        private final String[] keys;
+        private final byte[][] keys;
         private final double[] weights;
         private final AggregateType aggregateType;
 
         public String getDestination() {
+            return Strings.toString(destination);
+        }
+
+        public byte[] getRawDestination() {
             return destination;
         }
 
@@ -76,6 +81,10 @@ public class ZUnionStoreParser implements CommandParser<ZUnionStoreParser.ZUnion
         }
 
         public String[] getKeys() {
+            return Strings.toStrings(keys);
+        }
+
+        public byte[][] getRawKeys() {
             return keys;
         }
 
@@ -87,7 +96,7 @@ public class ZUnionStoreParser implements CommandParser<ZUnionStoreParser.ZUnion
             return aggregateType;
         }
 
-        public ZUnionStoreCommand(String destination, int numkeys, String[] keys, double[] weights, AggregateType aggregateType) {
+        public ZUnionStoreCommand(byte[] destination, int numkeys, byte[][] keys, double[] weights, AggregateType aggregateType) {
             this.destination = destination;
             this.numkeys = numkeys;
             this.keys = keys;
@@ -98,9 +107,9 @@ public class ZUnionStoreParser implements CommandParser<ZUnionStoreParser.ZUnion
         @Override
         public String toString() {
             return "ZUnionStoreCommand{" +
-                    "destination='" + destination + '\'' +
+                    "destination='" + getDestination() + '\'' +
                     ", numkeys=" + numkeys +
-                    ", keys=" + Arrays.toString(keys) +
+                    ", keys=" + Arrays.toString(getKeys()) +
                     ", weights=" + Arrays.toString(weights) +
                     ", aggregateType=" + aggregateType +
                     '}';
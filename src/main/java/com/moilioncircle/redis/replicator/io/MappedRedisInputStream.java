@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.moilioncircle.redis.replicator.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * RedisInputStream over a memory mapped file.
+ * <p>
+ * Bytes are read straight from the page cache, there is no heap buffer to fill.
+ * Files larger than the window size are mapped window by window, and skip only moves the position
+ * (or maps the window that contains the new position).
+ *
+ * @since 2.0.0
+ */
+public class MappedRedisInputStream extends RedisInputStream {
+
+    /**
+     * a MappedByteBuffer is indexed by int, so one window can not exceed 2GB
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    private MappedByteBuffer buffer;
+    private long windowStart = 0;
+
+    public MappedRedisInputStream(File file) throws FileNotFoundException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedRedisInputStream(File file, int windowSize) throws FileNotFoundException {
+        this(file, 0, file.length(), windowSize);
+    }
+
+    /**
+     * maps only the bytes in [start, end), position starts at start
+     *
+     * @param file  the file
+     * @param start first byte to read
+     * @param end   end of the readable range, exclusive
+     * @throws FileNotFoundException when the file does not exist
+     */
+    public MappedRedisInputStream(File file, long start, long end) throws FileNotFoundException {
+        this(file, start, end, (int) Math.max(1, Math.min(DEFAULT_WINDOW_SIZE, end - start)));
+    }
+
+    private MappedRedisInputStream(File file, long start, long end, int windowSize) throws FileNotFoundException {
+        super(null, 0);
+        if (windowSize <= 0) throw new IllegalArgumentException("windowSize:" + windowSize);
+        if (start < 0 || start > end) throw new IllegalArgumentException("start:" + start + ",end:" + end);
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.size = end;
+        this.windowSize = windowSize;
+        this.windowStart = start;
+    }
+
+    /**
+     * @return absolute position in the file
+     */
+    @Override
+    public long position() {
+        return buffer == null ? windowStart : windowStart + buffer.position();
+    }
+
+    @Override
+    public int head() {
+        return buffer == null ? 0 : buffer.position();
+    }
+
+    @Override
+    public int tail() {
+        return buffer == null ? 0 : buffer.limit();
+    }
+
+    @Override
+    public int bufSize() {
+        return buffer == null ? 0 : buffer.capacity();
+    }
+
+    @Override
+    public long total() {
+        return position();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (buffer == null || !buffer.hasRemaining()) fill();
+        if (mark) markLen += 1;
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int len) throws IOException {
+        int total = len;
+        int index = offset;
+        while (total > 0) {
+            if (buffer == null || !buffer.hasRemaining()) fill();
+            int n = Math.min(total, buffer.remaining());
+            buffer.get(bytes, index, n);
+            index += n;
+            total -= n;
+        }
+        return len;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, size - position());
+    }
+
+    /**
+     * maps the window starting at the current position
+     *
+     * @throws IOException when no bytes left
+     */
+    @Override
+    public void fill() throws IOException {
+        map(position());
+    }
+
+    @Override
+    public long skip(long len) throws IOException {
+        if (len <= 0) return 0;
+        long target = position() + len;
+        if (target > size) throw new EOFException("end of file.");
+        if (mark) markLen += len;
+        if (buffer != null && target <= windowStart + buffer.limit()) {
+            buffer.position((int) (target - windowStart));
+        } else {
+            windowStart = target;
+            buffer = null;
+        }
+        return len;
+    }
+
+    /**
+     * moves to an absolute position in the file, the mapped window is kept if it contains the position
+     *
+     * @param position absolute position in the file
+     * @throws IOException when the position is beyond the end
+     */
+    public void seek(long position) throws IOException {
+        if (position < 0) throw new IllegalArgumentException("position:" + position);
+        if (position > size) throw new EOFException("end of file.");
+        if (buffer != null && position >= windowStart && position <= windowStart + buffer.limit()) {
+            buffer.position((int) (position - windowStart));
+        } else {
+            windowStart = position;
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        file.close();
+    }
+
+    private void map(long position) throws IOException {
+        if (position >= size) throw new EOFException("end of file.");
+        int len = (int) Math.min(windowSize, size - position);
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+        this.windowStart = position;
+    }
+}
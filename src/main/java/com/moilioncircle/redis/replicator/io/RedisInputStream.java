@@ -33,8 +33,8 @@ public class RedisInputStream extends InputStream {
     private long total = 0;
     private int head = 0;
     private int tail = 0;
-    private boolean mark = false;
-    private long markLen = 0;
+    protected boolean mark = false;
+    protected long markLen = 0;
 
     private final byte[] buf;
 
@@ -81,6 +81,13 @@ public class RedisInputStream extends InputStream {
         return total;
     }
 
+    /**
+     * @return bytes consumed so far, total() minus the bytes still buffered
+     */
+    public long position() {
+        return total - (tail - head);
+    }
+
     @Override
     public int read() throws IOException {
         if (head >= tail) fill();
@@ -189,6 +196,11 @@ public class RedisInputStream extends InputStream {
         return tail - head + in.available();
     }
 
+    @Override
+    public void close() throws IOException {
+        if (in != null) in.close();
+    }
+
     public void fill() throws IOException {
         tail = in.read(buf, 0, buf.length);
         if (tail == -1) throw new EOFException("end of file.");
@@ -197,6 +209,7 @@ public class RedisInputStream extends InputStream {
     }
 
     public long skip(long len) throws IOException {
+        if (mark) markLen += len;
         long total = len;
         while (total > 0) {
             int available = tail - head;
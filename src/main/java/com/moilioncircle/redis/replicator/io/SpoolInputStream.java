@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.io;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Spools a source stream to append-only segment files so that the source is drained at its own pace.
+ * <p>
+ * A writer thread copies the source into segment files of about segmentSize bytes, the reader reads them back
+ * sequentially and deletes a segment once it is read. When maxSize bytes are spooled and not read yet the
+ * writer blocks, so the source is back pressured again. End of stream and errors of the source are
+ * reported to the reader after the bytes spooled before them.
+ *
+ * @since 2.0.0
+ */
+public class SpoolInputStream extends InputStream implements Runnable {
+    private static final Log logger = LogFactory.getLog(SpoolInputStream.class);
+
+    private final InputStream source;
+    private final File directory;
+    private final long segmentSize;
+    private final long maxSize;
+    private final byte[] buffer;
+    private final Thread thread;
+
+    //guarded by this. the first segment is read, the last one is written
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long spooled;
+    private boolean eof;
+    private boolean closed;
+    private IOException error;
+
+    public SpoolInputStream(InputStream source, File directory, long segmentSize, long maxSize) throws IOException {
+        if (segmentSize <= 0) throw new IllegalArgumentException("segmentSize:" + segmentSize);
+        if (maxSize < segmentSize) throw new IllegalArgumentException("maxSize:" + maxSize);
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("can't create " + directory);
+        this.source = source;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.buffer = new byte[(int) Math.min(64 * 1024, segmentSize)];
+        this.thread = new Thread(this, "spool writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return bytes spooled and not read yet
+     */
+    public synchronized long spooled() {
+        return spooled;
+    }
+
+    @Override
+    public void run() {
+        try {
+            Segment segment = null;
+            while (true) {
+                int len = source.read(buffer, 0, buffer.length);
+                if (len == -1) break;
+                synchronized (this) {
+                    while (spooled >= maxSize && !closed) wait();
+                    if (closed) return;
+                    if (segment == null || segment.written >= segmentSize) {
+                        if (segment != null) segment.seal();
+                        segment = new Segment(File.createTempFile("spool", ".seg", directory));
+                        segments.addLast(segment);
+                    }
+                }
+                segment.out.write(buffer, 0, len);
+                synchronized (this) {
+                    segment.written += len;
+                    spooled += len;
+                    notifyAll();
+                }
+            }
+            synchronized (this) {
+                eof = true;
+                notifyAll();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (!closed) error = e;
+                notifyAll();
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                if (!closed) error = new InterruptedIOException("spool writer interrupted");
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        Segment segment;
+        synchronized (this) {
+            while (true) {
+                if (closed) throw new IOException("spool closed");
+                segment = segments.peekFirst();
+                if (segment != null && segment.read < segment.written) break;
+                if (segment != null && segment.sealed) {
+                    segments.removeFirst();
+                    segment.delete();
+                    continue;
+                }
+                if (error != null) throw error;
+                if (eof) return -1;
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("spool reader interrupted");
+                }
+            }
+            len = (int) Math.min(len, segment.written - segment.read);
+        }
+        if (segment.in == null) segment.in = new FileInputStream(segment.file);
+        len = segment.in.read(b, off, len);
+        if (len == -1) throw new IOException("truncated spool segment " + segment.file);
+        synchronized (this) {
+            segment.read += len;
+            spooled -= len;
+            notifyAll();
+        }
+        return len;
+    }
+
+    @Override
+    public synchronized int available() {
+        Segment segment = segments.peekFirst();
+        return segment == null ? 0 : (int) Math.min(Integer.MAX_VALUE, segment.written - segment.read);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            source.close();
+        } finally {
+            synchronized (this) {
+                for (Segment segment : segments) segment.delete();
+                segments.clear();
+                spooled = 0;
+            }
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final FileOutputStream out;
+        private FileInputStream in;
+        private long written;
+        private long read;
+        private boolean sealed;
+
+        private Segment(File file) throws IOException {
+            this.file = file;
+            this.out = new FileOutputStream(file);
+        }
+
+        private void seal() {
+            sealed = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                //NOP
+            }
+        }
+
+        private void delete() {
+            seal();
+            try {
+                if (in != null) in.close();
+            } catch (IOException e) {
+                //NOP
+            }
+            if (!file.delete()) logger.warn("can't delete " + file);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of non negative longs with 4 buckets per power of two,
+ * so percentiles are within 25% of the recorded values.
+ *
+ * @since 2.0.0
+ */
+public class Histogram {
+    private static final int SUB_BITS = 2;
+    private static final int SUB_MASK = (1 << SUB_BITS) - 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 << SUB_BITS);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long prev;
+        while (value > (prev = max.get())) {
+            if (max.compareAndSet(prev, value)) break;
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = this.count.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * @param quantile 0.0 to 1.0
+     * @return upper bound of the bucket holding the quantile, 0 if nothing was recorded
+     */
+    public long getPercentile(double quantile) {
+        long count = this.count.get();
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= target) return Math.min(upper(i), max.get());
+        }
+        return max.get();
+    }
+
+    /*
+     * values below 4 have their own bucket, the others are bucketed by exponent and 2 bits below the top bit
+     */
+    static int index(long value) {
+        if (value <= SUB_MASK) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & SUB_MASK;
+        return exp << SUB_BITS | sub;
+    }
+
+    static long upper(int index) {
+        if (index <= SUB_MASK) return index;
+        int exp = index >>> SUB_BITS;
+        int sub = index & SUB_MASK;
+        if (exp == 63) return Long.MAX_VALUE;
+        return ((long) ((1 << SUB_BITS) + sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{" +
+                "count=" + getCount() +
+                ", mean=" + String.format("%.1f", getMean()) +
+                ", p50=" + getPercentile(0.5) +
+                ", p99=" + getPercentile(0.99) +
+                ", p999=" + getPercentile(0.999) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
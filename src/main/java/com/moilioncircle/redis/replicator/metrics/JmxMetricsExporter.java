@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.metrics;
+
+import com.moilioncircle.redis.replicator.ReplicatorMetrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers the metrics in the platform MBean server as
+ * {@code com.moilioncircle.redis.replicator:type=ReplicatorMetrics,name=<name>}.
+ *
+ * @since 2.0.0
+ */
+public class JmxMetricsExporter implements MetricsExporter {
+
+    private final String name;
+    private ObjectName objectName;
+
+    /**
+     * @param name unique name of the replicator, e.g. host:port of its master
+     */
+    public JmxMetricsExporter(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void open(ReplicatorMetrics metrics) throws IOException {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("com.moilioncircle.redis.replicator:type=ReplicatorMetrics,name=" + ObjectName.quote(name));
+            server.registerMBean(metrics, objectName);
+        } catch (JMException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IOException(e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+}
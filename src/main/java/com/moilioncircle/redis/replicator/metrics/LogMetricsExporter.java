@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.metrics;
+
+import com.moilioncircle.redis.replicator.ReplicatorMetrics;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Logs the metrics at info level every period.
+ *
+ * @since 2.0.0
+ */
+public class LogMetricsExporter implements MetricsExporter {
+    private static final Log logger = LogFactory.getLog(LogMetricsExporter.class);
+
+    private final long period;
+    private Timer timer;
+
+    /**
+     * @param period milliseconds between two log lines
+     */
+    public LogMetricsExporter(long period) {
+        this.period = period;
+    }
+
+    @Override
+    public void open(final ReplicatorMetrics metrics) {
+        timer = new Timer("metrics exporter", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                logger.info(metrics);
+            }
+        }, period, period);
+    }
+
+    @Override
+    public void close() {
+        if (timer == null) return;
+        timer.cancel();
+        timer = null;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter with a one minute exponentially weighted moving rate per second.
+ * marking only adds to the counter, the rate is updated when it is read.
+ *
+ * @since 2.0.0
+ */
+public class Meter {
+    private static final long TICK = TimeUnit.SECONDS.toNanos(5);
+    private static final double WINDOW = TimeUnit.MINUTES.toNanos(1);
+
+    private final AtomicLong count = new AtomicLong(0);
+    private final long start = System.nanoTime();
+    private long lastTick = start;
+    private long lastCount = 0;
+    private double rate = -1;
+
+    public void mark() {
+        count.incrementAndGet();
+    }
+
+    public void mark(long n) {
+        count.addAndGet(n);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return moving rate per second, the mean rate during the first tick
+     */
+    public synchronized double getRate() {
+        long now = System.nanoTime();
+        long elapsed = now - lastTick;
+        if (elapsed < TICK) {
+            if (rate >= 0) return rate;
+            long total = now - start;
+            return total <= 0 ? 0 : count.get() * 1e9 / total;
+        }
+        long current = count.get();
+        double instant = (current - lastCount) * 1e9 / elapsed;
+        rate = rate < 0 ? instant : rate + (1 - Math.exp(-elapsed / WINDOW)) * (instant - rate);
+        lastTick = now;
+        lastCount = current;
+        return rate;
+    }
+
+    @Override
+    public String toString() {
+        return "Meter{" +
+                "count=" + getCount() +
+                ", rate=" + String.format("%.1f", getRate()) +
+                '}';
+    }
+}
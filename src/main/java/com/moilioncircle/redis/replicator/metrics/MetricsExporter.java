@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.metrics;
+
+import com.moilioncircle.redis.replicator.ReplicatorMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Publishes {@link ReplicatorMetrics} somewhere. opened by {@link ReplicatorMetrics#addExporter}
+ * and closed when the replicator closes.
+ *
+ * @see JmxMetricsExporter
+ * @see LogMetricsExporter
+ * @since 2.0.0
+ */
+public interface MetricsExporter extends Closeable {
+    void open(ReplicatorMetrics metrics) throws IOException;
+}
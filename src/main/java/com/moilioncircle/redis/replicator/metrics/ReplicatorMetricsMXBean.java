@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link com.moilioncircle.redis.replicator.ReplicatorMetrics}.
+ *
+ * @see JmxMetricsExporter
+ * @since 2.0.0
+ */
+public interface ReplicatorMetricsMXBean {
+
+    long getReceivedOffset();
+
+    long getProcessedOffset();
+
+    long getCommittedOffset();
+
+    long getOffsetLag();
+
+    long getRdbEvents();
+
+    double getRdbEventsPerSecond();
+
+    long getRdbBytes();
+
+    double getRdbBytesPerSecond();
+
+    long getCommandEvents();
+
+    double getCommandEventsPerSecond();
+
+    long getCommandBytes();
+
+    double getCommandBytesPerSecond();
+
+    int getQueueDepth();
+
+    long getSubmitBlockedMillis();
+
+    long getFullSyncs();
+
+    long getLastFullSyncMillis();
+
+    Map<String, String> getListenerLatencies();
+}
@@ -4,6 +4,7 @@ import com.moilioncircle.redis.replicator.AbstractReplicator;
 import com.moilioncircle.redis.replicator.Constants;
 import com.moilioncircle.redis.replicator.io.RedisInputStream;
 import com.moilioncircle.redis.replicator.util.Lzf;
+import com.moilioncircle.redis.replicator.util.Strings;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -110,7 +111,9 @@ public abstract class AbstractRdbParser {
                 value = new byte[]{0x00};
                 break;
         }
-        return encode ? new EncodedString(String.valueOf(in.readInt(value)), value) : value;
+        if (!encode) return value;
+        long longValue = in.readInt(value);
+        return new EncodedString(value, longValue);
     }
 
     /**
@@ -145,7 +148,17 @@ public abstract class AbstractRdbParser {
      * @see #rdbLoadLzfStringObject
      */
     protected Object rdbGenericLoadStringObject(boolean encode) throws IOException {
-        Len lenObj = rdbLoadLen();
+        return rdbGenericLoadStringObject(rdbLoadLen(), encode);
+    }
+
+    /**
+     * @param lenObj length prefix already read
+     * @param encode true: encoded string.false:raw bytes
+     * @return String rdb object
+     * @throws IOException when read timeout
+     * @see #rdbGenericLoadStringObject(boolean)
+     */
+    protected Object rdbGenericLoadStringObject(Len lenObj, boolean encode) throws IOException {
         int len = lenObj.len;
         boolean isencoded = lenObj.isencoded;
         if (isencoded) {
@@ -191,7 +204,89 @@ public abstract class AbstractRdbParser {
                 return Double.NaN;
             default:
                 byte[] bytes = in.readBytes(len);
-                return Double.valueOf(new String(bytes));
+                return Strings.toDouble(bytes, 0, len);
+        }
+    }
+
+    /**
+     * skips a string object by its length prefix, nothing is decoded or allocated
+     *
+     * @throws IOException when read timeout
+     * @see #rdbGenericLoadStringObject
+     */
+    protected void rdbSkipStringObject() throws IOException {
+        Len lenObj = rdbLoadLen();
+        int len = lenObj.len;
+        if (lenObj.isencoded) {
+            switch (len) {
+                case REDIS_RDB_ENC_INT8:
+                    in.skip(1);
+                    return;
+                case REDIS_RDB_ENC_INT16:
+                    in.skip(2);
+                    return;
+                case REDIS_RDB_ENC_INT32:
+                    in.skip(4);
+                    return;
+                case REDIS_RDB_ENC_LZF:
+                    int clen = rdbLoadLen().len;
+                    rdbLoadLen();
+                    in.skip(clen);
+                    return;
+                default:
+                    throw new AssertionError("Unknown RdbParser encoding type:" + len);
+            }
+        }
+        in.skip(len);
+    }
+
+    /**
+     * @throws IOException when read timeout
+     * @see #rdbLoadDoubleValue
+     */
+    protected void rdbSkipDoubleValue() throws IOException {
+        int len = in.read();
+        if (len < 253) in.skip(len);
+    }
+
+    /**
+     * skips a value of the given type using its length prefixes only
+     *
+     * @param rdbtype value type
+     * @throws IOException when read timeout
+     */
+    protected void rdbSkipObject(int rdbtype) throws IOException {
+        switch (rdbtype) {
+            case REDIS_RDB_TYPE_STRING:
+            case REDIS_RDB_TYPE_HASH_ZIPMAP:
+            case REDIS_RDB_TYPE_LIST_ZIPLIST:
+            case REDIS_RDB_TYPE_SET_INTSET:
+            case REDIS_RDB_TYPE_ZSET_ZIPLIST:
+            case REDIS_RDB_TYPE_HASH_ZIPLIST:
+                rdbSkipStringObject();
+                break;
+            case REDIS_RDB_TYPE_LIST:
+            case REDIS_RDB_TYPE_SET:
+            case REDIS_RDB_TYPE_LIST_QUICKLIST:
+                int len = rdbLoadLen().len;
+                for (int i = 0; i < len; i++) rdbSkipStringObject();
+                break;
+            case REDIS_RDB_TYPE_ZSET:
+                len = rdbLoadLen().len;
+                for (int i = 0; i < len; i++) {
+                    rdbSkipStringObject();
+                    rdbSkipDoubleValue();
+                }
+                break;
+            case REDIS_RDB_TYPE_HASH:
+                len = rdbLoadLen().len;
+                for (int i = 0; i < len; i++) {
+                    rdbSkipStringObject();
+                    rdbSkipStringObject();
+                }
+                break;
+            default:
+                throw new AssertionError("Un-except value-type:" + rdbtype);
         }
     }
 
@@ -220,118 +315,125 @@ public abstract class AbstractRdbParser {
             return in.skip(len);
         }
 
-        /*
-         * length-prev-entry special-flag raw-bytes-of-entry
-         * length-prev-entry format
-         * |xxxxxxxx| if first byte value &lt 254. then 1 byte as prev len.
-         * |xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx| if first byte &gt=254 then next 4 byte as prev len.
-         * special-flag
-         * |00xxxxxx| remaining 6 bit as string len.
-         * |01xxxxxx|xxxxxxxx| combined 14 bit as string len.
-         * |10xxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx| next 4 byte as string len.
-         * |11111110|xxxxxxxx| next 1 byte as 8bit int
-         * |11000000|xxxxxxxx|xxxxxxxx| next 2 bytes as 16bit int
-         * |11110000|xxxxxxxx|xxxxxxxx|xxxxxxxx| next 3 bytes as 24bit int
-         * |11010000|xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx| next 4 bytes as 32bit int
-         * |11100000|xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx|xxxxxxxx| next 8 bytes as 64bit long
-         * |11xxxxxx| next 6 bit value as int value
+        /**
+         * copies one ziplist entry from the stream and decodes it by {@link CompactCursor#zipListEntry()}
+         *
+         * @param in stream positioned at the entry
+         * @return entry of a ziplist, integers are converted to decimal strings
+         * @throws IOException when read error
+         * @deprecated use {@link CompactCursor#zipListEntry()} on the raw bytes of the ziplist
          */
+        @Deprecated
         public static String zipListEntry(RedisInputStream in) throws IOException {
-            int prevlen = in.read();
-            if (prevlen >= 254) {
-                prevlen = in.readInt(4);
-            }
+            //prevlen is not needed to decode the entry
+            if (in.read() >= 254) in.skip(4);
             int special = in.read();
+            byte[] head;
+            int len;
             switch (special >> 6) {
                 case 0:
-                    int len = special & 0x3f;
-                    return StringHelper.str(in, len);
+                    head = new byte[0];
+                    len = special & 0x3f;
+                    break;
                 case 1:
-                    len = ((special & 0x3f) << 8) | in.read();
-                    return StringHelper.str(in, len);
+                    head = in.readBytes(1);
+                    len = ((special & 0x3f) << 8) | (head[0] & 0xff);
+                    break;
                 case 2:
-                    //bigEndian
-                    len = in.readInt(4, false);
-                    return StringHelper.str(in, len);
-                default:
+                    head = in.readBytes(4);
+                    len = new CompactCursor(head).readIntBigEndian();
                     break;
-            }
-            switch (special) {
-                case ZIP_INT_8B:
-                    return String.valueOf(in.readInt(1));
-                case ZIP_INT_16B:
-                    return String.valueOf(in.readInt(2));
-                case ZIP_INT_24B:
-                    return String.valueOf(in.readInt(3));
-                case ZIP_INT_32B:
-                    return String.valueOf(in.readInt(4));
-                case ZIP_INT_64B:
-                    return String.valueOf(in.readLong(8));
                 default:
-                    //6BIT
-                    return String.valueOf(special - 0xf1);
+                    //integer value in the head
+                    head = in.readBytes(special == ZIP_INT_8B ? 1 : special == ZIP_INT_16B ? 2 : special == ZIP_INT_24B ? 3 :
+                            special == ZIP_INT_32B ? 4 : special == ZIP_INT_64B ? 8 : 0);
+                    len = 0;
+                    break;
             }
+            byte[] entry = new byte[2 + head.length + len];
+            entry[1] = (byte) special;
+            System.arraycopy(head, 0, entry, 2, head.length);
+            System.arraycopy(in.readBytes(len), 0, entry, 2 + head.length, len);
+            return new CompactCursor(entry).zipListEntry();
         }
     }
 
+    /**
+     * @deprecated use {@link CompactCursor} on the raw bytes of the compact encoding
+     */
+    @Deprecated
     protected static class LenHelper {
         private LenHelper() {
         }
 
         //zip hash
         public static int zmlen(RedisInputStream in) throws IOException {
-            return in.read();
+            return cursor(in, 1).zmlen();
         }
 
         public static int free(RedisInputStream in) throws IOException {
-            return in.read();
+            return cursor(in, 1).read();
         }
 
         public static int zmElementLen(RedisInputStream in) throws IOException {
             int len = in.read();
-            if (len >= 0 && len <= 253) {
-                return len;
-            } else if (len == 254) {
-                return in.readInt(4, false);
-            } else {
-                return len;
-            }
+            return len == 254 ? cursor(in, 4).readIntBigEndian() : len;
         }
 
         //zip list
         public static int zlbytes(RedisInputStream in) throws IOException {
-            return in.readInt(4);
+            return cursor(in, 4).readInt(4);
         }
 
         public static int zlend(RedisInputStream in) throws IOException {
-            return in.read();
+            return cursor(in, 1).read();
         }
 
         public static int zltail(RedisInputStream in) throws IOException {
-            return in.readInt(4);
+            return cursor(in, 4).readInt(4);
         }
 
         public static int zllen(RedisInputStream in) throws IOException {
-            return in.readInt(2);
+            return cursor(in, 2).readInt(2);
         }
 
         //int set
         public static int encoding(RedisInputStream in) throws IOException {
-            return in.readInt(4);
+            return cursor(in, 4).readInt(4);
         }
 
         public static int lenOfContent(RedisInputStream in) throws IOException {
-            return in.readInt(4);
+            return cursor(in, 4).readInt(4);
+        }
+
+        private static CompactCursor cursor(RedisInputStream in, int len) throws IOException {
+            return new CompactCursor(in.readBytes(len));
         }
     }
 
     protected static class EncodedString {
         public String string;
         public byte[] rawBytes;
+        public boolean integer;
+        public long longValue;
 
         public EncodedString(String string, byte[] rawBytes) {
             this.string = string;
             this.rawBytes = rawBytes;
         }
+
+        /**
+         * integer encoded string, the string is formatted on first {@link #string()}
+         */
+        public EncodedString(byte[] rawBytes, long longValue) {
+            this(null, rawBytes);
+            this.integer = true;
+            this.longValue = longValue;
+        }
+
+        public String string() {
+            if (string == null && integer) string = String.valueOf(longValue);
+            return string;
+        }
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+
+import java.util.List;
+
+/**
+ * Receives accepted KeyValuePairs in batches.
+ * <p>
+ * A batch is handed over when it reaches {@code Configuration.getBatchListenerSize()} events,
+ * when its first event is older than {@code Configuration.getBatchListenerLatency()} ms,
+ * and always before postFullSync. The list belongs to the listener.
+ *
+ * @since 2.0.0
+ */
+public interface BatchRdbListener {
+    void preFullSync(Replicator replicator);
+
+    void handle(Replicator replicator, List<KeyValuePair<?>> kvs);
+
+    void postFullSync(Replicator replicator, long checksum);
+
+    abstract class Adaptor implements BatchRdbListener {
+
+        public void preFullSync(Replicator replicator) {
+            //do nothing
+        }
+
+        public void postFullSync(Replicator replicator, long checksum) {
+            //do nothing
+        }
+    }
+}
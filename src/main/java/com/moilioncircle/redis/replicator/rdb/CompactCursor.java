@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.Constants;
+import com.moilioncircle.redis.replicator.util.Strings;
+
+import java.io.EOFException;
+
+import static com.moilioncircle.redis.replicator.Constants.*;
+
+/**
+ * Reads the compact encodings stored as a single rdb string (zipmap, intset and ziplist) directly from the
+ * byte array with an index, instead of wrapping every blob in a {@link com.moilioncircle.redis.replicator.io.RedisInputStream}.
+ * <p>
+ * Multi byte integers are little endian unless stated otherwise. Reading past the end throws {@link EOFException},
+ * the same as a truncated stream.
+ *
+ * @since 2.0.0
+ */
+public final class CompactCursor {
+
+    private final byte[] buf;
+    private final int limit;
+    private int pos;
+
+    //last ziplist entry, see zipListNext()
+    private boolean integer;
+    private long longValue;
+    private int entryOffset;
+    private int entryLength;
+
+    public CompactCursor(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    public CompactCursor(byte[] buf, int offset, int len) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + len;
+    }
+
+    public int position() {
+        return pos;
+    }
+
+    public int remaining() {
+        return limit - pos;
+    }
+
+    public int read() throws EOFException {
+        ensure(1);
+        return buf[pos++] & 0xff;
+    }
+
+    public void skip(int len) throws EOFException {
+        ensure(len);
+        pos += len;
+    }
+
+    /**
+     * @param len 1 to 4 bytes
+     * @return little endian signed integer
+     * @throws EOFException when the blob is truncated
+     */
+    public int readInt(int len) throws EOFException {
+        ensure(len);
+        int r = 0;
+        for (int i = 0; i < len; i++) r |= (buf[pos++] & 0xff) << (i << 3);
+        int c = (4 - len) << 3;
+        return r << c >> c;
+    }
+
+    public int readIntBigEndian() throws EOFException {
+        ensure(4);
+        int r = 0;
+        for (int i = 0; i < 4; i++) r = (r << 8) | (buf[pos++] & 0xff);
+        return r;
+    }
+
+    public long readLong() throws EOFException {
+        ensure(8);
+        long r = 0;
+        for (int i = 0; i < 8; i++) r |= (buf[pos++] & 0xffL) << (i << 3);
+        return r;
+    }
+
+    public String readString(int len) throws EOFException {
+        ensure(len);
+        String s = new String(buf, pos, len, Constants.CHARSET);
+        pos += len;
+        return s;
+    }
+
+    /**
+     * |zmlen| header of a zipmap
+     *
+     * @return number of entries, 254 or more if they have to be counted
+     * @throws EOFException when the blob is truncated
+     */
+    public int zmlen() throws EOFException {
+        return read();
+    }
+
+    /**
+     * @return length of the next zipmap element, 255 at the end of the zipmap
+     * @throws EOFException when the blob is truncated
+     */
+    public int zmElementLen() throws EOFException {
+        int len = read();
+        return len == 254 ? readIntBigEndian() : len;
+    }
+
+    /**
+     * |zlbytes|zltail|zllen| header of a ziplist
+     *
+     * @return zllen, number of entries
+     * @throws EOFException when the blob is truncated
+     */
+    public int zipListHeader() throws EOFException {
+        skip(8);
+        return readInt(2) & 0xffff;
+    }
+
+    public void zipListEnd() throws EOFException {
+        int zlend = read();
+        if (zlend != 255) throw new AssertionError("zlend expected 255 but " + zlend);
+    }
+
+    /**
+     * decodes the next ziplist entry without allocation. integer entries are read by {@link #longValue()},
+     * string entries by {@link #bytes()}, {@link #string()} or {@link #entryOffset()} and {@link #entryLength()}.
+     *
+     * @return true if the entry is integer encoded
+     * @throws EOFException when the blob is truncated
+     */
+    public boolean zipListNext() throws EOFException {
+        int prevlen = read();
+        if (prevlen >= 254) skip(4);
+        int special = read();
+        int len;
+        switch (special >> 6) {
+            case 0:
+                len = special & 0x3f;
+                break;
+            case 1:
+                len = ((special & 0x3f) << 8) | read();
+                break;
+            case 2:
+                //bigEndian
+                len = readIntBigEndian();
+                break;
+            default:
+                integer = true;
+                longValue = zipListInt(special);
+                return true;
+        }
+        ensure(len);
+        integer = false;
+        entryOffset = pos;
+        entryLength = len;
+        pos += len;
+        return false;
+    }
+
+    private long zipListInt(int special) throws EOFException {
+        switch (special) {
+            case ZIP_INT_8B:
+                return readInt(1);
+            case ZIP_INT_16B:
+                return readInt(2);
+            case ZIP_INT_24B:
+                return readInt(3);
+            case ZIP_INT_32B:
+                return readInt(4);
+            case ZIP_INT_64B:
+                return readLong();
+            default:
+                //6BIT
+                return special - 0xf1;
+        }
+    }
+
+    public boolean isInteger() {
+        return integer;
+    }
+
+    public long longValue() {
+        return longValue;
+    }
+
+    public int entryOffset() {
+        return entryOffset;
+    }
+
+    public int entryLength() {
+        return entryLength;
+    }
+
+    /**
+     * @return copy of the last string entry
+     */
+    public byte[] bytes() {
+        byte[] bytes = new byte[entryLength];
+        System.arraycopy(buf, entryOffset, bytes, 0, entryLength);
+        return bytes;
+    }
+
+    public String string() {
+        return new String(buf, entryOffset, entryLength, Constants.CHARSET);
+    }
+
+    /**
+     * @return entry of a ziplist, integers are converted to decimal strings
+     * @throws EOFException when the blob is truncated
+     */
+    public String zipListEntry() throws EOFException {
+        return zipListNext() ? String.valueOf(longValue) : string();
+    }
+
+    /**
+     * @return entry of a ziplist as a double, e.g. a zset score
+     * @throws EOFException when the blob is truncated
+     */
+    public double zipListDouble() throws EOFException {
+        return zipListNext() ? longValue : Strings.toDouble(buf, entryOffset, entryLength);
+    }
+
+    /**
+     * |encoding|length-of-contents| header of an intset
+     *
+     * @return encoding, 2, 4 or 8 bytes per element
+     * @throws EOFException when the blob is truncated
+     */
+    public int intSetEncoding() throws EOFException {
+        int encoding = readInt(4);
+        if (encoding != 2 && encoding != 4 && encoding != 8) throw new AssertionError("Expect encoding [2,4,8] but:" + encoding);
+        return encoding;
+    }
+
+    public long intSetEntry(int encoding) throws EOFException {
+        return encoding == 8 ? readLong() : readInt(encoding);
+    }
+
+    private void ensure(int len) throws EOFException {
+        if (len < 0 || limit - pos < len) throw new EOFException("end of compact encoding.");
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.AbstractReplicator;
+import com.moilioncircle.redis.replicator.event.PostFullSyncEvent;
+import com.moilioncircle.redis.replicator.event.PreFullSyncEvent;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.moilioncircle.redis.replicator.Constants.CHARSET;
+
+/**
+ * Decodes a rdb stream that arrives in pieces, the non blocking counterpart of {@link RdbParser#parse()}.
+ * <p>
+ * Received bytes are buffered until a whole top-level record is available, the end of a record is found by
+ * {@link RdbScanner#skipRecord(int)} without decoding values. The record is then decoded by a {@link RdbParser}
+ * and its events are returned to the caller instead of submitted, so the caller never blocks on the event queue.
+ * Memory is bounded by the largest record, not by the rdb size.
+ * <p>
+ * An incomplete record is scanned again only after the buffered bytes doubled, so huge records are
+ * scanned a constant number of times amortized.
+ *
+ * @since 2.0.0
+ */
+public class IncrementalRdbParser {
+
+    private final AbstractReplicator replicator;
+    private final Window window = new Window();
+    private final RecordParser parser;
+
+    private byte[] buf = new byte[8192];
+    private int head = 0;
+    private int tail = 0;
+    //buffered bytes when the last scan failed
+    private int scanned = 0;
+    private int version = 0;
+    private boolean done = false;
+
+    public IncrementalRdbParser(AbstractReplicator replicator) {
+        this.replicator = replicator;
+        this.parser = new RecordParser(new RedisInputStream(window, 8192), replicator);
+    }
+
+    /**
+     * @param in   next bytes of the rdb stream, all of them are consumed
+     * @param last true if no bytes follow, every buffered record must be complete
+     * @return events of the records completed by these bytes, in order
+     * @throws IOException when a record is corrupted or the stream ends in the middle of a record
+     */
+    public List<Object> feed(ByteBuffer in, boolean last) throws IOException {
+        List<Object> events = parser.events = new ArrayList<>();
+        if (done) {
+            in.position(in.limit());
+            return events;
+        }
+        append(in);
+        if (version == 0 && !header(events)) {
+            if (last) throw new EOFException("end of rdb header.");
+            return events;
+        }
+        while (!done && head < tail) {
+            int available = tail - head;
+            if (!last && available < scanned << 1) break;
+            int len = scan();
+            if (len < 0) {
+                if (last) throw new EOFException("end of rdb record.");
+                scanned = available;
+                break;
+            }
+            scanned = 0;
+            decode(len);
+        }
+        if (last && !done) throw new EOFException("end of rdb.");
+        return events;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    private void append(ByteBuffer in) {
+        int len = in.remaining();
+        if (tail + len > buf.length) {
+            int size = tail - head;
+            byte[] dest = size + len > buf.length ? new byte[Math.max(buf.length << 1, size + len)] : buf;
+            System.arraycopy(buf, head, dest, 0, size);
+            buf = dest;
+            head = 0;
+            tail = size;
+        }
+        in.get(buf, tail, len);
+        tail += len;
+    }
+
+    private boolean header(List<Object> events) {
+        if (tail - head < 9) return false;
+        String magicString = new String(buf, head, 5, CHARSET);
+        int version = Integer.parseInt(new String(buf, head + 5, 4, CHARSET));
+        head += 9;
+        if (!magicString.equals("REDIS")) {
+            RdbParser.logger.error("Can't read MAGIC STRING [REDIS] ,value:" + magicString);
+            done = true;
+        } else if (version < 1 || version > 7) {
+            RdbParser.logger.error("Can't handle RDB format version " + version);
+            done = true;
+        } else {
+            this.version = version;
+            events.add(new PreFullSyncEvent());
+        }
+        return !done;
+    }
+
+    /**
+     * @return length of the first buffered record, -1 if it is incomplete
+     */
+    private int scan() throws IOException {
+        RedisInputStream in = new RedisInputStream(new ByteArrayInputStream(buf, head, tail - head), 8192);
+        try {
+            new RdbScanner(in, replicator, false).skipRecord(version);
+            return (int) in.position();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private void decode(int len) throws IOException {
+        window.set(head, len);
+        try {
+            if (!parser.rdbLoadRecord(version)) {
+                parser.events.add(new PostFullSyncEvent(parser.checksum));
+                done = true;
+            }
+        } catch (InterruptedException e) {
+            //events are collected, never submitted
+            throw new AssertionError(e);
+        }
+        if (window.len > 0) throw new AssertionError("record not fully consumed:" + window.len);
+        head += len;
+        if (replicator != null) replicator.getMetrics().markRdbBytes(len);
+    }
+
+    /**
+     * exposes exactly one buffered record to the record parser
+     */
+    private class Window extends InputStream {
+        private int offset;
+        private int len;
+
+        private void set(int offset, int len) {
+            this.offset = offset;
+            this.len = len;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (len <= 0) return -1;
+            len--;
+            return buf[offset++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.len <= 0) return -1;
+            int n = Math.min(len, this.len);
+            System.arraycopy(buf, offset, b, off, n);
+            offset += n;
+            this.len -= n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return len;
+        }
+    }
+
+    /**
+     * collects the events of a record instead of submitting them
+     */
+    private static class RecordParser extends RdbParser {
+        private List<Object> events;
+
+        private RecordParser(RedisInputStream in, AbstractReplicator replicator) {
+            super(in, replicator);
+        }
+
+        @Override
+        protected void submitEvent(Object event) {
+            events.add(event);
+        }
+    }
+}
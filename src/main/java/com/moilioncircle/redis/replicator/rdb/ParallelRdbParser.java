@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.AbstractReplicator;
+import com.moilioncircle.redis.replicator.event.PostFullSyncEvent;
+import com.moilioncircle.redis.replicator.event.PreFullSyncEvent;
+import com.moilioncircle.redis.replicator.io.MappedRedisInputStream;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.datatype.DB;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Two phase parser of a local rdb file.
+ * <p>
+ * 1. a structural scan reads only opcodes, keys lengths and value lengths, and cuts the file into
+ * segments of {@code segmentSize} top-level records, remembering the offset and the selected db of each segment.
+ * <p>
+ * 2. a fork join pool decodes the segments in parallel, every task maps only the bytes of its own segment.
+ * The decoded events are submitted by the calling thread, in file order when {@code ordered} is true,
+ * otherwise in completion order. At most 2 * parallelism segments are in flight.
+ *
+ * @since 2.0.0
+ */
+public class ParallelRdbParser extends AbstractRdbParser {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1024;
+
+    private final File file;
+    private final int parallelism;
+    private final int segmentSize;
+    private final boolean ordered;
+
+    public ParallelRdbParser(File file, AbstractReplicator replicator, int parallelism, boolean ordered) throws IOException {
+        this(file, replicator, parallelism, DEFAULT_SEGMENT_SIZE, ordered);
+    }
+
+    public ParallelRdbParser(File file, AbstractReplicator replicator, int parallelism, int segmentSize, boolean ordered) throws IOException {
+        super(new MappedRedisInputStream(file), replicator);
+        this.file = file;
+        this.parallelism = Math.max(1, parallelism);
+        this.segmentSize = Math.max(1, segmentSize);
+        this.ordered = ordered;
+    }
+
+    /**
+     * @return read bytes
+     * @throws IOException when read timeout
+     * @see RdbParser#parse()
+     */
+    public long parse() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int version = new RdbScanner(in, replicator, false).version();
+            if (version < 0) return in.total();
+            List<Segment> segments = new ArrayList<>();
+            long checksum = scan(version, segments);
+            this.replicator.submitEvent(new PreFullSyncEvent());
+            decode(pool, version, segments);
+            this.replicator.submitEvent(new PostFullSyncEvent(checksum));
+            return in.total();
+        } catch (InterruptedException e) {
+            logger.error(e);
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            pool.shutdownNow();
+            in.close();
+        }
+    }
+
+    /**
+     * phase 1, skips every value by its length prefixes
+     */
+    protected long scan(int version, final List<Segment> segments) throws IOException {
+        RdbScanner scanner = new RdbScanner(in, replicator, false);
+        return scanner.scan(version, new RdbScanner.RecordHandler() {
+            @Override
+            public void handle(long offset, long end, int opcode, int valueType, DB db, String key) {
+                Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (segment == null || segment.records >= segmentSize) {
+                    segments.add(segment = new Segment(offset, db));
+                }
+                segment.records++;
+                segment.end = end;
+            }
+        });
+    }
+
+    /**
+     * phase 2
+     */
+    protected void decode(ForkJoinPool pool, final int version, List<Segment> segments) throws IOException, InterruptedException {
+        CompletionService<List<Object>> completion = new ExecutorCompletionService<>(pool);
+        Deque<Future<List<Object>>> inflight = new ArrayDeque<>();
+        int next = 0;
+        while (next < segments.size() || !inflight.isEmpty()) {
+            while (next < segments.size() && inflight.size() < parallelism * 2) {
+                final Segment segment = segments.get(next++);
+                inflight.add(completion.submit(new Callable<List<Object>>() {
+                    @Override
+                    public List<Object> call() throws Exception {
+                        return decode(version, segment);
+                    }
+                }));
+            }
+            Future<List<Object>> future;
+            if (ordered) {
+                future = inflight.poll();
+            } else {
+                future = completion.take();
+                inflight.remove(future);
+            }
+            for (Object event : get(future)) {
+                this.replicator.submitEvent(event);
+            }
+        }
+    }
+
+    protected List<Object> decode(int version, Segment segment) throws IOException, InterruptedException {
+        RedisInputStream in = new MappedRedisInputStream(file, segment.offset, segment.end);
+        try {
+            SegmentRdbParser parser = new SegmentRdbParser(in, replicator);
+            parser.rdbLoadRecords(version, segment.db, segment.records);
+            replicator.getMetrics().markRdbBytes(in.position() - segment.offset);
+            return parser.events;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<Object> get(Future<List<Object>> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * consecutive top-level records in [offset, end)
+     */
+    protected static class Segment {
+        public final long offset;
+        public final DB db;
+        public long records;
+        public long end;
+
+        private Segment(long offset, DB db) {
+            this.offset = offset;
+            this.db = db;
+        }
+    }
+
+    /**
+     * collects the events of one segment instead of submitting them
+     */
+    private static class SegmentRdbParser extends RdbParser {
+        private final List<Object> events = new ArrayList<>();
+
+        private SegmentRdbParser(RedisInputStream in, AbstractReplicator replicator) {
+            super(in, replicator);
+        }
+
+        @Override
+        protected void submitEvent(Object event) {
+            events.add(event);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.AbstractReplicator;
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.Constants;
+import com.moilioncircle.redis.replicator.io.MappedRedisInputStream;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.datatype.DB;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * Sidecar index of a rdb file for random access to single keys.
+ * <p>
+ * The index holds one fixed size entry per key, sorted by a 64 bit hash of the key:
+ * <pre>
+ * |  hash   | offset(40 bits) db(16 bits) value type(8 bits) |
+ * | 8 bytes |                  8 bytes                       |
+ * </pre>
+ * A lookup binary searches the hash, seeks to the record in the rdb file and decodes only that record.
+ * The rdb file is mapped once, every lookup reuses the same parser and only moves its stream.
+ * Hash collisions are resolved by comparing the decoded key.
+ * The length and last modified time of the rdb file are kept in the header, a stale index can not be opened.
+ *
+ * @since 2.0.0
+ */
+public class RdbIndex implements Closeable {
+
+    private static final String MAGIC = "RDBIDX";
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 6 + 4 + 8 + 8 + 4 + 8;
+    private static final int ENTRY_SIZE = 16;
+
+    private static final long MAX_OFFSET = (1L << 40) - 1;
+    private static final int MAX_DB = (1 << 16) - 1;
+
+    private final RandomAccessFile index;
+    private final MappedRedisInputStream in;
+    private final RecordParser parser;
+    private final int version;
+    private final long size;
+
+    private RdbIndex(File rdb, RandomAccessFile index, int version, long size) throws IOException {
+        this.index = index;
+        this.version = version;
+        this.size = size;
+        this.in = new MappedRedisInputStream(rdb);
+        this.parser = new RecordParser(in);
+    }
+
+    /**
+     * scans the rdb file (values are skipped, only keys are decoded) and writes the index file
+     *
+     * @param rdb   rdb file
+     * @param index index file to write
+     * @return number of indexed keys
+     * @throws IOException when the rdb file is not readable or not a supported rdb
+     */
+    public static long build(File rdb, File index) throws IOException {
+        final long length = rdb.length(), lastModified = rdb.lastModified();
+        final long[][] entries = new long[][]{new long[1024], new long[1024]};
+        final int[] count = new int[1];
+        RedisInputStream in = new MappedRedisInputStream(rdb);
+        int version;
+        try {
+            RdbScanner scanner = new RdbScanner(in, null, true);
+            version = scanner.version();
+            if (version < 0) throw new IOException("not a supported rdb file:" + rdb);
+            scanner.scan(version, new RdbScanner.RecordHandler() {
+                @Override
+                public void handle(long offset, long end, int opcode, int valueType, DB db, String key) throws IOException {
+                    if (key == null) return;
+                    int dbNumber = db == null ? 0 : db.getDbNumber();
+                    if (offset > MAX_OFFSET || dbNumber > MAX_DB) throw new IOException("can't index offset:" + offset + ",db:" + dbNumber);
+                    if (count[0] == entries[0].length) {
+                        entries[0] = Arrays.copyOf(entries[0], count[0] << 1);
+                        entries[1] = Arrays.copyOf(entries[1], count[0] << 1);
+                    }
+                    entries[0][count[0]] = hash(key);
+                    entries[1][count[0]] = offset << 24 | (long) dbNumber << 8 | valueType;
+                    count[0]++;
+                }
+            });
+        } finally {
+            in.close();
+        }
+        sort(entries[0], entries[1], 0, count[0] - 1);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index)))) {
+            out.write(MAGIC.getBytes(Constants.CHARSET));
+            out.writeInt(FORMAT);
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            out.writeInt(version);
+            out.writeLong(count[0]);
+            for (int i = 0; i < count[0]; i++) {
+                out.writeLong(entries[0][i]);
+                out.writeLong(entries[1][i]);
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * @param rdb   rdb file
+     * @param index index file built by {@link #build(File, File)}
+     * @return opened index
+     * @throws IOException when the index is broken or older than the rdb file
+     */
+    public static RdbIndex open(File rdb, File index) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(index, "r");
+        try {
+            byte[] magic = new byte[MAGIC.length()];
+            raf.readFully(magic);
+            if (!MAGIC.equals(new String(magic, Constants.CHARSET)) || raf.readInt() != FORMAT) {
+                throw new IOException("not a rdb index file:" + index);
+            }
+            if (raf.readLong() != rdb.length() || raf.readLong() != rdb.lastModified()) {
+                throw new IOException("stale rdb index file:" + index);
+            }
+            int version = raf.readInt();
+            long size = raf.readLong();
+            if (raf.length() != HEADER_SIZE + size * ENTRY_SIZE) throw new IOException("truncated rdb index file:" + index);
+            return new RdbIndex(rdb, raf, version, size);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of indexed keys
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param key key
+     * @return the key value pair of the key in any db, or null
+     * @throws IOException when read rdb failed
+     */
+    public KeyValuePair<?> get(String key) throws IOException {
+        return get(-1, key);
+    }
+
+    /**
+     * @param db  db number, -1 for any db
+     * @param key key
+     * @return the key value pair, or null
+     * @throws IOException when read rdb failed
+     */
+    public synchronized KeyValuePair<?> get(int db, String key) throws IOException {
+        long hash = hash(key);
+        long lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            long h = hashAt(mid);
+            if (h < hash) lo = mid + 1;
+            else if (h > hash) hi = mid - 1;
+            else {
+                // first entry of this hash, then walk the collisions
+                while (mid > 0 && hashAt(mid - 1) == hash) mid--;
+                for (; mid < size && hashAt(mid) == hash; mid++) {
+                    long packed = index.readLong();
+                    int dbNumber = (int) (packed >>> 8) & MAX_DB;
+                    if (db >= 0 && dbNumber != db) continue;
+                    KeyValuePair<?> kv = load(packed >>> 24, dbNumber);
+                    if (kv != null && key.equals(kv.getKey())) return kv;
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            index.close();
+        } finally {
+            in.close();
+        }
+    }
+
+    private long hashAt(long i) throws IOException {
+        index.seek(HEADER_SIZE + i * ENTRY_SIZE);
+        return index.readLong();
+    }
+
+    private KeyValuePair<?> load(long offset, int dbNumber) throws IOException {
+        in.seek(offset);
+        parser.kv = null;
+        try {
+            parser.rdbLoadRecords(version, new DB(dbNumber), 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return parser.kv;
+    }
+
+    /**
+     * FNV-1a over the utf-8 bytes of the key
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(Constants.CHARSET)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * sorts hashes ascending, values follow their hash
+     */
+    private static void sort(long[] hashes, long[] values, int lo, int hi) {
+        while (hi - lo > 16) {
+            long pivot = hashes[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (hashes[i] < pivot) i++;
+                while (hashes[j] > pivot) j--;
+                if (i <= j) swap(hashes, values, i++, j--);
+            }
+            // recurse into the smaller part to bound the stack
+            if (j - lo < hi - i) {
+                sort(hashes, values, lo, j);
+                lo = i;
+            } else {
+                sort(hashes, values, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && hashes[j - 1] > hashes[j]; j--) swap(hashes, values, j, j - 1);
+        }
+    }
+
+    private static void swap(long[] hashes, long[] values, int i, int j) {
+        long t = hashes[i];
+        hashes[i] = hashes[j];
+        hashes[j] = t;
+        t = values[i];
+        values[i] = values[j];
+        values[j] = t;
+    }
+
+    /**
+     * decodes a single record, chunking and events are not involved
+     */
+    private static class RecordParser extends RdbParser {
+        private KeyValuePair<?> kv;
+
+        private RecordParser(RedisInputStream in) {
+            super(in, new IndexReplicator());
+        }
+
+        @Override
+        protected void submitEvent(Object event) {
+            if (event instanceof KeyValuePair<?>) kv = (KeyValuePair<?>) event;
+        }
+    }
+
+    private static class IndexReplicator extends AbstractReplicator {
+        private IndexReplicator() {
+            this.configuration = Configuration.defaultSetting();
+        }
+
+        @Override
+        public void open() throws IOException {
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+
+/**
+ * A filter evaluated by {@link RdbParser} right after a key is read and before its value is decoded.
+ * The given kv carries db, key, value rdb type and expiry only, its value is always null.
+ * Rejected values are skipped by their length prefixes without being decoded.
+ *
+ * @see RdbKeyFilters
+ * @see RdbFilter
+ * @since 2.0.0
+ */
+public interface RdbKeyFilter {
+    boolean accept(KeyValuePair<?> kv);
+}
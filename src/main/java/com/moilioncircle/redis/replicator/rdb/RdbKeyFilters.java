@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.rdb.datatype.ExpiredType;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Common {@link RdbKeyFilter}s.
+ *
+ * @since 2.0.0
+ */
+public final class RdbKeyFilters {
+
+    private RdbKeyFilters() {
+    }
+
+    /**
+     * @param dbs db numbers
+     * @return accepts keys in the given dbs
+     */
+    public static RdbKeyFilter db(final int... dbs) {
+        final int[] sorted = dbs.clone();
+        Arrays.sort(sorted);
+        return new RdbKeyFilter() {
+            @Override
+            public boolean accept(KeyValuePair<?> kv) {
+                return kv.getDb() != null && Arrays.binarySearch(sorted, kv.getDb().getDbNumber()) >= 0;
+            }
+        };
+    }
+
+    /**
+     * @param prefixes key prefixes
+     * @return accepts keys starting with any of the given prefixes
+     */
+    public static RdbKeyFilter prefix(final String... prefixes) {
+        return new RdbKeyFilter() {
+            @Override
+            public boolean accept(KeyValuePair<?> kv) {
+                for (String prefix : prefixes) {
+                    if (kv.getKey().startsWith(prefix)) return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param regex key pattern
+     * @return accepts keys matching the whole pattern
+     */
+    public static RdbKeyFilter regex(String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+        return new RdbKeyFilter() {
+            @Override
+            public boolean accept(KeyValuePair<?> kv) {
+                return pattern.matcher(kv.getKey()).matches();
+            }
+        };
+    }
+
+    /**
+     * @param valueTypes rdb value types, see {@code Constants.REDIS_RDB_TYPE_*}
+     * @return accepts values of the given rdb types
+     */
+    public static RdbKeyFilter valueType(final int... valueTypes) {
+        return new RdbKeyFilter() {
+            @Override
+            public boolean accept(KeyValuePair<?> kv) {
+                for (int valueType : valueTypes) {
+                    if (kv.getValueRdbType() == valueType) return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param timestamp unix time in milliseconds
+     * @return accepts keys without expiry and keys expiring after the given time
+     */
+    public static RdbKeyFilter expiredAfter(final long timestamp) {
+        return new RdbKeyFilter() {
+            @Override
+            public boolean accept(KeyValuePair<?> kv) {
+                if (kv.getExpiredType() == ExpiredType.NONE) return true;
+                long ms = kv.getExpiredType() == ExpiredType.SECOND ? kv.getExpiredValue() * 1000L : kv.getExpiredValue();
+                return ms > timestamp;
+            }
+        };
+    }
+
+    /**
+     * @param filters filters
+     * @return accepts keys accepted by all the given filters
+     */
+    public static RdbKeyFilter and(final RdbKeyFilter... filters) {
+        return new RdbKeyFilter() {
+            @Override
+            public boolean accept(KeyValuePair<?> kv) {
+                for (RdbKeyFilter filter : filters) {
+                    if (!filter.accept(kv)) return false;
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param filters filters
+     * @return accepts keys accepted by any of the given filters
+     */
+    public static RdbKeyFilter or(final RdbKeyFilter... filters) {
+        return new RdbKeyFilter() {
+            @Override
+            public boolean accept(KeyValuePair<?> kv) {
+                for (RdbKeyFilter filter : filters) {
+                    if (filter.accept(kv)) return true;
+                }
+                return false;
+            }
+        };
+    }
+}
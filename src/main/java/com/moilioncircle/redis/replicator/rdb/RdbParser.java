@@ -1,459 +1,613 @@
-/*
- * Copyright 2016 leon chen
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package com.moilioncircle.redis.replicator.rdb;
-
-import com.moilioncircle.redis.replicator.AbstractReplicator;
-import com.moilioncircle.redis.replicator.event.PostFullSyncEvent;
-import com.moilioncircle.redis.replicator.event.PreFullSyncEvent;
-import com.moilioncircle.redis.replicator.io.RedisInputStream;
-import com.moilioncircle.redis.replicator.rdb.datatype.*;
-
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.util.*;
-
-import static com.moilioncircle.redis.replicator.Constants.*;
-
-/**
- * Redis RDB format
- * rdb version 6
- * rdb version 7
- *
- * @author leon.chen
- *         [https://github.com/antirez/redis/blob/3.0/src/rdb.c]
- *         [https://github.com/sripathikrishnan/redis-rdb-tools/wiki/Redis-RDB-Dump-File-Format]
- * @since 2016/8/11
- */
-public class RdbParser extends AbstractRdbParser {
-
-    public RdbParser(RedisInputStream in, AbstractReplicator replicator) {
-        super(in, replicator);
-    }
-
-    /**
-     * ----------------------------# RDB is a binary format. There are no new lines or spaces in the file.
-     * 52 45 44 49 53              # Magic String "REDIS"
-     * 30 30 30 33                 # RDB Version Number in big endian. In this case, version = 0003 = 3
-     * ----------------------------
-     * FE 00                       # FE = code that indicates database selector. db number = 00
-     * ----------------------------# Key-Value pair starts
-     * FD $unsigned int            # FD indicates "expiry time in seconds". After that, expiry time is read as a 4 byte unsigned int
-     * $value-type                 # 1 byte flag indicating the type of value - set, map, sorted set etc.
-     * $string-encoded-name         # The name, encoded as a redis string
-     * $encoded-value              # The value. Encoding depends on $value-type
-     * ----------------------------
-     * FC $unsigned long           # FC indicates "expiry time in ms". After that, expiry time is read as a 8 byte unsigned long
-     * $value-type                 # 1 byte flag indicating the type of value - set, map, sorted set etc.
-     * $string-encoded-name         # The name, encoded as a redis string
-     * $encoded-value              # The value. Encoding depends on $value-type
-     * ----------------------------
-     * $value-type                 # This name value pair doesn't have an expiry. $value_type guaranteed != to FD, FC, FE and FF
-     * $string-encoded-name
-     * $encoded-value
-     * ----------------------------
-     * FE $length-encoding         # Previous db ends, next db starts. Database number read using length encoding.
-     * ----------------------------
-     * ...                         # Key value pairs for this database, additonal database
-     * FF                          ## End of RDB file indicator
-     * 8 byte checksum             ## CRC 64 checksum of the entire file.
-     *
-     * @return read bytes
-     * @throws IOException when read timeout
-     */
-    public long parse() throws IOException {
-        try {
-            /*
-         * ----------------------------
-         * 52 45 44 49 53              # Magic String "REDIS"
-         * 30 30 30 33                 # RDB Version Number in big endian. In this case, version = 0003 = 3
-         * ----------------------------
-         */
-            String magicString = StringHelper.str(in, 5);//REDIS
-            if (!magicString.equals("REDIS")) {
-                logger.error("Can't read MAGIC STRING [REDIS] ,value:" + magicString);
-                return in.total();
-            }
-            int version = Integer.parseInt(StringHelper.str(in, 4));//0006 or 0007
-            switch (version) {
-                case 1:
-                case 2:
-                case 3:
-                case 4:
-                case 5:
-                case 6:
-                case 7:
-                    this.replicator.submitEvent(new PreFullSyncEvent());
-                    long checksum = rdbLoad(version);
-                    this.replicator.submitEvent(new PostFullSyncEvent(checksum));
-                    return in.total();
-                default:
-                    logger.error("Can't handle RDB format version " + version);
-                    return in.total();
-            }
-
-        } catch (InterruptedException e) {
-            logger.error(e);
-            Thread.currentThread().interrupt();
-            return -1;
-        }
-    }
-
-
-    protected long rdbLoad(int version) throws IOException, InterruptedException {
-        DB db = null;
-        long checksum = 0;
-        /**
-         * rdb
-         */
-        loop:
-        while (true) {
-            int type = in.read();
-            KeyValuePair kv = null;
-            switch (type) {
-                /*
-                 * ----------------------------
-                 * FD $unsigned int            # FD indicates "expiry time in seconds". After that, expiry time is read as a 4 byte unsigned int
-                 * $value-type                 # 1 byte flag indicating the type of value - set, map, sorted set etc.
-                 * $string-encoded-name         # The name, encoded as a redis string
-                 * $encoded-value              # The value. Encoding depends on $value-type
-                 * ----------------------------
-                 */
-                case REDIS_RDB_OPCODE_EXPIRETIME:
-                    int expiredSec = rdbLoadTime();
-                    int valueType = in.read();
-                    String key = rdbLoadEncodedStringObject().string;
-                    kv = rdbLoadObject(valueType);
-                    kv.setDb(db);
-                    kv.setExpiredType(ExpiredType.SECOND);
-                    kv.setExpiredValue((long) expiredSec);
-                    kv.setKey(key);
-                    break;
-                /*
-                 * ----------------------------
-                 * FC $unsigned long           # FC indicates "expiry time in ms". After that, expiry time is read as a 8 byte unsigned long
-                 * $value-type                 # 1 byte flag indicating the type of value - set, map, sorted set etc.
-                 * $string-encoded-name         # The name, encoded as a redis string
-                 * $encoded-value              # The value. Encoding depends on $value-type
-                 * ----------------------------
-                 */
-                case REDIS_RDB_OPCODE_EXPIRETIME_MS:
-                    long expiredMs = rdbLoadMillisecondTime();
-                    valueType = in.read();
-                    key = rdbLoadEncodedStringObject().string;
-                    kv = rdbLoadObject(valueType);
-                    kv.setDb(db);
-                    kv.setExpiredType(ExpiredType.MS);
-                    kv.setExpiredValue(expiredMs);
-                    kv.setKey(key);
-                    break;
-                case REDIS_RDB_OPCODE_AUX:
-                    String auxKey = rdbLoadEncodedStringObject().string;
-                    String auxValue = rdbLoadEncodedStringObject().string;
-                    if (auxKey.startsWith("%")) {
-                        logger.info("RDB " + auxKey + ": " + auxValue);
-                    } else {
-                        logger.warn("Unrecognized RDB AUX field: " + auxKey + ",value: " + auxValue);
-                    }
-                    break;
-                case REDIS_RDB_OPCODE_RESIZEDB:
-                    int dbsize = rdbLoadLen().len;
-                    int expiresSize = rdbLoadLen().len;
-                    if (db != null) db.setDbsize(dbsize);
-                    if (db != null) db.setExpires(expiresSize);
-                    break;
-                /*
-                 * ----------------------------
-                 * $value-type                 # This name value pair doesn't have an expiry. $value_type guaranteed != to FD, FC, FE and FF
-                 * $string-encoded-name
-                 * $encoded-value
-                 * ----------------------------
-                 */
-                case REDIS_RDB_TYPE_STRING:
-                case REDIS_RDB_TYPE_LIST:
-                case REDIS_RDB_TYPE_SET:
-                case REDIS_RDB_TYPE_ZSET:
-                case REDIS_RDB_TYPE_HASH:
-                case REDIS_RDB_TYPE_HASH_ZIPMAP:
-                case REDIS_RDB_TYPE_LIST_ZIPLIST:
-                case REDIS_RDB_TYPE_SET_INTSET:
-                case REDIS_RDB_TYPE_ZSET_ZIPLIST:
-                case REDIS_RDB_TYPE_HASH_ZIPLIST:
-                case REDIS_RDB_TYPE_LIST_QUICKLIST:
-                    valueType = type;
-                    key = rdbLoadEncodedStringObject().string;
-                    kv = rdbLoadObject(valueType);
-                    kv.setDb(db);
-                    kv.setKey(key);
-                    break;
-                /*
-                 * ----------------------------
-                 * FE $length-encoding         # Previous db ends, next db starts. Database number read using length encoding.
-                 * ----------------------------
-                 */
-                case REDIS_RDB_OPCODE_SELECTDB:
-                    int dbNumber = rdbLoadLen().len;
-                    db = new DB(dbNumber);
-                    break;
-                /*
-                 * ----------------------------
-                 * ...                         # Key value pairs for this database, additonal database
-                 * FF                          ## End of RDB file indicator
-                 * 8 byte checksum             ## CRC 64 checksum of the entire file.
-                 * ----------------------------
-                 */
-                case REDIS_RDB_OPCODE_EOF:
-                    if (version >= 5) checksum = in.readLong(8);
-                    break loop;
-                default:
-                    throw new AssertionError("Un-except value-type:" + type);
-            }
-            if (kv == null) continue;
-            if (replicator.verbose() && logger.isDebugEnabled()) logger.debug(kv);
-            //submit event
-            this.replicator.submitEvent(kv);
-        }
-        return checksum;
-    }
-
-    private KeyValuePair rdbLoadObject(int rdbtype) throws IOException {
-        switch (rdbtype) {
-            /*
-             * |       <content>       |
-             * |    string contents    |
-             */
-            case REDIS_RDB_TYPE_STRING:
-                KeyStringValueString o0 = new KeyStringValueString();
-                EncodedString val = rdbLoadEncodedStringObject();
-                o0.setValueRdbType(rdbtype);
-                o0.setValue(val.string);
-                o0.setRawBytes(val.rawBytes);
-                return o0;
-            /*
-             * |    <len>     |       <content>       |
-             * | 1 or 5 bytes |    string contents    |
-             */
-            case REDIS_RDB_TYPE_LIST:
-                int len = rdbLoadLen().len;
-                KeyStringValueList<String> o1 = new KeyStringValueList<>();
-                List<String> list = new ArrayList<>();
-                for (int i = 0; i < len; i++) {
-                    String element = rdbLoadEncodedStringObject().string;
-                    list.add(element);
-                }
-                o1.setValueRdbType(rdbtype);
-                o1.setValue(list);
-                return o1;
-            /*
-             * |    <len>     |       <content>       |
-             * | 1 or 5 bytes |    string contents    |
-             */
-            case REDIS_RDB_TYPE_SET:
-                len = rdbLoadLen().len;
-                KeyStringValueSet o2 = new KeyStringValueSet();
-                Set<String> set = new LinkedHashSet<>();
-                for (int i = 0; i < len; i++) {
-                    String element = rdbLoadEncodedStringObject().string;
-                    set.add(element);
-                }
-                o2.setValueRdbType(rdbtype);
-                o2.setValue(set);
-                return o2;
-            /*
-             * |    <len>     |       <content>       |        <score>       |
-             * | 1 or 5 bytes |    string contents    |    double content    |
-             */
-            case REDIS_RDB_TYPE_ZSET:
-                len = rdbLoadLen().len;
-                KeyStringValueZSet o3 = new KeyStringValueZSet();
-                Set<ZSetEntry> zset = new LinkedHashSet<>();
-                while (len > 0) {
-                    String element = rdbLoadEncodedStringObject().string;
-                    double score = rdbLoadDoubleValue();
-                    zset.add(new ZSetEntry(element, score));
-                    len--;
-                }
-                o3.setValueRdbType(rdbtype);
-                o3.setValue(zset);
-                return o3;
-            /*
-             * |    <len>     |       <content>       |
-             * | 1 or 5 bytes |    string contents    |
-             */
-            case REDIS_RDB_TYPE_HASH:
-                len = rdbLoadLen().len;
-                KeyStringValueHash o4 = new KeyStringValueHash();
-                Map<String, String> map = new LinkedHashMap<>();
-                while (len > 0) {
-                    String field = rdbLoadEncodedStringObject().string;
-                    String value = rdbLoadEncodedStringObject().string;
-                    map.put(field, value);
-                    len--;
-                }
-                o4.setValueRdbType(rdbtype);
-                o4.setValue(map);
-                return o4;
-            /*
-             * |<zmlen> |   <len>     |"foo"    |    <len>   | <free> |   "bar" |<zmend> |
-             * | 1 byte | 1 or 5 byte | content |1 or 5 byte | 1 byte | content | 1 byte |
-             */
-            case REDIS_RDB_TYPE_HASH_ZIPMAP:
-                byte[] aux = rdbLoadRawStringObject();
-                RedisInputStream stream = new RedisInputStream(new ByteArrayInputStream(aux));
-                KeyStringValueHash o9 = new KeyStringValueHash();
-                map = new LinkedHashMap<>();
-                int zmlen = AbstractRdbParser.LenHelper.zmlen(stream);
-                while (true) {
-                    int zmEleLen = AbstractRdbParser.LenHelper.zmElementLen(stream);
-                    if (zmEleLen == 255) {
-                        o9.setValueRdbType(rdbtype);
-                        o9.setValue(map);
-                        return o9;
-                    }
-                    String field = AbstractRdbParser.StringHelper.str(stream, zmEleLen);
-                    zmEleLen = AbstractRdbParser.LenHelper.zmElementLen(stream);
-                    if (zmEleLen == 255) {
-                        o9.setValueRdbType(rdbtype);
-                        o9.setValue(map);
-                        return o9;
-                    }
-                    int free = AbstractRdbParser.LenHelper.free(stream);
-                    String value = AbstractRdbParser.StringHelper.str(stream, zmEleLen);
-                    AbstractRdbParser.StringHelper.skip(stream, free);
-                    map.put(field, value);
-                }
-            /*
-             * |<encoding>| <length-of-contents>|              <contents>                           |
-             * | 4 bytes  |            4 bytes  | 2 bytes lement| 4 bytes element | 8 bytes element |
-             */
-            case REDIS_RDB_TYPE_SET_INTSET:
-                aux = rdbLoadRawStringObject();
-                stream = new RedisInputStream(new ByteArrayInputStream(aux));
-                KeyStringValueSet o11 = new KeyStringValueSet();
-                set = new LinkedHashSet<>();
-                int encoding = AbstractRdbParser.LenHelper.encoding(stream);
-                int lenOfContent = AbstractRdbParser.LenHelper.lenOfContent(stream);
-                for (int i = 0; i < lenOfContent; i++) {
-                    switch (encoding) {
-                        case 2:
-                            set.add(String.valueOf(stream.readInt(2)));
-                            break;
-                        case 4:
-                            set.add(String.valueOf(stream.readInt(4)));
-                            break;
-                        case 8:
-                            set.add(String.valueOf(stream.readLong(8)));
-                            break;
-                        default:
-                            throw new AssertionError("Expect encoding [2,4,8] but:" + encoding);
-                    }
-                }
-                o11.setValueRdbType(rdbtype);
-                o11.setValue(set);
-                return o11;
-            /*
-             * |<zlbytes>| <zltail>| <zllen>| <entry> ...<entry> | <zlend>|
-             * | 4 bytes | 4 bytes | 2bytes | zipListEntry ...   | 1byte  |
-             */
-            case REDIS_RDB_TYPE_LIST_ZIPLIST:
-                aux = rdbLoadRawStringObject();
-                stream = new RedisInputStream(new ByteArrayInputStream(aux));
-                KeyStringValueList<String> o10 = new KeyStringValueList<>();
-                list = new ArrayList<>();
-                int zlbytes = AbstractRdbParser.LenHelper.zlbytes(stream);
-                int zltail = AbstractRdbParser.LenHelper.zltail(stream);
-                int zllen = AbstractRdbParser.LenHelper.zllen(stream);
-                for (int i = 0; i < zllen; i++) {
-                    list.add(AbstractRdbParser.StringHelper.zipListEntry(stream));
-                }
-                int zlend = AbstractRdbParser.LenHelper.zlend(stream);
-                if (zlend != 255) {
-                    throw new AssertionError("zlend expected 255 but " + zlend);
-                }
-                o10.setValueRdbType(rdbtype);
-                o10.setValue(list);
-                return o10;
-            /*
-             * |<zlbytes>| <zltail>| <zllen>| <entry> ...<entry> | <zlend>|
-             * | 4 bytes | 4 bytes | 2bytes | zipListEntry ...   | 1byte  |
-             */
-            case REDIS_RDB_TYPE_ZSET_ZIPLIST:
-                aux = rdbLoadRawStringObject();
-                stream = new RedisInputStream(new ByteArrayInputStream(aux));
-                KeyStringValueZSet o12 = new KeyStringValueZSet();
-                zset = new LinkedHashSet<>();
-                zlbytes = AbstractRdbParser.LenHelper.zlbytes(stream);
-                zltail = AbstractRdbParser.LenHelper.zltail(stream);
-                zllen = AbstractRdbParser.LenHelper.zllen(stream);
-                while (zllen > 0) {
-                    String element = AbstractRdbParser.StringHelper.zipListEntry(stream);
-                    zllen--;
-                    double score = Double.valueOf(AbstractRdbParser.StringHelper.zipListEntry(stream));
-                    zllen--;
-                    zset.add(new ZSetEntry(element, score));
-                }
-                zlend = AbstractRdbParser.LenHelper.zlend(stream);
-                if (zlend != 255) {
-                    throw new AssertionError("zlend expected 255 but " + zlend);
-                }
-                o12.setValueRdbType(rdbtype);
-                o12.setValue(zset);
-                return o12;
-            /*
-             * |<zlbytes>| <zltail>| <zllen>| <entry> ...<entry> | <zlend>|
-             * | 4 bytes | 4 bytes | 2bytes | zipListEntry ...   | 1byte  |
-             */
-            case REDIS_RDB_TYPE_HASH_ZIPLIST:
-                aux = rdbLoadRawStringObject();
-                stream = new RedisInputStream(new ByteArrayInputStream(aux));
-                KeyStringValueHash o13 = new KeyStringValueHash();
-                map = new LinkedHashMap<>();
-                zlbytes = AbstractRdbParser.LenHelper.zlbytes(stream);
-                zltail = AbstractRdbParser.LenHelper.zltail(stream);
-                zllen = AbstractRdbParser.LenHelper.zllen(stream);
-                while (zllen > 0) {
-                    String field = AbstractRdbParser.StringHelper.zipListEntry(stream);
-                    zllen--;
-                    String value = AbstractRdbParser.StringHelper.zipListEntry(stream);
-                    zllen--;
-                    map.put(field, value);
-                }
-                zlend = AbstractRdbParser.LenHelper.zlend(stream);
-                if (zlend != 255) {
-                    throw new AssertionError("zlend expected 255 but " + zlend);
-                }
-                o13.setValueRdbType(rdbtype);
-                o13.setValue(map);
-                return o13;
-            /* rdb version 7*/
-            case REDIS_RDB_TYPE_LIST_QUICKLIST:
-                len = rdbLoadLen().len;
-                KeyStringValueList<byte[]> o14 = new KeyStringValueList<>();
-                List<byte[]> byteList = new ArrayList<>();
-                for (int i = 0; i < len; i++) {
-                    byte[] element = rdbLoadRawStringObject();
-                    byteList.add(element);
-                }
-                o14.setValueRdbType(rdbtype);
-                o14.setValue(byteList);
-                return o14;
-            default:
-                throw new AssertionError("Un-except value-type:" + rdbtype);
-
-        }
-    }
-}
-
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.AbstractReplicator;
+import com.moilioncircle.redis.replicator.event.PostFullSyncEvent;
+import com.moilioncircle.redis.replicator.event.PreFullSyncEvent;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.datatype.*;
+import com.moilioncircle.redis.replicator.util.DeferredLzf;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static com.moilioncircle.redis.replicator.Constants.*;
+
+/**
+ * Redis RDB format
+ * rdb version 6
+ * rdb version 7
+ *
+ * @author leon.chen
+ *         [https://github.com/antirez/redis/blob/3.0/src/rdb.c]
+ *         [https://github.com/sripathikrishnan/redis-rdb-tools/wiki/Redis-RDB-Dump-File-Format]
+ * @since 2016/8/11
+ */
+public class RdbParser extends AbstractRdbParser {
+
+    protected DB db;
+    protected long checksum;
+
+    public RdbParser(RedisInputStream in, AbstractReplicator replicator) {
+        super(in, replicator);
+    }
+
+    /**
+     * ----------------------------# RDB is a binary format. There are no new lines or spaces in the file.
+     * 52 45 44 49 53              # Magic String "REDIS"
+     * 30 30 30 33                 # RDB Version Number in big endian. In this case, version = 0003 = 3
+     * ----------------------------
+     * FE 00                       # FE = code that indicates database selector. db number = 00
+     * ----------------------------# Key-Value pair starts
+     * FD $unsigned int            # FD indicates "expiry time in seconds". After that, expiry time is read as a 4 byte unsigned int
+     * $value-type                 # 1 byte flag indicating the type of value - set, map, sorted set etc.
+     * $string-encoded-name         # The name, encoded as a redis string
+     * $encoded-value              # The value. Encoding depends on $value-type
+     * ----------------------------
+     * FC $unsigned long           # FC indicates "expiry time in ms". After that, expiry time is read as a 8 byte unsigned long
+     * $value-type                 # 1 byte flag indicating the type of value - set, map, sorted set etc.
+     * $string-encoded-name         # The name, encoded as a redis string
+     * $encoded-value              # The value. Encoding depends on $value-type
+     * ----------------------------
+     * $value-type                 # This name value pair doesn't have an expiry. $value_type guaranteed != to FD, FC, FE and FF
+     * $string-encoded-name
+     * $encoded-value
+     * ----------------------------
+     * FE $length-encoding         # Previous db ends, next db starts. Database number read using length encoding.
+     * ----------------------------
+     * ...                         # Key value pairs for this database, additonal database
+     * FF                          ## End of RDB file indicator
+     * 8 byte checksum             ## CRC 64 checksum of the entire file.
+     *
+     * @return read bytes
+     * @throws IOException when read timeout
+     */
+    public long parse() throws IOException {
+        try {
+            /*
+         * ----------------------------
+         * 52 45 44 49 53              # Magic String "REDIS"
+         * 30 30 30 33                 # RDB Version Number in big endian. In this case, version = 0003 = 3
+         * ----------------------------
+         */
+            String magicString = StringHelper.str(in, 5);//REDIS
+            if (!magicString.equals("REDIS")) {
+                logger.error("Can't read MAGIC STRING [REDIS] ,value:" + magicString);
+                return in.total();
+            }
+            int version = Integer.parseInt(StringHelper.str(in, 4));//0006 or 0007
+            switch (version) {
+                case 1:
+                case 2:
+                case 3:
+                case 4:
+                case 5:
+                case 6:
+                case 7:
+                    this.replicator.submitEvent(new PreFullSyncEvent());
+                    long checksum = rdbLoad(version);
+                    this.replicator.submitEvent(new PostFullSyncEvent(checksum));
+                    return in.total();
+                default:
+                    logger.error("Can't handle RDB format version " + version);
+                    return in.total();
+            }
+
+        } catch (InterruptedException e) {
+            logger.error(e);
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+
+    protected long rdbLoad(int version) throws IOException, InterruptedException {
+        long position = in.position();
+        while (rdbLoadRecord(version)) {
+            //until EOF opcode
+            long next = in.position();
+            replicator.getMetrics().markRdbBytes(next - position);
+            position = next;
+        }
+        return checksum;
+    }
+
+    /**
+     * decodes the given number of top-level records starting at the current position.
+     * used by {@link ParallelRdbParser}, the records must not contain the EOF opcode.
+     *
+     * @param version rdb version
+     * @param db      db selected before the first record
+     * @param records number of records
+     * @throws IOException          when read timeout
+     * @throws InterruptedException when interrupted while submitting events
+     */
+    public void rdbLoadRecords(int version, DB db, long records) throws IOException, InterruptedException {
+        this.db = db;
+        for (long i = 0; i < records; i++) {
+            if (!rdbLoadRecord(version)) throw new AssertionError("Unexpected EOF opcode at record:" + i);
+        }
+    }
+
+    /**
+     * reads one top-level record: a key value pair with its optional expiry, an opcode, or EOF
+     *
+     * @param version rdb version
+     * @return false when the EOF opcode is read
+     * @throws IOException          when read timeout
+     * @throws InterruptedException when interrupted while submitting events
+     */
+    protected boolean rdbLoadRecord(int version) throws IOException, InterruptedException {
+        int type = in.read();
+        KeyValuePair<?> kv = null;
+        switch (type) {
+            /*
+             * ----------------------------
+             * FD $unsigned int            # FD indicates "expiry time in seconds". After that, expiry time is read as a 4 byte unsigned int
+             * $value-type                 # 1 byte flag indicating the type of value - set, map, sorted set etc.
+             * $string-encoded-name         # The name, encoded as a redis string
+             * $encoded-value              # The value. Encoding depends on $value-type
+             * ----------------------------
+             */
+            case REDIS_RDB_OPCODE_EXPIRETIME:
+                int expiredSec = rdbLoadTime();
+                int valueType = in.read();
+                String key = rdbLoadEncodedStringObject().string();
+                kv = rdbLoadObject(valueType, header(db, key, valueType, ExpiredType.SECOND, (long) expiredSec));
+                break;
+            /*
+             * ----------------------------
+             * FC $unsigned long           # FC indicates "expiry time in ms". After that, expiry time is read as a 8 byte unsigned long
+             * $value-type                 # 1 byte flag indicating the type of value - set, map, sorted set etc.
+             * $string-encoded-name         # The name, encoded as a redis string
+             * $encoded-value              # The value. Encoding depends on $value-type
+             * ----------------------------
+             */
+            case REDIS_RDB_OPCODE_EXPIRETIME_MS:
+                long expiredMs = rdbLoadMillisecondTime();
+                valueType = in.read();
+                key = rdbLoadEncodedStringObject().string();
+                kv = rdbLoadObject(valueType, header(db, key, valueType, ExpiredType.MS, expiredMs));
+                break;
+            case REDIS_RDB_OPCODE_AUX:
+                String auxKey = rdbLoadEncodedStringObject().string();
+                String auxValue = rdbLoadEncodedStringObject().string();
+                if (auxKey.startsWith("%")) {
+                    logger.info("RDB " + auxKey + ": " + auxValue);
+                } else {
+                    logger.warn("Unrecognized RDB AUX field: " + auxKey + ",value: " + auxValue);
+                }
+                break;
+            case REDIS_RDB_OPCODE_RESIZEDB:
+                int dbsize = rdbLoadLen().len;
+                int expiresSize = rdbLoadLen().len;
+                if (db != null) db.setDbsize(dbsize);
+                if (db != null) db.setExpires(expiresSize);
+                break;
+            /*
+             * ----------------------------
+             * $value-type                 # This name value pair doesn't have an expiry. $value_type guaranteed != to FD, FC, FE and FF
+             * $string-encoded-name
+             * $encoded-value
+             * ----------------------------
+             */
+            case REDIS_RDB_TYPE_STRING:
+            case REDIS_RDB_TYPE_LIST:
+            case REDIS_RDB_TYPE_SET:
+            case REDIS_RDB_TYPE_ZSET:
+            case REDIS_RDB_TYPE_HASH:
+            case REDIS_RDB_TYPE_HASH_ZIPMAP:
+            case REDIS_RDB_TYPE_LIST_ZIPLIST:
+            case REDIS_RDB_TYPE_SET_INTSET:
+            case REDIS_RDB_TYPE_ZSET_ZIPLIST:
+            case REDIS_RDB_TYPE_HASH_ZIPLIST:
+            case REDIS_RDB_TYPE_LIST_QUICKLIST:
+                valueType = type;
+                key = rdbLoadEncodedStringObject().string();
+                kv = rdbLoadObject(valueType, header(db, key, valueType, ExpiredType.NONE, null));
+                break;
+            /*
+             * ----------------------------
+             * FE $length-encoding         # Previous db ends, next db starts. Database number read using length encoding.
+             * ----------------------------
+             */
+            case REDIS_RDB_OPCODE_SELECTDB:
+                int dbNumber = rdbLoadLen().len;
+                db = new DB(dbNumber);
+                break;
+            /*
+             * ----------------------------
+             * ...                         # Key value pairs for this database, additonal database
+             * FF                          ## End of RDB file indicator
+             * 8 byte checksum             ## CRC 64 checksum of the entire file.
+             * ----------------------------
+             */
+            case REDIS_RDB_OPCODE_EOF:
+                if (version >= 5) checksum = in.readLong(8);
+                return false;
+            default:
+                throw new AssertionError("Un-except value-type:" + type);
+        }
+        if (kv == null) return true;
+        if (replicator.verbose() && logger.isDebugEnabled()) logger.debug(kv);
+        //submit event
+        submitEvent(kv);
+        return true;
+    }
+
+    protected void submitEvent(Object event) throws InterruptedException {
+        this.replicator.submitEvent(event);
+    }
+
+    private KeyValuePair<Object> header(DB db, String key, int valueType, ExpiredType expiredType, Long expiredValue) {
+        KeyValuePair<Object> header = new KeyValuePair<>();
+        header.setDb(db);
+        header.setKey(key);
+        header.setValueRdbType(valueType);
+        header.setExpiredType(expiredType);
+        header.setExpiredValue(expiredValue);
+        return header;
+    }
+
+    /**
+     * @param rdbtype value type
+     * @param header  db, key and expiry of the value
+     * @return the KeyValuePair, or null if the value was submitted in chunks or skipped by a {@link RdbKeyFilter}
+     * @throws IOException          when read timeout
+     * @throws InterruptedException when interrupted while submitting chunks
+     * @see com.moilioncircle.redis.replicator.Configuration#setRdbChunkSize(int)
+     */
+    private KeyValuePair<?> rdbLoadObject(int rdbtype, KeyValuePair<?> header) throws IOException, InterruptedException {
+        if (!replicator.doRdbKeyFilter(header)) {
+            rdbSkipObject(rdbtype);
+            return null;
+        }
+        KeyValuePair<?> kv = rdbLoadValue(rdbtype, header);
+        if (kv == null) return null;
+        kv.setDb(header.getDb());
+        kv.setKey(header.getKey());
+        kv.setExpiredType(header.getExpiredType());
+        kv.setExpiredValue(header.getExpiredValue());
+        return kv;
+    }
+
+    private boolean chunked(int len) {
+        int chunkSize = replicator.getConfiguration().getRdbChunkSize();
+        return chunkSize > 0 && len > chunkSize;
+    }
+
+    /**
+     * |clen|len|lzf compressed bytes| after the lzf flag
+     */
+    private DeferredLzf rdbLoadDeferredLzf() throws IOException {
+        int clen = rdbLoadLen().len;
+        int len = rdbLoadLen().len;
+        DeferredLzf lzf = new DeferredLzf(in.readBytes(clen), len);
+        Executor executor = replicator.getConfiguration().getLzfExecutor();
+        if (executor != null) lzf.prefetch(executor);
+        return lzf;
+    }
+
+    private boolean lazyEncodedValue() {
+        return replicator.getConfiguration().isLazyEncodedValue();
+    }
+
+    /**
+     * @return kv holding a read only view of its compact encoding
+     */
+    private <T> KeyValuePair<T> encoded(KeyValuePair<T> kv, int rdbtype, byte[] aux, T view) {
+        kv.setValueRdbType(rdbtype);
+        kv.setRawBytes(aux);
+        kv.setValue(view);
+        return kv;
+    }
+
+    private boolean chunkFull(Collection<?> collection) {
+        return collection.size() >= replicator.getConfiguration().getRdbChunkSize();
+    }
+
+    private <T> void submitChunk(KeyValuePair<T> kv, int rdbtype, KeyValuePair<?> header, ChunkStage stage, T value) throws InterruptedException {
+        kv.setValueRdbType(rdbtype);
+        kv.setValue(value);
+        kv.setChunkStage(stage);
+        kv.setDb(header.getDb());
+        kv.setKey(header.getKey());
+        kv.setExpiredType(header.getExpiredType());
+        kv.setExpiredValue(header.getExpiredValue());
+        if (replicator.verbose() && logger.isDebugEnabled()) logger.debug(kv);
+        submitEvent(kv);
+    }
+
+    private KeyValuePair<?> rdbLoadValue(int rdbtype, KeyValuePair<?> header) throws IOException, InterruptedException {
+        switch (rdbtype) {
+            /*
+             * |       <content>       |
+             * |    string contents    |
+             */
+            case REDIS_RDB_TYPE_STRING:
+                KeyStringValueString o0 = new KeyStringValueString();
+                o0.setValueRdbType(rdbtype);
+                Len lenObj = rdbLoadLen();
+                if (lenObj.isencoded && lenObj.len == REDIS_RDB_ENC_LZF && replicator.getConfiguration().isLazyLzfValue()) {
+                    o0.setCompressed(rdbLoadDeferredLzf());
+                    return o0;
+                }
+                EncodedString val = (EncodedString) rdbGenericLoadStringObject(lenObj, true);
+                //null for an integer, formatted on first getValue
+                o0.setValue(val.string);
+                o0.setRawBytes(val.rawBytes);
+                o0.setIntegerEncoded(val.integer);
+                o0.setLongValue(val.longValue);
+                return o0;
+            /*
+             * |    <len>     |       <content>       |
+             * | 1 or 5 bytes |    string contents    |
+             */
+            case REDIS_RDB_TYPE_LIST:
+                int len = rdbLoadLen().len;
+                boolean chunked = chunked(len);
+                if (chunked) submitChunk(new KeyStringValueList<String>(), rdbtype, header, ChunkStage.BEGIN, null);
+                KeyStringValueList<String> o1 = new KeyStringValueList<>();
+                List<String> list = new ArrayList<>();
+                for (int i = 0; i < len; i++) {
+                    String element = rdbLoadEncodedStringObject().string();
+                    list.add(element);
+                    if (chunked && chunkFull(list)) {
+                        submitChunk(new KeyStringValueList<String>(), rdbtype, header, ChunkStage.CHUNK, list);
+                        list = new ArrayList<>();
+                    }
+                }
+                if (chunked) {
+                    if (!list.isEmpty()) submitChunk(o1, rdbtype, header, ChunkStage.CHUNK, list);
+                    submitChunk(new KeyStringValueList<String>(), rdbtype, header, ChunkStage.END, null);
+                    return null;
+                }
+                o1.setValueRdbType(rdbtype);
+                o1.setValue(list);
+                return o1;
+            /*
+             * |    <len>     |       <content>       |
+             * | 1 or 5 bytes |    string contents    |
+             */
+            case REDIS_RDB_TYPE_SET:
+                len = rdbLoadLen().len;
+                chunked = chunked(len);
+                if (chunked) submitChunk(new KeyStringValueSet(), rdbtype, header, ChunkStage.BEGIN, null);
+                KeyStringValueSet o2 = new KeyStringValueSet();
+                Set<String> set = new LinkedHashSet<>();
+                for (int i = 0; i < len; i++) {
+                    String element = rdbLoadEncodedStringObject().string();
+                    set.add(element);
+                    if (chunked && chunkFull(set)) {
+                        submitChunk(new KeyStringValueSet(), rdbtype, header, ChunkStage.CHUNK, set);
+                        set = new LinkedHashSet<>();
+                    }
+                }
+                if (chunked) {
+                    if (!set.isEmpty()) submitChunk(o2, rdbtype, header, ChunkStage.CHUNK, set);
+                    submitChunk(new KeyStringValueSet(), rdbtype, header, ChunkStage.END, null);
+                    return null;
+                }
+                o2.setValueRdbType(rdbtype);
+                o2.setValue(set);
+                return o2;
+            /*
+             * |    <len>     |       <content>       |        <score>       |
+             * | 1 or 5 bytes |    string contents    |    double content    |
+             */
+            case REDIS_RDB_TYPE_ZSET:
+                len = rdbLoadLen().len;
+                chunked = chunked(len);
+                if (chunked) submitChunk(new KeyStringValueZSet(), rdbtype, header, ChunkStage.BEGIN, null);
+                KeyStringValueZSet o3 = new KeyStringValueZSet();
+                Set<ZSetEntry> zset = new LinkedHashSet<>();
+                while (len > 0) {
+                    String element = rdbLoadEncodedStringObject().string();
+                    double score = rdbLoadDoubleValue();
+                    zset.add(new ZSetEntry(element, score));
+                    len--;
+                    if (chunked && chunkFull(zset)) {
+                        submitChunk(new KeyStringValueZSet(), rdbtype, header, ChunkStage.CHUNK, zset);
+                        zset = new LinkedHashSet<>();
+                    }
+                }
+                if (chunked) {
+                    if (!zset.isEmpty()) submitChunk(o3, rdbtype, header, ChunkStage.CHUNK, zset);
+                    submitChunk(new KeyStringValueZSet(), rdbtype, header, ChunkStage.END, null);
+                    return null;
+                }
+                o3.setValueRdbType(rdbtype);
+                o3.setValue(zset);
+                return o3;
+            /*
+             * |    <len>     |       <content>       |
+             * | 1 or 5 bytes |    string contents    |
+             */
+            case REDIS_RDB_TYPE_HASH:
+                len = rdbLoadLen().len;
+                chunked = chunked(len);
+                if (chunked) submitChunk(new KeyStringValueHash(), rdbtype, header, ChunkStage.BEGIN, null);
+                KeyStringValueHash o4 = new KeyStringValueHash();
+                Map<String, String> map = new LinkedHashMap<>();
+                while (len > 0) {
+                    String field = rdbLoadEncodedStringObject().string();
+                    String value = rdbLoadEncodedStringObject().string();
+                    map.put(field, value);
+                    len--;
+                    if (chunked && chunkFull(map.keySet())) {
+                        submitChunk(new KeyStringValueHash(), rdbtype, header, ChunkStage.CHUNK, map);
+                        map = new LinkedHashMap<>();
+                    }
+                }
+                if (chunked) {
+                    if (!map.isEmpty()) submitChunk(o4, rdbtype, header, ChunkStage.CHUNK, map);
+                    submitChunk(new KeyStringValueHash(), rdbtype, header, ChunkStage.END, null);
+                    return null;
+                }
+                o4.setValueRdbType(rdbtype);
+                o4.setValue(map);
+                return o4;
+            /*
+             * |<zmlen> |   <len>     |"foo"    |    <len>   | <free> |   "bar" |<zmend> |
+             * | 1 byte | 1 or 5 byte | content |1 or 5 byte | 1 byte | content | 1 byte |
+             */
+            case REDIS_RDB_TYPE_HASH_ZIPMAP:
+                byte[] aux = rdbLoadRawStringObject();
+                KeyStringValueHash o9 = new KeyStringValueHash();
+                if (lazyEncodedValue()) return encoded(o9, rdbtype, aux, new EncodedHash(aux, rdbtype));
+                CompactCursor cursor = new CompactCursor(aux);
+                map = new LinkedHashMap<>();
+                int zmlen = cursor.zmlen();
+                while (true) {
+                    int zmEleLen = cursor.zmElementLen();
+                    if (zmEleLen == 255) {
+                        o9.setValueRdbType(rdbtype);
+                        o9.setValue(map);
+                        return o9;
+                    }
+                    String field = cursor.readString(zmEleLen);
+                    zmEleLen = cursor.zmElementLen();
+                    if (zmEleLen == 255) {
+                        o9.setValueRdbType(rdbtype);
+                        o9.setValue(map);
+                        return o9;
+                    }
+                    int free = cursor.read();
+                    String value = cursor.readString(zmEleLen);
+                    cursor.skip(free);
+                    map.put(field, value);
+                }
+            /*
+             * |<encoding>| <length-of-contents>|              <contents>                           |
+             * | 4 bytes  |            4 bytes  | 2 bytes lement| 4 bytes element | 8 bytes element |
+             */
+            case REDIS_RDB_TYPE_SET_INTSET:
+                aux = rdbLoadRawStringObject();
+                KeyStringValueSet o11 = new KeyStringValueSet();
+                if (lazyEncodedValue()) return encoded(o11, rdbtype, aux, new EncodedSet(aux));
+                cursor = new CompactCursor(aux);
+                set = new LinkedHashSet<>();
+                int encoding = cursor.intSetEncoding();
+                int lenOfContent = cursor.readInt(4);
+                for (int i = 0; i < lenOfContent; i++) {
+                    set.add(String.valueOf(cursor.intSetEntry(encoding)));
+                }
+                o11.setValueRdbType(rdbtype);
+                o11.setValue(set);
+                return o11;
+            /*
+             * |<zlbytes>| <zltail>| <zllen>| <entry> ...<entry> | <zlend>|
+             * | 4 bytes | 4 bytes | 2bytes | zipListEntry ...   | 1byte  |
+             */
+            case REDIS_RDB_TYPE_LIST_ZIPLIST:
+                aux = rdbLoadRawStringObject();
+                KeyStringValueList<String> o10 = new KeyStringValueList<>();
+                if (lazyEncodedValue()) return encoded(o10, rdbtype, aux, new EncodedList(aux));
+                cursor = new CompactCursor(aux);
+                list = new ArrayList<>();
+                int zllen = cursor.zipListHeader();
+                for (int i = 0; i < zllen; i++) {
+                    list.add(cursor.zipListEntry());
+                }
+                cursor.zipListEnd();
+                o10.setValueRdbType(rdbtype);
+                o10.setValue(list);
+                return o10;
+            /*
+             * |<zlbytes>| <zltail>| <zllen>| <entry> ...<entry> | <zlend>|
+             * | 4 bytes | 4 bytes | 2bytes | zipListEntry ...   | 1byte  |
+             */
+            case REDIS_RDB_TYPE_ZSET_ZIPLIST:
+                aux = rdbLoadRawStringObject();
+                KeyStringValueZSet o12 = new KeyStringValueZSet();
+                if (lazyEncodedValue()) return encoded(o12, rdbtype, aux, new EncodedZSet(aux));
+                cursor = new CompactCursor(aux);
+                zset = new LinkedHashSet<>();
+                zllen = cursor.zipListHeader();
+                while (zllen > 0) {
+                    String element = cursor.zipListEntry();
+                    zllen--;
+                    double score = cursor.zipListDouble();
+                    zllen--;
+                    zset.add(new ZSetEntry(element, score));
+                }
+                cursor.zipListEnd();
+                o12.setValueRdbType(rdbtype);
+                o12.setValue(zset);
+                return o12;
+            /*
+             * |<zlbytes>| <zltail>| <zllen>| <entry> ...<entry> | <zlend>|
+             * | 4 bytes | 4 bytes | 2bytes | zipListEntry ...   | 1byte  |
+             */
+            case REDIS_RDB_TYPE_HASH_ZIPLIST:
+                aux = rdbLoadRawStringObject();
+                KeyStringValueHash o13 = new KeyStringValueHash();
+                if (lazyEncodedValue()) return encoded(o13, rdbtype, aux, new EncodedHash(aux, rdbtype));
+                cursor = new CompactCursor(aux);
+                map = new LinkedHashMap<>();
+                zllen = cursor.zipListHeader();
+                while (zllen > 0) {
+                    String field = cursor.zipListEntry();
+                    zllen--;
+                    String value = cursor.zipListEntry();
+                    zllen--;
+                    map.put(field, value);
+                }
+                cursor.zipListEnd();
+                o13.setValueRdbType(rdbtype);
+                o13.setValue(map);
+                return o13;
+            /* rdb version 7*/
+            case REDIS_RDB_TYPE_LIST_QUICKLIST:
+                len = rdbLoadLen().len;
+                chunked = chunked(len);
+                if (chunked) submitChunk(new KeyStringValueList<byte[]>(), rdbtype, header, ChunkStage.BEGIN, null);
+                KeyStringValueList<byte[]> o14 = new KeyStringValueList<>();
+                QuickList byteList = new QuickList();
+                boolean lazy = lazyEncodedValue();
+                for (int i = 0; i < len; i++) {
+                    Len node = rdbLoadLen();
+                    if (lazy && node.isencoded && node.len == REDIS_RDB_ENC_LZF) {
+                        //decompressed when the node is reached
+                        int clen = rdbLoadLen().len;
+                        int ulen = rdbLoadLen().len;
+                        byteList.addCompressed(in.readBytes(clen), ulen);
+                    } else {
+                        byteList.add((byte[]) rdbGenericLoadStringObject(node, false));
+                    }
+                    if (chunked && chunkFull(byteList)) {
+                        submitChunk(new KeyStringValueList<byte[]>(), rdbtype, header, ChunkStage.CHUNK, byteList);
+                        byteList = new QuickList();
+                    }
+                }
+                if (chunked) {
+                    if (!byteList.isEmpty()) submitChunk(o14, rdbtype, header, ChunkStage.CHUNK, byteList);
+                    submitChunk(new KeyStringValueList<byte[]>(), rdbtype, header, ChunkStage.END, null);
+                    return null;
+                }
+                o14.setValueRdbType(rdbtype);
+                o14.setValue(byteList);
+                return o14;
+            default:
+                throw new AssertionError("Un-except value-type:" + rdbtype);
+
+        }
+    }
+}
+
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.AbstractReplicator;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.datatype.DB;
+
+import java.io.IOException;
+
+import static com.moilioncircle.redis.replicator.Constants.*;
+
+/**
+ * Walks the top-level records of a rdb stream without decoding values.
+ * Values are skipped by their length prefixes, keys are decoded only when asked for.
+ *
+ * @since 2.0.0
+ */
+public class RdbScanner extends AbstractRdbParser {
+
+    private final boolean keys;
+
+    /**
+     * @param in         rdb stream
+     * @param replicator may be null
+     * @param keys       true to decode keys, otherwise handlers receive null keys
+     */
+    public RdbScanner(RedisInputStream in, AbstractReplicator replicator, boolean keys) {
+        super(in, replicator);
+        this.keys = keys;
+    }
+
+    /**
+     * reads the magic string and the version
+     *
+     * @return rdb version, or -1 if the stream is not a supported rdb
+     * @throws IOException when read timeout
+     */
+    public int version() throws IOException {
+        String magicString = StringHelper.str(in, 5);//REDIS
+        if (!magicString.equals("REDIS")) {
+            logger.error("Can't read MAGIC STRING [REDIS] ,value:" + magicString);
+            return -1;
+        }
+        int version = Integer.parseInt(StringHelper.str(in, 4));//0006 or 0007
+        if (version < 1 || version > 7) {
+            logger.error("Can't handle RDB format version " + version);
+            return -1;
+        }
+        return version;
+    }
+
+    /**
+     * @param version rdb version
+     * @param handler called for every record before the EOF opcode
+     * @return checksum
+     * @throws IOException when read timeout
+     */
+    public long scan(int version, RecordHandler handler) throws IOException {
+        DB db = null;
+        while (true) {
+            long offset = in.position();
+            int type = in.read();
+            int valueType = -1;
+            String key = null;
+            switch (type) {
+                case REDIS_RDB_OPCODE_EXPIRETIME:
+                    rdbLoadTime();
+                    valueType = in.read();
+                    key = rdbScanKey();
+                    rdbSkipObject(valueType);
+                    break;
+                case REDIS_RDB_OPCODE_EXPIRETIME_MS:
+                    rdbLoadMillisecondTime();
+                    valueType = in.read();
+                    key = rdbScanKey();
+                    rdbSkipObject(valueType);
+                    break;
+                case REDIS_RDB_OPCODE_AUX:
+                    rdbSkipStringObject();
+                    rdbSkipStringObject();
+                    break;
+                case REDIS_RDB_OPCODE_RESIZEDB:
+                    int dbsize = rdbLoadLen().len;
+                    int expiresSize = rdbLoadLen().len;
+                    if (db != null) db.setDbsize(dbsize);
+                    if (db != null) db.setExpires(expiresSize);
+                    break;
+                case REDIS_RDB_OPCODE_SELECTDB:
+                    int dbnum = rdbLoadLen().len;
+                    handler.handle(offset, in.position(), type, -1, db, null);
+                    db = new DB(dbnum);
+                    continue;
+                case REDIS_RDB_TYPE_STRING:
+                case REDIS_RDB_TYPE_LIST:
+                case REDIS_RDB_TYPE_SET:
+                case REDIS_RDB_TYPE_ZSET:
+                case REDIS_RDB_TYPE_HASH:
+                case REDIS_RDB_TYPE_HASH_ZIPMAP:
+                case REDIS_RDB_TYPE_LIST_ZIPLIST:
+                case REDIS_RDB_TYPE_SET_INTSET:
+                case REDIS_RDB_TYPE_ZSET_ZIPLIST:
+                case REDIS_RDB_TYPE_HASH_ZIPLIST:
+                case REDIS_RDB_TYPE_LIST_QUICKLIST:
+                    valueType = type;
+                    key = rdbScanKey();
+                    rdbSkipObject(valueType);
+                    break;
+                case REDIS_RDB_OPCODE_EOF:
+                    return version >= 5 ? in.readLong(8) : 0L;
+                default:
+                    throw new AssertionError("Un-except value-type:" + type);
+            }
+            handler.handle(offset, in.position(), type, valueType, db, key);
+        }
+    }
+
+    /**
+     * skips one top-level record, including the checksum after the EOF opcode
+     *
+     * @param version rdb version
+     * @return first byte of the record
+     * @throws IOException when read timeout, EOFException when the record is incomplete
+     */
+    public int skipRecord(int version) throws IOException {
+        int type = in.read();
+        switch (type) {
+            case REDIS_RDB_OPCODE_EXPIRETIME:
+                rdbLoadTime();
+                int valueType = in.read();
+                rdbSkipStringObject();
+                rdbSkipObject(valueType);
+                break;
+            case REDIS_RDB_OPCODE_EXPIRETIME_MS:
+                rdbLoadMillisecondTime();
+                valueType = in.read();
+                rdbSkipStringObject();
+                rdbSkipObject(valueType);
+                break;
+            case REDIS_RDB_OPCODE_AUX:
+                rdbSkipStringObject();
+                rdbSkipStringObject();
+                break;
+            case REDIS_RDB_OPCODE_RESIZEDB:
+                rdbLoadLen();
+                rdbLoadLen();
+                break;
+            case REDIS_RDB_OPCODE_SELECTDB:
+                rdbLoadLen();
+                break;
+            case REDIS_RDB_OPCODE_EOF:
+                if (version >= 5) in.skip(8);
+                break;
+            case REDIS_RDB_TYPE_STRING:
+            case REDIS_RDB_TYPE_LIST:
+            case REDIS_RDB_TYPE_SET:
+            case REDIS_RDB_TYPE_ZSET:
+            case REDIS_RDB_TYPE_HASH:
+            case REDIS_RDB_TYPE_HASH_ZIPMAP:
+            case REDIS_RDB_TYPE_LIST_ZIPLIST:
+            case REDIS_RDB_TYPE_SET_INTSET:
+            case REDIS_RDB_TYPE_ZSET_ZIPLIST:
+            case REDIS_RDB_TYPE_HASH_ZIPLIST:
+            case REDIS_RDB_TYPE_LIST_QUICKLIST:
+                rdbSkipStringObject();
+                rdbSkipObject(type);
+                break;
+            default:
+                throw new AssertionError("Un-except value-type:" + type);
+        }
+        return type;
+    }
+
+    private String rdbScanKey() throws IOException {
+        if (keys) return rdbLoadEncodedStringObject().string();
+        rdbSkipStringObject();
+        return null;
+    }
+
+    public interface RecordHandler {
+        /**
+         * @param offset    offset of the record, including its expiry opcode if any
+         * @param end       offset right after the record
+         * @param opcode    first byte of the record
+         * @param valueType value type of a key value pair, -1 for other opcodes
+         * @param db        db selected before this record
+         * @param key       the key, null for other opcodes or when keys are not decoded
+         * @throws IOException when the handler fails
+         */
+        void handle(long offset, long end, int opcode, int valueType, DB db, String key) throws IOException;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.moilioncircle.redis.replicator.rdb.datatype;
+
+import java.io.Serializable;
+
+/**
+ * Position of a KeyValuePair in a chunked value.
+ *
+ * @see com.moilioncircle.redis.replicator.Configuration#setRdbChunkSize(int)
+ * @since 2.0.0
+ */
+public enum ChunkStage implements Serializable {
+    /**
+     * the whole value in one KeyValuePair
+     */
+    NONE,
+    /**
+     * first event of a chunked key, value is null
+     */
+    BEGIN,
+    /**
+     * at most rdbChunkSize elements of the value
+     */
+    CHUNK,
+    /**
+     * last event of a chunked key, value is null
+     */
+    END
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb.datatype;
+
+import java.io.EOFException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static com.moilioncircle.redis.replicator.Constants.REDIS_RDB_TYPE_HASH_ZIPMAP;
+
+/**
+ * Read only map view of a ziplist of field, value pairs or of a zipmap. Entries are decoded by every iteration,
+ * {@link #get(Object)} is a scan.
+ *
+ * @since 2.0.0
+ */
+public class EncodedHash extends AbstractMap<String, String> implements Serializable {
+
+    private final byte[] encoded;
+    private final boolean zipmap;
+    private int size = -1;
+
+    /**
+     * @param encoded blob of the value
+     * @param rdbtype REDIS_RDB_TYPE_HASH_ZIPLIST or REDIS_RDB_TYPE_HASH_ZIPMAP
+     */
+    public EncodedHash(byte[] encoded, int rdbtype) {
+        this.encoded = encoded;
+        this.zipmap = rdbtype == REDIS_RDB_TYPE_HASH_ZIPMAP;
+    }
+
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    @Override
+    public int size() {
+        if (size >= 0) return size;
+        if (!zipmap) return size = EncodedIterator.zipListSize(encoded) >> 1;
+        //zmlen is exact below 254
+        int zmlen = EncodedIterator.header(encoded, 0, 1) & 0xff;
+        if (zmlen < 254) return size = zmlen;
+        Iterator<Entry<String, String>> it = iterator(Integer.MAX_VALUE);
+        int n = 0;
+        while (it.hasNext()) {
+            it.next();
+            n++;
+        }
+        return size = n;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return EncodedHash.this.iterator(size());
+            }
+
+            @Override
+            public int size() {
+                return EncodedHash.this.size();
+            }
+        };
+    }
+
+    private Iterator<Entry<String, String>> iterator(int entries) {
+        if (!zipmap) {
+            return new EncodedIterator<Entry<String, String>>(EncodedIterator.cursor(encoded, EncodedIterator.ZIPLIST_HEADER), entries) {
+                @Override
+                protected Entry<String, String> decode() throws EOFException {
+                    String field = cursor.zipListEntry();
+                    return new SimpleImmutableEntry<>(field, cursor.zipListEntry());
+                }
+            };
+        }
+        return new EncodedIterator<Entry<String, String>>(EncodedIterator.cursor(encoded, EncodedIterator.ZIPMAP_HEADER), entries) {
+            private Entry<String, String> next;
+            private boolean end;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) return true;
+                if (end || !super.hasNext()) return false;
+                //the zipmap ends with 255
+                next = super.next();
+                end = next == null;
+                return !end;
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Entry<String, String> entry = next;
+                next = null;
+                return entry;
+            }
+
+            @Override
+            protected Entry<String, String> decode() throws EOFException {
+                int len = cursor.zmElementLen();
+                if (len == 255) return null;
+                String field = cursor.readString(len);
+                len = cursor.zmElementLen();
+                if (len == 255) return null;
+                int free = cursor.read();
+                String value = cursor.readString(len);
+                cursor.skip(free);
+                return new SimpleImmutableEntry<>(field, value);
+            }
+        };
+    }
+}
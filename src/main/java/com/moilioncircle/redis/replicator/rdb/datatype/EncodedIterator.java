@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb.datatype;
+
+import com.moilioncircle.redis.replicator.rdb.CompactCursor;
+
+import java.io.EOFException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read only iterator decoding one element of a compact encoding per {@link #next()}.
+ *
+ * @since 2.0.0
+ */
+/*package*/ abstract class EncodedIterator<E> implements Iterator<E> {
+
+    //zlbytes, zltail, zllen
+    /*package*/ static final int ZIPLIST_HEADER = 10;
+    //encoding, length
+    /*package*/ static final int INTSET_HEADER = 8;
+    //zmlen
+    /*package*/ static final int ZIPMAP_HEADER = 1;
+
+    protected final CompactCursor cursor;
+    private int remaining;
+
+    /**
+     * @param cursor   positioned at the first element
+     * @param elements number of elements to decode
+     */
+    protected EncodedIterator(CompactCursor cursor, int elements) {
+        this.cursor = cursor;
+        this.remaining = elements;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    @Override
+    public E next() {
+        if (remaining <= 0) throw new NoSuchElementException();
+        remaining--;
+        try {
+            return decode();
+        } catch (EOFException e) {
+            throw new AssertionError("corrupted compact encoding", e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("read only");
+    }
+
+    protected abstract E decode() throws EOFException;
+
+    /**
+     * @param offset offset of a fixed size header field
+     * @param len    1 to 4 bytes
+     * @return little endian header field
+     */
+    /*package*/ static int header(byte[] encoded, int offset, int len) {
+        try {
+            return new CompactCursor(encoded, offset, len).readInt(len);
+        } catch (EOFException e) {
+            throw new AssertionError("corrupted compact encoding", e);
+        }
+    }
+
+    /**
+     * @return number of entries of a ziplist, counted if zllen is 65535
+     */
+    /*package*/ static int zipListSize(byte[] encoded) {
+        int zllen = header(encoded, 8, 2) & 0xffff;
+        if (zllen < 0xffff) return zllen;
+        CompactCursor cursor = new CompactCursor(encoded, ZIPLIST_HEADER, encoded.length - ZIPLIST_HEADER);
+        try {
+            int size = 0;
+            //entries until zlend
+            while (cursor.remaining() > 1) {
+                cursor.zipListEntry();
+                size++;
+            }
+            return size;
+        } catch (EOFException e) {
+            throw new AssertionError("corrupted compact encoding", e);
+        }
+    }
+
+    /**
+     * @param header bytes before the first element
+     * @return cursor positioned at the first element
+     */
+    /*package*/ static CompactCursor cursor(byte[] encoded, int header) {
+        return new CompactCursor(encoded, header, encoded.length - header);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb.datatype;
+
+import java.io.EOFException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Iterator;
+
+/**
+ * Read only list view of a ziplist. Elements are decoded by every iteration, {@link #get(int)} walks the
+ * ziplist from its head.
+ *
+ * @since 2.0.0
+ */
+public class EncodedList extends AbstractList<String> implements Serializable {
+
+    private final byte[] encoded;
+    private int size = -1;
+
+    public EncodedList(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    @Override
+    public int size() {
+        if (size < 0) size = EncodedIterator.zipListSize(encoded);
+        return size;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("index:" + index + ", size:" + size());
+        Iterator<String> it = iterator();
+        for (int i = 0; i < index; i++) it.next();
+        return it.next();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new EncodedIterator<String>(EncodedIterator.cursor(encoded, EncodedIterator.ZIPLIST_HEADER), size()) {
+            @Override
+            protected String decode() throws EOFException {
+                return cursor.zipListEntry();
+            }
+        };
+    }
+}
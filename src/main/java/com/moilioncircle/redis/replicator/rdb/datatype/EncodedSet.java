@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb.datatype;
+
+import com.moilioncircle.redis.replicator.rdb.CompactCursor;
+
+import java.io.EOFException;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * Read only set view of an intset. Elements are decoded to decimal strings by every iteration,
+ * {@link #contains(Object)} is a binary search of the sorted integers. {@link #toLongArray()} and
+ * {@link #contains(long)} skip the strings.
+ *
+ * @since 2.0.0
+ */
+public class EncodedSet extends AbstractSet<String> implements Serializable {
+
+    private final byte[] encoded;
+
+    public EncodedSet(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    @Override
+    public int size() {
+        return EncodedIterator.header(encoded, 4, 4);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) return false;
+        long value;
+        try {
+            value = Long.parseLong((String) o);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        //"01" or "+1" is not a member of an intset
+        return String.valueOf(value).equals(o) && contains(value);
+    }
+
+    /**
+     * @param value integer
+     * @return true if the intset contains value, a binary search without decoding to strings
+     */
+    public boolean contains(long value) {
+        int encoding = encoding();
+        int low = 0;
+        int high = size() - 1;
+        try {
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long v = new CompactCursor(encoded, EncodedIterator.INTSET_HEADER + mid * encoding, encoding).intSetEntry(encoding);
+                if (v < value) {
+                    low = mid + 1;
+                } else if (v > value) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        } catch (EOFException e) {
+            throw new AssertionError("corrupted compact encoding", e);
+        }
+    }
+
+    /**
+     * @return members in ascending order
+     */
+    public long[] toLongArray() {
+        int encoding = encoding();
+        long[] values = new long[size()];
+        CompactCursor cursor = EncodedIterator.cursor(encoded, EncodedIterator.INTSET_HEADER);
+        try {
+            for (int i = 0; i < values.length; i++) values[i] = cursor.intSetEntry(encoding);
+        } catch (EOFException e) {
+            throw new AssertionError("corrupted compact encoding", e);
+        }
+        return values;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        final int encoding = encoding();
+        return new EncodedIterator<String>(EncodedIterator.cursor(encoded, EncodedIterator.INTSET_HEADER), size()) {
+            @Override
+            protected String decode() throws EOFException {
+                return String.valueOf(cursor.intSetEntry(encoding));
+            }
+        };
+    }
+
+    private int encoding() {
+        try {
+            return new CompactCursor(encoded).intSetEncoding();
+        } catch (EOFException e) {
+            throw new AssertionError("corrupted compact encoding", e);
+        }
+    }
+}
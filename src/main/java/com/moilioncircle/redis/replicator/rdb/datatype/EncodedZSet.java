@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb.datatype;
+
+import java.io.EOFException;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * Read only sorted set view of a ziplist of element, score pairs. Entries are decoded by every iteration.
+ *
+ * @since 2.0.0
+ */
+public class EncodedZSet extends AbstractSet<ZSetEntry> implements Serializable {
+
+    private final byte[] encoded;
+    private int size = -1;
+
+    public EncodedZSet(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    @Override
+    public int size() {
+        if (size < 0) size = EncodedIterator.zipListSize(encoded) >> 1;
+        return size;
+    }
+
+    @Override
+    public Iterator<ZSetEntry> iterator() {
+        return new EncodedIterator<ZSetEntry>(EncodedIterator.cursor(encoded, EncodedIterator.ZIPLIST_HEADER), size()) {
+            @Override
+            protected ZSetEntry decode() throws EOFException {
+                String element = cursor.zipListEntry();
+                return new ZSetEntry(element, cursor.zipListDouble());
+            }
+        };
+    }
+}
@@ -16,17 +16,84 @@
 
 package com.moilioncircle.redis.replicator.rdb.datatype;
 
+import com.moilioncircle.redis.replicator.Constants;
+import com.moilioncircle.redis.replicator.util.DeferredLzf;
+
 /**
  * Created by leon on 8/13/16.
  */
 public class KeyStringValueString extends KeyValuePair<String> {
-    protected byte[] rawBytes;
+    protected boolean integerEncoded;
+    protected long longValue;
+    //LZF compressed value, decompressed on first access. set to null after value and rawBytes are published
+    protected volatile DeferredLzf compressed;
+
+    @Override
+    public String getValue() {
+        if (compressed != null) decompress();
+        String value = this.value;
+        if (value == null && integerEncoded) this.value = value = String.valueOf(longValue);
+        return value;
+    }
+
+    @Override
+    public String getValueAsString() {
+        return getValue();
+    }
 
+    @Override
     public byte[] getRawBytes() {
+        if (compressed != null) decompress();
         return rawBytes;
     }
 
-    public void setRawBytes(byte[] rawBytes) {
-        this.rawBytes = rawBytes;
+    /**
+     * @return LZF compressed value as read from the rdb, null if the value is not compressed or not deferred
+     */
+    public DeferredLzf getCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(DeferredLzf compressed) {
+        this.compressed = compressed;
+    }
+
+    private synchronized void decompress() {
+        DeferredLzf compressed = this.compressed;
+        if (compressed == null) return;
+        rawBytes = compressed.get();
+        value = new String(rawBytes, Constants.CHARSET);
+        //volatile write last, a reader seeing null sees value and rawBytes
+        this.compressed = null;
+    }
+
+    @Override
+    protected Object toStringValue() {
+        DeferredLzf compressed = this.compressed;
+        if (compressed != null) return "<LZF " + compressed.getCompressed().length + " bytes>";
+        if (value == null && integerEncoded) return longValue;
+        return value;
+    }
+
+    /**
+     * @return true if the rdb stores the string as an 8, 16 or 32 bit integer
+     */
+    public boolean isIntegerEncoded() {
+        return integerEncoded;
+    }
+
+    public void setIntegerEncoded(boolean integerEncoded) {
+        this.integerEncoded = integerEncoded;
+    }
+
+    /**
+     * @return value of an integer encoded string, without parsing the string
+     */
+    public long getLongValue() {
+        return longValue;
+    }
+
+    public void setLongValue(long longValue) {
+        this.longValue = longValue;
     }
 }
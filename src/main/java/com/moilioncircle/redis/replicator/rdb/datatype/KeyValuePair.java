@@ -32,6 +32,8 @@ public class KeyValuePair<T> implements Serializable {
     protected Long expiredValue;
     protected String key;
     protected T value;
+    protected byte[] rawBytes;
+    protected ChunkStage chunkStage = ChunkStage.NONE;
 
     public int getValueRdbType() {
         return valueRdbType;
@@ -73,6 +75,33 @@ public class KeyValuePair<T> implements Serializable {
         this.value = value;
     }
 
+    /**
+     * @return bytes of a string value, or the ziplist, intset or zipmap blob of a compact encoded value
+     * when lazy encoded values are on. null otherwise
+     */
+    public byte[] getRawBytes() {
+        return rawBytes;
+    }
+
+    public void setRawBytes(byte[] rawBytes) {
+        this.rawBytes = rawBytes;
+    }
+
+    public ChunkStage getChunkStage() {
+        return chunkStage;
+    }
+
+    public void setChunkStage(ChunkStage chunkStage) {
+        this.chunkStage = chunkStage;
+    }
+
+    /**
+     * @return true if this is one of a BEGIN, CHUNK..., END sequence of the same key
+     */
+    public boolean isChunked() {
+        return chunkStage != ChunkStage.NONE;
+    }
+
     public DB getDb() {
         return db;
     }
@@ -137,6 +166,20 @@ public class KeyValuePair<T> implements Serializable {
         return (List<byte[]>) value;
     }
 
+    /**
+     * @return REDIS_RDB_TYPE_LIST_QUICKLIST, nodes and their elements
+     */
+    public QuickList getValueAsQuickList() {
+        return (QuickList) value;
+    }
+
+    /**
+     * @return value printed by toString, must not decode anything
+     */
+    protected Object toStringValue() {
+        return value;
+    }
+
     @Override
     public String toString() {
         return "KeyValuePair{" +
@@ -145,7 +188,8 @@ public class KeyValuePair<T> implements Serializable {
                 ", expiredType=" + expiredType +
                 ", expiredValue=" + expiredValue +
                 ", key='" + key + '\'' +
-                ", value=" + value +
+                ", value=" + toStringValue() +
+                ", chunkStage=" + chunkStage +
                 '}';
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.rdb.datatype;
+
+import com.moilioncircle.redis.replicator.rdb.CompactCursor;
+import com.moilioncircle.redis.replicator.util.Lzf;
+
+import java.io.EOFException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Value of a REDIS_RDB_TYPE_LIST_QUICKLIST: a list of ziplist nodes.
+ * <p>
+ * {@link #get(int)} returns the ziplist of a node, {@link #elements()} decodes the elements of the list node by
+ * node, only the node being iterated is decoded. Nodes may be kept LZF compressed as they were in the rdb,
+ * they are decompressed each time they are reached and never cached.
+ *
+ * @since 2.0.0
+ */
+public class QuickList extends AbstractList<byte[]> implements Serializable {
+
+    //byte[] ziplist or Compressed
+    private final List<Object> nodes = new ArrayList<>();
+
+    /**
+     * @param node ziplist
+     * @return true
+     */
+    @Override
+    public boolean add(byte[] node) {
+        nodes.add(node);
+        return true;
+    }
+
+    /**
+     * @param compressed LZF compressed ziplist
+     * @param len        length of the ziplist
+     */
+    public void addCompressed(byte[] compressed, int len) {
+        nodes.add(new Compressed(compressed, len));
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @param index node index
+     * @return ziplist of the node, decompressed if needed
+     */
+    @Override
+    public byte[] get(int index) {
+        Object node = nodes.get(index);
+        if (node instanceof byte[]) return (byte[]) node;
+        Compressed compressed = (Compressed) node;
+        return Lzf.decode(compressed.bytes, compressed.len);
+    }
+
+    public boolean isCompressed(int index) {
+        return nodes.get(index) instanceof Compressed;
+    }
+
+    /**
+     * @param index node index
+     * @return LZF bytes of a compressed node as they were in the rdb, null if the node is not compressed
+     */
+    public byte[] getCompressed(int index) {
+        Object node = nodes.get(index);
+        return node instanceof Compressed ? ((Compressed) node).bytes : null;
+    }
+
+    /**
+     * @return elements of all nodes in order, integers are converted to decimal strings
+     */
+    public Iterable<String> elements() {
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new ElementIterator();
+            }
+        };
+    }
+
+    private class ElementIterator implements Iterator<String> {
+        private int node = 0;
+        private CompactCursor cursor;
+
+        @Override
+        public boolean hasNext() {
+            //the last byte of a ziplist is zlend
+            while (cursor == null || cursor.remaining() <= 1) {
+                if (node >= nodes.size()) return false;
+                cursor = new CompactCursor(get(node++));
+                try {
+                    cursor.zipListHeader();
+                } catch (EOFException e) {
+                    throw new AssertionError("corrupted compact encoding", e);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            try {
+                return cursor.zipListEntry();
+            } catch (EOFException e) {
+                throw new AssertionError("corrupted compact encoding", e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("read only");
+        }
+    }
+
+    private static class Compressed implements Serializable {
+        private final byte[] bytes;
+        private final int len;
+
+        private Compressed(byte[] bytes, int len) {
+            this.bytes = bytes;
+            this.len = len;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.record;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Passes the bytes read from a socket to a {@link StreamRecorder} once a session started.
+ *
+ * @since 2.0.0
+ */
+public class RecordingInputStream extends FilterInputStream {
+    private final StreamRecorder recorder;
+    private volatile boolean recording;
+
+    public RecordingInputStream(InputStream in, StreamRecorder recorder) {
+        super(in);
+        this.recorder = recorder;
+    }
+
+    /**
+     * @param request PSYNC request
+     * @throws IOException when the recorder can not write
+     */
+    public void session(String request) throws IOException {
+        recorder.session(request);
+        recording = true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1 && recording) recorder.record(new byte[]{(byte) b}, 0, 1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        len = in.read(b, off, len);
+        if (len > 0 && recording) recorder.record(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        //skipped bytes are recorded too
+        byte[] buf = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int len = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+            if (len == -1) break;
+            skipped += len;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            recorder.flush();
+        }
+    }
+}
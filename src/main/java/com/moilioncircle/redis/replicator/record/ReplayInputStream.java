@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.record;
+
+import com.moilioncircle.redis.replicator.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
+/**
+ * Reads a recording of {@link StreamRecorder} session by session.
+ * <p>
+ * {@link #nextSession()} moves to the next session, the read methods return -1 at the end of the session.
+ * A paced replay sleeps so that the bytes of a frame are read as long after the first frame as they were
+ * recorded, otherwise bytes are read as fast as the parsers take them.
+ *
+ * @since 2.0.0
+ */
+public class ReplayInputStream extends InputStream {
+    private final File[] files;
+    private final boolean paced;
+    private int index;
+    private DataInputStream in;
+
+    //frame being read, a session frame read by data() is left to nextSession()
+    private byte type;
+    private int remaining;
+    private boolean peeked;
+
+    private long firstTimestamp = -1;
+    private long start;
+
+    public ReplayInputStream(File directory, boolean paced) throws IOException {
+        this.files = segments(directory);
+        if (files.length == 0) throw new IOException("no recording in " + directory);
+        this.paced = paced;
+    }
+
+    /*package*/ static File[] segments(File directory) {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(StreamRecorder.SUFFIX);
+            }
+        });
+        if (files == null) return new File[0];
+        Arrays.sort(files);
+        return files;
+    }
+
+    /*package*/ static int sequence(File file) {
+        String name = file.getName();
+        return Integer.parseInt(name.substring(0, name.length() - StreamRecorder.SUFFIX.length()));
+    }
+
+    /**
+     * skips what is left of the current session
+     *
+     * @return PSYNC request of the next session, null at the end of the recording
+     * @throws IOException when a segment can not be read
+     */
+    public String nextSession() throws IOException {
+        while (!peeked) {
+            if (remaining > 0) skipFully(remaining);
+            remaining = 0;
+            if (!nextFrame()) return null;
+            peeked = type == StreamRecorder.SESSION;
+        }
+        peeked = false;
+        byte[] bytes = new byte[remaining];
+        in.readFully(bytes);
+        remaining = 0;
+        return new String(bytes, Constants.CHARSET);
+    }
+
+    private boolean nextFrame() throws IOException {
+        while (true) {
+            if (in == null) {
+                if (index >= files.length) return false;
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(files[index++]), 64 * 1024));
+            }
+            int b = in.read();
+            if (b == -1) {
+                in.close();
+                in = null;
+                continue;
+            }
+            type = (byte) b;
+            long timestamp = in.readLong();
+            remaining = in.readInt();
+            if (paced) pace(timestamp);
+            return true;
+        }
+    }
+
+    private void pace(long timestamp) throws IOException {
+        if (firstTimestamp < 0) {
+            firstTimestamp = timestamp;
+            start = System.currentTimeMillis();
+            return;
+        }
+        long delay = start + (timestamp - firstTimestamp) - System.currentTimeMillis();
+        if (delay <= 0) return;
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("replay interrupted");
+        }
+    }
+
+    /**
+     * @return false at the end of the session
+     */
+    private boolean data() throws IOException {
+        while (!peeked && remaining == 0) {
+            if (!nextFrame()) return false;
+            peeked = type == StreamRecorder.SESSION;
+        }
+        return !peeked;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!data()) return -1;
+        int b = in.read();
+        if (b == -1) throw new EOFException("truncated recording");
+        remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!data()) return -1;
+        len = in.read(b, off, Math.min(len, remaining));
+        if (len == -1) throw new EOFException("truncated recording");
+        remaining -= len;
+        return len;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return remaining;
+    }
+
+    private void skipFully(int n) throws IOException {
+        while (n > 0) {
+            int len = (int) in.skip(n);
+            if (len <= 0) throw new EOFException("truncated recording");
+            n -= len;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) in.close();
+        in = null;
+        index = files.length;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.record;
+
+import com.moilioncircle.redis.replicator.Constants;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the bytes a master sends to a segmented log that {@link ReplayInputStream} replays.
+ * <p>
+ * A segment file is a sequence of frames: type (1 byte), timestamp in milliseconds (8 bytes),
+ * payload length (4 bytes) and payload. A {@link #SESSION} frame starts a connection, its payload is the
+ * PSYNC request with the run id and offset the master replies to. {@link #DATA} frames follow with the
+ * bytes as they were read from the socket. Segments are named by sequence, 00000000.rec, 00000001.rec...
+ *
+ * @since 2.0.0
+ */
+public class StreamRecorder implements Closeable {
+    public static final byte SESSION = 'S';
+    public static final byte DATA = 'D';
+    public static final String SUFFIX = ".rec";
+    /*package*/ static final int HEADER = 13;
+
+    private final File directory;
+    private final long segmentSize;
+    private int sequence;
+    private long written;
+    private DataOutputStream out;
+
+    public StreamRecorder(File directory, long segmentSize) throws IOException {
+        if (segmentSize <= 0) throw new IllegalArgumentException("segmentSize:" + segmentSize);
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("can't create " + directory);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        //append to an existing recording in new segments
+        File[] files = ReplayInputStream.segments(directory);
+        this.sequence = files.length == 0 ? 0 : ReplayInputStream.sequence(files[files.length - 1]) + 1;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * starts a session, the bytes recorded after it are the reply to the request
+     *
+     * @param request PSYNC request
+     * @throws IOException when the segment can not be written
+     */
+    public synchronized void session(String request) throws IOException {
+        byte[] bytes = request.getBytes(Constants.CHARSET);
+        frame(SESSION, bytes, 0, bytes.length);
+        out.flush();
+    }
+
+    public synchronized void record(byte[] b, int off, int len) throws IOException {
+        if (len <= 0) return;
+        frame(DATA, b, off, len);
+    }
+
+    private void frame(byte type, byte[] b, int off, int len) throws IOException {
+        if (out == null || written >= segmentSize) {
+            if (out != null) out.close();
+            File file = new File(directory, String.format("%08d", sequence++) + SUFFIX);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+            written = 0;
+        }
+        out.writeByte(type);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(len);
+        out.write(b, off, len);
+        written += HEADER + len;
+    }
+
+    public synchronized void flush() throws IOException {
+        if (out != null) out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out == null) return;
+        out.close();
+        out = null;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamRecorder{" +
+                "directory=" + directory +
+                ", segmentSize=" + segmentSize +
+                '}';
+    }
+}
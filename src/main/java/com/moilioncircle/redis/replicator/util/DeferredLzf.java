@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.util;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * LZF compressed bytes decompressed on first access, or ahead of it by an executor.
+ * <p>
+ * {@link #get()} runs the decompression itself if the executor did not start it yet, otherwise it waits for it.
+ *
+ * @since 2.0.0
+ */
+public class DeferredLzf implements Serializable {
+
+    private final byte[] compressed;
+    private final int len;
+    private volatile byte[] bytes;
+    private transient FutureTask<byte[]> task;
+
+    /**
+     * @param compressed LZF compressed bytes
+     * @param len        length of the decompressed bytes
+     */
+    public DeferredLzf(byte[] compressed, int len) {
+        this.compressed = compressed;
+        this.len = len;
+    }
+
+    /**
+     * starts the decompression on executor. a rejected decompression is done on first access.
+     *
+     * @param executor executor
+     */
+    public void prefetch(Executor executor) {
+        FutureTask<byte[]> task = new FutureTask<>(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return Lzf.decode(compressed, len);
+            }
+        });
+        this.task = task;
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            //RejectedExecutionException
+        }
+    }
+
+    public byte[] getCompressed() {
+        return compressed;
+    }
+
+    public int length() {
+        return len;
+    }
+
+    public boolean isDecompressed() {
+        return bytes != null;
+    }
+
+    /**
+     * @return decompressed bytes
+     */
+    public byte[] get() {
+        byte[] bytes = this.bytes;
+        if (bytes != null) return bytes;
+        FutureTask<byte[]> task = this.task;
+        if (task == null) return this.bytes = Lzf.decode(compressed, len);
+        //no op if the executor started it
+        task.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return this.bytes = task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new AssertionError("corrupted LZF string", e.getCause());
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
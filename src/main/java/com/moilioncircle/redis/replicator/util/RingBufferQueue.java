@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.util;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single-producer single-consumer ring buffer.
+ * <p>
+ * No lock is taken on put/take. The producer only writes {@code tail}, the consumer only writes {@code head}.
+ * When the buffer is empty (consumer) or full (producer) the thread waits according to {@link WaitStrategy}.
+ * <p>
+ * Exactly one thread may call put/offer and exactly one thread may call take/poll/drainTo.
+ *
+ * @since 2.0.0
+ */
+public class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    public enum WaitStrategy {
+        /**
+         * spin on the cpu. lowest latency, burns a core while idle
+         */
+        BUSY_SPIN,
+        /**
+         * Thread.yield() while idle
+         */
+        YIELD,
+        /**
+         * park the waiting thread, the other side unparks it
+         */
+        BLOCKING
+    }
+
+    private final int mask;
+    private final Object[] buffer;
+    private final WaitStrategy strategy;
+
+    private final AtomicLong head = new AtomicLong(0);
+    private final AtomicLong tail = new AtomicLong(0);
+
+    private volatile Thread waitingConsumer;
+    private volatile Thread waitingProducer;
+
+    public RingBufferQueue(int capacity, WaitStrategy strategy) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity:" + capacity);
+        int size = 1;
+        while (size < capacity) size <<= 1;
+        this.mask = size - 1;
+        this.buffer = new Object[size];
+        this.strategy = strategy;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        long t = tail.get();
+        if (t - head.get() >= buffer.length) return false;
+        buffer[(int) (t & mask)] = e;
+        publish(tail, t + 1);
+        if (strategy == WaitStrategy.BLOCKING) wakeup(waitingConsumer);
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            waitNotFull(0L);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e)) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            waitNotFull(remaining);
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head.get();
+        if (h >= tail.get()) return null;
+        int idx = (int) (h & mask);
+        E e = (E) buffer[idx];
+        buffer[idx] = null;
+        publish(head, h + 1);
+        if (strategy == WaitStrategy.BLOCKING) wakeup(waitingProducer);
+        return e;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        while ((e = poll()) == null) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            waitNotEmpty(0L);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        while ((e = poll()) == null) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return null;
+            waitNotEmpty(remaining);
+        }
+        return e;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * moves all available elements (at most maxElements) and releases the slots with a single head update.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) throw new NullPointerException();
+        if (c == this) throw new IllegalArgumentException();
+        long h = head.get();
+        int n = (int) Math.min(tail.get() - h, (long) maxElements);
+        if (n <= 0) return 0;
+        for (int i = 0; i < n; i++) {
+            int idx = (int) ((h + i) & mask);
+            c.add((E) buffer[idx]);
+            buffer[idx] = null;
+        }
+        publish(head, h + n);
+        if (strategy == WaitStrategy.BLOCKING) wakeup(waitingProducer);
+        return n;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long h = head.get();
+        if (h >= tail.get()) return null;
+        return (E) buffer[(int) (h & mask)];
+    }
+
+    @Override
+    public int size() {
+        long size = tail.get() - head.get();
+        return size <= 0 ? 0 : (int) Math.min(size, buffer.length);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return buffer.length - size();
+    }
+
+    /**
+     * weakly consistent snapshot of the elements, must be used by the consumer thread.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        final long from = head.get();
+        final long to = tail.get();
+        return new Iterator<E>() {
+            private long cursor = from;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < to;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (cursor >= to) throw new NoSuchElementException();
+                return (E) buffer[(int) (cursor++ & mask)];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove()");
+            }
+        };
+    }
+
+    private void publish(AtomicLong sequence, long value) {
+        // the blocking strategy needs a full fence between publishing and reading the waiting thread
+        if (strategy == WaitStrategy.BLOCKING) sequence.set(value);
+        else sequence.lazySet(value);
+    }
+
+    private void waitNotEmpty(long nanos) {
+        if (strategy != WaitStrategy.BLOCKING) {
+            idle();
+            return;
+        }
+        waitingConsumer = Thread.currentThread();
+        try {
+            // re-check after announcing ourselves, the producer may have published in between
+            if (head.get() < tail.get()) return;
+            park(nanos);
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    private void waitNotFull(long nanos) {
+        if (strategy != WaitStrategy.BLOCKING) {
+            idle();
+            return;
+        }
+        waitingProducer = Thread.currentThread();
+        try {
+            if (tail.get() - head.get() < buffer.length) return;
+            park(nanos);
+        } finally {
+            waitingProducer = null;
+        }
+    }
+
+    private void idle() {
+        if (strategy == WaitStrategy.YIELD) Thread.yield();
+    }
+
+    private void park(long nanos) {
+        if (nanos > 0) LockSupport.parkNanos(this, nanos);
+        else LockSupport.park(this);
+    }
+
+    private static void wakeup(Thread thread) {
+        if (thread != null) LockSupport.unpark(thread);
+    }
+}
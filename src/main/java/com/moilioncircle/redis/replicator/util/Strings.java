@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 leon chen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.moilioncircle.redis.replicator.util;
+
+import com.moilioncircle.redis.replicator.Constants;
+
+/**
+ * Conversions between command params and String/byte[]/numbers.
+ * <p>
+ * A param is either a {@code byte[]} (raw RESP bulk string) or a {@code String}.
+ * Numbers are parsed straight from the bytes, no intermediate String is built.
+ *
+ * @since 2.0.0
+ */
+public class Strings {
+
+    //10^0 to 10^22 are exact doubles
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private Strings() {
+    }
+
+    public static String toString(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, Constants.CHARSET);
+    }
+
+    public static String[] toStrings(byte[][] bytes) {
+        if (bytes == null) return null;
+        String[] strings = new String[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            strings[i] = toString(bytes[i]);
+        }
+        return strings;
+    }
+
+    public static String toString(Object param) {
+        if (param == null || param instanceof String) return (String) param;
+        return toString((byte[]) param);
+    }
+
+    public static byte[] toBytes(Object param) {
+        if (param == null || param instanceof byte[]) return (byte[]) param;
+        return ((String) param).getBytes(Constants.CHARSET);
+    }
+
+    public static int toInt(Object param) {
+        long value = toLong(param);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("int overflow: " + value);
+        }
+        return (int) value;
+    }
+
+    public static long toLong(Object param) {
+        if (param instanceof String) return Long.parseLong((String) param);
+        byte[] bytes = (byte[]) param;
+        if (bytes.length == 0) throw new NumberFormatException("empty number");
+        int i = 0;
+        boolean negative = false;
+        if (bytes[0] == '-' || bytes[0] == '+') {
+            negative = bytes[0] == '-';
+            if (++i == bytes.length) throw new NumberFormatException(toString(bytes));
+        }
+        long value = 0;
+        for (; i < bytes.length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) throw new NumberFormatException(toString(bytes));
+            long next = value * 10 - digit;
+            if (value < Long.MIN_VALUE / 10 || next > value) throw new NumberFormatException(toString(bytes));
+            value = next;
+        }
+        if (!negative && value == Long.MIN_VALUE) throw new NumberFormatException(toString(bytes));
+        return negative ? value : -value;
+    }
+
+    public static double toDouble(Object param) {
+        if (param instanceof byte[]) return toDouble((byte[]) param, 0, ((byte[]) param).length);
+        return Double.parseDouble(toString(param));
+    }
+
+    /**
+     * parses a double as written by redis. decimals of at most 15 significant digits, e.g. scores, are
+     * computed from the digits with a single exact division, other forms fall back to {@link Double#parseDouble}.
+     *
+     * @param bytes  ASCII digits
+     * @param offset offset of the first byte
+     * @param len    number of bytes
+     * @return double value, "inf", "-inf" and "nan" included
+     */
+    public static double toDouble(byte[] bytes, int offset, int len) {
+        int i = offset;
+        int end = offset + len;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) negative = bytes[i++] == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            int b = bytes[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            if (b < '0' || b > '9' || ++digits > 15) break;
+            mantissa = mantissa * 10 + (b - '0');
+            if (scale >= 0) scale++;
+        }
+        if (i == end && digits > 0 && scale != 0) {
+            double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+            return negative ? -value : value;
+        }
+        String string = new String(bytes, offset, len, Constants.CHARSET);
+        if (string.equalsIgnoreCase("inf") || string.equalsIgnoreCase("+inf")) return Double.POSITIVE_INFINITY;
+        if (string.equalsIgnoreCase("-inf")) return Double.NEGATIVE_INFINITY;
+        if (string.equalsIgnoreCase("nan")) return Double.NaN;
+        return Double.parseDouble(string);
+    }
+
+    /**
+     * @param param  String or byte[]
+     * @param string ASCII keyword
+     * @return true if param equals keyword ignore case
+     */
+    public static boolean equalsIgnoreCase(Object param, String string) {
+        if (param == null) return false;
+        if (param instanceof String) return ((String) param).equalsIgnoreCase(string);
+        byte[] bytes = (byte[]) param;
+        if (bytes.length != string.length()) return false;
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i];
+            int c = string.charAt(i);
+            if (b == c) continue;
+            if (b >= 'a' && b <= 'z') b -= 32;
+            if (c >= 'a' && c <= 'z') c -= 32;
+            if (b != c) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,114 @@
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.checkpoint.Checkpoint;
+import com.moilioncircle.redis.replicator.checkpoint.FileCheckpointStore;
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.cmd.impl.SetParser;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CheckpointerTest {
+
+    private static final String SET_A = "*3\r\n$3\r\nSET\r\n$1\r\na\r\n$1\r\nb\r\n";
+    private static final String SET_C = "*3\r\n$3\r\nSET\r\n$1\r\nc\r\n$1\r\nd\r\n";
+
+    @Test
+    public void testStore() throws Exception {
+        File file = File.createTempFile("replicator", ".checkpoint");
+        assertTrue(file.delete());
+        file.deleteOnExit();
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        assertNull(store.load());
+        store.save(new Checkpoint("0123456789abcdef", 100));
+        store.save(new Checkpoint("0123456789abcdef", 200));
+        assertEquals(new Checkpoint("0123456789abcdef", 200), store.load());
+        assertTrue(!new File(file.getPath() + ".tmp").exists());
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("0123456789abcdef".getBytes());
+        }
+        try {
+            store.load();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("corrupted"));
+        }
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        File file = File.createTempFile("replicator", ".checkpoint");
+        assertTrue(file.delete());
+        file.deleteOnExit();
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        FakeMaster master = new FakeMaster.Resuming(FakeMaster.read("dumpV7.rdb"), SET_A, SET_C, false).start();
+
+        Running first = new Running(master, store, "a");
+        await(store, new Checkpoint("0123456789abcdef", 100 + SET_A.length()));
+        first.close();
+
+        //a new process, nothing but the checkpoint survived
+        Running second = new Running(master, store, "c");
+        await(store, new Checkpoint("0123456789abcdef", 100 + SET_A.length() + SET_C.length()));
+        second.close();
+        assertEquals("[PSYNC, ?, -1]", master.psyncs.get(0));
+        assertEquals("[PSYNC, 0123456789abcdef, " + (100 + SET_A.length()) + "]", master.psyncs.get(1));
+        master.close();
+    }
+
+    private static void await(FileCheckpointStore store, Checkpoint expected) throws Exception {
+        for (int i = 0; i < 1000 && !expected.equals(store.load()); i++) Thread.sleep(10);
+        assertEquals(expected, store.load());
+    }
+
+    private static class Running {
+        private final Replicator replicator;
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private Running(FakeMaster master, FileCheckpointStore store, final String key) throws Exception {
+            Configuration configuration = Configuration.defaultSetting().setRetries(1)
+                    .setCheckpointStore(store).setCheckpointPeriod(10);
+            replicator = new RedisReplicator("127.0.0.1", master.port(), configuration);
+            final CountDownLatch latch = new CountDownLatch(1);
+            replicator.addCommandListener(new CommandListener() {
+                @Override
+                public void handle(Replicator replicator, Command command) {
+                    if (((SetParser.SetCommand) command).getKey().equals(key)) latch.countDown();
+                }
+            });
+            replicator.addCloseListener(new CloseListener() {
+                @Override
+                public void handle(Replicator replicator) {
+                    closed.countDown();
+                }
+            });
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        replicator.open();
+                    } catch (IOException e) {
+                        //closed
+                    }
+                }
+            }).start();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+
+        private void close() throws Exception {
+            replicator.close();
+            assertTrue(closed.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.cmd.impl.SetParser;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DisklessSyncTest {
+
+    private static final String MARK = "0123456789abcdef0123456789abcdef01234567";
+    private static final String COMMANDS = "*3\r\n$3\r\nSET\r\n$1\r\na\r\n$1\r\nb\r\n" +
+            "*3\r\n$3\r\nSET\r\n$1\r\nc\r\n$1\r\nd\r\n";
+
+    @Test
+    public void testSocket() throws Exception {
+        byte[] rdb = FakeMaster.read("dumpV7.rdb");
+        int kvs = count(rdb);
+        assertEquals(kvs, sync(rdb, Configuration.defaultSetting()));
+        assertEquals(0, sync(rdb, Configuration.defaultSetting().setDiscardRdbEvent(true)));
+    }
+
+    @Test
+    public void testNio() throws Exception {
+        byte[] rdb = FakeMaster.read("dumpV7.rdb");
+        int kvs = count(rdb);
+        SelectorPool pool = new SelectorPool(1);
+        assertEquals(kvs, sync(rdb, Configuration.defaultSetting().setSelectorPool(pool).setBufferSize(64)));
+        assertEquals(0, sync(rdb, Configuration.defaultSetting().setSelectorPool(pool).setBufferSize(64).setDiscardRdbEvent(true)));
+        pool.close();
+    }
+
+    /**
+     * @return rdb events received before the commands
+     */
+    private static int sync(byte[] rdb, Configuration configuration) throws Exception {
+        FakeMaster master = new FakeMaster(rdb) {
+            @Override
+            protected boolean psync(OutputStream out, int n) throws IOException {
+                //diskless, the rdb ends with the mark instead of a length prefix
+                out.write("+FULLRESYNC 0123456789abcdef 100\r\n\n".getBytes());
+                out.write(("$EOF:" + MARK + "\r\n").getBytes());
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                payload.write(rdb);
+                payload.write(MARK.getBytes());
+                payload.write(COMMANDS.getBytes());
+                byte[] bytes = payload.toByteArray();
+                for (int i = 0; i < bytes.length; i += 7) {
+                    out.write(bytes, i, Math.min(7, bytes.length - i));
+                    out.flush();
+                }
+                return true;
+            }
+        }.start();
+        final AtomicInteger kvs = new AtomicInteger(0);
+        final List<String> keys = new CopyOnWriteArrayList<>();
+        final CountDownLatch commands = new CountDownLatch(2);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final Replicator replicator = new RedisReplicator("127.0.0.1", master.port(), configuration);
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                kvs.incrementAndGet();
+            }
+        });
+        replicator.addCommandListener(new CommandListener() {
+            @Override
+            public void handle(Replicator replicator, Command command) {
+                keys.add(((SetParser.SetCommand) command).getKey());
+                commands.countDown();
+            }
+        });
+        replicator.addCloseListener(new CloseListener() {
+            @Override
+            public void handle(Replicator replicator) {
+                closed.countDown();
+            }
+        });
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    replicator.open();
+                } catch (IOException e) {
+                    //closed
+                }
+            }
+        }).start();
+        assertTrue(commands.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("a", "c"), keys);
+        assertEquals("0123456789abcdef", configuration.getMasterRunId());
+        assertEquals(100 + COMMANDS.length(), configuration.getOffset());
+        replicator.close();
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        master.close();
+        return kvs.get();
+    }
+
+    private static int count(byte[] rdb) throws Exception {
+        final AtomicInteger count = new AtomicInteger(0);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(new ByteArrayInputStream(rdb), Configuration.defaultSetting());
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                count.incrementAndGet();
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        assertTrue(count.get() > 0);
+        return count.get();
+    }
+}
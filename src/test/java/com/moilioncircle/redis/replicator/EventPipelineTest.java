@@ -0,0 +1,216 @@
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.cmd.impl.DelParser;
+import com.moilioncircle.redis.replicator.cmd.impl.SelectParser;
+import com.moilioncircle.redis.replicator.cmd.impl.SetParser;
+import com.moilioncircle.redis.replicator.event.PostFullSyncEvent;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyStringValueString;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventPipelineTest {
+
+    @Test
+    public void testOrder() throws Exception {
+        testOrder(2);
+        testOrder(4);
+    }
+
+    private void testOrder(int workers) throws Exception {
+        Configuration configuration = Configuration.defaultSetting().setEventHandlerWorkers(workers).setEventQueueSize(64);
+        final List<Object> handled = Collections.synchronizedList(new ArrayList<>());
+        final Map<Long, PostFullSyncEvent> posts = new HashMap<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long last = 1000;
+        PipelineReplicator replicator = new PipelineReplicator(configuration);
+        replicator.addCommandListener(new CommandListener() {
+            @Override
+            public void handle(Replicator replicator, Command command) {
+                if (command instanceof SetParser.SetCommand) spin(((SetParser.SetCommand) command).getRawValue().length);
+                handled.add(command);
+            }
+        });
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                handled.add(kv);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                handled.add(posts.get(checksum));
+                if (checksum == last) latch.countDown();
+            }
+        });
+        replicator.open();
+
+        //keyed commands and key value pairs with barriers in between
+        Random random = new Random(workers);
+        List<Object> submitted = new ArrayList<>();
+        for (long i = 0; i <= last; i++) {
+            Object event;
+            int r = random.nextInt(20);
+            if (i == last || r == 0) {
+                PostFullSyncEvent post = new PostFullSyncEvent(i);
+                posts.put(i, post);
+                event = post;
+            } else if (r == 1) {
+                event = new SelectParser.SelectCommand((int) i);
+            } else if (r == 2) {
+                event = new DelParser.DelCommand("k1".getBytes(), "k2".getBytes());
+            } else if (r < 10) {
+                KeyStringValueString kv = new KeyStringValueString();
+                kv.setKey("k" + random.nextInt(8));
+                kv.setValue(String.valueOf(i));
+                event = kv;
+            } else {
+                event = new SetParser.SetCommand(("k" + random.nextInt(8)).getBytes(), new byte[random.nextInt(64)], null, null, null);
+            }
+            submitted.add(event);
+            replicator.submitEvent(event);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+
+        assertEquals(submitted.size(), handled.size());
+        Map<Object, Integer> order = new IdentityHashMap<>();
+        for (int i = 0; i < handled.size(); i++) {
+            //every event is delivered exactly once
+            assertEquals(null, order.put(handled.get(i), i));
+        }
+        Map<String, Integer> lastOfKey = new HashMap<>();
+        int lastBarrier = -1;
+        for (Object event : submitted) {
+            int at = order.get(event);
+            String key = key(event);
+            if (key == null) {
+                //every event submitted before a barrier is handled before it
+                for (Object before : submitted) {
+                    if (before == event) break;
+                    assertTrue(order.get(before) < at);
+                }
+                assertTrue(at > lastBarrier);
+                lastBarrier = at;
+            } else {
+                //events of the same key keep their order, and stay behind the last barrier
+                Integer previous = lastOfKey.put(key, at);
+                assertTrue(previous == null || previous < at);
+                assertTrue(at > lastBarrier);
+            }
+        }
+    }
+
+    @Test
+    public void testBrokenBarrier() throws Exception {
+        Configuration configuration = Configuration.defaultSetting().setEventHandlerWorkers(2).setOffset(100);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger posts = new AtomicInteger(0);
+        final Thread[] busy = new Thread[1];
+        PipelineReplicator replicator = new PipelineReplicator(configuration);
+        replicator.addCommandListener(new CommandListener() {
+            @Override
+            public void handle(Replicator replicator, Command command) {
+                busy[0] = Thread.currentThread();
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                posts.incrementAndGet();
+            }
+        });
+        replicator.open();
+
+        configuration.addOffset(10);
+        replicator.submitEvent(new SetParser.SetCommand("k".getBytes(), "v".getBytes(), null, null, null));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        configuration.addOffset(5);
+        replicator.submitEvent(new PostFullSyncEvent(0));
+
+        //interrupt the idle worker while it waits in the barrier
+        Thread waiting = null;
+        long deadline = System.currentTimeMillis() + 10000;
+        while (waiting == null && System.currentTimeMillis() < deadline) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread == busy[0] || !thread.getName().startsWith("event-handler-worker-")) continue;
+                for (StackTraceElement element : thread.getStackTrace()) {
+                    if (element.getClassName().equals(CyclicBarrier.class.getName())) waiting = thread;
+                }
+            }
+            Thread.sleep(10);
+        }
+        assertNotNull(waiting);
+        waiting.interrupt();
+        release.countDown();
+
+        deadline = System.currentTimeMillis() + 10000;
+        while (!replicator.pipeline.isClosed() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(replicator.pipeline.isClosed());
+        assertEquals(0, posts.get());
+        //the command is processed, the lost barrier event is not
+        assertEquals(100, replicator.getMetrics().getProcessedOffset());
+        replicator.close();
+    }
+
+    /**
+     * rdb events and commands of a key are ordered separately, a full sync always ends with a barrier
+     */
+    private static String key(Object event) {
+        if (event instanceof KeyValuePair<?>) return "rdb:" + ((KeyValuePair<?>) event).getKey();
+        if (event instanceof SetParser.SetCommand) return "cmd:" + ((SetParser.SetCommand) event).getKey();
+        return null;
+    }
+
+    private static void spin(int n) {
+        for (int i = 0; i < n; i++) Thread.yield();
+    }
+
+    private static class PipelineReplicator extends AbstractReplicator {
+        private PipelineReplicator(Configuration configuration) {
+            this.configuration = configuration;
+            this.pipeline = new EventPipeline(this, configuration);
+        }
+
+        @Override
+        public void open() throws IOException {
+            pipeline.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            pipeline.close();
+            doCloseListener();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.ReplyParser;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A master on a local port that answers the replication handshake.
+ * <p>
+ * Every command but PSYNC and REPLCONF ACK gets +OK. PSYNC is answered by {@link #psync(OutputStream, int)},
+ * by default a full resync with the rdb. Connections are accepted until the master is closed.
+ */
+public class FakeMaster implements Runnable, Closeable {
+    public final List<String> psyncs = new CopyOnWriteArrayList<>();
+    //REPLCONF ACK offsets of every connection
+    public final List<List<Long>> acks = new CopyOnWriteArrayList<>();
+    protected final byte[] rdb;
+    private final ServerSocket server = new ServerSocket(0);
+    private volatile Socket socket;
+
+    public FakeMaster(byte[] rdb) throws IOException {
+        this.rdb = rdb;
+    }
+
+    public FakeMaster start() {
+        Thread thread = new Thread(this, "fake-master");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @param out output of the connection
+     * @param n   number of PSYNCs received so far, this one included
+     * @return false to close the connection
+     * @throws IOException          when the replicator closed
+     * @throws InterruptedException when the master closed
+     */
+    protected boolean psync(OutputStream out, int n) throws IOException, InterruptedException {
+        fullResync(out);
+        return true;
+    }
+
+    /**
+     * @param offset offset of the REPLCONF ACK
+     * @param acks   acks of the connection, this one included
+     * @return false to close the connection
+     */
+    protected boolean ack(long offset, List<Long> acks) {
+        return true;
+    }
+
+    protected void fullResync(OutputStream out) throws IOException {
+        out.write("+FULLRESYNC 0123456789abcdef 100\r\n".getBytes());
+        out.write(("$" + rdb.length + "\r\n").getBytes());
+        out.write(rdb);
+    }
+
+    /**
+     * @return true if a connection sent at least n acks within the timeout
+     */
+    public boolean awaitAcks(int n, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (System.nanoTime() < deadline) {
+            for (List<Long> acks : this.acks) {
+                if (acks.size() >= n) return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Socket socket = this.socket = server.accept();
+                List<Long> acks = new CopyOnWriteArrayList<>();
+                this.acks.add(acks);
+                ReplyParser parser = new ReplyParser(new RedisInputStream(socket.getInputStream()));
+                OutputStream out = socket.getOutputStream();
+                try {
+                    boolean open = true;
+                    while (open) {
+                        Object[] command = (Object[]) parser.parse();
+                        if (command[0].equals("PSYNC")) {
+                            psyncs.add(Arrays.toString(command));
+                            open = psync(out, psyncs.size());
+                        } else if (command[1].equals("ACK")) {
+                            long offset = Long.parseLong((String) command[2]);
+                            acks.add(offset);
+                            open = ack(offset, acks);
+                        } else {
+                            out.write("+OK\r\n".getBytes());
+                        }
+                        out.flush();
+                    }
+                    socket.close();
+                } catch (IOException e) {
+                    //replicator closed
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            //master closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        Socket socket = this.socket;
+        if (socket != null) socket.close();
+    }
+
+    /**
+     * a full resync with the first commands, then a partial resync with the next commands on every reconnect
+     */
+    public static class Resuming extends FakeMaster {
+        private final String first;
+        private final String next;
+        private final boolean drop;
+
+        /**
+         * @param drop true to close the connection shortly after the full resync
+         */
+        public Resuming(byte[] rdb, String first, String next, boolean drop) throws IOException {
+            super(rdb);
+            this.first = first;
+            this.next = next;
+            this.drop = drop;
+        }
+
+        @Override
+        protected boolean psync(OutputStream out, int n) throws IOException, InterruptedException {
+            if (n > 1) {
+                out.write("+CONTINUE\r\n".getBytes());
+                out.write(next.getBytes());
+                return true;
+            }
+            fullResync(out);
+            out.write(first.getBytes());
+            if (!drop) return true;
+            out.flush();
+            Thread.sleep(100);
+            return false;
+        }
+    }
+
+    public static byte[] read(String resource) throws IOException {
+        try (InputStream in = FakeMaster.class.getClassLoader().getResourceAsStream(resource)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int len;
+            while ((len = in.read(buf)) != -1) out.write(buf, 0, len);
+            return out.toByteArray();
+        }
+    }
+}
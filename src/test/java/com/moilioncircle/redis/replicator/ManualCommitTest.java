@@ -0,0 +1,87 @@
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.cmd.impl.SetParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ManualCommitTest {
+
+    private static final String SET_A = "*3\r\n$3\r\nSET\r\n$1\r\na\r\n$1\r\nb\r\n";
+    private static final String SET_C = "*3\r\n$3\r\nSET\r\n$1\r\nc\r\n$1\r\nd\r\n";
+
+    @Test
+    public void testCommit() throws Exception {
+        testCommit(1);
+        testCommit(2);
+    }
+
+    private void testCommit(int workers) throws Exception {
+        FakeMaster master = new FakeMaster.Resuming(FakeMaster.read("dumpV7.rdb"), SET_A + SET_C, SET_C, false) {
+            @Override
+            protected boolean ack(long offset, List<Long> acks) {
+                //every event handled, the failed one not committed
+                return !(psyncs.size() == 1 && offset == 100 + SET_A.length() && acks.size() > 10);
+            }
+        }.start();
+        Configuration configuration = Configuration.defaultSetting().setManualCommit(true)
+                .setEventHandlerWorkers(workers).setHeartBeatPeriod(10).setRetryTimeInterval(10);
+        final Replicator replicator = new RedisReplicator("127.0.0.1", master.port(), configuration);
+        final AtomicInteger failures = new AtomicInteger(0);
+        final CountDownLatch latch = new CountDownLatch(1);
+        replicator.addCommandListener(new CommandListener() {
+            @Override
+            public void handle(Replicator replicator, Command command) {
+                String key = ((SetParser.SetCommand) command).getKey();
+                //the first delivery of c fails, it is not committed
+                if (key.equals("c") && failures.getAndIncrement() == 0) throw new RuntimeException("failed " + key);
+                replicator.commit();
+                if (key.equals("c")) latch.countDown();
+            }
+        });
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    replicator.open();
+                } catch (IOException e) {
+                    //closed
+                }
+            }
+        }).start();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(2, failures.get());
+        assertEquals("[PSYNC, ?, -1]", master.psyncs.get(0));
+        //resumed from the committed offset, the failed command is sent again
+        assertEquals("[PSYNC, 0123456789abcdef, " + (100 + SET_A.length()) + "]", master.psyncs.get(1));
+        for (long ack : master.acks.get(0)) assertTrue(ack <= 100 + SET_A.length());
+        for (int i = 0; i < 1000 && replicator.getMetrics().getCommittedOffset() != 100 + SET_A.length() + SET_C.length(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(100 + SET_A.length() + SET_C.length(), replicator.getMetrics().getCommittedOffset());
+        replicator.close();
+        master.close();
+    }
+
+    @Test
+    public void testCommitOutsideListener() throws Exception {
+        Replicator replicator = new RedisReplicator("127.0.0.1", 6379, Configuration.defaultSetting().setManualCommit(true));
+        try {
+            replicator.commit();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        //a no-op without manual commit
+        new RedisReplicator("127.0.0.1", 6379, Configuration.defaultSetting()).commit();
+    }
+}
@@ -0,0 +1,151 @@
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.cmd.impl.SetParser;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RedisNioReplicatorTest {
+
+    private static final String COMMANDS = "*3\r\n$3\r\nSET\r\n$1\r\na\r\n$1\r\nb\r\n" +
+            "*2\r\n$6\r\nSELECT\r\n$1\r\n1\r\n" +
+            "*2\r\n$7\r\nUNKNOWN\r\n$1\r\nx\r\n" +
+            "*3\r\n$3\r\nSET\r\n$1\r\nc\r\n$1\r\nd\r\n";
+
+    @Test
+    public void testSharedSelector() throws Exception {
+        byte[] rdb = FakeMaster.read("dumpV7.rdb");
+        int kvs = count(rdb);
+        SelectorPool pool = new SelectorPool(1);
+        List<FakeMaster> masters = new ArrayList<>();
+        List<Replicator> replicators = new ArrayList<>();
+        List<Configuration> configurations = new ArrayList<>();
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch commands = new CountDownLatch(6);
+        final CountDownLatch closed = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            FakeMaster master = new FakeMaster(rdb) {
+                @Override
+                protected boolean psync(OutputStream out, int n) throws IOException {
+                    //newlines before the rdb are keep alives
+                    out.write("+FULLRESYNC 0123456789abcdef 100\r\n\n\n".getBytes());
+                    out.write(("$" + rdb.length + "\r\n").getBytes());
+                    out.write(rdb);
+                    out.write(COMMANDS.getBytes());
+                    return true;
+                }
+            }.start();
+            masters.add(master);
+            //small queue, the channel stops reading while the listener is slow
+            Configuration configuration = Configuration.defaultSetting().setSelectorPool(pool)
+                    .setEventQueueSize(2).setHeartBeatPeriod(50).setBufferSize(256);
+            final Replicator replicator = new RedisReplicator("127.0.0.1", master.port(), configuration);
+            final String name = "r" + i;
+            replicator.addRdbListener(new RdbListener.Adaptor() {
+                @Override
+                public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    events.add(name + ":kv");
+                }
+            });
+            replicator.addCommandListener(new CommandListener() {
+                @Override
+                public void handle(Replicator replicator, Command command) {
+                    if (command instanceof SetParser.SetCommand) {
+                        events.add(name + ":" + ((SetParser.SetCommand) command).getKey());
+                        commands.countDown();
+                    }
+                }
+            });
+            replicator.addCloseListener(new CloseListener() {
+                @Override
+                public void handle(Replicator replicator) {
+                    closed.countDown();
+                }
+            });
+            replicator.open();
+            replicators.add(replicator);
+            configurations.add(configuration);
+        }
+        assertTrue(commands.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            List<String> expected = new ArrayList<>();
+            for (int j = 0; j < kvs; j++) expected.add("r" + i + ":kv");
+            expected.add("r" + i + ":a");
+            expected.add("r" + i + ":c");
+            List<String> actual = new ArrayList<>();
+            synchronized (events) {
+                for (String event : events) if (event.startsWith("r" + i + ":")) actual.add(event);
+            }
+            assertEquals(expected, actual);
+            Configuration configuration = configurations.get(i);
+            assertEquals("0123456789abcdef", configuration.getMasterRunId());
+            assertEquals(100 + COMMANDS.length(), configuration.getOffset());
+            assertTrue(masters.get(i).awaitAcks(2, 10, TimeUnit.SECONDS));
+        }
+        for (Replicator replicator : replicators) replicator.close();
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        for (FakeMaster master : masters) master.close();
+        pool.close();
+    }
+
+    @Test
+    public void testRetries() throws Exception {
+        ServerSocket server = new ServerSocket(0);
+        int port = server.getLocalPort();
+        server.close();
+        SelectorPool pool = new SelectorPool(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator("127.0.0.1", port,
+                Configuration.defaultSetting().setSelectorPool(pool).setRetries(2).setRetryTimeInterval(10));
+        replicator.addCloseListener(new CloseListener() {
+            @Override
+            public void handle(Replicator replicator) {
+                closed.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        pool.close();
+    }
+
+    private static int count(byte[] rdb) throws Exception {
+        final AtomicInteger count = new AtomicInteger(0);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(new java.io.ByteArrayInputStream(rdb), Configuration.defaultSetting());
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                count.incrementAndGet();
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        return count.get();
+    }
+}
@@ -0,0 +1,167 @@
+package com.moilioncircle.redis.replicator;
+
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.cmd.CommandName;
+import com.moilioncircle.redis.replicator.metrics.Histogram;
+import com.moilioncircle.redis.replicator.metrics.JmxMetricsExporter;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicatorMetricsTest {
+
+    @Test
+    public void testRdb() throws Exception {
+        File file = new File(ReplicatorMetricsTest.class.getClassLoader().getResource("dumpV7.rdb").getFile());
+        Replicator replicator = new RedisReplicator(file, Configuration.defaultSetting().setListenerLatencyMetrics(true));
+        final AtomicInteger kvs = new AtomicInteger(0);
+        final CountDownLatch latch = new CountDownLatch(1);
+        RdbListener listener = new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                kvs.incrementAndGet();
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        };
+        replicator.addRdbListener(listener);
+        JmxMetricsExporter exporter = new JmxMetricsExporter("metrics-test");
+        replicator.getMetrics().addExporter(exporter);
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        ReplicatorMetrics metrics = replicator.getMetrics();
+        assertEquals(kvs.get(), metrics.getRdbEvents());
+        assertTrue(metrics.getRdbBytes() > 0 && metrics.getRdbBytes() < file.length());
+        assertEquals(1, metrics.getFullSyncs());
+        assertTrue(metrics.getLastFullSyncMillis() >= 0);
+        assertEquals(0, metrics.getCommandEvents());
+        assertEquals(kvs.get(), metrics.getListenerLatency(listener).getCount());
+        assertEquals(1, metrics.getListenerLatencies().size());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = exporter.getObjectName();
+        assertEquals(metrics.getRdbEvents(), server.getAttribute(name, "RdbEvents"));
+        assertNotNull(server.getAttribute(name, "ListenerLatencies"));
+        replicator.close();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testProcessedOffset() throws Exception {
+        testProcessedOffset(1);
+        testProcessedOffset(3);
+    }
+
+    private void testProcessedOffset(int workers) throws Exception {
+        Configuration configuration = Configuration.defaultSetting().setEventHandlerWorkers(workers).setOffset(100);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger handled = new AtomicInteger(0);
+        PipelineReplicator replicator = new PipelineReplicator(configuration);
+        replicator.addCommandListener(new CommandListener() {
+            @Override
+            public void handle(Replicator replicator, Command command) {
+                try {
+                    if (((TestCommand) command).block) {
+                        blocked.countDown();
+                        release.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                handled.incrementAndGet();
+            }
+        });
+        replicator.open();
+        ReplicatorMetrics metrics = replicator.getMetrics();
+        assertEquals(100, metrics.getProcessedOffset());
+
+        submit(replicator, configuration, new TestCommand(false), 10);
+        submit(replicator, configuration, new TestCommand(true), 20);
+        for (int i = 0; i < 5; i++) submit(replicator, configuration, new TestCommand(false), 5);
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        assertEquals(155, metrics.getReceivedOffset());
+        //the blocked command and everything behind it are not processed yet
+        assertEquals(110, metrics.getProcessedOffset());
+        assertEquals(45, metrics.getOffsetLag());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (metrics.getOffsetLag() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(155, metrics.getProcessedOffset());
+        assertEquals(7, handled.get());
+        assertEquals(7, metrics.getCommandEvents());
+        replicator.close();
+    }
+
+    private static void submit(AbstractReplicator replicator, Configuration configuration, Command command, long len) throws InterruptedException {
+        configuration.addOffset(len);
+        replicator.submitEvent(command);
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) histogram.record(i);
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        long p50 = histogram.getPercentile(0.5);
+        assertTrue(p50 >= 500 && p50 <= 500 * 1.25);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p99 >= 990 && p99 <= 1000);
+        Histogram empty = new Histogram();
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getPercentile(0.99));
+    }
+
+    private static class TestCommand implements Command {
+        private final boolean block;
+
+        private TestCommand(boolean block) {
+            this.block = block;
+        }
+
+        @Override
+        public CommandName name() {
+            return CommandName.name("TEST");
+        }
+    }
+
+    private static class PipelineReplicator extends AbstractReplicator {
+        private PipelineReplicator(Configuration configuration) {
+            this.configuration = configuration;
+            this.pipeline = new EventPipeline(this, configuration);
+        }
+
+        @Override
+        public void open() throws IOException {
+            pipeline.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            pipeline.close();
+            doCloseListener();
+        }
+    }
+}
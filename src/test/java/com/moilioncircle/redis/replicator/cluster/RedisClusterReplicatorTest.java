@@ -0,0 +1,105 @@
+package com.moilioncircle.redis.replicator.cluster;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.FakeMaster;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.cmd.impl.SetParser;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class RedisClusterReplicatorTest {
+
+    private static final String SET_A = "*3\r\n$3\r\nSET\r\n$1\r\na\r\n$1\r\nb\r\n";
+    private static final String SET_C = "*3\r\n$3\r\nSET\r\n$1\r\nc\r\n$1\r\nd\r\n";
+
+    @Test
+    public void testSlot() {
+        assertEquals(12739, Slots.slot("123456789"));
+        assertEquals(12182, Slots.slot("foo"));
+        assertEquals(5061, Slots.slot("bar"));
+        assertEquals(Slots.slot("user1000"), Slots.slot("{user1000}.following"));
+        assertEquals(Slots.slot("{user1000}.followers"), Slots.slot("{user1000}.following"));
+        //empty hash tag, the whole key is hashed
+        assertEquals(Slots.crc16("foo{}{bar}".getBytes(), 0, 10) & 16383, Slots.slot("foo{}{bar}"));
+        assertEquals(Slots.slot("bar"), Slots.slot("foo{bar}}zap"));
+
+        Node node = new Node("127.0.0.1", 7000).addSlots(0, 8191);
+        assertTrue(node.owns("bar"));
+        assertTrue(!node.owns("foo"));
+        assertEquals(8192, node.slotCount());
+        assertTrue(new Node("127.0.0.1", 7001).owns("foo"));
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        byte[] rdb = FakeMaster.read("dumpV7.rdb");
+        FakeMaster m0 = new FakeMaster.Resuming(rdb, SET_A, SET_C, true).start();
+        FakeMaster m1 = new FakeMaster.Resuming(rdb, SET_A, SET_C, true).start();
+        List<Node> nodes = Arrays.asList(
+                new Node("127.0.0.1", m0.port()).addSlots(0, 8191),
+                new Node("127.0.0.1", m1.port()).addSlots(8192, 16383));
+        //a replicator gives up at the first disconnection, the cluster replicator restarts it
+        RedisClusterReplicator replicator = new RedisClusterReplicator(nodes, Configuration.defaultSetting().setRetries(1).setRetryTimeInterval(10));
+        final Map<String, AtomicInteger> kvs = new ConcurrentHashMap<>();
+        final List<String> commands = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(4);
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                String node = ((NodeReplicator) replicator).getNode().toString();
+                kvs.putIfAbsent(node, new AtomicInteger(0));
+                kvs.get(node).incrementAndGet();
+            }
+        });
+        replicator.addCommandListener(new CommandListener() {
+            @Override
+            public void handle(Replicator replicator, Command command) {
+                Node node = ((NodeReplicator) replicator).getNode();
+                synchronized (commands) {
+                    commands.add(node.getPort() + ":" + ((SetParser.SetCommand) command).getKey());
+                }
+                latch.countDown();
+            }
+        });
+        List<NodeReplicator> initial = replicator.getReplicators();
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        assertEquals(2, kvs.size());
+        assertEquals(kvs.get(nodes.get(0).toString()).get(), kvs.get(nodes.get(1).toString()).get());
+        synchronized (commands) {
+            assertTrue(commands.indexOf(m0.port() + ":a") < commands.indexOf(m0.port() + ":c"));
+            assertTrue(commands.indexOf(m1.port() + ":a") < commands.indexOf(m1.port() + ":c"));
+        }
+        for (int i = 0; i < 2; i++) {
+            NodeReplicator current = replicator.getReplicators().get(i);
+            assertNotSame(initial.get(i), current);
+            assertEquals(100 + SET_A.length() + SET_C.length(), current.getConfiguration().getOffset());
+        }
+        //partial resync after restart
+        assertEquals("[PSYNC, ?, -1]", m0.psyncs.get(0));
+        assertEquals("[PSYNC, 0123456789abcdef, " + (100 + SET_A.length()) + "]", m0.psyncs.get(1));
+        assertEquals(nodes.get(1), replicator.getReplicator("foo").getNode());
+
+        replicator.close();
+        assertTrue(replicator.awaitTermination(10, TimeUnit.SECONDS));
+        m0.close();
+        m1.close();
+    }
+}
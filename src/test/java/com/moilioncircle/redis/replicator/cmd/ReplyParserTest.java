@@ -1,11 +1,19 @@
 package com.moilioncircle.redis.replicator.cmd;
 
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
 import com.moilioncircle.redis.replicator.io.RedisInputStream;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
 
 /**
  * Created by leon on 8/28/16.
@@ -21,5 +29,73 @@ public class ReplyParserTest {
             assertEquals(56789l, r.longValue());
         }
 
+        {
+            RedisInputStream in = new RedisInputStream(new ByteArrayInputStream(":-1\r\n".getBytes()));
+            ReplyParser replyParser = new ReplyParser(in);
+            Long r = (Long) replyParser.parse(new BulkReplyHandler.SimpleBulkReplyHandler());
+            assertEquals(-1l, r.longValue());
+        }
+
+        {
+            RedisInputStream in = new RedisInputStream(new ByteArrayInputStream("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$0\r\n\r\n".getBytes()));
+            ReplyParser replyParser = new ReplyParser(in);
+            Object[] r = (Object[]) replyParser.parse(new BulkReplyHandler.BytesBulkReplyHandler());
+            assertEquals(3, r.length);
+            assertEquals("SET", new String((byte[]) r[0]));
+            assertEquals("key", new String((byte[]) r[1]));
+            assertEquals(0, ((byte[]) r[2]).length);
+        }
+
+    }
+
+    @Test
+    public void testParseCommand() throws Exception {
+        String stream = "*2\r\n$6\r\nSELECT\r\n$1\r\n1\r\n" +
+                "*3\r\n$3\r\nSET\r\n$5\r\nuser:\r\n$5\r\nvalue\r\n" +
+                "*3\r\n$3\r\nSET\r\n$4\r\nskip\r\n$10\r\n0123456789\r\n" +
+                "*1\r\n$4\r\nPING\r\n" +
+                "\n*4\r\n$4\r\nEVAL\r\n$1\r\nx\r\n*2\r\n:1\r\n+OK\r\n$-1\r\n";
+        RedisInputStream in = new RedisInputStream(new ByteArrayInputStream(stream.getBytes()));
+        ReplyParser replyParser = new ReplyParser(in);
+        final long[] offset = new long[1];
+        OffsetHandler offsetHandler = new OffsetHandler() {
+            @Override
+            public void handle(long len) {
+                offset[0] += len;
+            }
+        };
+        final List<String> seen = new ArrayList<>();
+        RawCommandFilter filter = new RawCommandFilter() {
+            @Override
+            public boolean accept(CommandName name, int db, byte[] key) {
+                seen.add(name.name + ":" + db + ":" + (key == null ? null : new String(key)));
+                return key != null && !new String(key).equals("skip") && !new String(key).equals("x");
+            }
+        };
+        Object[] r = (Object[]) replyParser.parseCommand(offsetHandler, -1, filter);
+        assertEquals("1", new String((byte[]) r[1]));
+        r = (Object[]) replyParser.parseCommand(offsetHandler, 1, filter);
+        assertEquals("value", new String((byte[]) r[2]));
+        assertNull(replyParser.parseCommand(offsetHandler, 1, filter));
+        assertNull(replyParser.parseCommand(offsetHandler, 1, filter));
+        assertNull(replyParser.parseCommand(offsetHandler, 1, filter));
+        assertEquals(stream.length(), offset[0]);
+        assertEquals("[SELECT:-1:1, SET:1:user:, SET:1:skip, PING:1:null, EVAL:1:x]", seen.toString());
+    }
+
+    @Test
+    public void testRawFilterOfUnkeyedCommands() throws Exception {
+        Replicator replicator = new RedisReplicator("127.0.0.1", 6379, Configuration.defaultSetting());
+        replicator.addRawCommandFilter(new RawCommandFilter() {
+            @Override
+            public boolean accept(CommandName name, int db, byte[] key) {
+                return false;
+            }
+        });
+        assertFalse(replicator.doRawCommandFilter(CommandName.name("SET"), 0, "k".getBytes()));
+        //the first argument is a script, an operation or a destination
+        assertTrue(replicator.doRawCommandFilter(CommandName.name("eval"), 0, "return 1".getBytes()));
+        assertTrue(replicator.doRawCommandFilter(CommandName.name("BITOP"), 0, "AND".getBytes()));
+        assertTrue(replicator.doRawCommandFilter(CommandName.name("ZUNIONSTORE"), 0, "k".getBytes()));
     }
-}
\ No newline at end of file
+}
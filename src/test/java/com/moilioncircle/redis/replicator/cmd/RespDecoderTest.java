@@ -0,0 +1,102 @@
+package com.moilioncircle.redis.replicator.cmd;
+
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RespDecoderTest {
+
+    private static final String STREAM = "*2\r\n$6\r\nSELECT\r\n$1\r\n1\r\n" +
+            "*3\r\n$3\r\nSET\r\n$5\r\nuser:\r\n$5\r\nvalue\r\n" +
+            "*3\r\n$3\r\nSET\r\n$4\r\nskip\r\n$10\r\n0123456789\r\n" +
+            "*1\r\n$4\r\nPING\r\n" +
+            "\n*4\r\n$4\r\nEVAL\r\n$1\r\nx\r\n*2\r\n:1\r\n+OK\r\n$-1\r\n" +
+            "*3\r\n$4\r\nLPOP\r\n$3\r\nkey\r\n*2\r\n:-12\r\n$0\r\n\r\n";
+
+    @Test
+    public void testDecode() throws Exception {
+        List<String> expected = parse();
+        for (int chunk = 1; chunk <= STREAM.length(); chunk++) {
+            assertEquals("chunk:" + chunk, expected, decode(chunk));
+        }
+    }
+
+    @Test
+    public void testReply() {
+        RespDecoder decoder = new RespDecoder();
+        ByteBuffer in = ByteBuffer.wrap("+OK\r\n-ERR no\rsuch\r\n:42\r\n$-1\r\n+FULLRESYNC abc 100\r\n+CONT".getBytes());
+        assertEquals("OK", decoder.decode(in, null, -1, null));
+        assertEquals("ERR no\rsuch", decoder.decode(in, null, -1, null));
+        assertEquals(42L, decoder.decode(in, null, -1, null));
+        //null reply is dropped
+        assertEquals("FULLRESYNC abc 100", decoder.decode(in, null, -1, null));
+        assertNull(decoder.decode(in, null, -1, null));
+        assertEquals("CONTINUE", decoder.decode(ByteBuffer.wrap("INUE\r\n".getBytes()), null, -1, null));
+    }
+
+    private List<String> parse() throws Exception {
+        ReplyParser parser = new ReplyParser(new RedisInputStream(new ByteArrayInputStream(STREAM.getBytes())));
+        Recorder recorder = new Recorder();
+        List<String> rs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Object obj = parser.parseCommand(recorder, 1, recorder);
+            rs.add(obj == null ? "DROPPED" : toString(obj));
+        }
+        rs.add(recorder.toString());
+        return rs;
+    }
+
+    private List<String> decode(int chunk) {
+        byte[] bytes = STREAM.getBytes();
+        RespDecoder decoder = new RespDecoder();
+        Recorder recorder = new Recorder();
+        List<String> rs = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunk) {
+            ByteBuffer in = ByteBuffer.wrap(bytes, i, Math.min(chunk, bytes.length - i));
+            Object obj;
+            while ((obj = decoder.decode(in, recorder, 1, recorder)) != null) {
+                rs.add(obj == RespDecoder.DROPPED ? "DROPPED" : toString(obj));
+            }
+            assertEquals(0, in.remaining());
+        }
+        rs.add(recorder.toString());
+        return rs;
+    }
+
+    private static String toString(Object obj) {
+        if (obj instanceof byte[]) return new String((byte[]) obj);
+        if (!(obj instanceof Object[])) return String.valueOf(obj);
+        List<String> list = new ArrayList<>();
+        for (Object o : (Object[]) obj) list.add(toString(o));
+        return list.toString();
+    }
+
+    private static class Recorder implements OffsetHandler, RawCommandFilter {
+        private final List<String> seen = new ArrayList<>();
+        private final List<Long> offsets = new ArrayList<>();
+
+        @Override
+        public void handle(long len) {
+            offsets.add(len);
+        }
+
+        @Override
+        public boolean accept(CommandName name, int db, byte[] key) {
+            seen.add(name.name + ":" + db + ":" + (key == null ? null : new String(key)));
+            return key != null && !Arrays.equals(key, "skip".getBytes()) && !Arrays.equals(key, "x".getBytes());
+        }
+
+        @Override
+        public String toString() {
+            return seen + " " + offsets;
+        }
+    }
+}
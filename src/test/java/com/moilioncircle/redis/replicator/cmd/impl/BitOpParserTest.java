@@ -0,0 +1,32 @@
+package com.moilioncircle.redis.replicator.cmd.impl;
+
+import com.moilioncircle.redis.replicator.cmd.CommandName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BitOpParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+        {
+            BitOpParser parser = new BitOpParser();
+            BitOpParser.BitOpCommand command = parser.parse(CommandName.name("BITOP"), new Object[]{"and", "dest", "k1", "k2", "k3"});
+            assertEquals(BitOpParser.Op.AND, command.getOp());
+            assertEquals("dest", command.getDestkey());
+            assertArrayEquals(new String[]{"k1", "k2", "k3"}, command.getKeys());
+        }
+
+        {
+            BitOpParser parser = new BitOpParser();
+            byte[] binary = new byte[]{(byte) 0xff, 0x00, (byte) 0x80};
+            BitOpParser.BitOpCommand command = parser.parse(CommandName.name("BITOP"), new Object[]{"or".getBytes(), "dest".getBytes(), "k1".getBytes(), binary, "k1".getBytes()});
+            //every source is kept in order, duplicates included
+            assertEquals(3, command.getRawKeys().length);
+            assertArrayEquals("k1".getBytes(), command.getRawKeys()[0]);
+            assertArrayEquals(binary, command.getRawKeys()[1]);
+            assertArrayEquals("k1".getBytes(), command.getRawKeys()[2]);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.moilioncircle.redis.replicator.cmd.impl;
+
+import com.moilioncircle.redis.replicator.cmd.CommandName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HDelParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+        {
+            HDelParser parser = new HDelParser();
+            HDelParser.HDelCommand command = parser.parse(CommandName.name("HDEL"), new Object[]{"key", "k1", "k2", "k3"});
+            assertEquals("key", command.getKey());
+            assertArrayEquals(new String[]{"k1", "k2", "k3"}, command.getFields());
+        }
+
+        {
+            HDelParser parser = new HDelParser();
+            byte[] binary = new byte[]{(byte) 0xff, 0x00, (byte) 0x80};
+            HDelParser.HDelCommand command = parser.parse(CommandName.name("HDEL"), new Object[]{"key".getBytes(), "k1".getBytes(), binary, "k1".getBytes()});
+            //every source is kept in order, duplicates included
+            assertEquals(3, command.getRawFields().length);
+            assertArrayEquals("k1".getBytes(), command.getRawFields()[0]);
+            assertArrayEquals(binary, command.getRawFields()[1]);
+            assertArrayEquals("k1".getBytes(), command.getRawFields()[2]);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.moilioncircle.redis.replicator.cmd.impl;
 import com.moilioncircle.redis.replicator.cmd.CommandName;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -25,5 +26,27 @@ public class HMSetParserTest {
             assertEquals("key", command.getKey());
             assertEquals(2, command.getFields().size());
         }
+
+        {
+            HMSetParser hmSetParser = new HMSetParser();
+            byte[] value = new byte[]{(byte) 0xff, 0x00, (byte) 0x80};
+            HMSetParser.HMSetCommand command = hmSetParser.parse(CommandName.name("HMSET"), new Object[]{"key".getBytes(), "field".getBytes(), value});
+            assertEquals("key", command.getKey());
+            assertEquals("field", command.getFields().keySet().iterator().next());
+            assertArrayEquals(value, command.getRawFields()[1]);
+        }
+
+        {
+            HMSetParser hmSetParser = new HMSetParser();
+            HMSetParser.HMSetCommand command = hmSetParser.parse(CommandName.name("HMSET"), new Object[]{"key".getBytes(), "f1".getBytes(), "v1".getBytes(), "f2".getBytes(), "v2".getBytes(), "f1".getBytes(), "v3".getBytes()});
+            //raw fields keep every pair in command order
+            byte[][] fields = command.getRawFields();
+            assertEquals(6, fields.length);
+            assertArrayEquals("f1".getBytes(), fields[0]);
+            assertArrayEquals("v2".getBytes(), fields[3]);
+            assertArrayEquals("v3".getBytes(), fields[5]);
+            assertEquals("v3", command.getFields().get("f1"));
+            assertEquals(2, command.getFields().size());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.moilioncircle.redis.replicator.cmd.impl;
+
+import com.moilioncircle.redis.replicator.cmd.CommandName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MSetParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+        {
+            MSetParser parser = new MSetParser();
+            MSetParser.MSetCommand command = parser.parse(CommandName.name("MSET"), new Object[]{"k1".getBytes(), "v1".getBytes(), "k2".getBytes(), "v2".getBytes()});
+            byte[][] kv = command.getRawKv();
+            assertEquals(4, kv.length);
+            assertArrayEquals("k1".getBytes(), kv[0]);
+            assertArrayEquals("v2".getBytes(), kv[3]);
+            assertEquals("v1", command.getKv().get("k1"));
+        }
+
+        {
+            MSetNxParser parser = new MSetNxParser();
+            MSetNxParser.MSetNxCommand command = parser.parse(CommandName.name("MSETNX"), new Object[]{"k1", "v1", "k2"});
+            byte[][] kv = command.getRawKv();
+            assertEquals(4, kv.length);
+            assertNull(kv[3]);
+            assertEquals(2, command.getKv().size());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.moilioncircle.redis.replicator.cmd.impl;
+
+import com.moilioncircle.redis.replicator.cmd.CommandName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PFAddParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+        {
+            PFAddParser parser = new PFAddParser();
+            PFAddParser.PFAddCommand command = parser.parse(CommandName.name("PFADD"), new Object[]{"key", "k1", "k2", "k3"});
+            assertEquals("key", command.getKey());
+            assertArrayEquals(new String[]{"k1", "k2", "k3"}, command.getElements());
+        }
+
+        {
+            PFAddParser parser = new PFAddParser();
+            byte[] binary = new byte[]{(byte) 0xff, 0x00, (byte) 0x80};
+            PFAddParser.PFAddCommand command = parser.parse(CommandName.name("PFADD"), new Object[]{"key".getBytes(), "k1".getBytes(), binary, "k1".getBytes()});
+            //every source is kept in order, duplicates included
+            assertEquals(3, command.getRawElements().length);
+            assertArrayEquals("k1".getBytes(), command.getRawElements()[0]);
+            assertArrayEquals(binary, command.getRawElements()[1]);
+            assertArrayEquals("k1".getBytes(), command.getRawElements()[2]);
+        }
+    }
+}
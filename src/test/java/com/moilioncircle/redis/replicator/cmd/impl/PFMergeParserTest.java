@@ -0,0 +1,31 @@
+package com.moilioncircle.redis.replicator.cmd.impl;
+
+import com.moilioncircle.redis.replicator.cmd.CommandName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PFMergeParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+        {
+            PFMergeParser parser = new PFMergeParser();
+            PFMergeParser.PFMergeCommand command = parser.parse(CommandName.name("PFMERGE"), new Object[]{"dest", "k1", "k2", "k3"});
+            assertEquals("dest", command.getDestkey());
+            assertArrayEquals(new String[]{"k1", "k2", "k3"}, command.getSourcekeys());
+        }
+
+        {
+            PFMergeParser parser = new PFMergeParser();
+            byte[] binary = new byte[]{(byte) 0xff, 0x00, (byte) 0x80};
+            PFMergeParser.PFMergeCommand command = parser.parse(CommandName.name("PFMERGE"), new Object[]{"dest".getBytes(), "k1".getBytes(), binary, "k1".getBytes()});
+            //every source is kept in order, duplicates included
+            assertEquals(3, command.getRawSourcekeys().length);
+            assertArrayEquals("k1".getBytes(), command.getRawSourcekeys()[0]);
+            assertArrayEquals(binary, command.getRawSourcekeys()[1]);
+            assertArrayEquals("k1".getBytes(), command.getRawSourcekeys()[2]);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.moilioncircle.redis.replicator.cmd.impl;
+
+import com.moilioncircle.redis.replicator.cmd.CommandName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SInterStoreParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+        {
+            SInterStoreParser parser = new SInterStoreParser();
+            SInterStoreParser.SInterStoreCommand command = parser.parse(CommandName.name("SINTERSTORE"), new Object[]{"dest", "k1", "k2", "k3"});
+            assertEquals("dest", command.getDestination());
+            assertArrayEquals(new String[]{"k1", "k2", "k3"}, command.getKeys());
+        }
+
+        {
+            SInterStoreParser parser = new SInterStoreParser();
+            byte[] binary = new byte[]{(byte) 0xff, 0x00, (byte) 0x80};
+            SInterStoreParser.SInterStoreCommand command = parser.parse(CommandName.name("SINTERSTORE"), new Object[]{"dest".getBytes(), "k1".getBytes(), binary, "k1".getBytes()});
+            //every source is kept in order, duplicates included
+            assertEquals(3, command.getRawKeys().length);
+            assertArrayEquals("k1".getBytes(), command.getRawKeys()[0]);
+            assertArrayEquals(binary, command.getRawKeys()[1]);
+            assertArrayEquals("k1".getBytes(), command.getRawKeys()[2]);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.moilioncircle.redis.replicator.io;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedRedisInputStreamTest {
+
+    @Test
+    public void testWindows() throws Exception {
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) (i * 7);
+        File file = File.createTempFile("mapped", ".rdb");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+
+        // window of 7 bytes so that every read crosses windows
+        MappedRedisInputStream mapped = new MappedRedisInputStream(file, 7);
+        RedisInputStream plain = new RedisInputStream(new ByteArrayInputStream(data), 7);
+        assertEquals(plain.read(), mapped.read());
+        assertEquals(plain.readInt(4), mapped.readInt(4));
+        assertArrayEquals(plain.readBytes(20), mapped.readBytes(20));
+        plain.skip(3);
+        mapped.skip(3);
+        assertEquals(28, mapped.position());
+        assertEquals(plain.readLong(8), mapped.readLong(8));
+        plain.skip(40);
+        mapped.skip(40);
+        assertEquals(76, mapped.position());
+        assertEquals(24, mapped.available());
+        mapped.mark();
+        assertArrayEquals(plain.readBytes(23), mapped.readBytes(23));
+        assertEquals(plain.read(), mapped.read());
+        assertEquals(24, mapped.unmark());
+        assertEquals(100, mapped.total());
+        try {
+            mapped.read();
+            fail();
+        } catch (EOFException e) {
+        }
+        // back into the current window, then into an earlier one
+        mapped.seek(96);
+        assertEquals(data[96], (byte) mapped.read());
+        mapped.seek(3);
+        assertEquals(3, mapped.position());
+        assertArrayEquals(Arrays.copyOfRange(data, 3, 13), mapped.readBytes(10));
+        try {
+            mapped.seek(101);
+            fail();
+        } catch (EOFException e) {
+        }
+        mapped.close();
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+        File file = File.createTempFile("mapped", ".rdb");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+
+        MappedRedisInputStream mapped = new MappedRedisInputStream(file, 30, 40);
+        assertEquals(30, mapped.position());
+        assertEquals(10, mapped.available());
+        assertEquals(30, mapped.read());
+        assertArrayEquals(Arrays.copyOfRange(data, 31, 39), mapped.readBytes(8));
+        assertEquals(39, mapped.read());
+        try {
+            mapped.read();
+            fail();
+        } catch (EOFException e) {
+        }
+        mapped.close();
+    }
+
+    @Test
+    public void testReplicator() throws Exception {
+        File file = new File(MappedRedisInputStreamTest.class.getClassLoader().getResource("dumpV7.rdb").getFile());
+        assertEquals(parse(file, false), parse(file, true));
+    }
+
+    private Map<String, String> parse(File file, boolean mapped) throws Exception {
+        final Map<String, String> map = new ConcurrentHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(file, Configuration.defaultSetting().setMappedFile(mapped));
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                Object value = kv.getValue();
+                map.put(kv.getKey(), value instanceof List ? Arrays.deepToString(((List<?>) value).toArray()) : String.valueOf(value));
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        assertTrue(map.size() > 0);
+        return map;
+    }
+}
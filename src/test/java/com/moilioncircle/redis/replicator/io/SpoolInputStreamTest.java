@@ -0,0 +1,117 @@
+package com.moilioncircle.redis.replicator.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SpoolInputStreamTest {
+
+    @Test
+    public void testSpool() throws Exception {
+        byte[] data = new byte[10000];
+        new Random(1).nextBytes(data);
+        File dir = Files.createTempDirectory("spool").toFile();
+        SpoolInputStream spool = new SpoolInputStream(new ByteArrayInputStream(data), dir, 100, 300);
+        RedisInputStream in = new RedisInputStream(spool, 64);
+        assertEquals(data[0] & 0xFF, in.read());
+        assertArrayEquals(copyOfRange(data, 1, 5000), in.readBytes(4999));
+        assertArrayEquals(copyOfRange(data, 5000, data.length), in.readBytes(5000));
+        assertEquals(-1, spool.read());
+        //read segments are deleted
+        assertTrue(dir.list().length <= 1);
+        in.close();
+        assertEquals(0, dir.list().length);
+        assertTrue(dir.delete());
+    }
+
+    @Test
+    public void testBackPressure() throws Exception {
+        File dir = Files.createTempDirectory("spool").toFile();
+        CountingInputStream source = new CountingInputStream(new ByteArrayInputStream(new byte[10000]));
+        SpoolInputStream spool = new SpoolInputStream(source, dir, 100, 300);
+        Thread.sleep(200);
+        //the writer stops reading the source once maxSize bytes are spooled
+        assertTrue(spool.spooled() >= 300);
+        assertTrue(spool.spooled() < 400);
+        assertTrue(source.count < 10000);
+        byte[] buf = new byte[10000];
+        int total = 0;
+        int len;
+        while ((len = spool.read(buf, 0, buf.length)) != -1) total += len;
+        assertEquals(10000, total);
+        assertEquals(10000, source.count);
+        spool.close();
+        assertTrue(dir.delete());
+    }
+
+    @Test
+    public void testError() throws Exception {
+        File dir = Files.createTempDirectory("spool").toFile();
+        InputStream source = new InputStream() {
+            private int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count++ == 50) throw new IOException("reset");
+                return 1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                b[off] = (byte) read();
+                return 1;
+            }
+        };
+        SpoolInputStream spool = new SpoolInputStream(source, dir, 10, 100);
+        //bytes before the error are read first
+        for (int i = 0; i < 50; i++) assertEquals(1, spool.read());
+        try {
+            spool.read();
+            fail();
+        } catch (IOException e) {
+            assertEquals("reset", e.getMessage());
+        }
+        spool.close();
+        assertTrue(dir.delete());
+    }
+
+    private static byte[] copyOfRange(byte[] data, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        System.arraycopy(data, from, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final InputStream in;
+        private volatile int count;
+
+        private CountingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            //a slow source, a few bytes per read
+            len = in.read(b, off, Math.min(len, 10));
+            if (len > 0) count += len;
+            return len;
+        }
+    }
+}
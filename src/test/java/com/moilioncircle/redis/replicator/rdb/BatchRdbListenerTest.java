@@ -0,0 +1,55 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchRdbListenerTest {
+
+    @Test
+    public void testBatch() throws Exception {
+        Configuration configuration = Configuration.defaultSetting().setEventHandlerWorkers(2).setBatchListenerSize(3);
+        RedisReplicator replicator = new RedisReplicator(
+                BatchRdbListenerTest.class.getClassLoader().getResourceAsStream("dumpV7.rdb"), configuration);
+        final AtomicInteger single = new AtomicInteger(0);
+        final AtomicInteger batched = new AtomicInteger(0);
+        final AtomicInteger oversize = new AtomicInteger(0);
+        final AtomicInteger flushedBeforePost = new AtomicInteger(-1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                single.incrementAndGet();
+            }
+        });
+        replicator.addBatchRdbListener(new BatchRdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, List<KeyValuePair<?>> kvs) {
+                if (kvs.size() > 3) oversize.incrementAndGet();
+                batched.addAndGet(kvs.size());
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                flushedBeforePost.set(batched.get());
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(single.get() > 3);
+        assertEquals(single.get(), flushedBeforePost.get());
+        assertEquals(0, oversize.get());
+        replicator.close();
+    }
+}
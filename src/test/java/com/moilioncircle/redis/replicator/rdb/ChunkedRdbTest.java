@@ -0,0 +1,91 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.datatype.ChunkStage;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedRdbTest {
+
+    @Test
+    public void testChunk() throws Exception {
+        String[] resources = new String[]{"regular_set.rdb", "linkedlist.rdb", "dictionary.rdb", "regular_sorted_set.rdb", "dumpV7.rdb"};
+        int total = 0;
+        for (String resource : resources) {
+            Map<String, Integer> whole = sizes(resource, 0, new ArrayList<KeyValuePair<?>>());
+            List<KeyValuePair<?>> chunks = new ArrayList<>();
+            Map<String, Integer> chunked = sizes(resource, 2, chunks);
+            assertEquals(resource, whole, chunked);
+
+            Map<String, ChunkStage> last = new HashMap<>();
+            for (KeyValuePair<?> kv : chunks) {
+                ChunkStage prev = last.get(kv.getKey());
+                switch (kv.getChunkStage()) {
+                    case BEGIN:
+                        assertNull(prev);
+                        assertNull(kv.getValue());
+                        break;
+                    case CHUNK:
+                        assertTrue(prev == ChunkStage.BEGIN || prev == ChunkStage.CHUNK);
+                        assertTrue(size(kv.getValue()) <= 2);
+                        break;
+                    case END:
+                        assertEquals(ChunkStage.CHUNK, prev);
+                        assertNull(kv.getValue());
+                        break;
+                    default:
+                        break;
+                }
+                last.put(kv.getKey(), kv.getChunkStage());
+            }
+            for (ChunkStage stage : last.values()) assertEquals(ChunkStage.END, stage);
+            total += chunks.size();
+        }
+        assertTrue(total > 0);
+    }
+
+    private Map<String, Integer> sizes(String resource, int chunkSize, final List<KeyValuePair<?>> chunks) throws Exception {
+        final Map<String, Integer> sizes = new HashMap<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(ChunkedRdbTest.class.getClassLoader().getResourceAsStream(resource),
+                Configuration.defaultSetting().setRdbChunkSize(chunkSize));
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                if (kv.isChunked()) chunks.add(kv);
+                int size = size(kv.getValue());
+                Integer prev = sizes.get(kv.getKey());
+                sizes.put(kv.getKey(), prev == null ? size : prev + size);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        return sizes;
+    }
+
+    private static int size(Object value) {
+        if (value instanceof Map) return ((Map<?, ?>) value).size();
+        if (value instanceof Collection) return ((Collection<?>) value).size();
+        return value == null ? 0 : 1;
+    }
+}
@@ -0,0 +1,135 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.util.Strings;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompactCursorTest {
+
+    @Test
+    public void testZipListEntries() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        //6 bit string
+        out.write(new byte[]{0, 3, 'f', 'o', 'o'});
+        //14 bit string with a 5 bytes prevlen
+        byte[] big = new byte[300];
+        for (int i = 0; i < big.length; i++) big[i] = (byte) ('a' + i % 26);
+        out.write(new byte[]{(byte) 254, 1, 0, 0, 0, (byte) (0x40 | 300 >> 8), (byte) (300 & 0xff)});
+        out.write(big);
+        //32 bit string
+        out.write(new byte[]{7, (byte) 0x80, 0, 0, 0, 2, 'h', 'i'});
+        //integers, negative 24 bit is sign extended
+        out.write(new byte[]{4, (byte) 0xfe, (byte) 0x80});
+        out.write(new byte[]{3, (byte) 0xc0, 0x34, 0x12});
+        out.write(new byte[]{4, (byte) 0xf0, (byte) 0xff, (byte) 0xff, (byte) 0xff});
+        out.write(new byte[]{5, (byte) 0xd0, 1, 0, 0, (byte) 0x80});
+        out.write(new byte[]{6, (byte) 0xe0, 1, 2, 3, 4, 5, 6, 7, (byte) 0x80});
+        //4 bit immediate
+        out.write(new byte[]{10, (byte) 0xf5});
+        byte[] bytes = out.toByteArray();
+
+        String[] expected = new String[]{"foo", new String(big), "hi", "-128", "4660", "-1", "-2147483647", "-9221395093405892095", "4"};
+        CompactCursor cursor = new CompactCursor(bytes);
+        RedisInputStream in = new RedisInputStream(new ByteArrayInputStream(bytes));
+        int entries = 0;
+        while (cursor.remaining() > 0) {
+            assertEquals(expected[entries], cursor.zipListEntry());
+            //the deprecated stream helper delegates to the cursor
+            assertEquals(expected[entries++], AbstractRdbParser.StringHelper.zipListEntry(in));
+        }
+        assertEquals(expected.length, entries);
+        assertEquals(bytes.length, in.position());
+    }
+
+    @Test
+    public void testLenHelper() throws Exception {
+        byte[] bytes = new byte[]{(byte) 254, 0, 0, 1, 0, 3, (byte) 0xff, (byte) 0xff, 4, 0, 0, 0};
+        RedisInputStream in = new RedisInputStream(new ByteArrayInputStream(bytes));
+        assertEquals(256, AbstractRdbParser.LenHelper.zmElementLen(in));
+        assertEquals(3, AbstractRdbParser.LenHelper.zmElementLen(in));
+        assertEquals(-1, AbstractRdbParser.LenHelper.zllen(in));
+        assertEquals(4, AbstractRdbParser.LenHelper.encoding(in));
+        try {
+            AbstractRdbParser.LenHelper.zlend(in);
+            fail();
+        } catch (EOFException e) {
+        }
+    }
+
+    @Test
+    public void testTypedEntries() throws Exception {
+        byte[] bytes = new byte[]{0, 3, '2', '.', '5', 5, (byte) 0xf0, (byte) 0xfe, (byte) 0xff, (byte) 0xff, 5, 4, '-', 'i', 'n', 'f'};
+        CompactCursor cursor = new CompactCursor(bytes);
+        assertFalse(cursor.zipListNext());
+        assertEquals(2, cursor.entryOffset());
+        assertEquals(3, cursor.entryLength());
+        assertEquals("2.5", cursor.string());
+        assertTrue(cursor.zipListNext());
+        assertEquals(-2, cursor.longValue());
+        assertEquals(Double.NEGATIVE_INFINITY, cursor.zipListDouble(), 0);
+
+        cursor = new CompactCursor(bytes);
+        assertEquals(2.5, cursor.zipListDouble(), 0);
+        assertEquals(-2, cursor.zipListDouble(), 0);
+    }
+
+    @Test
+    public void testDoubles() throws Exception {
+        String[] doubles = new String[]{"0", "-0", "1", "+7", "3.14159", "-0.000001", "123456789012345", "1234567890123456789",
+                "0.1", "99.99", "1e10", "1.5E-7", ".5", "5.", "inf", "-inf", "nan", "4.9E-324", "0.30000000000000004"};
+        for (String d : doubles) {
+            byte[] bytes = ("x" + d + "y").getBytes();
+            double expected = d.endsWith("inf") ? (d.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY)
+                    : d.equals("nan") ? Double.NaN : Double.parseDouble(d);
+            assertEquals(d, Double.doubleToLongBits(expected), Double.doubleToLongBits(Strings.toDouble(bytes, 1, d.length())));
+        }
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            String d = String.valueOf(random.nextInt(1000000)) + "." + String.valueOf(random.nextInt(100000));
+            assertEquals(d, Double.parseDouble(d), Strings.toDouble(d.getBytes(), 0, d.length()), 0);
+        }
+    }
+
+    @Test
+    public void testIntSet() throws Exception {
+        byte[] bytes = new byte[]{2, 0, 0, 0, 2, 0, 0, 0, (byte) 0xff, (byte) 0xff, 1, 0};
+        CompactCursor cursor = new CompactCursor(bytes);
+        int encoding = cursor.intSetEncoding();
+        assertEquals(2, cursor.readInt(4));
+        assertEquals(-1, cursor.intSetEntry(encoding));
+        assertEquals(1, cursor.intSetEntry(encoding));
+        assertEquals(0, cursor.remaining());
+        try {
+            cursor.read();
+            fail();
+        } catch (EOFException e) {
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        //zipmap element of 254 needs 4 more bytes
+        CompactCursor cursor = new CompactCursor(new byte[]{1, (byte) 254, 0, 0}, 1, 3);
+        try {
+            cursor.zmElementLen();
+            fail();
+        } catch (EOFException e) {
+        }
+        cursor = new CompactCursor(new byte[]{0, 5, 'a'});
+        try {
+            cursor.zipListEntry();
+            fail();
+        } catch (EOFException e) {
+        }
+    }
+}
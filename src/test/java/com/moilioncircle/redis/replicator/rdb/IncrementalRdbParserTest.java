@@ -0,0 +1,89 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.AbstractReplicator;
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.FakeMaster;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IncrementalRdbParserTest {
+
+    @Test
+    public void testFeed() throws Exception {
+        String[] resources = new String[]{"dumpV7.rdb", "dumpV6.rdb", "multiple_databases.rdb",
+                "keys_with_expiry.rdb", "integer_keys.rdb", "dictionary.rdb", "zipmap_with_big_values.rdb",
+                "rdb_version_5_with_checksum.rdb", "empty_database.rdb", "linkedlist.rdb", "regular_sorted_set.rdb"};
+        for (String resource : resources) {
+            byte[] rdb = FakeMaster.read(resource);
+            CollectReplicator expected = new CollectReplicator();
+            new RdbParser(new RedisInputStream(new ByteArrayInputStream(rdb)), expected).parse();
+            for (int chunk : new int[]{1, 7, 100, 4096, rdb.length}) {
+                CollectReplicator actual = new CollectReplicator();
+                IncrementalRdbParser parser = new IncrementalRdbParser(actual);
+                for (int i = 0; i < rdb.length; i += chunk) {
+                    int len = Math.min(chunk, rdb.length - i);
+                    ByteBuffer in = ByteBuffer.wrap(rdb, i, len);
+                    for (Object event : parser.feed(in, i + len == rdb.length)) actual.submitEvent(event);
+                    assertEquals(0, in.remaining());
+                }
+                assertTrue(parser.isDone());
+                assertEquals(resource + ":" + chunk, expected.events, actual.events);
+            }
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        byte[] rdb = FakeMaster.read("dumpV7.rdb");
+        IncrementalRdbParser parser = new IncrementalRdbParser(new CollectReplicator());
+        parser.feed(ByteBuffer.wrap(rdb, 0, rdb.length - 20), false);
+        assertFalse(parser.isDone());
+        try {
+            parser.feed(ByteBuffer.wrap(rdb, rdb.length - 20, 10), true);
+            fail();
+        } catch (EOFException e) {
+        }
+    }
+
+    private static class CollectReplicator extends AbstractReplicator {
+        private final List<String> events = new ArrayList<>();
+
+        private CollectReplicator() {
+            this.configuration = Configuration.defaultSetting();
+        }
+
+        @Override
+        public void submitEvent(Object object) {
+            if (object instanceof KeyValuePair<?>) {
+                KeyValuePair<?> kv = (KeyValuePair<?>) object;
+                Object value = kv.getValue();
+                String v = value instanceof List ? Arrays.deepToString(((List<?>) value).toArray()) : String.valueOf(value);
+                events.add((kv.getDb() == null ? "" : kv.getDb().getDbNumber()) + ":" + kv.getKey() + ":" + kv.getExpiredValue() + ":" + v);
+            } else {
+                events.add(object.getClass().getSimpleName());
+            }
+        }
+
+        @Override
+        public void open() throws IOException {
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.datatype.EncodedHash;
+import com.moilioncircle.redis.replicator.rdb.datatype.EncodedList;
+import com.moilioncircle.redis.replicator.rdb.datatype.EncodedSet;
+import com.moilioncircle.redis.replicator.rdb.datatype.EncodedZSet;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyStringValueString;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import com.moilioncircle.redis.replicator.rdb.datatype.ZSetEntry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.moilioncircle.redis.replicator.Constants.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyEncodedValueTest {
+
+    @Test
+    public void testViews() throws Exception {
+        String[] resources = new String[]{"hash_as_ziplist.rdb", "intset_16.rdb", "intset_32.rdb", "intset_64.rdb",
+                "sorted_set_as_ziplist.rdb", "ziplist_that_compresses_easily.rdb", "ziplist_that_doesnt_compress.rdb",
+                "ziplist_with_integers.rdb", "zipmap_that_compresses_easily.rdb", "zipmap_that_doesnt_compress.rdb",
+                "zipmap_with_big_values.rdb", "dumpV7.rdb", "dumpV6.rdb", "integer_keys.rdb"};
+        int views = 0;
+        int integers = 0;
+        for (String resource : resources) {
+            Map<String, KeyValuePair<?>> eager = parse(resource, false);
+            Map<String, KeyValuePair<?>> lazy = parse(resource, true);
+            assertEquals(resource, eager.keySet(), lazy.keySet());
+            for (Map.Entry<String, KeyValuePair<?>> entry : eager.entrySet()) {
+                KeyValuePair<?> expected = entry.getValue();
+                KeyValuePair<?> actual = lazy.get(entry.getKey());
+                assertEquals(expected.getValueRdbType(), actual.getValueRdbType());
+                switch (actual.getValueRdbType()) {
+                    case REDIS_RDB_TYPE_HASH_ZIPMAP:
+                    case REDIS_RDB_TYPE_HASH_ZIPLIST:
+                        assertTrue(actual.getValue() instanceof EncodedHash);
+                        Map<String, String> hash = actual.getValueAsHash();
+                        assertEquals(expected.getValueAsHash(), hash);
+                        assertEquals(new ArrayList<>(expected.getValueAsHash().keySet()), new ArrayList<>(hash.keySet()));
+                        for (String field : expected.getValueAsHash().keySet()) {
+                            assertEquals(expected.getValueAsHash().get(field), hash.get(field));
+                        }
+                        break;
+                    case REDIS_RDB_TYPE_SET_INTSET:
+                        assertTrue(actual.getValue() instanceof EncodedSet);
+                        Set<String> set = actual.getValueAsSet();
+                        assertEquals(expected.getValueAsSet(), set);
+                        for (String member : expected.getValueAsSet()) assertTrue(set.contains(member));
+                        assertFalse(set.contains("0" + set.iterator().next()));
+                        assertFalse(set.contains("x"));
+                        long[] longs = ((EncodedSet) set).toLongArray();
+                        assertEquals(set.size(), longs.length);
+                        for (int i = 0; i < longs.length; i++) {
+                            assertTrue(expected.getValueAsSet().contains(String.valueOf(longs[i])));
+                            assertTrue(((EncodedSet) set).contains(longs[i]));
+                            if (i > 0) assertTrue(longs[i - 1] < longs[i]);
+                        }
+                        break;
+                    case REDIS_RDB_TYPE_LIST_ZIPLIST:
+                        assertTrue(actual.getValue() instanceof EncodedList);
+                        List<String> list = actual.getValueAsStringList();
+                        assertEquals(expected.getValueAsStringList(), list);
+                        assertEquals(expected.getValueAsStringList().get(list.size() - 1), list.get(list.size() - 1));
+                        break;
+                    case REDIS_RDB_TYPE_ZSET_ZIPLIST:
+                        assertTrue(actual.getValue() instanceof EncodedZSet);
+                        assertEquals(toString(expected.getValueAsZSet()), toString(actual.getValueAsZSet()));
+                        assertEquals(expected.getValueAsZSet().size(), actual.getValueAsZSet().size());
+                        break;
+                    default:
+                        if (actual instanceof KeyStringValueString && ((KeyStringValueString) actual).isIntegerEncoded()) {
+                            long longValue = ((KeyStringValueString) actual).getLongValue();
+                            //formatted on first access
+                            assertTrue(actual.toString().contains("value=" + longValue + ","));
+                            assertEquals(String.valueOf(longValue), actual.getValueAsString());
+                            integers++;
+                        }
+                        assertEquals(toString(expected.getValue()), toString(actual.getValue()));
+                        continue;
+                }
+                assertNotNull(actual.getRawBytes());
+                assertNull(expected.getRawBytes());
+                views++;
+                try {
+                    Iterator<?> it = ((Collection<?>) (actual.getValue() instanceof Map ?
+                            ((Map<?, ?>) actual.getValue()).entrySet() : actual.getValue())).iterator();
+                    it.next();
+                    it.remove();
+                    fail();
+                } catch (UnsupportedOperationException e) {
+                }
+            }
+        }
+        assertTrue(views > 10);
+        assertTrue(integers > 0);
+    }
+
+    private static String toString(Object value) {
+        return value instanceof List ? Arrays.deepToString(((List<?>) value).toArray()) : String.valueOf(value);
+    }
+
+    private static String toString(Set<ZSetEntry> zset) {
+        StringBuilder builder = new StringBuilder();
+        for (ZSetEntry entry : zset) builder.append(entry.getElement()).append(':').append(entry.getScore()).append(',');
+        return builder.toString();
+    }
+
+    private static Map<String, KeyValuePair<?>> parse(String resource, boolean lazy) throws Exception {
+        final Map<String, KeyValuePair<?>> kvs = new LinkedHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(LazyEncodedValueTest.class.getClassLoader().getResourceAsStream(resource),
+                Configuration.defaultSetting().setLazyEncodedValue(lazy));
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                kvs.put(kv.getDb().getDbNumber() + ":" + kv.getKey(), kv);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        return kvs;
+    }
+}
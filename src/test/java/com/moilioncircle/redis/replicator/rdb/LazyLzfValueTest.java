@@ -0,0 +1,101 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyStringValueString;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import com.moilioncircle.redis.replicator.util.DeferredLzf;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyLzfValueTest {
+
+    @Test
+    public void testDeferred() throws Exception {
+        //an LZF literal run: length - 1 followed by the bytes
+        byte[] compressed = new byte[]{4, 'h', 'e', 'l', 'l', 'o'};
+        DeferredLzf lzf = new DeferredLzf(compressed, 5);
+        assertEquals(5, lzf.length());
+        assertArrayEquals(compressed, lzf.getCompressed());
+        assertArrayEquals("hello".getBytes(), lzf.get());
+        assertTrue(lzf.isDecompressed());
+
+        //decompressed on first access when the executor rejects it
+        lzf = new DeferredLzf(compressed, 5);
+        lzf.prefetch(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        assertArrayEquals("hello".getBytes(), lzf.get());
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        String[] resources = new String[]{"easily_compressible_string_key.rdb", "dumpV7.rdb", "dumpV6.rdb"};
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int deferred = 0;
+        for (String resource : resources) {
+            Map<String, KeyValuePair<?>> eager = parse(resource, Configuration.defaultSetting());
+            Map<String, KeyValuePair<?>> lazy = parse(resource, Configuration.defaultSetting().setLazyLzfValue(true));
+            Map<String, KeyValuePair<?>> prefetched = parse(resource, Configuration.defaultSetting().setLazyLzfValue(true).setLzfExecutor(executor));
+            assertEquals(resource, eager.keySet(), lazy.keySet());
+            for (Map.Entry<String, KeyValuePair<?>> entry : eager.entrySet()) {
+                if (!(entry.getValue() instanceof KeyStringValueString)) continue;
+                KeyStringValueString expected = (KeyStringValueString) entry.getValue();
+                KeyStringValueString actual = (KeyStringValueString) lazy.get(entry.getKey());
+                if (actual.getCompressed() != null) {
+                    deferred++;
+                    //toString must not decompress
+                    assertTrue(actual.toString().contains("<LZF "));
+                    assertNotNull(actual.getCompressed());
+                }
+                assertEquals(expected.getValue(), actual.getValue());
+                assertArrayEquals(expected.getRawBytes(), actual.getRawBytes());
+                assertNull(actual.getCompressed());
+                actual = (KeyStringValueString) prefetched.get(entry.getKey());
+                assertArrayEquals(expected.getRawBytes(), actual.getRawBytes());
+                assertEquals(expected.getValueAsString(), actual.getValueAsString());
+            }
+        }
+        executor.shutdown();
+        assertTrue(deferred > 0);
+    }
+
+    private static Map<String, KeyValuePair<?>> parse(String resource, Configuration configuration) throws Exception {
+        final Map<String, KeyValuePair<?>> kvs = new LinkedHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(LazyLzfValueTest.class.getClassLoader().getResourceAsStream(resource), configuration);
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                kvs.put(kv.getDb().getDbNumber() + ":" + kv.getKey(), kv);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        return kvs;
+    }
+}
@@ -0,0 +1,76 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.AbstractReplicator;
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.io.RedisInputStream;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelRdbParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+        String[] resources = new String[]{"dumpV7.rdb", "dumpV6.rdb", "multiple_databases.rdb",
+                "keys_with_expiry.rdb", "integer_keys.rdb", "dictionary.rdb", "zipmap_with_big_values.rdb",
+                "rdb_version_5_with_checksum.rdb", "empty_database.rdb"};
+        for (String resource : resources) {
+            File file = new File(ParallelRdbParserTest.class.getClassLoader().getResource(resource).getFile());
+
+            CollectReplicator sequential = new CollectReplicator();
+            new RdbParser(new RedisInputStream(new FileInputStream(file)), sequential).parse();
+
+            CollectReplicator ordered = new CollectReplicator();
+            new ParallelRdbParser(file, ordered, 4, 2, true).parse();
+            assertEquals(resource, sequential.events, ordered.events);
+
+            CollectReplicator unordered = new CollectReplicator();
+            new ParallelRdbParser(file, unordered, 4, 1, false).parse();
+            List<String> expected = new ArrayList<>(sequential.events);
+            List<String> actual = new ArrayList<>(unordered.events);
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals(resource, expected, actual);
+            assertTrue(unordered.events.get(0).startsWith("PreFullSyncEvent"));
+            assertTrue(unordered.events.get(unordered.events.size() - 1).startsWith("PostFullSyncEvent"));
+        }
+    }
+
+    private static class CollectReplicator extends AbstractReplicator {
+        private final List<String> events = new ArrayList<>();
+
+        private CollectReplicator() {
+            this.configuration = Configuration.defaultSetting();
+        }
+
+        @Override
+        public void submitEvent(Object object) {
+            if (object instanceof KeyValuePair<?>) {
+                KeyValuePair<?> kv = (KeyValuePair<?>) object;
+                Object value = kv.getValue();
+                String v = value instanceof List ? Arrays.deepToString(((List<?>) value).toArray()) : String.valueOf(value);
+                events.add((kv.getDb() == null ? "" : kv.getDb().getDbNumber()) + ":" + kv.getKey() + ":" + kv.getExpiredValue() + ":" + v);
+            } else {
+                events.add(object.getClass().getSimpleName());
+            }
+        }
+
+        @Override
+        public void open() throws IOException {
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
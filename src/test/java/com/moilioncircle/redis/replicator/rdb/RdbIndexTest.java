@@ -0,0 +1,93 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RdbIndexTest {
+
+    @Test
+    public void testLookup() throws Exception {
+        String[] resources = new String[]{"dumpV7.rdb", "multiple_databases.rdb", "keys_with_expiry.rdb", "integer_keys.rdb", "dictionary.rdb"};
+        for (String resource : resources) {
+            File rdb = new File(RdbIndexTest.class.getClassLoader().getResource(resource).getFile());
+            File idx = File.createTempFile("rdb", ".idx");
+            idx.deleteOnExit();
+            List<KeyValuePair<?>> kvs = parse(rdb);
+            assertEquals(kvs.size(), RdbIndex.build(rdb, idx));
+            try (RdbIndex index = RdbIndex.open(rdb, idx)) {
+                assertEquals(kvs.size(), index.size());
+                for (KeyValuePair<?> expected : kvs) {
+                    KeyValuePair<?> actual = index.get(expected.getDb().getDbNumber(), expected.getKey());
+                    assertEquals(resource, expected.getKey(), actual.getKey());
+                    assertEquals(expected.getDb().getDbNumber(), actual.getDb().getDbNumber());
+                    assertEquals(expected.getValueRdbType(), actual.getValueRdbType());
+                    assertEquals(expected.getExpiredType(), actual.getExpiredType());
+                    assertEquals(expected.getExpiredValue(), actual.getExpiredValue());
+                    assertEquals(toString(expected.getValue()), toString(actual.getValue()));
+                }
+                assertNull(index.get("no such key"));
+                if (!kvs.isEmpty()) {
+                    KeyValuePair<?> kv = kvs.get(0);
+                    assertNull(index.get(kv.getDb().getDbNumber() + 1, kv.getKey()));
+                    assertEquals(kv.getKey(), index.get(kv.getKey()).getKey());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStale() throws Exception {
+        File rdb = new File(RdbIndexTest.class.getClassLoader().getResource("dumpV7.rdb").getFile());
+        File other = new File(RdbIndexTest.class.getClassLoader().getResource("dumpV6.rdb").getFile());
+        File idx = File.createTempFile("rdb", ".idx");
+        idx.deleteOnExit();
+        RdbIndex.build(rdb, idx);
+        try {
+            RdbIndex.open(other, idx);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("stale"));
+        }
+    }
+
+    private static String toString(Object value) {
+        return value instanceof List ? Arrays.deepToString(((List<?>) value).toArray()) : String.valueOf(value);
+    }
+
+    private static List<KeyValuePair<?>> parse(File rdb) throws Exception {
+        final List<KeyValuePair<?>> kvs = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(rdb, Configuration.defaultSetting());
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                kvs.add(kv);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        return kvs;
+    }
+}
@@ -0,0 +1,108 @@
+package com.moilioncircle.redis.replicator.rdb;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.datatype.ExpiredType;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.moilioncircle.redis.replicator.Constants.REDIS_RDB_TYPE_STRING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RdbKeyFilterTest {
+
+    @Test
+    public void testPushdown() throws Exception {
+        String[] resources = new String[]{"dumpV7.rdb", "multiple_databases.rdb", "keys_with_expiry.rdb", "dictionary.rdb", "linkedlist.rdb"};
+        RdbKeyFilter[] filters = new RdbKeyFilter[]{
+                RdbKeyFilters.db(1),
+                RdbKeyFilters.prefix("k", "l"),
+                RdbKeyFilters.regex("[a-m].*"),
+                RdbKeyFilters.valueType(REDIS_RDB_TYPE_STRING),
+                RdbKeyFilters.expiredAfter(0L),
+                RdbKeyFilters.or(RdbKeyFilters.db(0), RdbKeyFilters.and(RdbKeyFilters.prefix("k"), RdbKeyFilters.expiredAfter(Long.MAX_VALUE)))
+        };
+        for (String resource : resources) {
+            for (final RdbKeyFilter filter : filters) {
+                // the same predicate applied after decoding must select the same kvs
+                List<String> expected = parse(resource, null, new RdbFilter() {
+                    @Override
+                    public boolean accept(KeyValuePair<?> kv) {
+                        return filter.accept(kv);
+                    }
+                });
+                assertEquals(resource, expected, parse(resource, filter, null));
+            }
+        }
+    }
+
+    @Test
+    public void testHeader() throws Exception {
+        final List<KeyValuePair<?>> headers = new ArrayList<>();
+        Replicator replicator = new RedisReplicator(RdbKeyFilterTest.class.getClassLoader().getResourceAsStream("keys_with_expiry.rdb"),
+                Configuration.defaultSetting());
+        replicator.addRdbKeyFilter(new RdbKeyFilter() {
+            @Override
+            public boolean accept(KeyValuePair<?> kv) {
+                headers.add(kv);
+                return false;
+            }
+        });
+        final int[] handled = new int[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                handled[0]++;
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        assertEquals(0, handled[0]);
+        assertTrue(headers.size() > 0);
+        for (KeyValuePair<?> kv : headers) {
+            assertEquals(null, kv.getValue());
+            assertTrue(kv.getExpiredType() != ExpiredType.NONE);
+        }
+    }
+
+    private static List<String> parse(String resource, RdbKeyFilter keyFilter, RdbFilter filter) throws Exception {
+        final List<String> events = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(RdbKeyFilterTest.class.getClassLoader().getResourceAsStream(resource),
+                Configuration.defaultSetting());
+        if (keyFilter != null) replicator.addRdbKeyFilter(keyFilter);
+        if (filter != null) replicator.addRdbFilter(filter);
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                Object value = kv.getValue();
+                String v = value instanceof List ? Arrays.deepToString(((List<?>) value).toArray()) : String.valueOf(value);
+                events.add(kv.getDb().getDbNumber() + ":" + kv.getKey() + ":" + kv.getExpiredValue() + ":" + v);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        return events;
+    }
+}
@@ -0,0 +1,113 @@
+package com.moilioncircle.redis.replicator.rdb.datatype;
+
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.Constants;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.rdb.CompactCursor;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QuickListTest {
+
+    //zlbytes 16, zltail 13, zllen 2, "a", 5, zlend
+    private static final byte[] ZIPLIST = new byte[]{16, 0, 0, 0, 13, 0, 0, 0, 2, 0, 0, 1, 'a', 3, (byte) 0xf6, (byte) 0xff};
+
+    @Test
+    public void testElements() throws Exception {
+        //an LZF literal run: length - 1 followed by the bytes
+        byte[] compressed = new byte[ZIPLIST.length + 1];
+        compressed[0] = (byte) (ZIPLIST.length - 1);
+        System.arraycopy(ZIPLIST, 0, compressed, 1, ZIPLIST.length);
+
+        QuickList list = new QuickList();
+        list.add(ZIPLIST);
+        list.addCompressed(compressed, ZIPLIST.length);
+        assertEquals(2, list.size());
+        assertFalse(list.isCompressed(0));
+        assertNull(list.getCompressed(0));
+        assertTrue(list.isCompressed(1));
+        assertArrayEquals(compressed, list.getCompressed(1));
+        assertArrayEquals(ZIPLIST, list.get(1));
+
+        List<String> elements = new ArrayList<>();
+        for (String element : list.elements()) elements.add(element);
+        assertEquals(Arrays.asList("a", "5", "a", "5"), elements);
+
+        Iterator<String> it = list.elements().iterator();
+        it.next();
+        try {
+            it.remove();
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        assertFalse(new QuickList().elements().iterator().hasNext());
+    }
+
+    @Test
+    public void testRdb() throws Exception {
+        Map<String, KeyValuePair<?>> eager = parse(false);
+        Map<String, KeyValuePair<?>> lazy = parse(true);
+        int lists = 0;
+        for (Map.Entry<String, KeyValuePair<?>> entry : eager.entrySet()) {
+            KeyValuePair<?> expected = entry.getValue();
+            if (expected.getValueRdbType() != Constants.REDIS_RDB_TYPE_LIST_QUICKLIST) continue;
+            QuickList nodes = expected.getValueAsQuickList();
+            List<String> decoded = new ArrayList<>();
+            for (byte[] node : nodes) {
+                CompactCursor cursor = new CompactCursor(node);
+                int zllen = cursor.zipListHeader();
+                for (int i = 0; i < zllen; i++) decoded.add(cursor.zipListEntry());
+            }
+            assertEquals(decoded, elements(nodes));
+            assertEquals(decoded, elements(lazy.get(entry.getKey()).getValueAsQuickList()));
+            assertEquals(nodes.size(), lazy.get(entry.getKey()).getValueAsByteArrayList().size());
+            lists++;
+        }
+        assertTrue(lists > 0);
+    }
+
+    private static List<String> elements(QuickList list) {
+        List<String> elements = new ArrayList<>();
+        for (String element : list.elements()) elements.add(element);
+        return elements;
+    }
+
+    private static Map<String, KeyValuePair<?>> parse(boolean lazy) throws Exception {
+        final Map<String, KeyValuePair<?>> kvs = new LinkedHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Replicator replicator = new RedisReplicator(QuickListTest.class.getClassLoader().getResourceAsStream("dumpV7.rdb"),
+                Configuration.defaultSetting().setLazyEncodedValue(lazy));
+        replicator.addRdbListener(new RdbListener.Adaptor() {
+            @Override
+            public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                kvs.put(kv.getDb().getDbNumber() + ":" + kv.getKey(), kv);
+            }
+
+            @Override
+            public void postFullSync(Replicator replicator, long checksum) {
+                latch.countDown();
+            }
+        });
+        replicator.open();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        return kvs;
+    }
+}
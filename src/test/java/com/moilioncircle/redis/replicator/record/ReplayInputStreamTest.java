@@ -0,0 +1,178 @@
+package com.moilioncircle.redis.replicator.record;
+
+import com.moilioncircle.redis.replicator.CloseListener;
+import com.moilioncircle.redis.replicator.Configuration;
+import com.moilioncircle.redis.replicator.FakeMaster;
+import com.moilioncircle.redis.replicator.RedisReplicator;
+import com.moilioncircle.redis.replicator.Replicator;
+import com.moilioncircle.redis.replicator.cmd.Command;
+import com.moilioncircle.redis.replicator.cmd.CommandListener;
+import com.moilioncircle.redis.replicator.cmd.impl.SetParser;
+import com.moilioncircle.redis.replicator.rdb.RdbListener;
+import com.moilioncircle.redis.replicator.rdb.datatype.KeyValuePair;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReplayInputStreamTest {
+
+    private static final String SET_A = "*3\r\n$3\r\nSET\r\n$1\r\na\r\n$1\r\nb\r\n";
+    private static final String SET_C = "*3\r\n$3\r\nSET\r\n$1\r\nc\r\n$1\r\nd\r\n";
+
+    @Test
+    public void testSessions() throws Exception {
+        File dir = Files.createTempDirectory("recording").toFile();
+        StreamRecorder recorder = new StreamRecorder(dir, 20);
+        recorder.session("PSYNC ? -1");
+        recorder.record("hello".getBytes(), 0, 5);
+        Thread.sleep(200);
+        recorder.record("-world-".getBytes(), 1, 5);
+        recorder.session("PSYNC x 5");
+        recorder.record("unread".getBytes(), 0, 6);
+        recorder.session("PSYNC x 10");
+        recorder.record("!!".getBytes(), 0, 2);
+        recorder.close();
+        assertTrue(dir.list().length > 1);
+
+        long start = System.currentTimeMillis();
+        ReplayInputStream in = new ReplayInputStream(dir, true);
+        assertEquals(-1, in.read());
+        assertEquals("PSYNC ? -1", in.nextSession());
+        assertEquals("helloworld", read(in));
+        assertTrue(System.currentTimeMillis() - start >= 150);
+        assertEquals("PSYNC x 5", in.nextSession());
+        //the rest of a session is skipped
+        assertEquals("PSYNC x 10", in.nextSession());
+        assertEquals("!!", read(in));
+        assertNull(in.nextSession());
+        in.close();
+
+        //a new recorder appends new segments
+        recorder = new StreamRecorder(dir, 20);
+        recorder.session("PSYNC x 12");
+        recorder.close();
+        in = new ReplayInputStream(dir, false);
+        for (int i = 0; i < 3; i++) in.nextSession();
+        assertEquals("PSYNC x 12", in.nextSession());
+        in.close();
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        File dir = Files.createTempDirectory("recording").toFile();
+        StreamRecorder recorder = new StreamRecorder(dir, 1024);
+        recorder.session("PSYNC ? -1");
+        recorder.record("hello".getBytes(), 0, 5);
+        recorder.close();
+        File[] segments = ReplayInputStream.segments(dir);
+        File last = segments[segments.length - 1];
+        try (RandomAccessFile file = new RandomAccessFile(last, "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        ReplayInputStream in = new ReplayInputStream(dir, false);
+        assertEquals("PSYNC ? -1", in.nextSession());
+        assertEquals('h', in.read());
+        assertEquals('e', in.read());
+        assertEquals('l', in.read());
+        try {
+            in.read();
+            fail();
+        } catch (EOFException e) {
+            assertEquals("truncated recording", e.getMessage());
+        }
+        in.close();
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        File dir = Files.createTempDirectory("recording").toFile();
+        StreamRecorder recorder = new StreamRecorder(dir, 1024);
+        FakeMaster master = new FakeMaster.Resuming(FakeMaster.read("dumpV7.rdb"), SET_A, SET_C, true).start();
+        Configuration live = Configuration.defaultSetting().setStreamRecorder(recorder).setRetryTimeInterval(10);
+        final Replicator replicator = new RedisReplicator("127.0.0.1", master.port(), live);
+        Events recorded = new Events(replicator);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    replicator.open();
+                } catch (IOException e) {
+                    //closed
+                }
+            }
+        }).start();
+        assertTrue(recorded.commands.await(10, TimeUnit.SECONDS));
+        replicator.close();
+        assertTrue(recorded.closed.await(10, TimeUnit.SECONDS));
+        master.close();
+        recorder.close();
+
+        Configuration configuration = Configuration.defaultSetting();
+        Replicator replay = new RedisReplicator(new ReplayInputStream(dir, false), configuration);
+        Events replayed = new Events(replay);
+        replay.open();
+        assertTrue(replayed.commands.await(10, TimeUnit.SECONDS));
+        replay.close();
+        assertTrue(replayed.kvs.get() > 0);
+        assertEquals(recorded.kvs.get(), replayed.kvs.get());
+        assertEquals(Arrays.asList("a", "c"), recorded.keys);
+        assertEquals(recorded.keys, replayed.keys);
+        assertEquals(100 + SET_A.length() + SET_C.length(), configuration.getOffset());
+        assertEquals("0123456789abcdef", configuration.getMasterRunId());
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[3];
+        int len;
+        while ((len = in.read(buf, 0, buf.length)) != -1) out.write(buf, 0, len);
+        return new String(out.toByteArray());
+    }
+
+    private static class Events {
+        private final AtomicInteger kvs = new AtomicInteger(0);
+        private final List<String> keys = new CopyOnWriteArrayList<>();
+        private final CountDownLatch commands = new CountDownLatch(2);
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private Events(Replicator replicator) {
+            replicator.addRdbListener(new RdbListener.Adaptor() {
+                @Override
+                public void handle(Replicator replicator, KeyValuePair<?> kv) {
+                    kvs.incrementAndGet();
+                }
+            });
+            replicator.addCommandListener(new CommandListener() {
+                @Override
+                public void handle(Replicator replicator, Command command) {
+                    keys.add(((SetParser.SetCommand) command).getKey());
+                    commands.countDown();
+                }
+            });
+            replicator.addCloseListener(new CloseListener() {
+                @Override
+                public void handle(Replicator replicator) {
+                    closed.countDown();
+                }
+            });
+        }
+    }
+}
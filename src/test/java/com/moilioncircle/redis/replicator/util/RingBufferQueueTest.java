@@ -0,0 +1,64 @@
+package com.moilioncircle.redis.replicator.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferQueueTest {
+    @Test
+    public void testOfferPoll() throws Exception {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(3, RingBufferQueue.WaitStrategy.BLOCKING);
+        assertEquals(4, queue.capacity());
+        for (int i = 0; i < 4; i++) assertTrue(queue.offer(i));
+        assertFalse(queue.offer(4));
+        assertFalse(queue.offer(4, 10, TimeUnit.MILLISECONDS));
+        assertEquals(4, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(0, queue.peek().intValue());
+        assertEquals(0, queue.poll().intValue());
+        List<Integer> list = new ArrayList<>();
+        assertEquals(2, queue.drainTo(list, 2));
+        assertEquals(1, list.get(0).intValue());
+        assertEquals(2, list.get(1).intValue());
+        assertEquals(3, queue.take().intValue());
+        assertNull(queue.poll());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testProducerConsumer() throws Exception {
+        // BUSY_SPIN is left out, it starves the producer on single core build machines
+        for (RingBufferQueue.WaitStrategy strategy : new RingBufferQueue.WaitStrategy[]{RingBufferQueue.WaitStrategy.YIELD, RingBufferQueue.WaitStrategy.BLOCKING}) {
+            final int count = 100000;
+            final RingBufferQueue<Integer> queue = new RingBufferQueue<>(64, strategy);
+            Thread producer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < count; i++) queue.put(i);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            producer.start();
+            List<Integer> batch = new ArrayList<>();
+            int expected = 0;
+            while (expected < count) {
+                batch.add(queue.take());
+                queue.drainTo(batch, 15);
+                for (Integer i : batch) assertEquals(expected++, i.intValue());
+                batch.clear();
+            }
+            producer.join();
+            assertEquals(0, queue.size());
+        }
+    }
+}